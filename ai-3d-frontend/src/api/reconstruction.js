@@ -23,6 +23,16 @@ export const reconstructionApi = {
   connectSSE: (taskId) =>
     new EventSource(`/api/reconstruction/events/${taskId}`),
 
+  // 用户事件流：一个连接接收当前用户所有已订阅任务的事件
+  connectUserSSE: () =>
+    new EventSource('/api/reconstruction/events'),
+
+  subscribeTaskEvents: (taskId) =>
+    apiClient.post('/reconstruction/events/subscribe', null, { params: { taskId } }),
+
+  unsubscribeTaskEvents: (taskId) =>
+    apiClient.post('/reconstruction/events/unsubscribe', null, { params: { taskId } }),
+
   getResultFileUrl: (taskId, fileName) =>
     `${apiClient.defaults.baseURL}/reconstruction/files/${taskId}/${fileName}`,
 
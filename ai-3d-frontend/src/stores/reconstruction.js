@@ -30,16 +30,21 @@ export const useReconstructionStore = defineStore('reconstruction', {
     },
 
     connectToSSE(taskId) {
+      // 所有任务共用一个用户事件流，新建的任务由服务端自动订阅
       if (this.sseConnection) {
-        this.sseConnection.close()
+        reconstructionApi.subscribeTaskEvents(taskId)
+        return
       }
 
-      const sse = reconstructionApi.connectSSE(taskId)
-      
-      sse.onmessage = (event) => {
-        const data = JSON.parse(event.data)
-        this.updateTaskStatus(data)
+      const sse = reconstructionApi.connectUserSSE()
+
+      const handleEvent = (event) => {
+        const { taskId: eventTaskId, data } = JSON.parse(event.data)
+        this.updateTaskStatus({ ...data, taskId: eventTaskId })
       }
+      sse.addEventListener('status', handleEvent)
+      sse.addEventListener('result', handleEvent)
+      sse.addEventListener('file_received', handleEvent)
 
       sse.onerror = () => {
         sse.close()
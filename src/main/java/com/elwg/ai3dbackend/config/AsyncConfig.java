@@ -1,5 +1,6 @@
 package com.elwg.ai3dbackend.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -50,4 +51,54 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * 重建产物上传线程池
+     * <p>
+     * 并发上传同一个结果压缩包中的多个模型文件到存储服务。队列满时由回调线程自己上传，
+     * 限制同时暂存等待上传的文件数
+     * </p>
+     *
+     * @param uploadThreads 上传线程数
+     * @return 线程池执行器
+     */
+    @Bean(name = "artifactUploadExecutor")
+    public Executor artifactUploadExecutor(@Value("${reconstruction.callback.upload-threads:6}") int uploadThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // 固定线程数
+        executor.setCorePoolSize(uploadThreads);
+        executor.setMaxPoolSize(uploadThreads);
+        // 队列容量
+        executor.setQueueCapacity(uploadThreads * 4);
+        // 线程名前缀
+        executor.setThreadNamePrefix("ArtifactUpload-");
+        // 拒绝策略：调用者运行
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // 初始化
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * SSE写线程池
+     * <p>
+     * 负责把各连接发送队列中的事件写到客户端，使发布事件的线程不必等待客户端I/O。
+     * 每个连接同一时间最多占用一个线程，队列中的任务数不超过连接数，因此不限制队列容量
+     * </p>
+     *
+     * @param writerThreads 写线程数
+     * @return 线程池执行器
+     */
+    @Bean(name = "sseWriterExecutor")
+    public Executor sseWriterExecutor(@Value("${reconstruction.sse.writer-threads:4}") int writerThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // 固定线程数
+        executor.setCorePoolSize(writerThreads);
+        executor.setMaxPoolSize(writerThreads);
+        // 线程名前缀
+        executor.setThreadNamePrefix("SseWriter-");
+        // 初始化
+        executor.initialize();
+        return executor;
+    }
+}
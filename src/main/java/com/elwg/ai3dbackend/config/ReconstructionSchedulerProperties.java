@@ -0,0 +1,60 @@
+package com.elwg.ai3dbackend.config;
+
+import com.elwg.ai3dbackend.model.enums.UserRoleEnum;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 3D重建任务调度配置
+ * <p>
+ * 按用户角色划分优先级类别，每个类别配置派发权重和单个用户的并发上限。
+ * 未配置的角色按普通用户处理
+ * </p>
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "reconstruction.scheduler")
+public class ReconstructionSchedulerProperties {
+
+    /**
+     * 是否按用户公平调度，关闭时所有任务按创建顺序派发
+     */
+    private boolean fair = true;
+
+    /**
+     * 用户角色到优先级类别的映射，键为UserRoleEnum的value
+     */
+    private Map<String, PriorityClass> classes = new HashMap<>(Map.of(
+            UserRoleEnum.ADMIN.getValue(), new PriorityClass(10, 4, 4),
+            UserRoleEnum.USER.getValue(), new PriorityClass(0, 1, 2)));
+
+    /**
+     * 优先级类别
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriorityClass {
+
+        /**
+         * 优先级，数值大的类别在每轮派发中排在前面，写入任务的priority字段
+         */
+        private int priority;
+
+        /**
+         * 派发权重，每轮派发中该类别的每个用户最多派发的任务数
+         */
+        private int weight = 1;
+
+        /**
+         * 单个用户同时处理中的最大任务数
+         */
+        private int maxConcurrency = 2;
+    }
+}
@@ -0,0 +1,89 @@
+package com.elwg.ai3dbackend.config;
+
+import com.elwg.ai3dbackend.constant.DispatchMode;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 3D重建服务节点池配置
+ * <p>
+ * 配置多个Python重建服务节点，以及健康探测和故障摘除的参数。
+ * 未配置节点时使用 reconstruction.http.server.url 作为唯一节点
+ * </p>
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "reconstruction.workers")
+public class ReconstructionWorkerProperties {
+
+    /**
+     * 健康探测间隔（毫秒）
+     */
+    private long probeInterval = 10000;
+
+    /**
+     * 健康探测超时时间（毫秒）
+     */
+    private long probeTimeout = 3000;
+
+    /**
+     * 节点被摘除后的观察期（毫秒），观察期结束且健康探测成功后恢复
+     */
+    private long probation = 30000;
+
+    /**
+     * 连续失败多少次后摘除节点
+     */
+    private int failureThreshold = 3;
+
+    /**
+     * 节点默认的任务派发方式（bytes/url），节点未单独配置时使用
+     */
+    private String dispatchMode = DispatchMode.BYTES;
+
+    /**
+     * url派发方式下预签名URL的有效期（毫秒），需要覆盖任务在节点内部排队的时间
+     */
+    private long presignExpire = 1800000;
+
+    /**
+     * 重建服务节点列表
+     */
+    private List<Node> nodes = new ArrayList<>();
+
+    /**
+     * 重建服务节点
+     */
+    @Data
+    public static class Node {
+
+        /**
+         * 节点名称（可选，默认使用URL）
+         */
+        private String name;
+
+        /**
+         * 重建接口URL
+         */
+        private String url;
+
+        /**
+         * 健康检查URL
+         */
+        private String healthUrl;
+
+        /**
+         * 取消任务接口URL（可选，默认把重建接口URL的最后一段路径替换为cancel）
+         */
+        private String cancelUrl;
+
+        /**
+         * 任务派发方式（bytes/url，可选，默认使用节点池的dispatchMode）
+         */
+        private String dispatchMode;
+    }
+}
@@ -0,0 +1,20 @@
+package com.elwg.ai3dbackend.constant;
+
+/**
+ * 任务派发方式常量，决定如何把源图片交给重建服务节点
+ */
+public class DispatchMode {
+    /**
+     * 后端下载图片后以multipart文件上传给节点
+     */
+    public static final String BYTES = "bytes";
+
+    /**
+     * 只发送有时效的预签名下载URL，由节点直接从对象存储下载图片
+     */
+    public static final String URL = "url";
+
+    private DispatchMode() {
+        // 私有构造函数，防止实例化
+    }
+}
@@ -0,0 +1,61 @@
+package com.elwg.ai3dbackend.constant;
+
+import java.util.List;
+
+/**
+ * 任务处理阶段常量
+ * <p>
+ * 任务时间线中按阶段记录相对创建时间的毫秒数，阶段按处理顺序排列
+ * </p>
+ */
+public class TaskStage {
+    /**
+     * 已创建，时间线的起点
+     */
+    public static final String CREATED = "created";
+
+    /**
+     * 已派发，开始发送到重建服务节点
+     */
+    public static final String DISPATCHED = "dispatched";
+
+    /**
+     * 重建服务节点已接收任务
+     */
+    public static final String ACCEPTED = "accepted";
+
+    /**
+     * 已收到像素图像
+     */
+    public static final String PIXEL_IMAGES = "pixel_images";
+
+    /**
+     * 已收到XYZ图像
+     */
+    public static final String XYZ_IMAGES = "xyz_images";
+
+    /**
+     * 已收到模型压缩包
+     */
+    public static final String OUTPUT_ZIP = "output_zip";
+
+    /**
+     * 模型文件已全部写入存储
+     */
+    public static final String STORED = "stored";
+
+    /**
+     * 已完成
+     */
+    public static final String COMPLETED = "completed";
+
+    /**
+     * 按处理顺序排列的阶段
+     */
+    public static final List<String> ORDER = List.of(
+            CREATED, DISPATCHED, ACCEPTED, PIXEL_IMAGES, XYZ_IMAGES, OUTPUT_ZIP, STORED, COMPLETED);
+
+    private TaskStage() {
+        // 私有构造函数，防止实例化
+    }
+}
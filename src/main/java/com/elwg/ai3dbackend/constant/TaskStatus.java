@@ -23,6 +23,11 @@ public class TaskStatus {
      * 失败
      */
     public static final String FAILED = "FAILED";
+
+    /**
+     * 已取消
+     */
+    public static final String CANCELLED = "CANCELLED";
     
     private TaskStatus() {
         // 私有构造函数，防止实例化
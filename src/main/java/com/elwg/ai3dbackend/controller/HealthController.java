@@ -2,6 +2,16 @@ package com.elwg.ai3dbackend.controller;
 
 import com.elwg.ai3dbackend.common.BaseResponse;
 import com.elwg.ai3dbackend.common.ResultUtils;
+import com.elwg.ai3dbackend.manager.ReconstructionArtifactManifest;
+import com.elwg.ai3dbackend.manager.ReconstructionCircuitBreaker;
+import com.elwg.ai3dbackend.manager.ReconstructionConcurrencyLimiter;
+import com.elwg.ai3dbackend.manager.ReconstructionStageRecorder;
+import com.elwg.ai3dbackend.manager.ReconstructionStatusCache;
+import com.elwg.ai3dbackend.manager.ReconstructionWorkerManager;
+import com.elwg.ai3dbackend.service.EventBus;
+import com.elwg.ai3dbackend.service.EventStreamService;
+import com.elwg.ai3dbackend.service.ReconstructionDispatchService;
+import com.elwg.ai3dbackend.service.ReconstructionResultCacheService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
@@ -11,6 +21,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.lang.management.ManagementFactory;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,6 +38,36 @@ public class HealthController {
     @Autowired
     private Environment environment;
 
+    @Autowired
+    private EventStreamService eventStreamService;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private ReconstructionDispatchService reconstructionDispatchService;
+
+    @Autowired
+    private ReconstructionWorkerManager reconstructionWorkerManager;
+
+    @Autowired
+    private ReconstructionConcurrencyLimiter reconstructionConcurrencyLimiter;
+
+    @Autowired
+    private ReconstructionResultCacheService reconstructionResultCacheService;
+
+    @Autowired
+    private ReconstructionStageRecorder reconstructionStageRecorder;
+
+    @Autowired
+    private ReconstructionCircuitBreaker reconstructionCircuitBreaker;
+
+    @Autowired
+    private ReconstructionArtifactManifest reconstructionArtifactManifest;
+
+    @Autowired
+    private ReconstructionStatusCache reconstructionStatusCache;
+
     /**
      * 简单健康检查
      * <p>
@@ -88,4 +129,65 @@ public class HealthController {
 
         return ResultUtils.success(details);
     }
+
+    /**
+     * 运行指标
+     * <p>
+     * 返回应用内部组件的运行指标，用于观察SSE连接等资源随负载的变化。
+     * 返回的信息包括：
+     * 1. SSE信息：活跃连接数、发送队列积压、丢弃的心跳数、因积压断开的连接数等
+     * 2. 事件总线信息：总线类型、发布/送达事件数、送达延迟等
+     * 3. 任务派发信息：并发上限、处理中任务数、已派发/失败任务数、图片传输方式统计
+     * 4. 并发限制信息：当前并发上限、耗时基线、上调/下调次数等
+     * 5. 重建节点信息：各节点是否可用、在途任务数、失败次数、提交与处理耗时等
+     * 6. 结果缓存信息：命中、未命中和跳过缓存的次数
+     * 7. 阶段耗时信息：任务各处理阶段（派发、接收、推理、回调、存储等）耗时的分位数
+     * 8. 熔断器信息：熔断器状态、连续失败次数、打开次数和被拒绝的派发次数
+     * 9. 结果文件清单信息：缓存的已结束任务清单数、命中和未命中次数、补录早期任务清单的次数
+     * 10. 状态缓存信息：任务状态查询的命中、实际查询、合并等待、失效和304次数
+     * 11. 线程信息：当前JVM存活线程数
+     * </p>
+     *
+     * @return 包含运行指标的响应对象
+     */
+    @GetMapping("/metrics")
+    @Operation(summary = "运行指标", description = "返回SSE连接数、事件总线、线程数等内部运行指标")
+    public BaseResponse<Map<String, Object>> metrics() {
+        Map<String, Object> metrics = new HashMap<>();
+
+        // SSE信息
+        metrics.put("sse", eventStreamService.getMetrics());
+
+        // 事件总线信息
+        metrics.put("eventBus", eventBus.getMetrics());
+
+        // 任务派发信息
+        metrics.put("dispatcher", reconstructionDispatchService.getMetrics());
+
+        // 并发限制信息
+        metrics.put("limiter", reconstructionConcurrencyLimiter.getMetrics());
+
+        // 重建节点信息
+        metrics.put("workers", reconstructionWorkerManager.getMetrics());
+
+        // 结果缓存信息
+        metrics.put("resultCache", reconstructionResultCacheService.getMetrics());
+
+        // 阶段耗时信息
+        metrics.put("stages", reconstructionStageRecorder.getMetrics());
+
+        // 熔断器信息
+        metrics.put("breaker", reconstructionCircuitBreaker.getMetrics());
+
+        // 结果文件清单信息
+        metrics.put("artifacts", reconstructionArtifactManifest.getMetrics());
+
+        // 状态缓存信息
+        metrics.put("statusCache", reconstructionStatusCache.getMetrics());
+
+        // 线程信息
+        metrics.put("liveThreads", ManagementFactory.getThreadMXBean().getThreadCount());
+
+        return ResultUtils.success(metrics);
+    }
 }
@@ -1,6 +1,7 @@
 package com.elwg.ai3dbackend.controller;
 
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.elwg.ai3dbackend.annotation.AuthCheck;
@@ -33,6 +34,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -120,6 +122,11 @@ public class PictureController {
 
             // 获取图片信息
             Map<String, Object> imageInfo = ImageUtils.getImageInfo(file.getInputStream());
+            // 计算内容哈希，用于复用相同图片的重建结果
+            String contentHash;
+            try (InputStream inputStream = file.getInputStream()) {
+                contentHash = DigestUtil.sha256Hex(inputStream);
+            }
 
             // 创建图片记录
             Picture picture = new Picture();
@@ -131,6 +138,7 @@ public class PictureController {
             picture.setIntroduction(request.getIntroduction());
             picture.setPicSize(fileSize);
             picture.setPicFormat(fileExtension.substring(1));
+            picture.setContentHash(contentHash);
             picture.setUserId(loginUser.getId());
 
             // 设置图片尺寸信息
@@ -2,29 +2,55 @@ package com.elwg.ai3dbackend.controller;
 
 import com.elwg.ai3dbackend.common.BaseResponse;
 import com.elwg.ai3dbackend.common.ResultUtils;
+import com.elwg.ai3dbackend.constant.TaskStage;
 import com.elwg.ai3dbackend.constant.TaskStatus;
 import com.elwg.ai3dbackend.exception.ErrorCode;
+import com.elwg.ai3dbackend.manager.ReconstructionArtifactManifest;
+import com.elwg.ai3dbackend.manager.ReconstructionConcurrencyLimiter;
+import com.elwg.ai3dbackend.manager.ReconstructionStageRecorder;
+import com.elwg.ai3dbackend.manager.ReconstructionStatusCache;
+import com.elwg.ai3dbackend.manager.ReconstructionWorkerManager;
 import com.elwg.ai3dbackend.model.dto.callback.StatusUpdateRequest;
+import com.elwg.ai3dbackend.model.dto.event.FileReceivedEvent;
 import com.elwg.ai3dbackend.model.entity.Model;
 import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
 import com.elwg.ai3dbackend.service.EventStreamService;
 import com.elwg.ai3dbackend.service.FileStorageService;
 import com.elwg.ai3dbackend.service.ModelService;
+import com.elwg.ai3dbackend.service.ReconstructionBatchService;
+import com.elwg.ai3dbackend.service.ReconstructionDispatchService;
 import com.elwg.ai3dbackend.service.ReconstructionTaskService;
+import com.elwg.ai3dbackend.utils.SpooledUpload;
 import com.elwg.ai3dbackend.utils.ZipUtils;
 
-import java.util.Date;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLConnection;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
 import java.io.IOException;
 
 /**
@@ -39,6 +65,11 @@ import java.io.IOException;
 @Slf4j
 public class ReconstructionCallbackController {
 
+    /**
+     * 回调不属于任务当前派发时的错误信息
+     */
+    private static final String STALE_ATTEMPT_MESSAGE = "回调不属于任务的当前派发";
+
     @Resource
     private ReconstructionTaskService reconstructionTaskService;
 
@@ -51,20 +82,64 @@ public class ReconstructionCallbackController {
     @Autowired
     private ModelService modelService;
 
+    @Resource
+    private ReconstructionDispatchService reconstructionDispatchService;
+
+    @Resource
+    private ReconstructionWorkerManager reconstructionWorkerManager;
+
+    @Resource
+    private ReconstructionConcurrencyLimiter reconstructionConcurrencyLimiter;
+
+    @Resource
+    private ReconstructionBatchService reconstructionBatchService;
+
+    @Resource
+    private ReconstructionStageRecorder reconstructionStageRecorder;
+
+    @Resource
+    private ReconstructionArtifactManifest reconstructionArtifactManifest;
+
+    @Resource
+    private ReconstructionStatusCache reconstructionStatusCache;
+
+    @Resource(name = "artifactUploadExecutor")
+    private Executor artifactUploadExecutor;
+
+    /**
+     * 回调数据保存在内存中的最大字节数，超过后写入临时文件
+     */
+    @Value("${reconstruction.callback.spool.threshold:1048576}")
+    private int spoolThreshold;
+
+    /**
+     * 回调数据临时文件目录
+     */
+    @Value("${reconstruction.callback.spool.dir:${java.io.tmpdir}/ai3d-callback}")
+    private String spoolDir;
+
+    /**
+     * 回调数据单个文件允许的最大字节数
+     */
+    @Value("${reconstruction.callback.spool.max-size:2147483648}")
+    private long spoolMaxSize;
+
     /**
      * 接收结果部分
      * <p>
      * 接收Python服务发送的处理结果部分，如pixel_images.png, xyz_images.png等
      * </p>
      *
+     * @param attempt 回调所属派发的重试次数，由派发时的回调URL带回（可选）
      * @param taskId 任务ID
      * @param name 结果部分名称
      * @param file 文件数据
      * @return 处理结果
      */
-    @PostMapping("/result/{taskId}")
+    @PostMapping({"/result/{taskId}", "/attempt/{attempt}/result/{taskId}"})
     @Operation(summary = "接收结果部分", description = "接收Python服务发送的处理结果部分")
     public BaseResponse<Map<String, Object>> receiveResultPart(
+            @PathVariable(value = "attempt", required = false) Integer attempt,
             @PathVariable Long taskId,
             @RequestParam("name") String name,
             @RequestParam(value = "content_type", defaultValue = "application/octet-stream") String contentType,
@@ -94,96 +169,206 @@ public class ReconstructionCallbackController {
                 log.warn("Task not found: {}", taskId);
                 return ResultUtils.error(ErrorCode.NOT_FOUND_ERROR, "任务不存在");
             }
+            if (TaskStatus.CANCELLED.equals(task.getStatus())) {
+                log.info("Discarding result part: {} of cancelled task: {}", name, taskId);
+                return ResultUtils.error(ErrorCode.OPERATION_ERROR, "任务已取消");
+            }
+            if (!isCurrentAttempt(task, attempt)) {
+                log.warn("Discarding result part: {} of task: {} from stale attempt: {}, status: {}, retry: {}",
+                        name, taskId, attempt, task.getStatus(), task.getRetryCount());
+                return ResultUtils.error(ErrorCode.OPERATION_ERROR, STALE_ATTEMPT_MESSAGE);
+            }
 
-            // 处理结果部分
-            byte[] fileData = file.getBytes();
-            log.info("Read {} bytes from file for task: {}, name: {}", fileData.length, taskId, name);
-
-            try {
-                // 获取文件类型
-                String fileType = getFileType(name);
-                log.info("File type: {}", fileType);
-
-                // 如果是ZIP文件，不保存到COS，直接处理
-                if (fileType.equals("output_zip")) {
-                    log.info("Processing ZIP file directly without saving to COS: {}", name);
-
-                    // 发送SSE事件通知收到ZIP文件
-                    log.info("Sending SSE event for ZIP file: {}", name);
-                    Map<String, Object> eventData = new HashMap<>();
-                    eventData.put("fileType", fileType);
-                    boolean eventSent = eventStreamService.sendEvent(taskId.toString(), "file_received", eventData);
-                    if (eventSent) {
-                        log.info("SSE event sent successfully for ZIP file: {}", name);
-                    } else {
-                        log.warn("Failed to send SSE event for ZIP file: {}, no active connection", name);
-                    }
-                } else {
-                    // 其他文件保存到存储服务
-                    String filePath = "reconstruction/" + taskId + "/" + name;
-                    log.info("Saving file to storage: {}", filePath);
-                    fileStorageService.saveFile(filePath, fileData);
-                    String fileUrl = fileStorageService.getFileUrl(filePath);
-                    log.info("File saved, URL: {}", fileUrl);
-
-                    // 发送SSE事件
-                    log.info("Sending SSE event for file: {}", name);
-                    Map<String, Object> eventData = new HashMap<>();
-                    eventData.put("fileType", fileType);
-                    eventData.put("fileUrl", fileUrl);
-                    boolean eventSent = eventStreamService.sendEvent(taskId.toString(), "file_received", eventData);
-                    if (eventSent) {
-                        log.info("SSE event sent successfully for file: {}", name);
-                    } else {
-                        log.warn("Failed to send SSE event for file: {}, no active connection", name);
-                    }
-                }
+            return processResultPart(task, name, contentType, file.getSize(), file);
+        } catch (Exception e) {
+            log.error("Failed to process file for task: {}, name: {}, error: {}", taskId, name, e.getMessage(), e);
+            return ResultUtils.error(ErrorCode.SYSTEM_ERROR, "处理文件失败: " + e.getMessage());
+        }
+    }
 
-                // 定义文件URL变量
-                String fileUrl = null;
+    /**
+     * 流式接收结果部分
+     * <p>
+     * 请求体直接是文件内容（application/octet-stream），不经过multipart解析。
+     * 读取时计算SHA-256校验和，超过阈值的数据写入本地临时文件，再从临时文件上传到存储服务，
+     * 适合较大的模型文件。请求头X-Content-SHA256存在时校验数据完整性
+     * </p>
+     *
+     * @param attempt 回调所属派发的重试次数，由派发时的回调URL带回（可选）
+     * @param taskId 任务ID
+     * @param name 结果部分名称
+     * @param contentType 文件类型
+     * @param expectedSha256 期望的SHA-256校验和（可选）
+     * @param request HTTP请求
+     * @return 处理结果
+     */
+    @PostMapping(value = {"/result/{taskId}/stream", "/attempt/{attempt}/result/{taskId}/stream"},
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "流式接收结果部分", description = "以请求体流式接收Python服务发送的较大结果文件")
+    public BaseResponse<Map<String, Object>> receiveResultStream(
+            @PathVariable(value = "attempt", required = false) Integer attempt,
+            @PathVariable Long taskId,
+            @RequestParam("name") String name,
+            @RequestParam(value = "content_type", defaultValue = "application/octet-stream") String contentType,
+            @RequestHeader(value = "X-Content-SHA256", required = false) String expectedSha256,
+            HttpServletRequest request) {
 
-                // 如果不是ZIP文件，获取文件URL
-                if (!fileType.equals("output_zip")) {
-                    fileUrl = fileStorageService.getFileUrl("reconstruction/" + taskId + "/" + name);
-                }
+        log.info("Received streamed result part: {} for task: {}, content type: {}, content length: {}",
+                name, taskId, contentType, request.getContentLengthLong());
 
-                // 处理不同类型的文件
-                if (fileType.equals("pixel_images")) {
-                    // 第一个回调：创建Model记录
-                    handlePixelImagesCallback(task, fileUrl);
-                } else if (fileType.equals("xyz_images")) {
-                    // 第二个回调：更新Model记录
-                    handleXyzImagesCallback(task, fileUrl);
-                } else if (fileType.equals("output_zip")) {
-                    // 最后一个回调：处理ZIP文件并更新Model记录
-                    // 对于ZIP文件，我们不存储到COS，直接处理内容
-                    handleOutputZipCallback(task, fileData);
-
-                    // 返回成功响应
-                    Map<String, Object> result = new HashMap<>();
-                    result.put("taskId", taskId);
-                    result.put("fileType", fileType);
-                    return ResultUtils.success(result);
-                }
+        // 检查参数
+        if (taskId == null || taskId <= 0) {
+            log.error("Invalid task ID: {}", taskId);
+            return ResultUtils.error(ErrorCode.PARAMS_ERROR, "任务ID不合法");
+        }
+        if (name == null || name.isEmpty()) {
+            log.error("Invalid file name for task: {}", taskId);
+            return ResultUtils.error(ErrorCode.PARAMS_ERROR, "文件名不能为空");
+        }
+        if (request.getContentLengthLong() > spoolMaxSize) {
+            log.error("Streamed result part too large for task: {}, name: {}", taskId, name);
+            return ResultUtils.error(ErrorCode.PARAMS_ERROR, "文件过大");
+        }
 
-                // 返回成功响应
-                Map<String, Object> result = new HashMap<>();
-                result.put("taskId", taskId);
-                result.put("fileType", fileType);
-                if (fileUrl != null) {
-                    result.put("fileUrl", fileUrl);
-                }
-                return ResultUtils.success(result);
-            } catch (Exception e) {
-                log.error("Failed to process file for task: {}, name: {}, error: {}", taskId, name, e.getMessage(), e);
-                return ResultUtils.error(ErrorCode.SYSTEM_ERROR, "处理文件失败: " + e.getMessage());
+        // 检查任务是否存在
+        ReconstructionTask task = reconstructionTaskService.getTaskById(taskId);
+        if (task == null) {
+            log.warn("Task not found: {}", taskId);
+            return ResultUtils.error(ErrorCode.NOT_FOUND_ERROR, "任务不存在");
+        }
+        // 已取消任务的结果不再读取请求体，避免无用的暂存和上传
+        if (TaskStatus.CANCELLED.equals(task.getStatus())) {
+            log.info("Discarding streamed result part: {} of cancelled task: {}", name, taskId);
+            return ResultUtils.error(ErrorCode.OPERATION_ERROR, "任务已取消");
+        }
+        // 已被回收或重新派发的任务不接受旧节点的结果，避免覆盖新派发的结果文件
+        if (!isCurrentAttempt(task, attempt)) {
+            log.warn("Discarding streamed result part: {} of task: {} from stale attempt: {}, status: {}, retry: {}",
+                    name, taskId, attempt, task.getStatus(), task.getRetryCount());
+            return ResultUtils.error(ErrorCode.OPERATION_ERROR, STALE_ATTEMPT_MESSAGE);
+        }
+
+        try (SpooledUpload upload = SpooledUpload.spool(request.getInputStream(), spoolThreshold,
+                Path.of(spoolDir), spoolMaxSize)) {
+            log.info("Spooled result part: {} for task: {}, size: {} bytes, sha256: {}",
+                    name, taskId, upload.getSize(), upload.getSha256());
+            if (upload.getSize() == 0) {
+                log.error("Empty file for task: {}, name: {}", taskId, name);
+                return ResultUtils.error(ErrorCode.PARAMS_ERROR, "文件不能为空");
             }
-        } catch (IOException e) {
-            log.error("Failed to read file data for task: {}, name: {}, error: {}", taskId, name, e.getMessage(), e);
-            return ResultUtils.error(ErrorCode.SYSTEM_ERROR, "读取文件数据失败: " + e.getMessage());
+            if (expectedSha256 != null && !upload.matchesSha256(expectedSha256)) {
+                log.error("Checksum mismatch for task: {}, name: {}, expected: {}, actual: {}",
+                        taskId, name, expectedSha256, upload.getSha256());
+                return ResultUtils.error(ErrorCode.PARAMS_ERROR, "文件校验和不匹配");
+            }
+
+            BaseResponse<Map<String, Object>> response = processResultPart(task, name, contentType, upload.getSize(), upload);
+            if (response.getData() != null) {
+                response.getData().put("sha256", upload.getSha256());
+            }
+            return response;
+        } catch (Exception e) {
+            log.error("Failed to process streamed file for task: {}, name: {}, error: {}", taskId, name, e.getMessage(), e);
+            return ResultUtils.error(ErrorCode.SYSTEM_ERROR, "处理文件失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 处理结果部分：保存文件、更新模型并推送SSE事件
+     *
+     * @param task 重建任务
+     * @param name 结果部分名称
+     * @param contentType 文件类型
+     * @param size 文件大小（字节）
+     * @param source 文件数据来源，可多次打开
+     * @return 处理结果
+     * @throws IOException 如果读取或保存文件失败
+     */
+    private BaseResponse<Map<String, Object>> processResultPart(ReconstructionTask task, String name,
+            String contentType, long size, InputStreamSource source) throws IOException {
+        // 获取文件类型
+        String fileType = getFileType(name);
+        log.info("File type: {}", fileType);
+        // 结果文件已完整接收，记录到达时间
+        if (TaskStage.ORDER.contains(fileType)) {
+            reconstructionStageRecorder.record(task, fileType);
+        }
+
+        // 如果是ZIP文件，不保存到COS，直接处理
+        if (fileType.equals("output_zip")) {
+            log.info("Processing ZIP file directly without saving to COS: {}", name);
+
+            // 发送SSE事件通知收到ZIP文件
+            log.info("Sending SSE event for ZIP file: {}", name);
+            FileReceivedEvent eventData = new FileReceivedEvent(fileType, null);
+            boolean eventSent = eventStreamService.sendEvent(task.getId().toString(), "file_received", eventData);
+            if (eventSent) {
+                log.info("SSE event sent successfully for ZIP file: {}", name);
+            } else {
+                log.warn("Failed to send SSE event for ZIP file: {}, no active connection", name);
+            }
+        } else {
+            // 其他文件保存到存储服务
+            String filePath = "reconstruction/" + task.getId() + "/" + name;
+            log.info("Saving file to storage: {}", filePath);
+            String checksum = saveFile(filePath, source, size, contentType);
+            String fileUrl = fileStorageService.getFileUrl(filePath);
+            log.info("File saved, URL: {}", fileUrl);
+            reconstructionArtifactManifest.record(task.getId(), name, size, checksum, fileUrl);
+
+            // 发送SSE事件
+            log.info("Sending SSE event for file: {}", name);
+            FileReceivedEvent eventData = new FileReceivedEvent(fileType, fileUrl);
+            boolean eventSent = eventStreamService.sendEvent(task.getId().toString(), "file_received", eventData);
+            if (eventSent) {
+                log.info("SSE event sent successfully for file: {}", name);
+            } else {
+                log.warn("Failed to send SSE event for file: {}, no active connection", name);
+            }
+        }
+
+        // 定义文件URL变量
+        String fileUrl = null;
+
+        // 如果不是ZIP文件，获取文件URL
+        if (!fileType.equals("output_zip")) {
+            fileUrl = fileStorageService.getFileUrl("reconstruction/" + task.getId() + "/" + name);
+        }
+
+        // 处理不同类型的文件
+        if (fileType.equals("pixel_images")) {
+            // 第一个回调：创建Model记录
+            handlePixelImagesCallback(task, fileUrl);
+        } else if (fileType.equals("xyz_images")) {
+            // 第二个回调：更新Model记录
+            handleXyzImagesCallback(task, fileUrl);
+        } else if (fileType.equals("output_zip")) {
+            // 最后一个回调：处理ZIP文件并更新Model记录
+            // 对于ZIP文件，我们不存储到COS，直接处理内容
+            handleOutputZipCallback(task, source);
+            reconstructionStageRecorder.record(task, TaskStage.STORED);
+            reconstructionStatusCache.invalidate(task.getId());
+
+            // 返回成功响应
+            Map<String, Object> result = new HashMap<>();
+            result.put("taskId", task.getId());
+            result.put("fileType", fileType);
+            return ResultUtils.success(result);
+        }
+
+        // 结果文件清单已更新，轮询的客户端需要重新查询
+        reconstructionStatusCache.invalidate(task.getId());
+
+        // 返回成功响应
+        Map<String, Object> result = new HashMap<>();
+        result.put("taskId", task.getId());
+        result.put("fileType", fileType);
+        if (fileUrl != null) {
+            result.put("fileUrl", fileUrl);
+        }
+        return ResultUtils.success(result);
+    }
+
     /**
      * 处理像素图像回调
      *
@@ -224,126 +409,199 @@ public class ReconstructionCallbackController {
 
     /**
      * 处理输出ZIP回调
+     * <p>
+     * 从上传的文件流中逐个解压条目，每个模型文件先暂存，同类文件出现多次时以压缩包中最后一个为准，
+     * 前面的暂存数据立即删除。解压结束后把选中的文件同时提交到上传线程池，
+     * 每个文件上传完成后立即推送result事件，所有上传结束后一次性更新模型记录。
+     * 每个存储路径只有一个上传，存储、结果文件清单和模型记录的内容与压缩包中的顺序一致。
+     * 暂存超过阈值的文件写入临时文件，单次回调占用的堆内存与压缩包大小无关
+     * </p>
      *
      * @param task 重建任务
-     * @param zipData ZIP文件数据
+     * @param source 上传的ZIP文件
      */
-    private void handleOutputZipCallback(ReconstructionTask task, byte[] zipData) {
+    private void handleOutputZipCallback(ReconstructionTask task, InputStreamSource source) {
         log.info("Handling output_zip callback for task: {}", task.getId());
 
-        try {
-            // 1. 解压ZIP文件
-            Map<String, byte[]> extractedFiles = ZipUtils.unzip(zipData);
-            log.info("Extracted {} files from ZIP for task: {}", extractedFiles.size(), task.getId());
-
-            // 构建基础路径
-            String basePath = "reconstruction/" + task.getId() + "/";
-
-            // 分类文件
-            byte[] objFileData = null;
-            byte[] mtlFileData = null;
-            byte[] textureFileData = null;
+        // 构建基础路径
+        String basePath = "reconstruction/" + task.getId() + "/";
+        String taskId = task.getId().toString();
+
+        // 标准文件名到暂存数据的映射，同类文件出现多次时以最后一个为准
+        Map<String, SpooledUpload> selectedEntries = new LinkedHashMap<>();
+        // 标准文件名到压缩包中条目名的映射
+        Map<String, String> entryNames = new HashMap<>();
+        // 标准文件名到上传结果的映射
+        Map<String, CompletableFuture<String>> uploads = new LinkedHashMap<>();
+
+        try (InputStream inputStream = source.getInputStream()) {
+            // 1. 流式解压并暂存模型文件
+            Map<String, Long> entrySizes = ZipUtils.unzip(inputStream, (fileName, entryStream, size) -> {
+                String standardName = getModelFileName(fileName);
+                if (standardName == null) {
+                    return;
+                }
+                SpooledUpload entry = SpooledUpload.spool(entryStream, spoolThreshold, Path.of(spoolDir), spoolMaxSize);
+                SpooledUpload replaced = selectedEntries.put(standardName, entry);
+                if (replaced != null) {
+                    log.warn("Duplicate {} in ZIP for task: {}, using {} instead of {}",
+                            standardName, task.getId(), fileName, entryNames.get(standardName));
+                    replaced.close();
+                }
+                entryNames.put(standardName, fileName);
+            });
+            log.info("Extracted {} files from ZIP for task: {}, uploading {} artifacts",
+                    entrySizes.size(), task.getId(), selectedEntries.size());
+
+            // 2. 并发上传选中的文件到COS
+            for (Map.Entry<String, SpooledUpload> entry : selectedEntries.entrySet()) {
+                String standardName = entry.getKey();
+                uploads.put(standardName, CompletableFuture.supplyAsync(() -> publishArtifact(taskId,
+                        basePath + standardName, standardName, entryNames.get(standardName), entry.getValue()),
+                        artifactUploadExecutor));
+            }
 
+            // 3. 等待所有上传完成
+            Map<String, String> fileUrls = new HashMap<>();
             // 计算整体的模型文件大小(model.obj + model.mtl + texture.png)
             long totalModelSize = 0;
-
-            // 遍历并分类文件
-            for (Map.Entry<String, byte[]> entry : extractedFiles.entrySet()) {
-                String fileName = entry.getKey();
-                byte[] fileData = entry.getValue();
-                String extension = ZipUtils.getFileExtension(fileName);
-
-                // 根据文件扩展名确定文件类型
-                if ("obj".equals(extension)) {
-                    objFileData = fileData;
-                    totalModelSize += fileData.length;
-                    log.info("Found OBJ file: {}", fileName);
-                } else if ("mtl".equals(extension)) {
-                    mtlFileData = fileData;
-                    totalModelSize += fileData.length;
-                    log.info("Found MTL file: {}", fileName);
-                } else if ("png".equals(extension) || "jpg".equals(extension) || "jpeg".equals(extension)) {
-                    // 排除已有的pixel_images.png和xyz_images.png
-                    if (!fileName.contains("pixel_images") && !fileName.contains("xyz_images")) {
-                        textureFileData = fileData;
-                        totalModelSize += fileData.length;
-                        log.info("Found texture file: {}", fileName);
-                    }
+            for (Map.Entry<String, CompletableFuture<String>> upload : uploads.entrySet()) {
+                try {
+                    fileUrls.put(upload.getKey(), upload.getValue().join());
+                    totalModelSize += entrySizes.getOrDefault(entryNames.get(upload.getKey()), 0L);
+                } catch (CompletionException e) {
+                    log.error("Failed to upload {} for task: {}", upload.getKey(), task.getId(), e.getCause());
                 }
             }
 
-            // 2. 存储所有文件到COS
-            String objFileUrl = null;
-            String mtlFileUrl = null;
-            String textureImageUrl = null;
-
-            // 存储OBJ文件
-            if (objFileData != null) {
-                String objFilePath = basePath + "model.obj";
-                log.info("Saving OBJ file with standard name: {}", objFilePath);
-                fileStorageService.saveFile(objFilePath, objFileData);
-                objFileUrl = fileStorageService.getFileUrl(objFilePath);
-            }
-
-            // 存储MTL文件
-            if (mtlFileData != null) {
-                String mtlFilePath = basePath + "model.mtl";
-                log.info("Saving MTL file with standard name: {}", mtlFilePath);
-                fileStorageService.saveFile(mtlFilePath, mtlFileData);
-                mtlFileUrl = fileStorageService.getFileUrl(mtlFilePath);
-            }
+            // 4. 一次性更新数据库，只写入模型文件相关的字段
+            Model changes = new Model();
+            changes.setObjFileUrl(fileUrls.get("model.obj"));
+            changes.setMtlFileUrl(fileUrls.get("model.mtl"));
+            changes.setTextureImageUrl(fileUrls.get("texture.png"));
+            changes.setModelSize(totalModelSize);
+            saveTaskModel(task, changes);
 
-            // 存储纹理文件
-            if (textureFileData != null) {
-                String texturePath = basePath + "texture.png";
-                log.info("Saving texture file with standard name: {}", texturePath);
-                fileStorageService.saveFile(texturePath, textureFileData);
-                textureImageUrl = fileStorageService.getFileUrl(texturePath);
-            }
+        } catch (Exception e) {
+            log.error("Failed to process output ZIP for task: {}", task.getId(), e);
+        } finally {
+            // 已提交的上传可能仍在进行，等待结束后再删除暂存文件
+            CompletableFuture.allOf(uploads.values().toArray(new CompletableFuture[0]))
+                    .whenComplete((ignored, ex) -> selectedEntries.values().forEach(SpooledUpload::close));
+        }
+    }
 
-            // 3. 更新数据库
-            Model model = modelService.getModelByTaskId(task.getId());
-            if (model == null && task.getResultModelId() != null) {
-                model = modelService.getById(task.getResultModelId());
-            }
+    /**
+     * 上传单个模型文件并推送result事件
+     *
+     * @param taskId 任务ID
+     * @param filePath 存储路径
+     * @param standardName 标准文件名
+     * @param fileName 压缩包中的条目名
+     * @param entry 暂存的文件数据
+     * @return 文件URL
+     */
+    private String publishArtifact(String taskId, String filePath, String standardName, String fileName,
+                                   SpooledUpload entry) {
+        try (InputStream inputStream = new BufferedInputStream(entry.getInputStream())) {
+            String contentType = detectContentType(inputStream, fileName);
+            log.info("Saving {} with standard name: {}, content type: {}", fileName, filePath, contentType);
+            fileStorageService.saveFile(filePath, inputStream, entry.getSize(), contentType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String fileUrl = fileStorageService.getFileUrl(filePath);
+        reconstructionArtifactManifest.record(Long.valueOf(taskId), standardName, entry.getSize(), entry.getSha256(), fileUrl);
+        // 文件上传完成后立即推送，不等待其他文件
+        eventStreamService.sendResultEvent(taskId, standardName, fileUrl);
+        return fileUrl;
+    }
 
-            if (model != null) {
-                if (objFileUrl != null) model.setObjFileUrl(objFileUrl);
-                if (mtlFileUrl != null) model.setMtlFileUrl(mtlFileUrl);
-                if (textureImageUrl != null) model.setTextureImageUrl(textureImageUrl);
-                model.setModelSize(totalModelSize);
-                model.setUpdateTime(new Date());
-                modelService.updateById(model);
+    /**
+     * 保存结果文件到存储服务，同时计算SHA-256
+     *
+     * @param filePath 存储路径
+     * @param source 文件数据来源
+     * @param size 文件大小（字节）
+     * @param contentType 文件类型
+     * @return 文件内容SHA-256
+     * @throws IOException 如果读取或保存文件失败
+     */
+    private String saveFile(String filePath, InputStreamSource source, long size, String contentType) throws IOException {
+        // 暂存时已经计算过校验和
+        if (source instanceof SpooledUpload) {
+            try (InputStream inputStream = source.getInputStream()) {
+                fileStorageService.saveFile(filePath, inputStream, size, contentType);
             }
+            return ((SpooledUpload) source).getSha256();
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (InputStream inputStream = new DigestInputStream(source.getInputStream(), digest)) {
+            fileStorageService.saveFile(filePath, inputStream, size, contentType);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-            // 4. 发送SSE消息
-            if (objFileUrl != null) {
-                eventStreamService.sendResultEvent(task.getId().toString(), "model.obj", objFileUrl);
-            }
-            if (mtlFileUrl != null) {
-                eventStreamService.sendResultEvent(task.getId().toString(), "model.mtl", mtlFileUrl);
-            }
-            if (textureImageUrl != null) {
-                eventStreamService.sendResultEvent(task.getId().toString(), "texture.png", textureImageUrl);
+    /**
+     * 根据压缩包中的条目名确定模型文件的标准文件名
+     *
+     * @param fileName 条目名
+     * @return 标准文件名，不是模型文件时返回null
+     */
+    private String getModelFileName(String fileName) {
+        String extension = ZipUtils.getFileExtension(fileName);
+        if ("obj".equals(extension)) {
+            return "model.obj";
+        }
+        if ("mtl".equals(extension)) {
+            return "model.mtl";
+        }
+        if ("png".equals(extension) || "jpg".equals(extension) || "jpeg".equals(extension)) {
+            // 排除已有的pixel_images.png和xyz_images.png
+            if (!fileName.contains("pixel_images") && !fileName.contains("xyz_images")) {
+                return "texture.png";
             }
+        }
+        return null;
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to process output ZIP for task: {}", task.getId(), e);
+    /**
+     * 根据文件头部内容检测文件类型，无法识别时按文件名推断
+     *
+     * @param inputStream 支持mark的文件输入流，检测后位置不变
+     * @param fileName 文件名
+     * @return 文件类型
+     * @throws IOException 如果读取文件头部失败
+     */
+    private String detectContentType(InputStream inputStream, String fileName) throws IOException {
+        String contentType = URLConnection.guessContentTypeFromStream(inputStream);
+        if (contentType == null) {
+            contentType = URLConnection.guessContentTypeFromName(fileName);
         }
+        return contentType != null ? contentType : "application/octet-stream";
     }
 
     /**
      * 接收状态更新
      * <p>
-     * 接收Python服务发送的任务状态更新
+     * 接收Python服务发送的任务状态更新。状态只在任务仍属于回调所在的派发时更新：
+     * 任务仍为PROCESSING，派发节点和重试次数与回调所属的派发一致，否则丢弃回调
      * </p>
      *
+     * @param attempt 回调所属派发的重试次数，由派发时的回调URL带回（可选）
      * @param request 状态更新请求
      * @return 处理结果
      */
-    @PostMapping("/status")
+    @PostMapping({"/status", "/attempt/{attempt}/status"})
     @Operation(summary = "接收状态更新", description = "接收Python服务发送的任务状态更新")
-    public BaseResponse<Map<String, Object>> receiveStatusUpdate(@RequestBody StatusUpdateRequest request) {
+    public BaseResponse<Map<String, Object>> receiveStatusUpdate(
+            @PathVariable(value = "attempt", required = false) Integer attempt,
+            @RequestBody StatusUpdateRequest request) {
         log.info("Received status update for task: {}, status: {}, error: {}",
                 request.getTaskId(), request.getStatus(), request.getError());
 
@@ -363,6 +621,11 @@ public class ReconstructionCallbackController {
             log.warn("Task not found: {}", request.getTaskId());
             return ResultUtils.error(ErrorCode.NOT_FOUND_ERROR, "任务不存在");
         }
+        // 已取消的任务忽略节点后续的状态回调，节点名额在取消时已经释放
+        if (TaskStatus.CANCELLED.equals(task.getStatus())) {
+            log.info("Ignoring status update: {} of cancelled task: {}", request.getStatus(), request.getTaskId());
+            return ResultUtils.error(ErrorCode.OPERATION_ERROR, "任务已取消");
+        }
 
         // 将Python服务的状态映射到我们的状态常量
         String status;
@@ -384,8 +647,21 @@ public class ReconstructionCallbackController {
 
         log.info("Updating task status: {} -> {}, error: {}", request.getTaskId(), status, request.getError());
 
-        // 更新任务状态
-        reconstructionTaskService.updateTaskStatus(request.getTaskId(), status, request.getError());
+        // 超时回收后重新排队、已重新派发或已结束的任务不接受旧节点的回调，重复的结束回调也在这里丢弃
+        if (!isCurrentAttempt(task, attempt)) {
+            log.warn("Ignoring status update: {} of task: {} from stale attempt: {}, status: {}, retry: {}",
+                    request.getStatus(), request.getTaskId(), attempt, task.getStatus(), task.getRetryCount());
+            return ResultUtils.error(ErrorCode.OPERATION_ERROR, STALE_ATTEMPT_MESSAGE);
+        }
+        int retryCount = task.getRetryCount() != null ? task.getRetryCount() : 0;
+        // 与读取时的派发节点和重试次数比较后更新，期间被回收或重新派发时不会修改
+        if (!reconstructionTaskService.updateAttemptStatus(request.getTaskId(), task.getWorkerUrl(), retryCount,
+                status, request.getError())) {
+            log.warn("Ignoring status update: {} of task: {}, task changed while updating",
+                    request.getStatus(), request.getTaskId());
+            return ResultUtils.error(ErrorCode.OPERATION_ERROR, STALE_ATTEMPT_MESSAGE);
+        }
+        task.setStatus(status);
 
         // 发送SSE事件
         log.info("Sending SSE status event for task: {}", request.getTaskId());
@@ -397,8 +673,24 @@ public class ReconstructionCallbackController {
         }
 
         // 如果任务完成或失败，更新模型状态
+        if (TaskStatus.COMPLETED.equals(status)) {
+            reconstructionStageRecorder.record(task, TaskStage.COMPLETED);
+        }
+        // 状态和时间线都已写入后再使缓存失效
+        reconstructionStatusCache.invalidate(task.getId());
+
         if (TaskStatus.COMPLETED.equals(status) || TaskStatus.FAILED.equals(status)) {
             updateModelStatus(task, status);
+            long jobMillis = task.getDispatchTime() != null
+                    ? System.currentTimeMillis() - task.getDispatchTime().getTime() : -1;
+            reconstructionWorkerManager.release(task.getWorkerUrl(), jobMillis);
+            // 只有成功完成的任务耗时反映重建服务的负载，失败任务可能因输入问题提前结束
+            if (TaskStatus.COMPLETED.equals(status) && task.getDispatchTime() != null) {
+                reconstructionConcurrencyLimiter.onSample(jobMillis, task.getDispatchTime().getTime());
+            }
+            // 任务结束后释放并发名额，立即派发等待中的任务
+            reconstructionDispatchService.wakeUp();
+            reconstructionBatchService.onTaskFinished(task);
         }
 
         // 返回成功响应
@@ -409,119 +701,34 @@ public class ReconstructionCallbackController {
     }
 
     /**
-     * 更新模型状态
+     * 回调是否属于任务的当前派发：任务处理中，且回调URL带回的重试次数与任务一致。
+     * 没有带回重试次数的回调（派发时使用旧版回调URL）只检查任务是否处理中
      *
      * @param task 重建任务
-     * @param status 状态
+     * @param attempt 回调所属派发的重试次数，可以为null
+     * @return 属于当前派发时返回true
      */
-    private void updateModelStatus(ReconstructionTask task, String status) {
-        if (task.getResultModelId() != null) {
-            Model model = modelService.getById(task.getResultModelId());
-            if (model != null) {
-                model.setStatus(status.toLowerCase()); // 模型状态使用小写
-                model.setUpdateTime(new Date());
-                modelService.updateById(model);
-                log.info("Updated model status to {} for task: {}", status, task.getId());
-            } else {
-                log.warn("Model not found for task: {}, model ID: {}", task.getId(), task.getResultModelId());
-            }
-        } else {
-            log.warn("No model associated with task: {}", task.getId());
+    private boolean isCurrentAttempt(ReconstructionTask task, Integer attempt) {
+        if (!TaskStatus.PROCESSING.equals(task.getStatus())) {
+            return false;
         }
+        int retryCount = task.getRetryCount() != null ? task.getRetryCount() : 0;
+        return attempt == null || attempt == retryCount;
     }
 
     /**
-     * 创建新模型
+     * 更新模型状态
      *
      * @param task 重建任务
-     * @param objFileUrl OBJ文件URL
-     * @param mtlFileUrl MTL文件URL
-     * @param textureImageUrl 纹理图像URL
-     * @return 创建的模型
+     * @param status 状态
      */
-    private Model createModel(ReconstructionTask task, String objFileUrl, String mtlFileUrl, String textureImageUrl) {
-        log.info("Creating new model for task: {}", task.getId());
-
-        // 创建新模型
-        Model model = new Model();
-        model.setName("3D Model - " + task.getId());
-        model.setSourceImageId(task.getSourceImageId());
-        model.setTaskId(task.getId().toString());
-        model.setStatus("PROCESSING"); // 初始状态为处理中
-        model.setUserId(task.getUserId());
-        model.setModelFormat("OBJ");
-
-        // 获取已存在的像素图像和XYZ图像的URL
-        String basePath = "reconstruction/" + task.getId() + "/";
-        String pixelImagesPath = basePath + "pixel_images.png";
-        String xyzImagesPath = basePath + "xyz_images.png";
-
-        if (fileStorageService.isFileExists(pixelImagesPath)) {
-            model.setPixelImagesUrl(fileStorageService.getFileUrl(pixelImagesPath));
-        }
-
-        if (fileStorageService.isFileExists(xyzImagesPath)) {
-            model.setXyzImagesUrl(fileStorageService.getFileUrl(xyzImagesPath));
-        }
-
-        // 设置模型文件URL
-        model.setObjFileUrl(objFileUrl != null ? objFileUrl : "pending");
-        model.setMtlFileUrl(mtlFileUrl != null ? mtlFileUrl : null); // MTL可以为空
-        model.setTextureImageUrl(textureImageUrl != null ? textureImageUrl : null); // 纹理可以为空
-
-        // 设置创建时间
-        Date now = new Date();
-        model.setCreateTime(now);
-        model.setUpdateTime(now);
-
-        // 保存模型
-        boolean saved = modelService.save(model);
-        if (saved) {
-            log.info("Created new model for task: {}, model ID: {}", task.getId(), model.getId());
-
-            // 更新任务的结果模型ID
-            reconstructionTaskService.updateTaskResultModel(task.getId(), model.getId());
-            return model;
+    private void updateModelStatus(ReconstructionTask task, String status) {
+        // 模型状态使用小写，按任务ID直接更新，不需要先读取模型
+        if (modelService.updateStatusByTaskId(task.getId(), status.toLowerCase())) {
+            log.info("Updated model status to {} for task: {}", status, task.getId());
         } else {
-            log.error("Failed to create model for task: {}", task.getId());
-            return null;
-        }
-    }
-
-    /**
-     * 更新现有模型
-     *
-     * @param task 重建任务
-     * @param objFileUrl OBJ文件URL
-     * @param mtlFileUrl MTL文件URL
-     * @param textureImageUrl 纹理图像URL
-     * @return 更新后的模型
-     */
-    private Model updateModel(ReconstructionTask task, String objFileUrl, String mtlFileUrl, String textureImageUrl) {
-        log.info("Updating model for task: {}", task.getId());
-
-        Model model = modelService.getModelByTaskId(task.getId());
-        if (model == null) {
-            log.warn("Model not found for task: {}, creating new model", task.getId());
-            return createModel(task, objFileUrl, mtlFileUrl, textureImageUrl);
-        }
-
-        // 更新模型文件URL
-        if (objFileUrl != null) {
-            model.setObjFileUrl(objFileUrl);
-        }
-        if (mtlFileUrl != null) {
-            model.setMtlFileUrl(mtlFileUrl);
-        }
-        if (textureImageUrl != null) {
-            model.setTextureImageUrl(textureImageUrl);
+            log.warn("No model associated with task: {}", task.getId());
         }
-
-        model.setUpdateTime(new Date());
-        modelService.updateById(model);
-        log.info("Updated model with OBJ/MTL/texture URLs for task: {}", task.getId());
-
-        return model;
     }
 
     /**
@@ -535,84 +742,41 @@ public class ReconstructionCallbackController {
         // 遵循"一个回调，一个存COS，一个写数据库，一个回SSE消息"的模式
         // COS存储已经在调用此方法前完成
 
-        // 首先检查是否已经有与该任务关联的模型记录
-        Model model = null;
-
-        // 如果任务有关联的模型ID，尝试获取该模型
-        if (task.getResultModelId() != null) {
-            model = modelService.getById(task.getResultModelId());
-        }
-
-        // 如果没有关联的模型ID或者模型不存在，尝试通过taskId查找
-        if (model == null) {
-            model = modelService.getModelByTaskId(task.getId());
-        }
-
-        // 如果仍然没有找到模型，创建一个新的
-        if (model == null) {
-            log.info("No model found for task: {}, creating new model", task.getId());
-            model = new Model();
-            model.setName("3D Model - " + task.getId());
-            model.setSourceImageId(task.getSourceImageId());
-            model.setTaskId(task.getId().toString());
-            model.setStatus("PROCESSING"); // 初始状态为处理中
-            model.setUserId(task.getUserId());
-            model.setModelFormat("OBJ");
-
-            // 设置objFileUrl的默认值，因为数据库中这个字段是必填的
-            model.setObjFileUrl("pending");
-
-            // 设置创建时间
-            Date now = new Date();
-            model.setCreateTime(now);
-            model.setUpdateTime(now);
-        }
-
-        // 根据文件类型更新相应的URL字段
+        // 只写入本次回调对应的字段，模型不存在时创建
+        Model changes = new Model();
         switch (fileType) {
             case "obj":
-                model.setObjFileUrl(fileUrl);
+                changes.setObjFileUrl(fileUrl);
                 break;
             case "mtl":
-                model.setMtlFileUrl(fileUrl);
+                changes.setMtlFileUrl(fileUrl);
                 break;
             case "texture":
-                model.setTextureImageUrl(fileUrl);
+                changes.setTextureImageUrl(fileUrl);
                 break;
             case "pixel_images":
-                model.setPixelImagesUrl(fileUrl);
+                changes.setPixelImagesUrl(fileUrl);
                 break;
             case "xyz_images":
-                model.setXyzImagesUrl(fileUrl);
-                break;
-            case "zip":
-                // 如果模型有ZIP URL字段，可以在这里设置
+                changes.setXyzImagesUrl(fileUrl);
                 break;
+            default:
+                return;
         }
+        saveTaskModel(task, changes);
+        log.info("Saved {} URL for task: {}, URL: {}", fileType, task.getId(), fileUrl);
+    }
 
-        // 更新时间
-        model.setUpdateTime(new Date());
-
-        // 保存或更新模型
-        boolean success;
-        if (model.getId() == null) {
-            // 新模型，需要保存
-            success = modelService.save(model);
-            if (success) {
-                log.info("Created new model for task: {}, model ID: {}", task.getId(), model.getId());
-                // 更新任务的结果模型ID
-                reconstructionTaskService.updateTaskResultModel(task.getId(), model.getId());
-            } else {
-                log.error("Failed to create model for task: {}", task.getId());
-            }
-        } else {
-            // 现有模型，需要更新
-            success = modelService.updateById(model);
-            if (success) {
-                log.info("Updated existing model ID: {} with {} URL: {}", model.getId(), fileType, fileUrl);
-            } else {
-                log.error("Failed to update model ID: {} for task: {}", model.getId(), task.getId());
-            }
+    /**
+     * 写入任务对应模型的部分字段，并在任务尚未关联模型时关联
+     *
+     * @param task 重建任务
+     * @param changes 要写入的字段
+     */
+    private void saveTaskModel(ReconstructionTask task, Model changes) {
+        modelService.upsertTaskModel(task, changes);
+        if (task.getResultModelId() == null && reconstructionTaskService.linkResultModel(task.getId())) {
+            log.info("Linked result model to task: {}", task.getId());
         }
     }
 
@@ -4,35 +4,43 @@ import com.elwg.ai3dbackend.annotation.AuthCheck;
 import com.elwg.ai3dbackend.common.BaseResponse;
 import com.elwg.ai3dbackend.common.ResultUtils;
 import com.elwg.ai3dbackend.constant.TaskStatus;
-import com.elwg.ai3dbackend.exception.BusinessException;
 import com.elwg.ai3dbackend.exception.ErrorCode;
 import com.elwg.ai3dbackend.exception.ThrowUtils;
+import com.elwg.ai3dbackend.manager.ReconstructionArtifactManifest;
+import com.elwg.ai3dbackend.manager.ReconstructionFairScheduler;
+import com.elwg.ai3dbackend.manager.ReconstructionStageRecorder;
+import com.elwg.ai3dbackend.manager.ReconstructionStatusCache;
+import com.elwg.ai3dbackend.model.dto.event.TaskResultEvent;
+import com.elwg.ai3dbackend.model.dto.event.TaskStatusEvent;
+import com.elwg.ai3dbackend.model.dto.reconstruction.ReconstructionArtifact;
+import com.elwg.ai3dbackend.model.dto.reconstruction.ReconstructionBatchRequest;
 import com.elwg.ai3dbackend.model.dto.reconstruction.ReconstructionTaskDTO;
-import com.elwg.ai3dbackend.model.entity.Model;
 import com.elwg.ai3dbackend.model.entity.Picture;
 import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
 import com.elwg.ai3dbackend.model.entity.User;
+import com.elwg.ai3dbackend.model.enums.UserRoleEnum;
 import com.elwg.ai3dbackend.service.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
-import java.io.IOException;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.UnknownHostException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * 3D重建控制器
@@ -52,9 +60,6 @@ public class ReconstructionController {
     @Resource
     private PictureService pictureService;
 
-    @Resource
-    private ReconstructionHttpService reconstructionHttpService;
-
     @Resource
     private ReconstructionTaskService reconstructionTaskService;
 
@@ -65,7 +70,25 @@ public class ReconstructionController {
     private FileStorageService fileStorageService;
 
     @Resource
-    private ModelService modelService;
+    private ReconstructionDispatchService reconstructionDispatchService;
+
+    @Resource
+    private ReconstructionResultCacheService reconstructionResultCacheService;
+
+    @Resource
+    private ReconstructionBatchService reconstructionBatchService;
+
+    @Resource
+    private ReconstructionFairScheduler reconstructionFairScheduler;
+
+    @Resource
+    private ReconstructionStageRecorder reconstructionStageRecorder;
+
+    @Resource
+    private ReconstructionArtifactManifest reconstructionArtifactManifest;
+
+    @Resource
+    private ReconstructionStatusCache reconstructionStatusCache;
 
     @Value("${server.servlet.context-path:}")
     private String contextPath;
@@ -77,7 +100,13 @@ public class ReconstructionController {
     /**
      * 创建3D重建任务
      *
+     * <p>
+     * 内容相同的图片已经成功重建过时直接复用已有结果，任务立即完成并推送全部结果事件；
+     * bypassCache为true时跳过缓存，总是发送到重建服务
+     * </p>
+     *
      * @param imageId 图片ID
+     * @param bypassCache 是否跳过结果缓存
      * @param request HTTP请求
      * @return 任务ID(可以拼接得到SSE URL)
      */
@@ -86,6 +115,7 @@ public class ReconstructionController {
     @AuthCheck(mustRole = "admin")
     public BaseResponse<Long> createReconstructionTask(
             @RequestParam("imageId") Long imageId,
+            @RequestParam(value = "bypassCache", defaultValue = "false") boolean bypassCache,
             HttpServletRequest request) {
         // 获取当前登录用户
         User loginUser = userService.getLoginUser(request);
@@ -99,29 +129,26 @@ public class ReconstructionController {
             // 获取图片URL
             String imageUrl = picture.getUrl();
             ThrowUtils.throwIf(imageUrl == null || imageUrl.isEmpty(), ErrorCode.SYSTEM_ERROR, "图片URL为空");
-            // 创建重建任务记录
-            ReconstructionTask task = reconstructionTaskService.createTask(
-                    loginUser.getId(), imageId, imageUrl);
             // 构建回调URL
             String callbackUrl = getCallbackUrl(request);
-            // 获取图片数据
-            byte[] imageData;
-            try {
-                // 尝试从存储服务中获取图片数据
-                // 如果是完整URL，提取路径部分
-                String imagePath = imageUrl;
-                if (imageUrl.startsWith("http")) {
-                    // 假设路径是URL的最后部分，例如 "images/xxx/image.jpg"
-                    imagePath = imageUrl.substring(imageUrl.indexOf("/images/"));
+            // 内容相同的图片已有重建结果时直接复用
+            String contentHash = pictureService.getContentHash(picture);
+            if (bypassCache) {
+                reconstructionResultCacheService.recordBypass();
+            } else {
+                ReconstructionTask cachedTask = reconstructionResultCacheService.completeFromCache(
+                        loginUser.getId(), picture, contentHash);
+                if (cachedTask != null) {
+                    return ResultUtils.success(cachedTask.getId());
                 }
-                imageData = fileStorageService.getFileData(imagePath);
-            } catch (IOException e) {
-                log.error("Failed to get image data for URL: {}", imageUrl, e);
-                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "获取图片数据失败：" + e.getMessage());
             }
-
-            // 异步处理重建任务
-            processReconstructionTaskAsync(task.getId().toString(), imageData, callbackUrl);
+            // 创建重建任务记录，任务进入队列等待派发
+            ReconstructionTask task = reconstructionTaskService.createTask(loginUser.getId(), imageId, imageUrl,
+                    callbackUrl, contentHash, reconstructionFairScheduler.getPriority(loginUser.getUserRole()));
+            // 用户事件流自动订阅新任务
+            eventStreamService.subscribeTask(loginUser.getId(), task.getId().toString());
+            // 唤醒派发线程，由派发线程读取图片并发送到重建服务
+            reconstructionDispatchService.wakeUp();
 
             return ResultUtils.success(task.getId());
         } catch (Exception e) {
@@ -131,109 +158,294 @@ public class ReconstructionController {
         }
     }
 
+    /**
+     * 批量创建3D重建任务
+     * <p>
+     * 每张图片创建一个任务，所有任务共用一个批次ID并在一次批量插入中创建。
+     * 当前用户的事件流会自动订阅批次进度，也可以通过批次事件流单独订阅
+     * </p>
+     *
+     * @param batchRequest 批量创建请求
+     * @param request HTTP请求
+     * @return 批次ID和各任务ID
+     */
+    @PostMapping("/batch/create")
+    @Operation(summary = "批量创建3D重建任务", description = "使用多张已上传的图片创建重建任务，返回批次ID和任务ID列表")
+    @AuthCheck(mustRole = "admin")
+    public BaseResponse<Map<String, Object>> createReconstructionBatch(@RequestBody ReconstructionBatchRequest batchRequest,
+                                                                     HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR);
+        ThrowUtils.throwIf(batchRequest == null, ErrorCode.PARAMS_ERROR);
+
+        List<ReconstructionTask> tasks = reconstructionBatchService.createBatch(loginUser.getId(),
+                reconstructionFairScheduler.getPriority(loginUser.getUserRole()), batchRequest.getImageIds(),
+                getCallbackUrl(request));
+        // 唤醒派发线程，批次中的任务按并发上限依次派发
+        reconstructionDispatchService.wakeUp();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("batchId", tasks.get(0).getBatchId());
+        result.put("taskIds", tasks.stream().map(ReconstructionTask::getId).collect(Collectors.toList()));
+        return ResultUtils.success(result);
+    }
+
+    /**
+     * 获取批次进度
+     *
+     * @param batchId 批次ID
+     * @return 各状态的任务数
+     */
+    @GetMapping("/batch/{batchId}")
+    @Operation(summary = "获取批次进度", description = "获取批量任务中各状态的任务数")
+    public BaseResponse<Map<String, Object>> getBatchProgress(@PathVariable Long batchId) {
+        Map<String, Object> progress = reconstructionBatchService.getProgress(batchId);
+        ThrowUtils.throwIf(progress == null, ErrorCode.NOT_FOUND_ERROR, "批次不存在");
+        return ResultUtils.success(progress);
+    }
+
+    /**
+     * 批次SSE事件流
+     * <p>
+     * 连接建立后立即推送当前进度，之后每有任务结束推送一次progress事件；
+     * 批次中所有任务都结束后延迟关闭连接
+     * </p>
+     *
+     * @param batchId 批次ID
+     * @param lastEventId 客户端最后收到的事件ID（可选）
+     * @return SSE发射器
+     */
+    @GetMapping("/batch/{batchId}/events")
+    @Operation(summary = "批次SSE事件流", description = "建立SSE连接，接收批量任务的整体进度")
+    public SseEmitter batchEvents(@PathVariable Long batchId,
+                                  @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        String key = batchId.toString();
+        SseEmitter emitter = eventStreamService.createEmitter(key, lastEventId);
+        Map<String, Object> progress = reconstructionBatchService.getProgress(batchId);
+        // 当前进度只发给本连接，不经过事件总线，也不关闭该批次的其他连接
+        if (progress == null) {
+            eventStreamService.sendSnapshot(emitter, "status",
+                    new TaskStatusEvent(key, TaskStatus.FAILED, "Batch not found"));
+            eventStreamService.completeEmitter(emitter);
+            return emitter;
+        }
+        eventStreamService.sendSnapshot(emitter, "progress", progress);
+        if (Boolean.TRUE.equals(progress.get("finished"))) {
+            eventStreamService.completeEmitterLater(emitter, 5000);
+        }
+        return emitter;
+    }
+
     /**
      * SSE事件流
+     * <p>
+     * 同一任务允许多个连接同时订阅。客户端断线重连时浏览器会携带Last-Event-ID，
+     * 如果服务端缓存覆盖了错过的全部事件，则只补发这些事件，不再查询数据库和存储。
+     * </p>
      *
      * @param id 任务ID
+     * @param lastEventId 客户端最后收到的事件ID（可选）
      * @return SSE发射器
      */
     @GetMapping("/events/{id}")
-    @Operation(summary = "SSE事件流", description = "建立SSE连接，接收任务状态和结果更新")
-    public SseEmitter events(@PathVariable Long id) {
-        log.info("Creating SSE connection for task: {}", id);
+    @Operation(summary = "SSE事件流", description = "建立SSE连接，接收任务状态和结果更新，支持Last-Event-ID断线补发")
+    public SseEmitter events(@PathVariable Long id,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        log.info("Creating SSE connection for task: {}, Last-Event-ID: {}", id, lastEventId);
 
-        // 创建SSE发射器
         String taskIdStr = id.toString();
-        SseEmitter emitter = eventStreamService.createEmitter(taskIdStr);
+        // 断线重连且缓存可以补齐错过的事件，直接补发
+        if (eventStreamService.canReplay(taskIdStr, lastEventId)) {
+            return eventStreamService.createEmitter(taskIdStr, lastEventId);
+        }
+
+        // 创建SSE发射器
+        SseEmitter emitter = eventStreamService.createEmitter(taskIdStr, lastEventId);
 
         // 检查任务是否存在
         ReconstructionTask task = reconstructionTaskService.getTaskById(id);
         if (task == null) {
-            // 发送错误事件
-            eventStreamService.sendStatusEvent(taskIdStr, TaskStatus.FAILED, "Task not found");
-            eventStreamService.completeEmitter(taskIdStr);
+            // 发送错误事件，只关闭本连接
+            eventStreamService.sendSnapshot(emitter, "status",
+                    new TaskStatusEvent(taskIdStr, TaskStatus.FAILED, "Task not found"));
+            eventStreamService.completeEmitter(emitter);
             return emitter;
         }
 
-        // 如果任务已经有状态，立即发送
-        eventStreamService.sendStatusEvent(taskIdStr, task.getStatus(), task.getErrorMessage());
+        // 当前状态和结果文件只发给本连接，不经过事件总线，不进入补发缓存，同一任务的其他连接不会重复收到
+        String error = task.getErrorMessage() != null && !task.getErrorMessage().isEmpty() ? task.getErrorMessage() : null;
+        eventStreamService.sendSnapshot(emitter, "status", new TaskStatusEvent(taskIdStr, task.getStatus(), error));
 
-        // 如果任务已经有结果文件，立即发送
-        if (task.getResultModelId() != null) {
-            Model model = modelService.getById(task.getResultModelId());
-            if (model != null) {
-                // 发送像素图像
-                if (model.getPixelImagesUrl() != null) {
-                    eventStreamService.sendResultEvent(taskIdStr, "pixel_images.png", model.getPixelImagesUrl());
-                }
-                // 发送XYZ图像
-                if (model.getXyzImagesUrl() != null) {
-                    eventStreamService.sendResultEvent(taskIdStr, "xyz_images.png", model.getXyzImagesUrl());
-                }
-
-                // 检查是否有输出ZIP包
-                String outputZipPath = "reconstruction/" + id + "/output3d.zip";
-                if (fileStorageService.isFileExists(outputZipPath)) {
-                    String outputZipUrl = fileStorageService.getFileUrl(outputZipPath);
-                    eventStreamService.sendResultEvent(taskIdStr, "output3d.zip", outputZipUrl);
-                }
-            }
+        // 如果任务已经有结果文件，按结果文件清单立即发送
+        for (ReconstructionArtifact artifact : reconstructionArtifactManifest.getManifest(task).values()) {
+            eventStreamService.sendSnapshot(emitter, "result",
+                    new TaskResultEvent(taskIdStr, artifact.getName(), artifact.getUrl()));
         }
 
-        // 如果任务已经完成或失败，延迟关闭连接，确保客户端有足够时间接收所有事件
-        if (TaskStatus.COMPLETED.equals(task.getStatus()) || TaskStatus.FAILED.equals(task.getStatus())) {
+        // 如果任务已经完成、失败或取消，延迟关闭本连接，确保客户端有足够时间接收所有事件
+        if (TaskStatus.COMPLETED.equals(task.getStatus()) || TaskStatus.FAILED.equals(task.getStatus())
+                || TaskStatus.CANCELLED.equals(task.getStatus())) {
             // 使用延迟关闭，确保客户端有时间接收所有事件
-            new Thread(() -> {
-                try {
-                    // 等待几秒钟，确保客户端有时间接收所有事件
-                    Thread.sleep(5000);
-                    // 完成SSE连接
-                    eventStreamService.completeEmitter(taskIdStr);
-                    log.info("Completed SSE connection for completed/failed task: {}", id);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    log.warn("Interrupted while waiting to complete SSE connection for task: {}", id);
-                }
-            }).start();
+            eventStreamService.completeEmitterLater(emitter, 5000);
         }
 
         return emitter;
     }
 
+    /**
+     * 用户事件流
+     * <p>
+     * 一个连接接收当前用户所有进行中任务的事件，之后创建的任务会自动订阅，
+     * 也可以通过订阅/退订接口调整。事件数据格式为 {"taskId": "...", "data": 原事件数据}
+     * </p>
+     *
+     * @param lastEventId 客户端最后收到的事件ID（可选）
+     * @param request HTTP请求
+     * @return SSE发射器
+     */
+    @GetMapping("/events")
+    @Operation(summary = "用户SSE事件流", description = "在一个连接上接收当前用户所有已订阅任务的状态和结果更新")
+    public SseEmitter userEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                 HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        List<String> taskIds = reconstructionTaskService.listUserActiveTasks(loginUser.getId()).stream()
+                .map(task -> task.getId().toString())
+                .collect(Collectors.toList());
+        log.info("Creating user SSE connection for user: {}, active tasks: {}, Last-Event-ID: {}",
+                loginUser.getId(), taskIds.size(), lastEventId);
+        return eventStreamService.createUserEmitter(loginUser.getId(), taskIds, lastEventId);
+    }
+
+    /**
+     * 用户事件流订阅任务
+     *
+     * @param taskId 任务ID
+     * @param request HTTP请求
+     * @return 是否成功
+     */
+    @PostMapping("/events/subscribe")
+    @Operation(summary = "订阅任务事件", description = "让当前用户的事件流开始接收指定任务的事件")
+    public BaseResponse<Boolean> subscribeTask(@RequestParam("taskId") Long taskId, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        checkTaskAccess(taskId, loginUser);
+        eventStreamService.subscribeTask(loginUser.getId(), taskId.toString());
+        return ResultUtils.success(true);
+    }
+
+    /**
+     * 用户事件流退订任务
+     *
+     * @param taskId 任务ID
+     * @param request HTTP请求
+     * @return 是否成功
+     */
+    @PostMapping("/events/unsubscribe")
+    @Operation(summary = "退订任务事件", description = "让当前用户的事件流停止接收指定任务的事件")
+    public BaseResponse<Boolean> unsubscribeTask(@RequestParam("taskId") Long taskId, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        ThrowUtils.throwIf(taskId == null || taskId <= 0, ErrorCode.PARAMS_ERROR, "任务ID不合法");
+        eventStreamService.unsubscribeTask(loginUser.getId(), taskId.toString());
+        return ResultUtils.success(true);
+    }
+
+    /**
+     * 校验用户是否可以访问任务：任务所有者或管理员
+     *
+     * @param taskId 任务ID
+     * @param loginUser 当前登录用户
+     */
+    private void checkTaskAccess(Long taskId, User loginUser) {
+        ThrowUtils.throwIf(taskId == null || taskId <= 0, ErrorCode.PARAMS_ERROR, "任务ID不合法");
+        ReconstructionTask task = reconstructionTaskService.getTaskById(taskId);
+        ThrowUtils.throwIf(task == null, ErrorCode.NOT_FOUND_ERROR, "任务不存在");
+        ThrowUtils.throwIf(!loginUser.getId().equals(task.getUserId())
+                        && !UserRoleEnum.ADMIN.getValue().equals(loginUser.getUserRole()),
+                ErrorCode.NO_AUTH_ERROR);
+    }
+
+    /**
+     * 取消任务
+     * <p>
+     * 等待中的任务直接移出队列，处理中的任务会通知重建服务中止并立即释放并发名额
+     * </p>
+     *
+     * @param id 任务ID
+     * @param request HTTP请求
+     * @return 是否取消成功
+     */
+    @PostMapping("/cancel/{id}")
+    @Operation(summary = "取消任务", description = "取消等待中或处理中的任务，已结束的任务无法取消")
+    public BaseResponse<Boolean> cancelTask(@PathVariable Long id, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        checkTaskAccess(id, loginUser);
+        boolean cancelled = reconstructionDispatchService.cancelTask(id);
+        ThrowUtils.throwIf(!cancelled, ErrorCode.OPERATION_ERROR, "任务已结束，无法取消");
+        log.info("User {} cancelled task: {}", loginUser.getId(), id);
+        return ResultUtils.success(true);
+    }
+
     /**
      * 获取任务状态
+     * <p>
+     * 等待中的任务同时返回按公平调度规则估算的排队位置。
+     * 同一任务的并发查询合并为一次，结果短时间缓存；响应带有ETag，
+     * If-None-Match与当前ETag一致时返回304，不返回响应体
+     * </p>
      *
      * @param id 任务ID
+     * @param ifNoneMatch 客户端缓存的ETag（可选）
      * @return 任务状态和结果
      */
     @GetMapping("/status/{id}")
-    @Operation(summary = "获取任务状态", description = "获取指定任务的状态和结果")
-    public BaseResponse<ReconstructionTaskDTO> getTaskStatus(@PathVariable Long id) {
-        log.info("Getting status for task: {}", id);
+    @Operation(summary = "获取任务状态", description = "获取指定任务的状态和结果，支持ETag/If-None-Match")
+    public ResponseEntity<BaseResponse<ReconstructionTaskDTO>> getTaskStatus(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        log.debug("Getting status for task: {}", id);
+
+        ReconstructionStatusCache.Snapshot snapshot = reconstructionStatusCache.get(id, this::loadTaskStatus);
+        ThrowUtils.throwIf(snapshot == null, ErrorCode.NOT_FOUND_ERROR, "任务不存在");
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (snapshot.getEtag() != null) {
+            builder.eTag(snapshot.getEtag());
+            if (reconstructionStatusCache.matches(ifNoneMatch, snapshot.getEtag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .cacheControl(CacheControl.noCache())
+                        .eTag(snapshot.getEtag())
+                        .build();
+            }
+        }
+        return builder.body(ResultUtils.success(snapshot.getStatus()));
+    }
 
+    /**
+     * 查询任务并构建状态
+     *
+     * @param id 任务ID
+     * @return 任务状态和结果，任务不存在时返回null
+     */
+    private ReconstructionTaskDTO loadTaskStatus(Long id) {
         // 查询任务
         ReconstructionTask task = reconstructionTaskService.getTaskById(id);
-        ThrowUtils.throwIf(task == null, ErrorCode.NOT_FOUND_ERROR, "任务不存在");
+        if (task == null) {
+            return null;
+        }
 
         // 转换为DTO
         ReconstructionTaskDTO taskDTO = new ReconstructionTaskDTO();
         BeanUtils.copyProperties(task, taskDTO);
-
-        // 如果有关联的模型，从模型中获取URL字段
-        if (task.getResultModelId() != null) {
-            Model model = modelService.getById(task.getResultModelId());
-            if (model != null) {
-                // 设置URL字段
-                taskDTO.setPixelImagesUrl(model.getPixelImagesUrl());
-                taskDTO.setXyzImagesUrl(model.getXyzImagesUrl());
-                String outputZipPath = "reconstruction/" + id + "/output3d.zip";
-                if (fileStorageService.isFileExists(outputZipPath)) {
-                    taskDTO.setOutputZipUrl(fileStorageService.getFileUrl(outputZipPath));
-                }
-            }
-        }
-
-        return ResultUtils.success(taskDTO);
+        // 等待中的任务返回排队位置
+        taskDTO.setQueuePosition(reconstructionFairScheduler.getQueuePosition(task));
+        taskDTO.setTimeline(reconstructionStageRecorder.parseTimeline(task.getTimeline()));
+
+        // 从结果文件清单中获取URL字段，不查询模型和存储服务
+        Map<String, ReconstructionArtifact> artifacts = reconstructionArtifactManifest.getManifest(task);
+        taskDTO.setArtifacts(artifacts);
+        taskDTO.setPixelImagesUrl(getArtifactUrl(artifacts, "pixel_images.png"));
+        taskDTO.setXyzImagesUrl(getArtifactUrl(artifacts, "xyz_images.png"));
+        taskDTO.setOutputZipUrl(getArtifactUrl(artifacts, "output3d.zip"));
+        return taskDTO;
     }
 
     /**
@@ -306,49 +518,9 @@ public class ReconstructionController {
             ThrowUtils.throwIf(true, ErrorCode.NOT_FOUND_ERROR, "任务结果不存在或尚未完成");
         }
 
-        // 根据文件名获取对应的URL
-        String fileUrl = null;
-
-        // 检查是否有关联的模型
-        if (task.getResultModelId() != null) {
-            Model model = modelService.getById(task.getResultModelId());
-            if (model != null) {
-                if ("pixel_images.png".equals(fileName) && model.getPixelImagesUrl() != null) {
-                    fileUrl = model.getPixelImagesUrl();
-                    log.info("Using model pixelImagesUrl: {}", fileUrl);
-                } else if ("xyz_images.png".equals(fileName) && model.getXyzImagesUrl() != null) {
-                    fileUrl = model.getXyzImagesUrl();
-                    log.info("Using model xyzImagesUrl: {}", fileUrl);
-                } else if ("output3d.zip".equals(fileName)) {
-                    // 对于ZIP文件，使用标准路径
-                    String outputZipPath = "reconstruction/" + id + "/output3d.zip";
-                    if (fileStorageService.isFileExists(outputZipPath)) {
-                        fileUrl = fileStorageService.getFileUrl(outputZipPath);
-                        log.info("Using standard path for output3d.zip: {}", fileUrl);
-                    }
-                } else if ("model.obj".equals(fileName) || "model.mtl".equals(fileName) || "texture.png".equals(fileName)) {
-                    if ("model.obj".equals(fileName) && model.getObjFileUrl() != null) {
-                        fileUrl = model.getObjFileUrl();
-                        log.info("Using model objFileUrl: {}", fileUrl);
-                    } else if ("model.mtl".equals(fileName) && model.getMtlFileUrl() != null) {
-                        fileUrl = model.getMtlFileUrl();
-                        log.info("Using model mtlFileUrl: {}", fileUrl);
-                    } else if ("texture.png".equals(fileName) && model.getTextureImageUrl() != null) {
-                        fileUrl = model.getTextureImageUrl();
-                        log.info("Using model textureImageUrl: {}", fileUrl);
-                    }
-                }
-            }
-        }
-
-        // 如果没有找到URL，使用标准路径
-        if (fileUrl == null || fileUrl.isEmpty()) {
-            String standardPath = "reconstruction/" + id + "/" + fileName;
-            if (fileStorageService.isFileExists(standardPath)) {
-                fileUrl = fileStorageService.getFileUrl(standardPath);
-                log.info("Using standard path URL: {}", fileUrl);
-            }
-        }
+        // 从结果文件清单中获取对应的URL
+        String fileUrl = reconstructionArtifactManifest.getUrl(task, fileName);
+        log.info("Using manifest URL for {}: {}", fileName, fileUrl);
 
         // 如果没有找到对应的URL
         if (fileUrl == null || fileUrl.isEmpty()) {
@@ -370,6 +542,18 @@ public class ReconstructionController {
         }
     }
 
+    /**
+     * 从结果文件清单中获取文件URL
+     *
+     * @param artifacts 结果文件清单
+     * @param name 文件名
+     * @return 文件URL，不存在时返回null
+     */
+    private String getArtifactUrl(Map<String, ReconstructionArtifact> artifacts, String name) {
+        ReconstructionArtifact artifact = artifacts.get(name);
+        return artifact != null ? artifact.getUrl() : null;
+    }
+
     /**
      * 获取文件URL（用于图片预览）
      * <p>
@@ -478,56 +662,4 @@ public class ReconstructionController {
         log.info("生成回调URL: {}", callbackUrl);
         return callbackUrl;
     }
-
-    /**
-     * 异步处理重建任务
-     * <p>
-     * 使用Spring的@Async注解实现异步处理，在指定的线程池中执行
-     * </p>
-     *
-     * @param taskId      任务ID（字符串形式）
-     * @param imageData   图片数据
-     * @param callbackUrl 回调URL
-     */
-    @Async("reconstructionTaskExecutor")
-    public void processReconstructionTaskAsync(String taskId, byte[] imageData, String callbackUrl) {
-        try {
-            log.info("Starting async processing for task: {}", taskId);
-
-            // 将taskId转换为Long类型
-            Long taskIdLong = Long.parseLong(taskId);
-
-            // 更新任务状态为处理中
-            reconstructionTaskService.updateTaskStatus(taskIdLong, TaskStatus.PROCESSING, null);
-
-            // 发送SSE状态更新
-            eventStreamService.sendStatusEvent(taskId, TaskStatus.PROCESSING, null);
-
-            // 发送图片到Python服务
-            reconstructionHttpService.sendImageForReconstruction(imageData, taskId, callbackUrl)
-                    .thenAccept(status -> {
-                        log.info("Image sent to Python service for task: {}, status: {}", taskId, status);
-                    })
-                    .exceptionally(ex -> {
-                        log.error("Failed to send image to Python service for task: {}", taskId, ex);
-                        // 更新任务状态为失败
-                        reconstructionTaskService.updateTaskStatus(taskIdLong, TaskStatus.FAILED, ex.getMessage());
-                        // 发送SSE状态更新
-                        eventStreamService.sendStatusEvent(taskId, TaskStatus.FAILED, ex.getMessage());
-                        return null;
-                    });
-        } catch (Exception e) {
-            log.error("Failed to process image for task: {}", taskId, e);
-            try {
-                // 将taskId转换为Long类型
-                Long taskIdLong = Long.parseLong(taskId);
-                // 更新任务状态为失败
-                reconstructionTaskService.updateTaskStatus(taskIdLong, TaskStatus.FAILED, e.getMessage());
-            } catch (NumberFormatException nfe) {
-                log.error("Invalid task ID format: {}", taskId, nfe);
-            }
-            // 发送SSE状态更新
-            eventStreamService.sendStatusEvent(taskId, TaskStatus.FAILED, e.getMessage());
-        }
-    }
 }
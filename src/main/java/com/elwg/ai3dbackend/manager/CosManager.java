@@ -2,6 +2,7 @@ package com.elwg.ai3dbackend.manager;
 
 import com.elwg.ai3dbackend.config.CosClientConfig;
 import com.qcloud.cos.COSClient;
+import com.qcloud.cos.http.HttpMethodName;
 import com.qcloud.cos.model.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,9 +12,15 @@ import org.springframework.stereotype.Component;
 import jakarta.annotation.PostConstruct;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -60,17 +67,73 @@ public class CosManager {
      * @throws IOException 如果上传过程中发生错误
      */
     public void uploadFile(String key, InputStream inputStream) throws IOException {
-        try {
-            // 标准化路径，去除开头的斜杠
-            key = normalizePath(key);
+        uploadFile(key, inputStream, -1, null);
+    }
+
+    /**
+     * 上传文件
+     * <p>
+     * COS SDK在不知道流长度时会把整个流读入内存，因此长度未知的流先写入临时文件再上传，
+     * 保证上传任意大小的文件时占用的堆内存都是有限的
+     * </p>
+     *
+     * @param key 对象键（文件路径）
+     * @param inputStream 文件输入流
+     * @param contentLength 文件大小（字节），未知时传-1
+     * @param contentType 文件类型（可选）
+     * @throws IOException 如果上传过程中发生错误
+     */
+    public void uploadFile(String key, InputStream inputStream, long contentLength, String contentType) throws IOException {
+        // 标准化路径，去除开头的斜杠
+        key = normalizePath(key);
 
+        if (contentLength < 0) {
+            Path tempFile = Files.createTempFile("cos-upload-", ".tmp");
+            try {
+                Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                uploadFile(key, tempFile.toFile(), contentType);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            return;
+        }
+
+        try {
             // 创建上传请求
             ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(contentLength);
+            if (contentType != null) {
+                metadata.setContentType(contentType);
+            }
             PutObjectRequest putObjectRequest = new PutObjectRequest(cosConfig.getBucket(), key, inputStream, metadata);
 
             // 执行上传
             cosClient.putObject(putObjectRequest);
-            log.info("Uploaded file to Tencent COS: {}", key);
+            log.info("Uploaded file to Tencent COS: {}, size: {} bytes", key, contentLength);
+        } catch (Exception e) {
+            log.error("Failed to upload file to Tencent COS: {}", key, e);
+            throw new IOException("Failed to upload file to Tencent COS", e);
+        }
+    }
+
+    /**
+     * 上传本地文件
+     *
+     * @param key 对象键（已标准化的文件路径）
+     * @param file 本地文件
+     * @param contentType 文件类型（可选）
+     * @throws IOException 如果上传过程中发生错误
+     */
+    private void uploadFile(String key, File file, String contentType) throws IOException {
+        try {
+            PutObjectRequest putObjectRequest = new PutObjectRequest(cosConfig.getBucket(), key, file);
+            if (contentType != null) {
+                ObjectMetadata metadata = new ObjectMetadata();
+                metadata.setContentType(contentType);
+                putObjectRequest.setMetadata(metadata);
+            }
+            cosClient.putObject(putObjectRequest);
+            log.info("Uploaded file to Tencent COS: {}, size: {} bytes", key, file.length());
         } catch (Exception e) {
             log.error("Failed to upload file to Tencent COS: {}", key, e);
             throw new IOException("Failed to upload file to Tencent COS", e);
@@ -119,6 +182,29 @@ public class CosManager {
         return cosConfig.getHost() + "/" + key;
     }
 
+    /**
+     * 生成有时效的预签名下载URL
+     * <p>
+     * 持有URL的一方无需密钥即可在有效期内直接从COS下载该文件
+     * </p>
+     *
+     * @param key 对象键（文件路径）
+     * @param expireMillis 有效期（毫秒）
+     * @return 预签名URL
+     * @throws IOException 如果生成签名失败
+     */
+    public String generatePresignedUrl(String key, long expireMillis) throws IOException {
+        key = normalizePath(key);
+        try {
+            Date expiration = new Date(System.currentTimeMillis() + expireMillis);
+            URL url = cosClient.generatePresignedUrl(cosConfig.getBucket(), key, expiration, HttpMethodName.GET);
+            return url.toString();
+        } catch (Exception e) {
+            log.error("Failed to generate presigned URL for Tencent COS object: {}", key, e);
+            throw new IOException("Failed to generate presigned URL", e);
+        }
+    }
+
     /**
      * 检查文件是否存在
      *
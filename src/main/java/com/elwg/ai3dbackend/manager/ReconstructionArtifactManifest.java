@@ -0,0 +1,234 @@
+package com.elwg.ai3dbackend.manager;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.elwg.ai3dbackend.constant.TaskStatus;
+import com.elwg.ai3dbackend.model.dto.reconstruction.ReconstructionArtifact;
+import com.elwg.ai3dbackend.model.entity.Model;
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
+import com.elwg.ai3dbackend.service.FileStorageService;
+import com.elwg.ai3dbackend.service.ModelService;
+import com.elwg.ai3dbackend.service.ReconstructionTaskService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 3D重建结果文件清单
+ * <p>
+ * 回调收到的每个结果文件保存到存储服务后，把文件名、大小、SHA-256和URL写入任务的artifacts字段，
+ * 状态查询、SSE事件流和结果文件接口从清单中取得文件URL，读取路径上不再访问COS判断文件是否存在。
+ * 已结束任务的清单不再变化，解析结果按任务ID缓存在内存中
+ * </p>
+ * <p>
+ * 引入清单之前完成的任务没有artifacts字段，首次读取时根据模型记录补录一次，
+ * 只有output3d.zip需要访问一次COS，之后与新任务相同
+ * </p>
+ */
+@Slf4j
+@Component
+public class ReconstructionArtifactManifest {
+
+    /**
+     * 压缩包文件名，早期版本的回调会把它保存到存储服务
+     */
+    private static final String OUTPUT_ZIP = "output3d.zip";
+
+    private static final TypeReference<LinkedHashMap<String, ReconstructionArtifact>> MANIFEST_TYPE = new TypeReference<>() {
+    };
+
+    /**
+     * 缓存的已结束任务清单数量
+     */
+    @Value("${reconstruction.manifest.cache-size:10000}")
+    private int cacheSize;
+
+    @Resource
+    private ReconstructionTaskService reconstructionTaskService;
+
+    @Resource
+    private ModelService modelService;
+
+    @Resource
+    private FileStorageService fileStorageService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 任务ID到已结束任务清单的缓存
+     */
+    private LRUCache<Long, Map<String, ReconstructionArtifact>> finishedManifests;
+
+    /**
+     * 缓存命中次数
+     */
+    private final AtomicLong hitCount = new AtomicLong(0);
+
+    /**
+     * 缓存未命中次数
+     */
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    /**
+     * 补录早期任务清单的次数
+     */
+    private final AtomicLong backfillCount = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        finishedManifests = CacheUtil.newLRUCache(cacheSize);
+    }
+
+    /**
+     * 记录一个已保存的结果文件
+     * <p>
+     * 记录失败只打印日志，不影响任务处理
+     * </p>
+     *
+     * @param taskId 任务ID
+     * @param name 文件名
+     * @param size 文件大小（字节）
+     * @param checksum 文件内容SHA-256
+     * @param url 文件URL
+     */
+    public void record(Long taskId, String name, Long size, String checksum, String url) {
+        try {
+            reconstructionTaskService.recordArtifact(taskId, name, size, checksum, url);
+        } catch (Exception e) {
+            log.warn("Failed to record artifact: {} of task: {}", name, taskId, e);
+        }
+        finishedManifests.remove(taskId);
+    }
+
+    /**
+     * 获取任务的结果文件清单
+     *
+     * @param task 任务
+     * @return 文件名到结果文件的映射，按记录顺序排列，不可修改
+     */
+    public Map<String, ReconstructionArtifact> getManifest(ReconstructionTask task) {
+        boolean finished = isFinished(task.getStatus());
+        if (finished) {
+            Map<String, ReconstructionArtifact> cached = finishedManifests.get(task.getId());
+            if (cached != null) {
+                hitCount.incrementAndGet();
+                return cached;
+            }
+            missCount.incrementAndGet();
+        }
+
+        Map<String, ReconstructionArtifact> manifest;
+        if (task.getArtifacts() != null) {
+            manifest = parse(task.getArtifacts());
+        } else if (TaskStatus.COMPLETED.equals(task.getStatus()) && task.getResultModelId() != null) {
+            manifest = backfill(task);
+        } else {
+            manifest = Collections.emptyMap();
+        }
+        if (finished) {
+            finishedManifests.put(task.getId(), manifest);
+        }
+        return manifest;
+    }
+
+    /**
+     * 获取任务某个结果文件的URL
+     *
+     * @param task 任务
+     * @param name 文件名
+     * @return 文件URL，文件不存在时返回null
+     */
+    public String getUrl(ReconstructionTask task, String name) {
+        ReconstructionArtifact artifact = getManifest(task).get(name);
+        return artifact != null ? artifact.getUrl() : null;
+    }
+
+    /**
+     * 获取清单缓存运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("cached", finishedManifests.size());
+        metrics.put("hits", hitCount.get());
+        metrics.put("misses", missCount.get());
+        metrics.put("backfills", backfillCount.get());
+        return metrics;
+    }
+
+    /**
+     * 解析清单JSON，键即文件名
+     *
+     * @param artifacts 清单JSON
+     * @return 不可修改的清单，解析失败时返回空清单
+     */
+    private Map<String, ReconstructionArtifact> parse(String artifacts) {
+        try {
+            LinkedHashMap<String, ReconstructionArtifact> manifest = objectMapper.readValue(artifacts, MANIFEST_TYPE);
+            manifest.forEach((name, artifact) -> artifact.setName(name));
+            return Collections.unmodifiableMap(manifest);
+        } catch (Exception e) {
+            log.warn("Invalid task artifacts: {}", artifacts);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * 根据模型记录补录早期任务的清单并保存
+     *
+     * @param task 已完成且没有清单的任务
+     * @return 不可修改的清单
+     */
+    private Map<String, ReconstructionArtifact> backfill(ReconstructionTask task) {
+        Map<String, ReconstructionArtifact> manifest = new LinkedHashMap<>();
+        Model model = modelService.getById(task.getResultModelId());
+        if (model != null) {
+            putUrl(manifest, "pixel_images.png", model.getPixelImagesUrl());
+            putUrl(manifest, "xyz_images.png", model.getXyzImagesUrl());
+            putUrl(manifest, "model.obj", model.getObjFileUrl());
+            putUrl(manifest, "model.mtl", model.getMtlFileUrl());
+            putUrl(manifest, "texture.png", model.getTextureImageUrl());
+        }
+        String outputZipPath = "reconstruction/" + task.getId() + "/" + OUTPUT_ZIP;
+        if (fileStorageService.isFileExists(outputZipPath)) {
+            putUrl(manifest, OUTPUT_ZIP, fileStorageService.getFileUrl(outputZipPath));
+        }
+        try {
+            // 清单中不保存文件名，与回调写入的格式一致
+            if (reconstructionTaskService.initArtifacts(task.getId(), objectMapper.writeValueAsString(manifest))) {
+                backfillCount.incrementAndGet();
+                log.info("Backfilled artifact manifest of task: {}, {} file(s)", task.getId(), manifest.size());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to backfill artifact manifest of task: {}", task.getId(), e);
+        }
+        return Collections.unmodifiableMap(manifest);
+    }
+
+    private void putUrl(Map<String, ReconstructionArtifact> manifest, String name, String url) {
+        // 模型文件上传前模型记录中的URL为pending
+        if (url == null || url.isEmpty() || "pending".equals(url)) {
+            return;
+        }
+        ReconstructionArtifact artifact = new ReconstructionArtifact();
+        artifact.setName(name);
+        artifact.setUrl(url);
+        manifest.put(name, artifact);
+    }
+
+    private boolean isFinished(String status) {
+        return TaskStatus.COMPLETED.equals(status) || TaskStatus.FAILED.equals(status)
+                || TaskStatus.CANCELLED.equals(status);
+    }
+}
@@ -0,0 +1,179 @@
+package com.elwg.ai3dbackend.manager;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 重建服务熔断器
+ * <p>
+ * 针对整个重建服务层：向重建服务提交任务连续失败（连接失败、超时或5xx，重试后仍失败）达到阈值时打开，
+ * 打开期间派发线程不再认领任务，正在重试的请求立即失败，任务留在队列中而不是逐个等待超时。
+ * 打开时间结束后进入半开状态，只放行一个试探任务，成功后关闭，失败后重新打开
+ * </p>
+ * <p>
+ * 单个节点的故障由{@link ReconstructionWorkerManager}摘除节点处理，熔断器处理所有节点同时不可用的情况
+ * </p>
+ */
+@Slf4j
+@Component
+public class ReconstructionCircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 是否启用
+     */
+    @Value("${reconstruction.http.breaker.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 连续失败多少次后打开
+     */
+    @Value("${reconstruction.http.breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    /**
+     * 打开持续时间（毫秒），之后进入半开状态
+     */
+    @Value("${reconstruction.http.breaker.open-duration:30000}")
+    private long openDuration;
+
+    private State state = State.CLOSED;
+
+    /**
+     * 连续失败次数
+     */
+    private int consecutiveFailures;
+
+    /**
+     * 打开的截止时间
+     */
+    private long openUntil;
+
+    /**
+     * 半开状态下放行试探任务的时间，0表示尚未放行
+     */
+    private long trialStartTime;
+
+    /**
+     * 打开次数
+     */
+    private long openCount;
+
+    /**
+     * 打开期间被拒绝的请求数
+     */
+    private long rejectedCount;
+
+    /**
+     * 申请派发一个任务
+     * <p>
+     * 关闭状态总是允许；打开状态拒绝，打开时间结束后转为半开并放行一个试探任务。
+     * 试探任务可能在认领前被放弃而没有结果，超过打开持续时间仍没有结果时再放行一个
+     * </p>
+     *
+     * @return 是否允许派发
+     */
+    public synchronized boolean tryAcquire() {
+        if (!enabled || state == State.CLOSED) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (state == State.OPEN && now >= openUntil) {
+            state = State.HALF_OPEN;
+            trialStartTime = 0;
+            log.info("Reconstruction circuit breaker half-open, sending a trial request");
+        }
+        if (state == State.HALF_OPEN && (trialStartTime == 0 || now - trialStartTime >= openDuration)) {
+            trialStartTime = now;
+            return true;
+        }
+        rejectedCount++;
+        return false;
+    }
+
+    /**
+     * 是否处于打开状态，用于在重试前快速失败，不改变状态
+     *
+     * @return 是否打开
+     */
+    public synchronized boolean isOpen() {
+        return enabled && state == State.OPEN && System.currentTimeMillis() < openUntil;
+    }
+
+    /**
+     * 获取打开的截止时间
+     *
+     * @return 截止时间，未打开时返回0
+     */
+    public synchronized long getOpenUntil() {
+        return state == State.OPEN ? openUntil : 0;
+    }
+
+    /**
+     * 记录一次提交成功
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            trialStartTime = 0;
+            log.info("Reconstruction circuit breaker closed");
+        }
+    }
+
+    /**
+     * 记录一次提交失败
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            open();
+        }
+    }
+
+    /**
+     * 获取熔断器运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("state", state.name());
+        metrics.put("consecutiveFailures", consecutiveFailures);
+        metrics.put("openUntil", getOpenUntil());
+        metrics.put("opens", openCount);
+        metrics.put("rejected", rejectedCount);
+        return metrics;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + openDuration;
+        trialStartTime = 0;
+        openCount++;
+        log.warn("Reconstruction circuit breaker opened after {} consecutive failures, open for {} ms",
+                consecutiveFailures, openDuration);
+    }
+
+    /**
+     * 熔断器打开，请求没有发出
+     */
+    public static class CircuitOpenException extends IOException {
+
+        public CircuitOpenException(String message) {
+            super(message);
+        }
+    }
+}
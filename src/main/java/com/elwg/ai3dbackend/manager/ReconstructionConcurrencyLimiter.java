@@ -0,0 +1,231 @@
+package com.elwg.ai3dbackend.manager;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 3D重建任务自适应并发限制器
+ * <p>
+ * 按AIMD方式根据任务端到端耗时（从派发到收到completed回调）调整同时处理的任务数：
+ * 耗时接近无负载基线且并发上限已被用满时加一；耗时超过基线的容忍倍数，
+ * 或任务提交被重建服务拒绝时按比例下调。这样在GPU空闲时逐步提高并发，
+ * 在Python服务内部开始排队（耗时变长）时及时收缩，避免任务在重建服务中积压。
+ * </p>
+ * <p>
+ * 基线取观察到的最小耗时，并随后续样本缓慢上浮，以适应模型或硬件变化后整体耗时的改变。
+ * 每次下调后，下调前派发的任务的耗时不再触发下调，避免同一轮拥塞被重复计算
+ * </p>
+ */
+@Slf4j
+@Component
+public class ReconstructionConcurrencyLimiter {
+
+    /**
+     * 基线向较大样本上浮的平滑系数
+     */
+    private static final double BASELINE_DRIFT = 0.05;
+
+    /**
+     * 是否启用自适应调整，关闭时并发上限固定为初始值
+     */
+    @Value("${reconstruction.dispatch.limiter.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 初始并发上限
+     */
+    @Value("${reconstruction.dispatch.max-concurrency:2}")
+    private int initialLimit;
+
+    /**
+     * 并发上限的下限
+     */
+    @Value("${reconstruction.dispatch.limiter.min-limit:1}")
+    private int minLimit;
+
+    /**
+     * 并发上限的上限
+     */
+    @Value("${reconstruction.dispatch.limiter.max-limit:8}")
+    private int maxLimit;
+
+    /**
+     * 耗时超过基线多少倍时认为重建服务已开始排队
+     */
+    @Value("${reconstruction.dispatch.limiter.tolerance:2.0}")
+    private double tolerance;
+
+    /**
+     * 下调时的乘数
+     */
+    @Value("${reconstruction.dispatch.limiter.backoff-ratio:0.75}")
+    private double backoffRatio;
+
+    /**
+     * 当前并发上限（允许小数，便于按比例下调）
+     */
+    private double limit;
+
+    /**
+     * 无负载耗时基线（毫秒），负数表示尚无样本
+     */
+    private double baselineLatency = -1;
+
+    /**
+     * 最近一次样本的耗时（毫秒）
+     */
+    private long lastLatency = -1;
+
+    /**
+     * 上次调整后观察到的最大在途任务数，用于判断上限是否被用满
+     */
+    private long maxObservedInFlight;
+
+    /**
+     * 最近一次下调的时间
+     */
+    private long lastDecreaseTime;
+
+    private long samples;
+
+    private long increases;
+
+    private long decreases;
+
+    /**
+     * 初始化并发上限
+     */
+    @PostConstruct
+    public void init() {
+        if (minLimit < 1) {
+            minLimit = 1;
+        }
+        if (maxLimit < minLimit) {
+            maxLimit = minLimit;
+        }
+        limit = clamp(initialLimit);
+        log.info("Initialized reconstruction concurrency limiter, enabled: {}, limit: {}, range: [{}, {}]",
+                enabled, getLimit(), minLimit, maxLimit);
+    }
+
+    /**
+     * 获取当前并发上限
+     *
+     * @return 同时处理的最大任务数
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * 记录当前在途任务数，由派发线程在每轮派发后调用
+     *
+     * @param inFlight 在途任务数
+     */
+    public synchronized void recordInFlight(long inFlight) {
+        if (inFlight > maxObservedInFlight) {
+            maxObservedInFlight = inFlight;
+        }
+    }
+
+    /**
+     * 记录一个成功完成的任务的端到端耗时
+     *
+     * @param latencyMillis 从派发到完成的耗时（毫秒）
+     * @param dispatchTime  任务派发时间
+     */
+    public synchronized void onSample(long latencyMillis, long dispatchTime) {
+        if (latencyMillis < 0) {
+            return;
+        }
+        samples++;
+        lastLatency = latencyMillis;
+        if (baselineLatency < 0 || latencyMillis < baselineLatency) {
+            baselineLatency = latencyMillis;
+        } else {
+            baselineLatency += BASELINE_DRIFT * (latencyMillis - baselineLatency);
+        }
+        if (!enabled) {
+            return;
+        }
+
+        if (latencyMillis > baselineLatency * tolerance) {
+            decrease(dispatchTime, "latency " + latencyMillis + " ms exceeds baseline "
+                    + Math.round(baselineLatency) + " ms");
+        } else if (maxObservedInFlight >= getLimit() && limit < maxLimit) {
+            // 只有上限确实成为瓶颈时才提高，避免低负载时上限无限增长
+            double previous = limit;
+            limit = clamp(limit + 1);
+            increases++;
+            maxObservedInFlight = 0;
+            logChange(previous, "latency " + latencyMillis + " ms within tolerance");
+        }
+    }
+
+    /**
+     * 记录一次被重建服务拒绝或提交失败的任务
+     *
+     * @param dispatchTime 任务派发时间
+     */
+    public synchronized void onDrop(long dispatchTime) {
+        if (enabled) {
+            decrease(dispatchTime, "submit rejected");
+        }
+    }
+
+    /**
+     * 获取限制器运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("limit", getLimit());
+        metrics.put("minLimit", minLimit);
+        metrics.put("maxLimit", maxLimit);
+        metrics.put("baselineLatencyMs", Math.round(Math.max(baselineLatency, 0)));
+        metrics.put("lastLatencyMs", lastLatency);
+        metrics.put("samples", samples);
+        metrics.put("increases", increases);
+        metrics.put("decreases", decreases);
+        return metrics;
+    }
+
+    /**
+     * 按比例下调并发上限
+     *
+     * @param dispatchTime 触发下调的任务的派发时间
+     * @param reason       原因
+     */
+    private void decrease(long dispatchTime, String reason) {
+        // 上次下调前派发的任务反映的是旧的负载，不再重复下调
+        if (dispatchTime < lastDecreaseTime) {
+            return;
+        }
+        double previous = limit;
+        limit = clamp(limit * backoffRatio);
+        lastDecreaseTime = System.currentTimeMillis();
+        maxObservedInFlight = 0;
+        if (previous != limit) {
+            decreases++;
+            logChange(previous, reason);
+        }
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    private void logChange(double previous, String reason) {
+        if ((int) previous != (int) limit) {
+            log.info("Reconstruction concurrency limit changed: {} -> {}, reason: {}",
+                    (int) previous, (int) limit, reason);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.elwg.ai3dbackend.manager;
+
+import com.elwg.ai3dbackend.config.ReconstructionSchedulerProperties;
+import com.elwg.ai3dbackend.constant.TaskStatus;
+import com.elwg.ai3dbackend.model.dto.reconstruction.UserQueueStat;
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
+import com.elwg.ai3dbackend.model.enums.UserRoleEnum;
+import com.elwg.ai3dbackend.service.ReconstructionTaskService;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.Resource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 3D重建任务公平调度器
+ * <p>
+ * 决定每轮派发哪些等待中的任务：按用户加权轮转，优先级高的类别排在每一轮的前面，
+ * 每个用户每轮最多派发其类别权重个任务，且同时处理中的任务数不超过类别的并发上限。
+ * 单个用户一次提交大量任务时只会占用自己的份额，其他用户新提交的任务在下一轮即可被派发
+ * </p>
+ * <p>
+ * 轮转起点在每次派发后后移，上一轮最后被服务的用户在下一轮排到同类别的最后。
+ * 只由派发线程调用，不需要同步
+ * </p>
+ */
+@Component
+public class ReconstructionFairScheduler {
+
+    @Resource
+    private ReconstructionSchedulerProperties schedulerProperties;
+
+    @Resource
+    private ReconstructionTaskService reconstructionTaskService;
+
+    /**
+     * 最近一次被派发任务的用户ID，下一轮从其后一个用户开始
+     */
+    private long lastServedUserId = Long.MIN_VALUE;
+
+    /**
+     * 获取用户角色对应的调度优先级
+     *
+     * @param userRole 用户角色
+     * @return 优先级
+     */
+    public int getPriority(String userRole) {
+        ReconstructionSchedulerProperties.PriorityClass priorityClass = schedulerProperties.getClasses().get(userRole);
+        return priorityClass != null ? priorityClass.getPriority() : getDefaultClass().getPriority();
+    }
+
+    /**
+     * 选出本轮要派发的任务
+     *
+     * @param slots 可派发的任务数
+     * @return 任务列表，按派发顺序排列
+     */
+    public List<ReconstructionTask> selectTasks(int slots) {
+        if (!schedulerProperties.isFair()) {
+            return reconstructionTaskService.listPendingTasks(slots);
+        }
+        List<UserQueueStat> users = reconstructionTaskService.listPendingUserStats();
+        if (users.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Long> processing = reconstructionTaskService.countProcessingTasksByUser();
+        List<UserQueueStat> order = rotate(users);
+
+        // 每个用户的待派发任务按需读取，最多读取本轮可能派发的数量
+        Map<Long, Deque<ReconstructionTask>> queues = new HashMap<>();
+        List<ReconstructionTask> selected = new ArrayList<>(slots);
+        boolean progressed = true;
+        while (selected.size() < slots && progressed) {
+            progressed = false;
+            for (UserQueueStat user : order) {
+                ReconstructionSchedulerProperties.PriorityClass priorityClass = classOf(user.getPriority());
+                for (int i = 0; i < priorityClass.getWeight() && selected.size() < slots; i++) {
+                    long running = processing.getOrDefault(user.getUserId(), 0L);
+                    if (running >= priorityClass.getMaxConcurrency()) {
+                        break;
+                    }
+                    Deque<ReconstructionTask> queue = queues.computeIfAbsent(user.getUserId(), userId ->
+                            new ArrayDeque<>(reconstructionTaskService.listPendingTasks(userId,
+                                    (int) Math.min(user.getPendingCount(), slots))));
+                    ReconstructionTask task = queue.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    selected.add(task);
+                    processing.put(user.getUserId(), running + 1);
+                    lastServedUserId = user.getUserId();
+                    progressed = true;
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 估算等待中任务的排队位置
+     * <p>
+     * 任务是其所属用户的第k个等待任务时，轮转调度在它之前会派发该用户的前k-1个任务，
+     * 以及其他每个用户按权重比例折算的最多 k×对方权重÷本方权重 个任务（不超过对方的等待任务数）。
+     * 不考虑并发上限和之后新提交的任务，仅供展示
+     * </p>
+     *
+     * @param task 任务
+     * @return 排队位置（从1开始），任务不在等待中时返回null
+     */
+    public Integer getQueuePosition(ReconstructionTask task) {
+        if (task == null || !TaskStatus.PENDING.equals(task.getStatus())) {
+            return null;
+        }
+        if (!schedulerProperties.isFair()) {
+            return (int) (reconstructionTaskService.countPendingTasksAhead(task, false) + 1);
+        }
+        long rank = reconstructionTaskService.countPendingTasksAhead(task, true) + 1;
+        int ownWeight = Math.max(1, classOf(task.getPriority()).getWeight());
+        long ahead = rank - 1;
+        for (UserQueueStat user : reconstructionTaskService.listPendingUserStats()) {
+            if (user.getUserId().equals(task.getUserId())) {
+                continue;
+            }
+            int weight = classOf(user.getPriority()).getWeight();
+            long share = (rank * weight + ownWeight - 1) / ownWeight;
+            ahead += Math.min(user.getPendingCount(), share);
+        }
+        return (int) (ahead + 1);
+    }
+
+    /**
+     * 按优先级从高到低排列用户，同一优先级内从上次服务的用户之后开始轮转
+     *
+     * @param users 有等待任务的用户
+     * @return 本轮的用户顺序
+     */
+    private List<UserQueueStat> rotate(List<UserQueueStat> users) {
+        List<UserQueueStat> sorted = new ArrayList<>(users);
+        // 先按用户ID排列，把上次服务的用户及其之前的用户移到末尾，再按优先级稳定排序
+        sorted.sort(Comparator.comparing(UserQueueStat::getUserId));
+        int start = 0;
+        while (start < sorted.size() && sorted.get(start).getUserId() <= lastServedUserId) {
+            start++;
+        }
+        List<UserQueueStat> rotated = new ArrayList<>(sorted.subList(start, sorted.size()));
+        rotated.addAll(sorted.subList(0, start));
+        rotated.sort(Comparator.comparing((UserQueueStat user) -> classOf(user.getPriority()).getPriority()).reversed());
+        return rotated;
+    }
+
+    /**
+     * 获取优先级对应的类别
+     *
+     * @param priority 任务的优先级
+     * @return 优先级类别，未找到时返回普通用户的类别
+     */
+    private ReconstructionSchedulerProperties.PriorityClass classOf(Integer priority) {
+        if (priority != null) {
+            for (ReconstructionSchedulerProperties.PriorityClass priorityClass : schedulerProperties.getClasses().values()) {
+                if (priorityClass.getPriority() == priority) {
+                    return priorityClass;
+                }
+            }
+        }
+        return getDefaultClass();
+    }
+
+    /**
+     * 获取普通用户的类别，未配置时使用默认值
+     *
+     * @return 优先级类别
+     */
+    private ReconstructionSchedulerProperties.PriorityClass getDefaultClass() {
+        ReconstructionSchedulerProperties.PriorityClass priorityClass =
+                schedulerProperties.getClasses().get(UserRoleEnum.USER.getValue());
+        return priorityClass != null ? priorityClass : new ReconstructionSchedulerProperties.PriorityClass();
+    }
+}
@@ -0,0 +1,181 @@
+package com.elwg.ai3dbackend.manager;
+
+import com.elwg.ai3dbackend.constant.TaskStage;
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
+import com.elwg.ai3dbackend.service.ReconstructionTaskService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 3D重建任务阶段耗时记录器
+ * <p>
+ * 任务每到达一个阶段，就把相对创建时间的毫秒数写入任务的时间线，
+ * 同时把距上一个已记录阶段的耗时计入该阶段的HDR直方图。
+ * 例如accepted阶段的耗时是提交请求的耗时，pixel_images阶段主要是GPU推理的耗时，
+ * stored阶段是解压并上传模型文件的耗时，用于判断变慢发生在推理、回调传输还是存储写入
+ * </p>
+ * <p>
+ * 直方图只统计本节点记录的阶段，服务重启后清零；时间线保存在数据库中，可以按任务查看
+ * </p>
+ */
+@Slf4j
+@Component
+public class ReconstructionStageRecorder {
+
+    /**
+     * 直方图可记录的最大耗时（毫秒），超过的值按最大值记录
+     */
+    private static final long MAX_TRACKABLE_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    /**
+     * 直方图精度（有效数字位数）
+     */
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * 从创建到完成的总耗时
+     */
+    private static final String TOTAL = "total";
+
+    private static final TypeReference<LinkedHashMap<String, Long>> TIMELINE_TYPE = new TypeReference<>() {
+    };
+
+    @Resource
+    private ReconstructionTaskService reconstructionTaskService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 阶段名到该阶段耗时直方图的映射，按处理顺序排列
+     */
+    private final Map<String, Histogram> histograms;
+
+    public ReconstructionStageRecorder() {
+        Map<String, Histogram> map = new LinkedHashMap<>();
+        for (String stage : TaskStage.ORDER) {
+            if (!TaskStage.CREATED.equals(stage)) {
+                map.put(stage, new ConcurrentHistogram(MAX_TRACKABLE_MILLIS, SIGNIFICANT_DIGITS));
+            }
+        }
+        map.put(TOTAL, new ConcurrentHistogram(MAX_TRACKABLE_MILLIS, SIGNIFICANT_DIGITS));
+        histograms = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * 记录任务到达某个阶段
+     * <p>
+     * 同时更新传入的任务对象的时间线，同一个任务对象上后续阶段的耗时按本次记录计算。
+     * 记录失败只打印日志，不影响任务处理
+     * </p>
+     *
+     * @param task 任务
+     * @param stage 阶段名，见{@link TaskStage}
+     */
+    public void record(ReconstructionTask task, String stage) {
+        if (task == null || task.getId() == null || task.getCreateTime() == null) {
+            return;
+        }
+        try {
+            long offset = Math.max(System.currentTimeMillis() - task.getCreateTime().getTime(), 0);
+            Map<String, Long> timeline = parseTimeline(task.getTimeline());
+            long previous = previousOffset(timeline, stage);
+            recordValue(stage, offset - previous);
+            if (TaskStage.COMPLETED.equals(stage)) {
+                recordValue(TOTAL, offset);
+            }
+
+            timeline.put(stage, offset);
+            task.setTimeline(objectMapper.writeValueAsString(timeline));
+            reconstructionTaskService.recordStage(task.getId(), stage, offset);
+        } catch (Exception e) {
+            log.warn("Failed to record stage: {} of task: {}", stage, task.getId(), e);
+        }
+    }
+
+    /**
+     * 解析任务时间线
+     *
+     * @param timeline 时间线JSON，可以为null
+     * @return 阶段名到相对创建时间的毫秒数的映射，解析失败时返回空映射
+     */
+    public Map<String, Long> parseTimeline(String timeline) {
+        if (timeline == null || timeline.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        try {
+            return objectMapper.readValue(timeline, TIMELINE_TYPE);
+        } catch (Exception e) {
+            log.warn("Invalid task timeline: {}", timeline);
+            return new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * 获取各阶段耗时的分位数
+     *
+     * @return 阶段名到耗时统计（毫秒）的映射
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        histograms.forEach((stage, histogram) -> {
+            Histogram snapshot = histogram.copy();
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("count", snapshot.getTotalCount());
+            if (snapshot.getTotalCount() > 0) {
+                stats.put("mean", Math.round(snapshot.getMean()));
+                stats.put("p50", snapshot.getValueAtPercentile(50));
+                stats.put("p90", snapshot.getValueAtPercentile(90));
+                stats.put("p99", snapshot.getValueAtPercentile(99));
+                stats.put("p999", snapshot.getValueAtPercentile(99.9));
+                stats.put("max", snapshot.getMaxValue());
+            }
+            metrics.put(stage, stats);
+        });
+        return metrics;
+    }
+
+    /**
+     * 查找时间线中位于指定阶段之前、最近一个已记录阶段的时间
+     * <p>
+     * 跳过的阶段（例如没有单独发送像素图像）不计入，耗时计入下一个到达的阶段
+     * </p>
+     *
+     * @param timeline 时间线
+     * @param stage 阶段名
+     * @return 相对创建时间的毫秒数，之前没有已记录阶段时返回0（创建时间）
+     */
+    private long previousOffset(Map<String, Long> timeline, String stage) {
+        int index = TaskStage.ORDER.indexOf(stage);
+        for (int i = index - 1; i > 0; i--) {
+            Long offset = timeline.get(TaskStage.ORDER.get(i));
+            if (offset != null) {
+                return offset;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 把耗时计入阶段直方图
+     *
+     * @param stage 阶段名
+     * @param millis 耗时（毫秒）
+     */
+    private void recordValue(String stage, long millis) {
+        Histogram histogram = histograms.get(stage);
+        if (histogram != null) {
+            histogram.recordValue(Math.min(Math.max(millis, 0), MAX_TRACKABLE_MILLIS));
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.elwg.ai3dbackend.manager;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.elwg.ai3dbackend.constant.TaskStatus;
+import com.elwg.ai3dbackend.model.dto.reconstruction.ReconstructionTaskDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 3D重建任务状态缓存
+ * <p>
+ * 多个客户端轮询同一个任务时，同一时刻只有一个请求查询数据库并构建状态，其他请求等待并共享结果；
+ * 构建好的状态和ETag缓存一段时间，进行中任务的缓存时间很短，已结束任务的状态不再变化，缓存时间较长。
+ * 轮询的开销只与任务数有关，与轮询的客户端数无关
+ * </p>
+ * <p>
+ * 回调、派发和取消改变任务状态后调用{@link #invalidate}，每次失效都会写入新的版本号，
+ * 失效前开始、失效后才结束的查询结果版本不一致，不会写入缓存。
+ * 其他节点上的状态变化不会通知本节点，最多在缓存时间后可见
+ * </p>
+ */
+@Slf4j
+@Component
+public class ReconstructionStatusCache {
+
+    /**
+     * 是否启用
+     */
+    @Value("${reconstruction.status-cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 进行中任务状态的缓存时间（毫秒）
+     */
+    @Value("${reconstruction.status-cache.ttl:1000}")
+    private long ttl;
+
+    /**
+     * 已结束任务状态的缓存时间（毫秒）
+     */
+    @Value("${reconstruction.status-cache.finished-ttl:60000}")
+    private long finishedTtl;
+
+    /**
+     * 缓存的任务数量
+     */
+    @Value("${reconstruction.status-cache.size:10000}")
+    private int cacheSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 任务ID到缓存项的映射，失效的任务保留只有版本号的缓存项
+     */
+    private LRUCache<Long, Snapshot> snapshots;
+
+    /**
+     * 任务ID到正在进行的查询，用于合并同一任务的并发查询
+     */
+    private final Map<Long, CompletableFuture<Snapshot>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 失效版本号
+     */
+    private final AtomicLong versionSequence = new AtomicLong(0);
+
+    /**
+     * 缓存命中次数
+     */
+    private final AtomicLong hitCount = new AtomicLong(0);
+
+    /**
+     * 查询数据库的次数
+     */
+    private final AtomicLong loadCount = new AtomicLong(0);
+
+    /**
+     * 等待其他请求查询结果的次数
+     */
+    private final AtomicLong coalescedCount = new AtomicLong(0);
+
+    /**
+     * 失效次数
+     */
+    private final AtomicLong invalidationCount = new AtomicLong(0);
+
+    /**
+     * 返回304的次数
+     */
+    private final AtomicLong notModifiedCount = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        snapshots = CacheUtil.newLRUCache(cacheSize);
+    }
+
+    /**
+     * 获取任务状态
+     *
+     * @param taskId 任务ID
+     * @param loader 查询数据库并构建任务状态，任务不存在时返回null
+     * @return 任务状态和ETag，任务不存在时返回null
+     */
+    public Snapshot get(Long taskId, Function<Long, ReconstructionTaskDTO> loader) {
+        if (!enabled) {
+            loadCount.incrementAndGet();
+            return toSnapshot(loader.apply(taskId), 0);
+        }
+        Snapshot cached = snapshots.get(taskId);
+        if (cached != null && cached.isFresh()) {
+            hitCount.incrementAndGet();
+            return cached;
+        }
+
+        CompletableFuture<Snapshot> future = new CompletableFuture<>();
+        CompletableFuture<Snapshot> existing = loading.putIfAbsent(taskId, future);
+        if (existing != null) {
+            coalescedCount.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            long version = cached != null ? cached.getVersion() : 0;
+            loadCount.incrementAndGet();
+            Snapshot snapshot = toSnapshot(loader.apply(taskId), version);
+            if (snapshot != null) {
+                putIfVersionUnchanged(taskId, snapshot);
+            }
+            future.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(taskId, future);
+        }
+    }
+
+    /**
+     * 任务状态发生变化，使缓存失效
+     *
+     * @param taskId 任务ID
+     */
+    public void invalidate(Long taskId) {
+        if (!enabled || taskId == null) {
+            return;
+        }
+        invalidationCount.incrementAndGet();
+        synchronized (this) {
+            snapshots.put(taskId, new Snapshot(null, null, versionSequence.incrementAndGet(), 0));
+        }
+    }
+
+    /**
+     * 客户端的If-None-Match是否与ETag匹配
+     *
+     * @param ifNoneMatch If-None-Match请求头，可以为null
+     * @param etag 当前ETag
+     * @return 匹配时返回true，此时应返回304
+     */
+    public boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if ("*".equals(value) || etag.equals(value)) {
+                notModifiedCount.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取状态缓存运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("cached", snapshots.size());
+        metrics.put("hits", hitCount.get());
+        metrics.put("loads", loadCount.get());
+        metrics.put("coalesced", coalescedCount.get());
+        metrics.put("invalidations", invalidationCount.get());
+        metrics.put("notModified", notModifiedCount.get());
+        return metrics;
+    }
+
+    /**
+     * 查询期间没有失效时写入缓存
+     *
+     * @param taskId 任务ID
+     * @param snapshot 查询结果，版本号为查询开始时的版本号
+     */
+    private synchronized void putIfVersionUnchanged(Long taskId, Snapshot snapshot) {
+        Snapshot current = snapshots.get(taskId, false);
+        long currentVersion = current != null ? current.getVersion() : 0;
+        if (currentVersion == snapshot.getVersion()) {
+            snapshots.put(taskId, snapshot);
+        }
+    }
+
+    /**
+     * 构建缓存项，ETag为状态JSON的MD5
+     *
+     * @param dto 任务状态，可以为null
+     * @param version 查询开始时的版本号
+     * @return 缓存项，任务不存在时返回null
+     */
+    private Snapshot toSnapshot(ReconstructionTaskDTO dto, long version) {
+        if (dto == null) {
+            return null;
+        }
+        String etag;
+        try {
+            etag = "\"" + DigestUtil.md5Hex(objectMapper.writeValueAsBytes(dto)) + "\"";
+        } catch (Exception e) {
+            log.warn("Failed to compute ETag for task: {}", dto.getId(), e);
+            etag = null;
+        }
+        boolean finished = TaskStatus.COMPLETED.equals(dto.getStatus()) || TaskStatus.FAILED.equals(dto.getStatus())
+                || TaskStatus.CANCELLED.equals(dto.getStatus());
+        long expireTime = System.currentTimeMillis() + (finished ? finishedTtl : ttl);
+        return new Snapshot(dto, etag, version, expireTime);
+    }
+
+    /**
+     * 缓存的任务状态
+     */
+    @Getter
+    public static class Snapshot {
+
+        /**
+         * 任务状态，失效后的缓存项为null
+         */
+        private final ReconstructionTaskDTO status;
+
+        /**
+         * 强ETag，包含引号
+         */
+        private final String etag;
+
+        /**
+         * 查询开始时的失效版本号
+         */
+        private final long version;
+
+        /**
+         * 过期时间
+         */
+        private final long expireTime;
+
+        private Snapshot(ReconstructionTaskDTO status, String etag, long version, long expireTime) {
+            this.status = status;
+            this.etag = etag;
+            this.version = version;
+            this.expireTime = expireTime;
+        }
+
+        private boolean isFresh() {
+            return status != null && System.currentTimeMillis() < expireTime;
+        }
+    }
+}
@@ -0,0 +1,510 @@
+package com.elwg.ai3dbackend.manager;
+
+import com.elwg.ai3dbackend.config.ReconstructionWorkerProperties;
+import com.elwg.ai3dbackend.service.ReconstructionTaskService;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 3D重建服务节点管理器
+ * <p>
+ * 维护Python重建服务节点池：后台定期探测各节点健康状态，按最少在途任务选择节点，
+ * 连续失败或探测失败的节点会被摘除，经过观察期且探测成功后恢复。
+ * 在途任务从派发开始计算，直到收到该任务的结束回调
+ * </p>
+ * <p>
+ * 多个后端节点各自在内存中维护在途任务数，其他节点派发或收到回调的任务不会反映到本节点，
+ * 每次健康探测时按数据库中处理中的任务重新校准，节点间的偏差不会累积
+ * </p>
+ */
+@Slf4j
+@Component
+public class ReconstructionWorkerManager {
+
+    /**
+     * 延迟指标的平滑系数
+     */
+    private static final double LATENCY_EWMA_ALPHA = 0.2;
+
+    @Resource
+    private ReconstructionWorkerProperties workerProperties;
+
+    @Resource
+    private ReconstructionTaskService reconstructionTaskService;
+
+    @Value("${reconstruction.http.server.url:http://10.0.0.2:8001/generate3d}")
+    private String defaultServerUrl;
+
+    @Value("${reconstruction.http.server.health.url:http://10.0.0.2:8001/health}")
+    private String defaultHealthUrl;
+
+    /**
+     * 节点列表，启动后不再变化
+     */
+    private List<Worker> workers;
+
+    /**
+     * URL到节点的映射
+     */
+    private Map<String, Worker> workersByUrl;
+
+    /**
+     * 选择节点时的轮转起点，在途任务数相同时轮流选择
+     */
+    private int nextIndex;
+
+    /**
+     * 健康探测使用的HTTP客户端
+     */
+    private OkHttpClient probeClient;
+
+    /**
+     * 健康探测调度器
+     */
+    private ScheduledExecutorService probeScheduler;
+
+    /**
+     * 初始化节点池，并从数据库恢复各节点的在途任务数
+     */
+    @PostConstruct
+    public void init() {
+        List<Worker> list = new ArrayList<>();
+        if (workerProperties.getNodes().isEmpty()) {
+            list.add(new Worker(defaultServerUrl, defaultServerUrl, defaultHealthUrl,
+                    defaultCancelUrl(defaultServerUrl), workerProperties.getDispatchMode()));
+        } else {
+            for (ReconstructionWorkerProperties.Node node : workerProperties.getNodes()) {
+                String name = node.getName() != null ? node.getName() : node.getUrl();
+                String dispatchMode = node.getDispatchMode() != null ? node.getDispatchMode() : workerProperties.getDispatchMode();
+                String cancelUrl = node.getCancelUrl() != null ? node.getCancelUrl() : defaultCancelUrl(node.getUrl());
+                list.add(new Worker(name, node.getUrl(), node.getHealthUrl(), cancelUrl, dispatchMode));
+            }
+        }
+        workers = Collections.unmodifiableList(list);
+        Map<String, Worker> byUrl = new HashMap<>();
+        for (Worker worker : workers) {
+            byUrl.put(worker.url, worker);
+        }
+        workersByUrl = byUrl;
+
+        // 重启前已派发但尚未结束的任务仍占用节点
+        syncInFlight();
+
+        probeClient = new OkHttpClient.Builder()
+                .callTimeout(workerProperties.getProbeTimeout(), TimeUnit.MILLISECONDS)
+                .build();
+        probeScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "worker-health-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        probeScheduler.scheduleWithFixedDelay(this::probeWorkers, 0,
+                workerProperties.getProbeInterval(), TimeUnit.MILLISECONDS);
+        log.info("Initialized reconstruction worker pool: {}", workersByUrl.keySet());
+    }
+
+    /**
+     * 停止健康探测
+     */
+    @PreDestroy
+    public void destroy() {
+        if (probeScheduler != null) {
+            probeScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 是否有可用节点
+     *
+     * @return 至少有一个节点未被摘除时返回true
+     */
+    public boolean hasAvailableWorker() {
+        long now = System.currentTimeMillis();
+        for (Worker worker : workers) {
+            if (worker.isAvailable(now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按最少在途任务选择一个可用节点，并占用一个在途名额
+     *
+     * @return 选中的节点，没有可用节点时返回null
+     */
+    public synchronized Worker acquire() {
+        long now = System.currentTimeMillis();
+        Worker selected = null;
+        int size = workers.size();
+        for (int i = 0; i < size; i++) {
+            Worker worker = workers.get((nextIndex + i) % size);
+            if (worker.isAvailable(now) && (selected == null || worker.inFlight.get() < selected.inFlight.get())) {
+                selected = worker;
+            }
+        }
+        if (selected == null) {
+            return null;
+        }
+        nextIndex = (workers.indexOf(selected) + 1) % size;
+        selected.inFlight.incrementAndGet();
+        return selected;
+    }
+
+    /**
+     * 归还未使用的在途名额（例如任务已被其他节点认领）
+     *
+     * @param worker 节点
+     */
+    public void cancel(Worker worker) {
+        worker.decrementInFlight();
+    }
+
+    /**
+     * 记录向节点提交任务的结果
+     * <p>
+     * 提交失败时任务不会在该节点上执行，立即归还在途名额；连续失败达到阈值时摘除节点
+     * </p>
+     *
+     * @param worker 节点
+     * @param success 是否提交成功
+     * @param latencyMillis 提交耗时（毫秒）
+     */
+    public void recordSubmit(Worker worker, boolean success, long latencyMillis) {
+        worker.requests.incrementAndGet();
+        worker.submitLatency.record(latencyMillis);
+        if (success) {
+            worker.consecutiveFailures.set(0);
+            return;
+        }
+        worker.decrementInFlight();
+        worker.failures.incrementAndGet();
+        if (worker.consecutiveFailures.incrementAndGet() >= workerProperties.getFailureThreshold()) {
+            eject(worker, "submit failed " + worker.consecutiveFailures.get() + " times in a row");
+        }
+    }
+
+    /**
+     * 任务结束时释放节点的在途名额
+     *
+     * @param workerUrl 任务派发到的节点URL
+     * @param jobMillis 任务从派发到结束的耗时（毫秒），未知时传负数
+     */
+    public void release(String workerUrl, long jobMillis) {
+        Worker worker = workerUrl != null ? workersByUrl.get(workerUrl) : null;
+        if (worker == null) {
+            return;
+        }
+        worker.decrementInFlight();
+        if (jobMillis >= 0) {
+            worker.jobLatency.record(jobMillis);
+        }
+    }
+
+    /**
+     * 按重建接口URL查找节点
+     *
+     * @param workerUrl 节点URL
+     * @return 节点，不在节点池中时返回null
+     */
+    public Worker getWorker(String workerUrl) {
+        return workerUrl != null ? workersByUrl.get(workerUrl) : null;
+    }
+
+    /**
+     * 任务在节点上超时未回调时释放在途名额，并计为一次失败
+     * <p>
+     * 节点接收任务后崩溃或重启会导致任务丢失，连续丢失任务达到阈值时摘除节点
+     * </p>
+     *
+     * @param workerUrl 任务派发到的节点URL
+     */
+    public void reportLost(String workerUrl) {
+        Worker worker = workerUrl != null ? workersByUrl.get(workerUrl) : null;
+        if (worker == null) {
+            return;
+        }
+        worker.decrementInFlight();
+        worker.failures.incrementAndGet();
+        worker.lostTasks.incrementAndGet();
+        if (worker.consecutiveFailures.incrementAndGet() >= workerProperties.getFailureThreshold()) {
+            eject(worker, "lost " + worker.consecutiveFailures.get() + " tasks in a row");
+        }
+    }
+
+    /**
+     * 获取各节点的运行指标
+     *
+     * @return 节点名称到节点指标的映射
+     */
+    public Map<String, Object> getMetrics() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (Worker worker : workers) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("url", worker.url);
+            item.put("dispatchMode", worker.dispatchMode);
+            item.put("available", worker.isAvailable(now));
+            item.put("inFlight", worker.inFlight.get());
+            item.put("requests", worker.requests.get());
+            item.put("failures", worker.failures.get());
+            item.put("lostTasks", worker.lostTasks.get());
+            item.put("consecutiveFailures", worker.consecutiveFailures.get());
+            item.put("submitLatencyMs", Math.round(worker.submitLatency.get()));
+            item.put("jobLatencyMs", Math.round(worker.jobLatency.get()));
+            item.put("ejectedUntil", worker.ejectedUntil);
+            item.put("lastProbeOk", worker.lastProbeOk);
+            metrics.put(worker.name, item);
+        }
+        return metrics;
+    }
+
+    /**
+     * 摘除节点，观察期内不再分配任务
+     *
+     * @param worker 节点
+     * @param reason 原因
+     */
+    private void eject(Worker worker, String reason) {
+        boolean wasAvailable = worker.isAvailable(System.currentTimeMillis());
+        worker.ejectedUntil = System.currentTimeMillis() + workerProperties.getProbation();
+        if (wasAvailable) {
+            log.warn("Ejected reconstruction worker: {}, reason: {}, probation: {} ms",
+                    worker.name, reason, workerProperties.getProbation());
+        }
+    }
+
+    /**
+     * 按数据库校准在途任务数，并异步探测所有节点的健康状态
+     */
+    private void probeWorkers() {
+        syncInFlight();
+        for (Worker worker : workers) {
+            if (worker.healthUrl == null || worker.healthUrl.isEmpty()) {
+                continue;
+            }
+            try {
+                Request request = new Request.Builder().url(worker.healthUrl).get().build();
+                probeClient.newCall(request).enqueue(new Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        onProbeResult(worker, false, e.getMessage());
+                    }
+
+                    @Override
+                    public void onResponse(Call call, Response response) {
+                        try (response) {
+                            onProbeResult(worker, response.isSuccessful(), "status code " + response.code());
+                        }
+                    }
+                });
+            } catch (Exception e) {
+                onProbeResult(worker, false, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按数据库中处理中的任务校准各节点的在途任务数
+     * <p>
+     * 数据库中处理中且派发到该节点的任务数包含所有后端节点派发的任务，以它为准覆盖本节点的计数；
+     * 校准与并发的派发之间最多相差几个任务，下一次校准时修正
+     * </p>
+     */
+    private void syncInFlight() {
+        Map<String, Long> processing;
+        try {
+            processing = reconstructionTaskService.countProcessingTasksByWorker();
+        } catch (Exception e) {
+            log.warn("Failed to sync in-flight task counts of reconstruction workers", e);
+            return;
+        }
+        for (Worker worker : workers) {
+            Long count = processing.get(worker.url);
+            int value = count != null ? count.intValue() : 0;
+            int previous = worker.inFlight.getAndSet(value);
+            if (previous != value) {
+                log.debug("Synced in-flight tasks of reconstruction worker: {}, {} -> {}", worker.name, previous, value);
+            }
+        }
+    }
+
+    /**
+     * 处理健康探测结果
+     * <p>
+     * 探测失败时摘除节点；探测成功且观察期已结束时恢复节点
+     * </p>
+     *
+     * @param worker 节点
+     * @param healthy 是否健康
+     * @param detail 探测详情
+     */
+    private void onProbeResult(Worker worker, boolean healthy, String detail) {
+        worker.lastProbeOk = healthy;
+        if (!healthy) {
+            eject(worker, "health probe failed: " + detail);
+            return;
+        }
+        if (worker.ejectedUntil > 0 && System.currentTimeMillis() >= worker.ejectedUntil) {
+            worker.ejectedUntil = 0;
+            worker.consecutiveFailures.set(0);
+            log.info("Reconstruction worker recovered after probation: {}", worker.name);
+        }
+    }
+
+    /**
+     * 根据重建接口URL推导取消接口URL：把最后一段路径替换为cancel，例如 /generate3d -> /cancel
+     *
+     * @param url 重建接口URL
+     * @return 取消接口URL
+     */
+    private static String defaultCancelUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        int index = url.lastIndexOf('/');
+        return index > url.indexOf("//") + 1 ? url.substring(0, index + 1) + "cancel" : url + "/cancel";
+    }
+
+    /**
+     * 重建服务节点
+     */
+    public static class Worker {
+
+        /**
+         * 节点名称
+         */
+        @Getter
+        private final String name;
+
+        /**
+         * 重建接口URL
+         */
+        @Getter
+        private final String url;
+
+        /**
+         * 健康检查URL
+         */
+        @Getter
+        private final String healthUrl;
+
+        /**
+         * 取消任务接口URL
+         */
+        @Getter
+        private final String cancelUrl;
+
+        /**
+         * 任务派发方式（bytes/url）
+         */
+        @Getter
+        private final String dispatchMode;
+
+        /**
+         * 在途任务数
+         */
+        private final AtomicInteger inFlight = new AtomicInteger(0);
+
+        /**
+         * 提交次数
+         */
+        private final AtomicLong requests = new AtomicLong(0);
+
+        /**
+         * 提交失败次数
+         */
+        private final AtomicLong failures = new AtomicLong(0);
+
+        /**
+         * 超时未回调的任务数
+         */
+        private final AtomicLong lostTasks = new AtomicLong(0);
+
+        /**
+         * 连续提交失败次数
+         */
+        private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
+
+        /**
+         * 提交耗时（毫秒，指数平滑）
+         */
+        private final Ewma submitLatency = new Ewma();
+
+        /**
+         * 任务从派发到结束的耗时（毫秒，指数平滑）
+         */
+        private final Ewma jobLatency = new Ewma();
+
+        /**
+         * 摘除截止时间，0表示未被摘除
+         */
+        private volatile long ejectedUntil;
+
+        /**
+         * 最近一次健康探测是否成功
+         */
+        private volatile boolean lastProbeOk = true;
+
+        private Worker(String name, String url, String healthUrl, String cancelUrl, String dispatchMode) {
+            this.name = name;
+            this.url = url;
+            this.healthUrl = healthUrl;
+            this.cancelUrl = cancelUrl;
+            this.dispatchMode = dispatchMode;
+        }
+
+        /**
+         * 节点是否可以分配任务：未被摘除，或观察期已结束且最近一次探测成功
+         *
+         * @param now 当前时间
+         * @return 是否可用
+         */
+        private boolean isAvailable(long now) {
+            return ejectedUntil == 0 || (now >= ejectedUntil && lastProbeOk);
+        }
+
+        private void decrementInFlight() {
+            inFlight.updateAndGet(value -> Math.max(0, value - 1));
+        }
+    }
+
+    /**
+     * 指数平滑的延迟值
+     */
+    private static class Ewma {
+
+        private double value = -1;
+
+        private synchronized void record(double sample) {
+            value = value < 0 ? sample : value + LATENCY_EWMA_ALPHA * (sample - value);
+        }
+
+        private synchronized double get() {
+            return Math.max(value, 0);
+        }
+    }
+}
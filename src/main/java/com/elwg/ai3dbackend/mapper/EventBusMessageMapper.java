@@ -0,0 +1,10 @@
+package com.elwg.ai3dbackend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.elwg.ai3dbackend.model.entity.EventBusMessage;
+
+/**
+ * SSE事件总线消息Mapper接口
+ */
+public interface EventBusMessageMapper extends BaseMapper<EventBusMessage> {
+}
@@ -2,9 +2,37 @@ package com.elwg.ai3dbackend.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.elwg.ai3dbackend.model.entity.Model;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
 
 /**
  * 3D模型Mapper接口
  */
 public interface ModelMapper extends BaseMapper<Model> {
+
+    /**
+     * 按任务ID写入模型：不存在时创建，存在时只更新传入的非空字段
+     * <p>
+     * 依赖taskId上的唯一索引，在一条语句中完成，同一任务的多个回调并发写入不同字段时不会互相覆盖
+     * </p>
+     *
+     * @param model 模型，必须包含id（仅创建时使用）、taskId、name、sourceImageId、userId
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO model (id, name, sourceImageId, objFileUrl, mtlFileUrl, textureImageUrl, pixelImagesUrl, "
+            + "xyzImagesUrl, modelSize, modelFormat, taskId, status, userId, createTime, updateTime) "
+            + "VALUES (#{model.id}, #{model.name}, #{model.sourceImageId}, COALESCE(#{model.objFileUrl}, 'pending'), "
+            + "#{model.mtlFileUrl}, #{model.textureImageUrl}, #{model.pixelImagesUrl}, #{model.xyzImagesUrl}, "
+            + "#{model.modelSize}, COALESCE(#{model.modelFormat}, 'OBJ'), #{model.taskId}, "
+            + "COALESCE(#{model.status}, 'PROCESSING'), #{model.userId}, NOW(), NOW()) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "objFileUrl = COALESCE(#{model.objFileUrl}, objFileUrl), "
+            + "mtlFileUrl = COALESCE(#{model.mtlFileUrl}, mtlFileUrl), "
+            + "textureImageUrl = COALESCE(#{model.textureImageUrl}, textureImageUrl), "
+            + "pixelImagesUrl = COALESCE(#{model.pixelImagesUrl}, pixelImagesUrl), "
+            + "xyzImagesUrl = COALESCE(#{model.xyzImagesUrl}, xyzImagesUrl), "
+            + "modelSize = COALESCE(#{model.modelSize}, modelSize), "
+            + "status = COALESCE(#{model.status}, status), "
+            + "updateTime = NOW()")
+    int upsertByTaskId(@Param("model") Model model);
 }
@@ -2,9 +2,22 @@ package com.elwg.ai3dbackend.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
 
 /**
  * 3D重建任务Mapper接口
  */
 public interface ReconstructionTaskMapper extends BaseMapper<ReconstructionTask> {
+
+    /**
+     * 把任务关联到按任务ID创建的模型，已关联时不做修改
+     *
+     * @param id 任务ID
+     * @return 影响行数
+     */
+    @Update("UPDATE reconstruction_task SET resultModelId = "
+            + "(SELECT m.id FROM model m WHERE m.taskId = CAST(#{id} AS CHAR)), updateTime = NOW() "
+            + "WHERE id = #{id} AND resultModelId IS NULL")
+    int linkResultModel(@Param("id") Long id);
 }
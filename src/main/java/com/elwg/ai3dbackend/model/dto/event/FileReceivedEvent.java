@@ -0,0 +1,29 @@
+package com.elwg.ai3dbackend.model.dto.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 文件接收事件
+ * <p>
+ * 通过SSE推送给前端的事件数据，字段为空时不输出
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FileReceivedEvent {
+
+    /**
+     * 文件类型
+     */
+    private String fileType;
+
+    /**
+     * 文件URL（ZIP文件不保存，没有URL）
+     */
+    private String fileUrl;
+}
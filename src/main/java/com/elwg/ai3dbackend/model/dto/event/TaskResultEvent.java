@@ -0,0 +1,34 @@
+package com.elwg.ai3dbackend.model.dto.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 结果可用事件
+ * <p>
+ * 通过SSE推送给前端的事件数据，字段为空时不输出
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TaskResultEvent {
+
+    /**
+     * 任务ID
+     */
+    private String taskId;
+
+    /**
+     * 结果文件名
+     */
+    private String name;
+
+    /**
+     * 结果文件URL
+     */
+    private String url;
+}
@@ -0,0 +1,34 @@
+package com.elwg.ai3dbackend.model.dto.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 任务状态事件
+ * <p>
+ * 通过SSE推送给前端的事件数据，字段为空时不输出
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TaskStatusEvent {
+
+    /**
+     * 任务ID
+     */
+    private String taskId;
+
+    /**
+     * 任务状态
+     */
+    private String status;
+
+    /**
+     * 错误信息（可选）
+     */
+    private String error;
+}
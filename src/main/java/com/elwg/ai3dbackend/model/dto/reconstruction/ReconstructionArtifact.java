@@ -0,0 +1,37 @@
+package com.elwg.ai3dbackend.model.dto.reconstruction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 重建结果文件清单中的一项
+ */
+@Data
+@Schema(description = "重建结果文件")
+public class ReconstructionArtifact {
+
+    /**
+     * 文件名，即清单中的键，不单独保存
+     */
+    @JsonIgnore
+    private String name;
+
+    /**
+     * 文件大小（字节），早期任务补录的清单中为空
+     */
+    @Schema(description = "文件大小（字节）", example = "1048576")
+    private Long size;
+
+    /**
+     * 文件内容SHA-256，早期任务补录的清单中为空
+     */
+    @Schema(description = "文件内容SHA-256")
+    private String checksum;
+
+    /**
+     * 文件URL
+     */
+    @Schema(description = "文件URL")
+    private String url;
+}
@@ -0,0 +1,24 @@
+package com.elwg.ai3dbackend.model.dto.reconstruction;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量创建3D重建任务请求
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "批量创建3D重建任务请求")
+public class ReconstructionBatchRequest {
+
+    /**
+     * 图片ID列表
+     */
+    @Schema(description = "图片ID列表，每张图片创建一个重建任务", example = "[1, 2, 3]")
+    private List<Long> imageIds;
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.Date;
+import java.util.Map;
 
 /**
  * 3D重建任务DTO
@@ -76,6 +77,30 @@ public class ReconstructionTaskDTO {
     @Schema(description = "处理时间（秒）", example = "120")
     private Integer processingTime;
 
+    /**
+     * 排队位置（从1开始），仅等待中的任务有值，按公平调度规则估算
+     */
+    @Schema(description = "排队位置（从1开始），仅等待中的任务有值", example = "3")
+    private Integer queuePosition;
+
+    /**
+     * 超时后重新派发的次数
+     */
+    @Schema(description = "超时后重新派发的次数", example = "0")
+    private Integer retryCount;
+
+    /**
+     * 阶段时间线，阶段名到相对创建时间的毫秒数
+     */
+    @Schema(description = "阶段时间线，阶段名到相对创建时间的毫秒数", example = "{\"dispatched\":120,\"accepted\":350}")
+    private Map<String, Long> timeline;
+
+    /**
+     * 结果文件清单，文件名到大小、校验和与URL
+     */
+    @Schema(description = "结果文件清单，文件名到大小、校验和与URL")
+    private Map<String, ReconstructionArtifact> artifacts;
+
     /**
      * 创建时间
      */
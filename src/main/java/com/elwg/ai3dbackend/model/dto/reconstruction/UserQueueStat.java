@@ -0,0 +1,25 @@
+package com.elwg.ai3dbackend.model.dto.reconstruction;
+
+import lombok.Data;
+
+/**
+ * 用户排队统计，用于按用户公平调度
+ */
+@Data
+public class UserQueueStat {
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 用户等待中任务的最高优先级
+     */
+    private Integer priority;
+
+    /**
+     * 等待中的任务数
+     */
+    private Long pendingCount;
+}
@@ -0,0 +1,58 @@
+package com.elwg.ai3dbackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * SSE事件总线消息实体
+ * <p>
+ * 一条消息对应一个已序列化的SSE事件，ID同时作为SSE事件ID
+ * </p>
+ */
+@TableName(value = "event_bus_message")
+@Data
+public class EventBusMessage implements Serializable {
+
+    /**
+     * 序列化版本号
+     */
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 主键，自增，保证全局单调递增
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 任务ID，用户事件流的订阅指令为用户主题（user:用户ID）
+     */
+    private String taskId;
+
+    /**
+     * 事件名称
+     */
+    private String eventName;
+
+    /**
+     * 已序列化的事件数据（JSON）
+     */
+    private String data;
+
+    /**
+     * 发布节点ID
+     */
+    private String nodeId;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+}
@@ -75,6 +75,11 @@ public class Picture implements Serializable {
      */
     private String picFormat;
 
+    /**
+     * 图片内容的SHA-256（十六进制），用于识别内容相同的图片
+     */
+    private String contentHash;
+
     /**
      * 创建用户 id
      */
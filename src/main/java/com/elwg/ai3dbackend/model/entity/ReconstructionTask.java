@@ -59,6 +59,56 @@ public class ReconstructionTask implements Serializable {
      */
     private Long userId;
 
+    /**
+     * 回调URL，重建服务处理完成后调用
+     */
+    private String callbackUrl;
+
+    /**
+     * 派发时间，任务从队列中被取出并发送到重建服务的时间
+     */
+    private Date dispatchTime;
+
+    /**
+     * 任务派发到的重建服务节点URL，用于关联回调和统计节点负载
+     */
+    private String workerUrl;
+
+    /**
+     * 源图片内容的SHA-256（十六进制），用于复用相同图片的重建结果
+     */
+    private String contentHash;
+
+    /**
+     * 批次ID，批量提交的任务共用，单独提交的任务为null
+     */
+    private Long batchId;
+
+    /**
+     * 调度优先级，由创建用户的角色决定，数值越大越优先
+     */
+    private Integer priority;
+
+    /**
+     * 超时后重新派发的次数
+     */
+    private Integer retryCount;
+
+    /**
+     * 最早可以再次派发的时间，重新派发的任务在退避期内不会被认领
+     */
+    private Date nextAttemptTime;
+
+    /**
+     * 阶段时间线，JSON对象，阶段名到相对创建时间的毫秒数，例如 {"dispatched":120,"accepted":350}
+     */
+    private String timeline;
+
+    /**
+     * 结果文件清单，JSON对象，文件名到大小、SHA-256和URL，例如 {"model.obj":{"size":1024,"checksum":"...","url":"..."}}
+     */
+    private String artifacts;
+
     /**
      * 创建时间
      */
@@ -0,0 +1,65 @@
+package com.elwg.ai3dbackend.service;
+
+import com.elwg.ai3dbackend.model.entity.EventBusMessage;
+
+import java.util.Map;
+
+/**
+ * SSE事件总线接口
+ * <p>
+ * 位于EventStreamService之下的发布/订阅传输层。回调可能落在任意后端节点，
+ * 而浏览器的SSE连接只保存在某一个节点的内存中，事件总线负责把事件送达持有订阅者的节点。
+ * 总线为每个事件分配单调递增的ID，该ID同时作为SSE事件ID用于断线补发。
+ * </p>
+ */
+public interface EventBus {
+
+    /**
+     * 发布事件
+     *
+     * @param taskId 任务ID，或以 "user:" 开头的用户主题（用户事件流的订阅指令）
+     * @param eventName 事件名称
+     * @param data 已序列化的事件数据（JSON）
+     * @return 进程内传输表示是否至少推送给了一个订阅者；跨节点传输表示事件是否成功写入总线
+     */
+    boolean publish(String taskId, String eventName, String data);
+
+    /**
+     * 注册本节点的事件监听器
+     *
+     * @param listener 事件监听器
+     */
+    void subscribe(Listener listener);
+
+    /**
+     * 获取本节点启动时的事件ID起点
+     * <p>
+     * 不大于该ID的事件发生在本节点启动之前，本节点无法补发
+     * </p>
+     *
+     * @return 事件ID起点
+     */
+    long getStartEventId();
+
+    /**
+     * 获取总线运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    Map<String, Object> getMetrics();
+
+    /**
+     * 事件监听器
+     */
+    @FunctionalInterface
+    interface Listener {
+
+        /**
+         * 处理总线送达的事件
+         *
+         * @param message 事件消息
+         * @return 是否至少推送给了一个本地订阅者
+         */
+        boolean onMessage(EventBusMessage message);
+    }
+}
@@ -2,12 +2,16 @@ package com.elwg.ai3dbackend.service;
 
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
  * 事件流服务接口
  * <p>
- * 管理活跃的SSE连接，提供创建连接、发送事件、处理连接关闭/超时的功能
+ * 管理活跃的SSE连接，提供创建连接、发送事件、处理连接关闭/超时的功能。
+ * 同一任务支持多个订阅者，并缓存最近的事件用于断线重连补发
+ * 用户事件流可以在一个连接上接收用户多个任务的事件
  * </p>
  */
 public interface EventStreamService {
@@ -21,15 +25,62 @@ public interface EventStreamService {
     SseEmitter createEmitter(String taskId);
 
     /**
-     * 获取指定任务的SSE连接
+     * 创建新的SSE连接，并补发客户端错过的事件
      *
      * @param taskId 任务ID
-     * @return SseEmitter实例，如果不存在则返回null
+     * @param lastEventId 客户端最后收到的事件ID（Last-Event-ID请求头，可选）
+     * @return SseEmitter实例
+     */
+    SseEmitter createEmitter(String taskId, String lastEventId);
+
+    /**
+     * 创建用户事件流
+     * <p>
+     * 一个连接接收用户所有已订阅任务的事件，事件数据格式为 {"taskId": "...", "data": 原事件数据}
+     * </p>
+     *
+     * @param userId 用户ID
+     * @param taskIds 初始订阅的任务ID
+     * @param lastEventId 客户端最后收到的事件ID（可选）
+     * @return SseEmitter实例
+     */
+    SseEmitter createUserEmitter(Long userId, Collection<String> taskIds, String lastEventId);
+
+    /**
+     * 为用户事件流订阅任务，对该用户所有节点上的事件流生效
+     *
+     * @param userId 用户ID
+     * @param taskId 任务ID
+     */
+    void subscribeTask(Long userId, String taskId);
+
+    /**
+     * 为用户事件流退订任务，对该用户所有节点上的事件流生效
+     *
+     * @param userId 用户ID
+     * @param taskId 任务ID
+     */
+    void unsubscribeTask(Long userId, String taskId);
+
+    /**
+     * 判断能否仅凭缓存的事件为客户端补齐断线期间错过的事件
+     *
+     * @param taskId 任务ID
+     * @param lastEventId 客户端最后收到的事件ID
+     * @return 如果缓存覆盖了该ID之后的全部事件，则返回true
      */
-    SseEmitter getEmitter(String taskId);
+    boolean canReplay(String taskId, String lastEventId);
 
     /**
-     * 移除指定任务的SSE连接
+     * 获取指定任务的所有SSE连接
+     *
+     * @param taskId 任务ID
+     * @return SseEmitter列表，如果不存在则返回空列表
+     */
+    List<SseEmitter> getEmitters(String taskId);
+
+    /**
+     * 移除指定任务的所有SSE连接
      *
      * @param taskId 任务ID
      */
@@ -61,21 +112,53 @@ public interface EventStreamService {
      * @param taskId 任务ID
      * @param eventName 事件名称
      * @param data 事件数据
-     * @return 是否发送成功
+     * @return 是否至少推送给了一个订阅者
      */
     boolean sendEvent(String taskId, String eventName, Object data);
 
     /**
-     * 完成指定任务的SSE连接
+     * 只向指定连接发送快照事件
+     * <p>
+     * 用于连接建立时推送从数据库读取的当前状态：事件不经过事件总线，不进入补发缓存，不带事件ID，
+     * 同一任务的其他订阅者不会收到
+     * </p>
      *
-     * @param taskId 任务ID
+     * @param emitter 由本服务创建的SSE连接
+     * @param eventName 事件名称
+     * @param data 事件数据
+     * @return 是否放入了该连接的发送队列
+     */
+    boolean sendSnapshot(SseEmitter emitter, String eventName, Object data);
+
+    /**
+     * 完成指定的单个SSE连接，已在发送队列中的事件会先写出
+     *
+     * @param emitter 由本服务创建的SSE连接
+     */
+    void completeEmitter(SseEmitter emitter);
+
+    /**
+     * 延迟完成指定的单个SSE连接
+     *
+     * @param emitter 由本服务创建的SSE连接
+     * @param delayMillis 延迟时间（毫秒）
+     */
+    void completeEmitterLater(SseEmitter emitter, long delayMillis);
+
+    /**
+     * 获取当前活跃的SSE连接数
+     *
+     * @return 活跃连接数
      */
-    void completeEmitter(String taskId);
+    int getActiveConnectionCount();
 
     /**
-     * 获取所有活跃的SSE连接
+     * 获取SSE连接和发送队列的运行指标
+     * <p>
+     * 包括活跃连接数、积压事件数、丢弃的心跳数、合并的状态事件数和因积压断开的连接数
+     * </p>
      *
-     * @return 任务ID到SseEmitter的映射
+     * @return 指标名称到指标值的映射
      */
-    Map<String, SseEmitter> getActiveEmitters();
+    Map<String, Object> getMetrics();
 }
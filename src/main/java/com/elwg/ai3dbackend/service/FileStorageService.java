@@ -38,6 +38,17 @@ public interface FileStorageService {
      */
     void saveFile(String path, InputStream inputStream) throws IOException;
 
+    /**
+     * 流式保存文件，不在内存中缓存文件内容
+     *
+     * @param path 文件路径（相对于存储根目录）
+     * @param inputStream 文件输入流
+     * @param contentLength 文件大小（字节），未知时传-1
+     * @param contentType 文件类型（可选）
+     * @throws IOException 如果保存过程中发生错误
+     */
+    void saveFile(String path, InputStream inputStream, long contentLength, String contentType) throws IOException;
+
     /**
      * 获取文件数据
      *
@@ -55,6 +66,16 @@ public interface FileStorageService {
      */
     String getFileUrl(String path);
 
+    /**
+     * 获取有时效的文件下载URL
+     *
+     * @param path 文件路径（相对于存储根目录）
+     * @param expireMillis 有效期（毫秒）
+     * @return 无需鉴权即可在有效期内下载文件的URL
+     * @throws IOException 如果存储服务不支持或生成失败
+     */
+    String getPresignedUrl(String path, long expireMillis) throws IOException;
+
     /**
      * 检查文件是否存在
      *
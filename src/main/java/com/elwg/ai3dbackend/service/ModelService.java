@@ -2,6 +2,7 @@ package com.elwg.ai3dbackend.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.elwg.ai3dbackend.model.entity.Model;
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
 
 /**
  * 3D模型服务接口
@@ -26,4 +27,25 @@ public interface ModelService extends IService<Model> {
      * @return 模型实体，如果不存在则返回null
      */
     Model getModelBySourceImageId(Long sourceImageId);
+
+    /**
+     * 写入任务对应模型的部分字段
+     * <p>
+     * 模型不存在时创建，存在时只更新changes中非空的字段（URL、大小、状态），不需要先读取模型。
+     * 同一任务的多个回调同时写入不同字段时不会互相覆盖
+     * </p>
+     *
+     * @param task 重建任务
+     * @param changes 要写入的字段，其余字段为null
+     */
+    void upsertTaskModel(ReconstructionTask task, Model changes);
+
+    /**
+     * 更新任务对应模型的状态
+     *
+     * @param taskId 任务ID
+     * @param status 模型状态
+     * @return 模型存在并更新成功时返回true
+     */
+    boolean updateStatusByTaskId(Long taskId, String status);
 }
@@ -38,4 +38,15 @@ public interface PictureService extends IService<Picture> {
      * @return 清理的文件数量
      */
     int cleanupOrphanedFiles();
+
+    /**
+     * 获取图片内容的SHA-256
+     * <p>
+     * 上传时已计算的直接返回；早期上传的图片从存储中读取内容计算，并保存到图片记录
+     * </p>
+     *
+     * @param picture 图片
+     * @return 内容哈希（十六进制），图片内容无法读取时返回null
+     */
+    String getContentHash(Picture picture);
 }
@@ -0,0 +1,45 @@
+package com.elwg.ai3dbackend.service;
+
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 3D重建批量任务服务接口
+ * <p>
+ * 一次提交多张图片，所有任务共用一个批次ID，客户端可以按批次查询和订阅整体进度。
+ * 批次进度通过以批次ID为键的事件流推送，事件名为progress
+ * </p>
+ */
+public interface ReconstructionBatchService {
+
+    /**
+     * 批量创建重建任务
+     * <p>
+     * 并行读取各图片的内容哈希，然后批量插入所有任务，并为用户事件流订阅批次进度
+     * </p>
+     *
+     * @param userId 用户ID
+     * @param priority 调度优先级
+     * @param imageIds 图片ID列表，重复的ID只创建一个任务
+     * @param callbackUrl 回调URL
+     * @return 创建的任务，顺序与图片ID一致
+     */
+    List<ReconstructionTask> createBatch(Long userId, int priority, List<Long> imageIds, String callbackUrl);
+
+    /**
+     * 获取批次进度
+     *
+     * @param batchId 批次ID
+     * @return 批次进度，批次不存在时返回null
+     */
+    Map<String, Object> getProgress(Long batchId);
+
+    /**
+     * 任务结束时推送所在批次的最新进度
+     *
+     * @param task 已结束的任务
+     */
+    void onTaskFinished(ReconstructionTask task);
+}
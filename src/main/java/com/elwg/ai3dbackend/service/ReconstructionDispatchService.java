@@ -0,0 +1,40 @@
+package com.elwg.ai3dbackend.service;
+
+import java.util.Map;
+
+/**
+ * 3D重建任务派发服务接口
+ * <p>
+ * 以reconstruction_task表作为持久化队列，按创建顺序将等待中的任务派发到重建服务，
+ * 并限制同时处理的任务数。服务重启后未派发的任务会继续派发
+ * </p>
+ */
+public interface ReconstructionDispatchService {
+
+    /**
+     * 唤醒派发线程，立即检查是否有可派发的任务
+     * <p>
+     * 在创建任务或任务结束后调用，不调用时派发线程也会定期轮询
+     * </p>
+     */
+    void wakeUp();
+
+    /**
+     * 取消等待中或处理中的任务
+     * <p>
+     * 等待中的任务直接移出队列；处理中的任务立即释放并发名额和节点名额，并通知节点中止任务，
+     * 节点之后发来的结果回调会被丢弃
+     * </p>
+     *
+     * @param taskId 任务ID
+     * @return 是否取消成功，任务已结束时返回false
+     */
+    boolean cancelTask(Long taskId);
+
+    /**
+     * 获取派发运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    Map<String, Object> getMetrics();
+}
@@ -1,6 +1,9 @@
 package com.elwg.ai3dbackend.service;
 
+import com.elwg.ai3dbackend.manager.ReconstructionWorkerManager;
+
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -11,21 +14,74 @@ import java.util.concurrent.CompletableFuture;
  */
 public interface ReconstructionHttpService {
 
+    /**
+     * 按节点的派发方式把任务发送到重建服务节点
+     * <p>
+     * url方式只发送源图片的预签名下载URL，后端不读取图片；生成URL失败，或节点不接受image_url参数时，
+     * 退回到读取图片并以文件上传，之后该节点一直使用文件上传
+     * </p>
+     *
+     * @param worker 目标节点
+     * @param imagePath 源图片在存储中的路径
+     * @param taskId 任务ID
+     * @param callbackUrl 回调URL，Python服务处理完成后将调用此URL
+     * @return 包含请求状态的CompletableFuture
+     * @throws IOException 如果参数无效或读取图片失败，此时请求没有发出
+     */
+    CompletableFuture<String> dispatchImage(ReconstructionWorkerManager.Worker worker, String imagePath,
+                                            String taskId, String callbackUrl) throws IOException;
+
     /**
      * 发送图片数据到Python服务进行3D重建
      *
+     * @param workerUrl 重建服务节点URL
      * @param imageData 图片二进制数据
      * @param taskId 任务ID
      * @param callbackUrl 回调URL，Python服务处理完成后将调用此URL
      * @return 包含请求状态的CompletableFuture
      * @throws IOException 如果通信过程中发生错误
      */
-    CompletableFuture<String> sendImageForReconstruction(byte[] imageData, String taskId, String callbackUrl) throws IOException;
+    CompletableFuture<String> sendImageForReconstruction(String workerUrl, byte[] imageData, String taskId, String callbackUrl) throws IOException;
+
+    /**
+     * 发送图片下载URL到Python服务进行3D重建，由Python服务自行下载图片
+     *
+     * @param workerUrl 重建服务节点URL
+     * @param imageUrl 图片下载URL
+     * @param taskId 任务ID
+     * @param callbackUrl 回调URL，Python服务处理完成后将调用此URL
+     * @return 包含请求状态的CompletableFuture
+     * @throws IOException 如果参数无效
+     */
+    CompletableFuture<String> sendImageUrlForReconstruction(String workerUrl, String imageUrl, String taskId, String callbackUrl) throws IOException;
+
+    /**
+     * 通知节点取消任务，释放节点上的排队位置或GPU
+     * <p>
+     * 取消是尽力而为的：节点不支持取消接口或任务已在节点上结束时返回false，
+     * 此后的结果回调由回调接口按任务状态丢弃
+     * </p>
+     *
+     * @param worker 任务所在的节点
+     * @param taskId 任务ID
+     * @return 节点是否确认取消
+     */
+    CompletableFuture<Boolean> cancelReconstruction(ReconstructionWorkerManager.Worker worker, String taskId);
+
+    /**
+     * 获取图片传输运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    Map<String, Object> getMetrics();
 
     /**
      * 检查Python服务健康状态
+     * <p>
+     * 各节点由后台定期探测，这里只读取探测结果，不会阻塞
+     * </p>
      *
-     * @return 如果服务正常运行，则返回true
+     * @return 如果至少有一个节点可用，则返回true
      */
     boolean checkServiceHealth();
 }
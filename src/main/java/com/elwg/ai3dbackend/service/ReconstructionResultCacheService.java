@@ -0,0 +1,56 @@
+package com.elwg.ai3dbackend.service;
+
+import com.elwg.ai3dbackend.model.entity.Picture;
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
+
+import java.util.Map;
+
+/**
+ * 3D重建结果缓存服务接口
+ * <p>
+ * 按源图片内容哈希复用已完成的重建结果：内容相同的图片已经成功重建过时，
+ * 新任务直接关联已有的模型文件并立即完成，不再发送到重建服务
+ * </p>
+ */
+public interface ReconstructionResultCacheService {
+
+    /**
+     * 尝试用内容相同图片的已有结果完成新任务
+     * <p>
+     * 命中时创建一个已完成的任务和对应的模型记录（模型文件URL与已有结果相同），
+     * 并在事务提交后为用户事件流订阅该任务，推送所有result事件和完成状态
+     * </p>
+     *
+     * @param userId 用户ID
+     * @param picture 源图片
+     * @param contentHash 源图片内容哈希
+     * @return 已完成的任务，未命中时返回null
+     */
+    ReconstructionTask completeFromCache(Long userId, Picture picture, String contentHash);
+
+    /**
+     * 尝试用内容相同图片的已有结果完成批次中的新任务
+     * <p>
+     * 与单独提交相同，命中时创建的已完成任务属于该批次，计入批次进度
+     * </p>
+     *
+     * @param userId 用户ID
+     * @param picture 源图片
+     * @param contentHash 源图片内容哈希
+     * @param batchId 批次ID
+     * @return 已完成的任务，未命中时返回null
+     */
+    ReconstructionTask completeFromCache(Long userId, Picture picture, String contentHash, Long batchId);
+
+    /**
+     * 记录一次跳过缓存的任务创建
+     */
+    void recordBypass();
+
+    /**
+     * 获取缓存运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    Map<String, Object> getMetrics();
+}
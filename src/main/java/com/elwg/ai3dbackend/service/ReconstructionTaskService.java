@@ -1,8 +1,13 @@
 package com.elwg.ai3dbackend.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.elwg.ai3dbackend.model.dto.reconstruction.UserQueueStat;
 import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
 
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 3D重建任务服务接口
  * <p>
@@ -17,9 +22,34 @@ public interface ReconstructionTaskService {
      * @param userId 用户ID
      * @param sourceImageId 源图片ID
      * @param originalImageUrl 原始图片URL
+     * @param callbackUrl 回调URL
+     * @param contentHash 源图片内容哈希（可选）
+     * @param priority 调度优先级
+     * @return 创建的任务
+     */
+    ReconstructionTask createTask(Long userId, Long sourceImageId, String originalImageUrl, String callbackUrl,
+                                  String contentHash, int priority);
+
+    /**
+     * 批量创建重建任务
+     * <p>
+     * 所有任务在一个事务中批量插入，调用前需要设置好任务的各字段，状态为PENDING
+     * </p>
+     *
+     * @param tasks 任务列表，插入后回填任务ID
+     */
+    void createTasks(List<ReconstructionTask> tasks);
+
+    /**
+     * 创建直接复用已有结果、已经完成的任务
+     *
+     * @param userId 用户ID
+     * @param sourceImageId 源图片ID
+     * @param contentHash 源图片内容哈希
+     * @param batchId 所属批次ID，单独提交的任务为null
      * @return 创建的任务
      */
-    ReconstructionTask createTask(Long userId, Long sourceImageId, String originalImageUrl);
+    ReconstructionTask createCompletedTask(Long userId, Long sourceImageId, String contentHash, Long batchId);
 
     /**
      * 根据任务ID查询任务
@@ -39,6 +69,22 @@ public interface ReconstructionTaskService {
      */
     ReconstructionTask updateTaskStatus(Long id, String status, String errorMessage);
 
+    /**
+     * 按重建服务节点的状态回调更新处理中任务的状态
+     * <p>
+     * 只有任务仍处于PROCESSING、且派发节点和派发次数与回调所属的派发一致时才更新，
+     * 超时回收后重新排队、已重新派发到其他节点或已结束的任务不会被旧节点的迟到回调修改
+     * </p>
+     *
+     * @param id 任务ID
+     * @param workerUrl 回调所属派发的节点URL
+     * @param retryCount 回调所属派发的重试次数
+     * @param status 新状态
+     * @param errorMessage 错误信息（可选）
+     * @return 是否更新成功
+     */
+    boolean updateAttemptStatus(Long id, String workerUrl, int retryCount, String status, String errorMessage);
+
     /**
      * 更新任务结果模型ID
      *
@@ -48,6 +94,17 @@ public interface ReconstructionTaskService {
      */
     ReconstructionTask updateTaskResultModel(Long id, Long modelId);
 
+    /**
+     * 把任务关联到按任务ID创建的模型
+     * <p>
+     * 在一条语句中查找模型并写入任务的结果模型ID，任务已关联模型时不做修改
+     * </p>
+     *
+     * @param id 任务ID
+     * @return 本次写入了结果模型ID时返回true
+     */
+    boolean linkResultModel(Long id);
+
     /**
      * 更新任务处理时间
      *
@@ -68,6 +125,183 @@ public interface ReconstructionTaskService {
      */
     Page<ReconstructionTask> listUserTasks(Long userId, String status, int current, int pageSize);
 
+    /**
+     * 查询用户未结束（等待中或处理中）的任务
+     *
+     * @param userId 用户ID
+     * @return 任务列表
+     */
+    List<ReconstructionTask> listUserActiveTasks(Long userId);
+
+    /**
+     * 按创建时间顺序查询等待派发且已过退避期的任务
+     *
+     * @param limit 最大数量
+     * @return 任务列表
+     */
+    List<ReconstructionTask> listPendingTasks(int limit);
+
+    /**
+     * 按创建时间顺序查询用户等待派发且已过退避期的任务
+     *
+     * @param userId 用户ID
+     * @param limit 最大数量
+     * @return 任务列表
+     */
+    List<ReconstructionTask> listPendingTasks(Long userId, int limit);
+
+    /**
+     * 按用户统计等待派发且已过退避期的任务
+     *
+     * @return 各用户的等待任务数和最高优先级
+     */
+    List<UserQueueStat> listPendingUserStats();
+
+    /**
+     * 按用户统计处理中的任务数
+     *
+     * @return 用户ID到处理中任务数的映射
+     */
+    Map<Long, Long> countProcessingTasksByUser();
+
+    /**
+     * 统计排在指定任务之前的等待中任务数
+     *
+     * @param task 等待中的任务
+     * @param sameUser 是否只统计同一用户的任务
+     * @return 任务数
+     */
+    long countPendingTasksAhead(ReconstructionTask task, boolean sameUser);
+
+    /**
+     * 查询超过期限没有任何回调的处理中任务
+     *
+     * @param cutoff 最后更新时间早于该时间的任务视为超时
+     * @param limit 最大数量
+     * @return 任务列表
+     */
+    List<ReconstructionTask> listStuckTasks(Date cutoff, int limit);
+
+    /**
+     * 把超时的处理中任务放回队列，重试次数加一
+     * <p>
+     * 通过带状态和更新时间条件的原子更新完成，期间收到回调或已被其他节点回收的任务不会被修改
+     * </p>
+     *
+     * @param id 任务ID
+     * @param cutoff 超时判定时间
+     * @param nextAttemptTime 最早可以再次派发的时间
+     * @return 是否回收成功
+     */
+    boolean requeueStuckTask(Long id, Date cutoff, Date nextAttemptTime);
+
+    /**
+     * 把尚未被节点接收的处理中任务放回队列，不增加重试次数
+     * <p>
+     * 用于熔断器打开时没有发出的任务；通过带状态条件的原子更新完成，已取消的任务不会被修改
+     * </p>
+     *
+     * @param id 任务ID
+     * @param nextAttemptTime 最早可以再次派发的时间
+     * @return 是否放回成功
+     */
+    boolean requeueTask(Long id, Date nextAttemptTime);
+
+    /**
+     * 把超时且重试次数用尽的处理中任务标记为失败
+     *
+     * @param id 任务ID
+     * @param cutoff 超时判定时间
+     * @param errorMessage 错误信息
+     * @return 是否更新成功
+     */
+    boolean failStuckTask(Long id, Date cutoff, String errorMessage);
+
+    /**
+     * 统计正在处理中的任务数
+     *
+     * @return 处理中的任务数
+     */
+    long countProcessingTasks();
+
+    /**
+     * 查询源图片内容相同、最近一个成功完成且有结果模型的任务
+     *
+     * @param contentHash 源图片内容哈希
+     * @return 任务，不存在时返回null
+     */
+    ReconstructionTask getLatestCompletedTaskByHash(String contentHash);
+
+    /**
+     * 按状态统计批次中的任务数
+     *
+     * @param batchId 批次ID
+     * @return 任务状态到任务数的映射
+     */
+    Map<String, Long> countBatchTasksByStatus(Long batchId);
+
+    /**
+     * 按派发到的重建服务节点统计处理中的任务数
+     *
+     * @return 节点URL到处理中任务数的映射
+     */
+    Map<String, Long> countProcessingTasksByWorker();
+
+    /**
+     * 认领等待派发的任务
+     * <p>
+     * 通过带状态条件的原子更新将任务从PENDING改为PROCESSING，多个节点同时认领时只有一个能成功
+     * </p>
+     *
+     * @param id 任务ID
+     * @param workerUrl 派发到的重建服务节点URL
+     * @return 是否认领成功
+     */
+    boolean claimTask(Long id, String workerUrl);
+
+    /**
+     * 在任务时间线中记录阶段
+     * <p>
+     * 只更新时间线中的一个键，多个回调同时记录不同阶段时不会互相覆盖
+     * </p>
+     *
+     * @param id 任务ID
+     * @param stage 阶段名，见{@link com.elwg.ai3dbackend.constant.TaskStage}
+     * @param offsetMillis 相对创建时间的毫秒数
+     */
+    void recordStage(Long id, String stage, long offsetMillis);
+
+    /**
+     * 在任务的结果文件清单中记录一个文件，同名文件覆盖
+     *
+     * @param id 任务ID
+     * @param name 文件名
+     * @param size 文件大小（字节）
+     * @param checksum 文件内容SHA-256
+     * @param url 文件URL
+     */
+    void recordArtifact(Long id, String name, Long size, String checksum, String url);
+
+    /**
+     * 在任务没有结果文件清单时写入整个清单，用于复用结果和补录早期任务
+     *
+     * @param id 任务ID
+     * @param artifacts 清单JSON
+     * @return 是否写入，任务已有清单时返回false
+     */
+    boolean initArtifacts(Long id, String artifacts);
+
+    /**
+     * 取消等待中或处理中的任务
+     * <p>
+     * 通过带状态条件的原子更新将任务改为CANCELLED，与认领、回调和超时回收并发时只有一方能成功
+     * </p>
+     *
+     * @param id 任务ID
+     * @return 取消前的任务，任务不存在或已结束时返回null
+     */
+    ReconstructionTask cancelTask(Long id);
+
     /**
      * 删除任务
      *
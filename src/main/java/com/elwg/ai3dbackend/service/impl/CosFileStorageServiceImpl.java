@@ -46,7 +46,7 @@ public class CosFileStorageServiceImpl implements FileStorageService {
      */
     @Override
     public void saveFile(String path, byte[] data) throws IOException {
-        cosManager.uploadFile(path, new ByteArrayInputStream(data));
+        cosManager.uploadFile(path, new ByteArrayInputStream(data), data.length, null);
     }
 
     /**
@@ -61,6 +61,20 @@ public class CosFileStorageServiceImpl implements FileStorageService {
         cosManager.uploadFile(path, inputStream);
     }
 
+    /**
+     * 流式保存文件，不在内存中缓存文件内容
+     *
+     * @param path 文件路径（相对于存储根目录）
+     * @param inputStream 文件输入流
+     * @param contentLength 文件大小（字节），未知时传-1
+     * @param contentType 文件类型（可选）
+     * @throws IOException 如果保存过程中发生错误
+     */
+    @Override
+    public void saveFile(String path, InputStream inputStream, long contentLength, String contentType) throws IOException {
+        cosManager.uploadFile(path, inputStream, contentLength, contentType);
+    }
+
     /**
      * 获取文件数据
      *
@@ -84,6 +98,19 @@ public class CosFileStorageServiceImpl implements FileStorageService {
         return cosManager.getFileUrl(path);
     }
 
+    /**
+     * 获取有时效的文件下载URL
+     *
+     * @param path 文件路径（相对于存储根目录）
+     * @param expireMillis 有效期（毫秒）
+     * @return COS预签名URL
+     * @throws IOException 如果生成签名失败
+     */
+    @Override
+    public String getPresignedUrl(String path, long expireMillis) throws IOException {
+        return cosManager.generatePresignedUrl(path, expireMillis);
+    }
+
     /**
      * 检查文件是否存在
      *
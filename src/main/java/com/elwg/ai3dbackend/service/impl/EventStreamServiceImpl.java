@@ -1,21 +1,61 @@
 package com.elwg.ai3dbackend.service.impl;
 
+import com.elwg.ai3dbackend.model.dto.event.TaskResultEvent;
+import com.elwg.ai3dbackend.model.dto.event.TaskStatusEvent;
+import com.elwg.ai3dbackend.model.entity.EventBusMessage;
+import com.elwg.ai3dbackend.service.EventBus;
 import com.elwg.ai3dbackend.service.EventStreamService;
+import com.elwg.ai3dbackend.utils.SseFrame;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 事件流服务实现类
  * <p>
- * 管理活跃的SSE连接，提供创建连接、发送事件、处理连接关闭/超时的功能
+ * 管理活跃的SSE连接，提供创建连接、发送事件、处理连接关闭/超时的功能。
+ * 每个任务对应一个事件通道，通道内可以有多个订阅者（多个浏览器标签页或重连），
+ * 并保留最近的事件用于断线重连时按Last-Event-ID补发。
+ * </p>
+ * <p>
+ * 事件不直接推送，而是先发布到事件总线，由总线送达持有订阅者的节点后再推送，
+ * 因此回调落在任意节点都能通知到浏览器
+ * </p>
+ * <p>
+ * 每个事件在送达时只编码一次为SSE帧字节，推送给所有订阅者和补发时直接复用
+ * </p>
+ * <p>
+ * 除了按任务订阅，用户还可以建立一个用户事件流，同时接收自己所有任务的事件，事件数据中带有任务ID。
+ * 用户事件流订阅哪些任务由服务端维护，订阅/退订指令同样经过事件总线，在持有该用户事件流的节点上生效。
+ * </p>
+ * <p>
+ * 每个订阅者有一个有界的发送队列，由共享的写线程池异步写出，发布事件和发送心跳的线程只负责入队，
+ * 不会因为某个网络缓慢的客户端而阻塞。队列有积压时丢弃心跳、合并状态事件，
+ * 积压超过上限或持续时间过长时断开该连接，客户端可以通过Last-Event-ID重连补发。
  * </p>
  */
 @Slf4j
@@ -33,14 +73,115 @@ public class EventStreamServiceImpl implements EventStreamService {
     private static final long HEARTBEAT_INTERVAL = 30 * 1000L;
 
     /**
-     * 存储活跃的SSE连接
+     * 心跳时间轮槽位数，每个心跳间隔内依次处理各槽位，将发送压力均摊到整个间隔
+     */
+    private static final int HEARTBEAT_WHEEL_SIZE = 10;
+
+    /**
+     * 单批次发送心跳的最大连接数
+     */
+    private static final int HEARTBEAT_BATCH_SIZE = 200;
+
+    /**
+     * 每个任务保留的最近事件数
+     */
+    private static final int EVENT_BUFFER_SIZE = 64;
+
+    /**
+     * 没有订阅者的事件通道保留时间：10分钟，超时后清理
+     */
+    private static final long CHANNEL_RETENTION = 10 * 60 * 1000L;
+
+    /**
+     * 事件通道清理间隔：1分钟
+     */
+    private static final long CHANNEL_SWEEP_INTERVAL = 60 * 1000L;
+
+    /**
+     * 连接建立事件帧，不带ID，避免覆盖客户端的Last-Event-ID
+     */
+    private static final SseFrame CONNECT_FRAME = SseFrame.encode(null, "connect", "Connected successfully");
+
+    /**
+     * 状态事件名称，发送队列中每个任务只保留最新的一条状态事件
+     */
+    private static final String STATUS_EVENT = "status";
+
+    /**
+     * 用户主题前缀，发往用户主题的消息是用户事件流的订阅/退订指令
+     */
+    private static final String USER_TOPIC_PREFIX = "user:";
+
+    /**
+     * 订阅指令
+     */
+    private static final String SUBSCRIBE_COMMAND = "subscribe";
+
+    /**
+     * 退订指令
+     */
+    private static final String UNSUBSCRIBE_COMMAND = "unsubscribe";
+
+    /**
+     * 任务ID到事件通道的映射
+     */
+    private final Map<String, TaskChannel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * 用户ID到本节点该用户事件流的映射
+     */
+    private final Map<Long, Set<Subscriber>> userStreams = new ConcurrentHashMap<>();
+
+    /**
+     * SSE连接到订阅者的映射，用于只对单个连接发送快照或关闭连接
+     */
+    private final Map<SseEmitter, Subscriber> emitterSubscribers = new ConcurrentHashMap<>();
+
+    /**
+     * 当前活跃的订阅者数量
      */
-    private final Map<String, SseEmitter> emitters = new ConcurrentHashMap<>();
+    private final AtomicInteger activeSubscribers = new AtomicInteger(0);
 
     /**
-     * 事件ID生成器
+     * 本节点已送达的最大事件ID，事件ID由事件总线分配
      */
-    private final AtomicLong eventIdGenerator = new AtomicLong(0);
+    private final AtomicLong lastDeliveredId = new AtomicLong(0);
+
+    /**
+     * 被丢弃的心跳数
+     */
+    private final AtomicLong droppedHeartbeats = new AtomicLong(0);
+
+    /**
+     * 被合并的状态事件数
+     */
+    private final AtomicLong coalescedEvents = new AtomicLong(0);
+
+    /**
+     * 因发送积压被断开的连接数
+     */
+    private final AtomicLong laggingDisconnects = new AtomicLong(0);
+
+    /**
+     * 单个连接发送队列的最大长度，超过后断开该连接
+     */
+    @Value("${reconstruction.sse.max-queue-size:256}")
+    private int maxQueueSize;
+
+    /**
+     * 单个连接允许的最长发送停滞时间（毫秒），队列有积压且超过该时间没有写出任何事件时断开该连接
+     */
+    @Value("${reconstruction.sse.max-lag:30000}")
+    private long maxLagMillis;
+
+    @Resource
+    private EventBus eventBus;
+
+    /**
+     * SSE写线程池，负责把各连接发送队列中的事件写到客户端
+     */
+    @Resource(name = "sseWriterExecutor")
+    private Executor sseWriterExecutor;
 
     /**
      * JSON序列化工具
@@ -48,9 +189,62 @@ public class EventStreamServiceImpl implements EventStreamService {
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
-     * 心跳任务Map
+     * 心跳时间轮：每个槽位保存一组订阅者，所有连接共享同一个调度线程
+     */
+    private final List<Set<Subscriber>> heartbeatWheel = new ArrayList<>(HEARTBEAT_WHEEL_SIZE);
+
+    /**
+     * 下一个分配的槽位，轮流分配以保证各槽位连接数均衡
      */
-    private final Map<String, Runnable> heartbeatTasks = new ConcurrentHashMap<>();
+    private final AtomicInteger nextHeartbeatSlot = new AtomicInteger(0);
+
+    /**
+     * 当前处理的槽位
+     */
+    private int currentHeartbeatSlot = 0;
+
+    /**
+     * 共享的心跳调度器，同时负责延迟关闭连接和清理过期通道
+     */
+    private ScheduledExecutorService heartbeatScheduler;
+
+    /**
+     * 初始化心跳时间轮和调度器
+     */
+    @PostConstruct
+    public void init() {
+        // 新连接的连接事件和补发事件必须能一次放入发送队列
+        maxQueueSize = Math.max(maxQueueSize, EVENT_BUFFER_SIZE + 1);
+
+        // 启动前的事件无法补发，以总线的起点作为补发下限
+        lastDeliveredId.set(eventBus.getStartEventId());
+        eventBus.subscribe(this::deliverMessage);
+
+        for (int i = 0; i < HEARTBEAT_WHEEL_SIZE; i++) {
+            heartbeatWheel.add(ConcurrentHashMap.newKeySet());
+        }
+        heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sse-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tickInterval = HEARTBEAT_INTERVAL / HEARTBEAT_WHEEL_SIZE;
+        heartbeatScheduler.scheduleAtFixedRate(this::tickHeartbeatWheel, tickInterval, tickInterval, TimeUnit.MILLISECONDS);
+        heartbeatScheduler.scheduleWithFixedDelay(this::sweepIdleChannels,
+                CHANNEL_SWEEP_INTERVAL, CHANNEL_SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+        log.info("Started shared SSE heartbeat scheduler, wheel size: {}, tick interval: {} ms",
+                HEARTBEAT_WHEEL_SIZE, tickInterval);
+    }
+
+    /**
+     * 关闭心跳调度器
+     */
+    @PreDestroy
+    public void destroy() {
+        if (heartbeatScheduler != null) {
+            heartbeatScheduler.shutdownNow();
+        }
+    }
 
     /**
      * 创建新的SSE连接
@@ -60,145 +254,482 @@ public class EventStreamServiceImpl implements EventStreamService {
      */
     @Override
     public SseEmitter createEmitter(String taskId) {
-        // 先移除现有的连接（如果有）
-        SseEmitter existingEmitter = emitters.get(taskId);
-        if (existingEmitter != null) {
-            log.info("Removing existing SSE connection for task: {}", taskId);
-            try {
-                existingEmitter.complete();
-            } catch (Exception e) {
-                log.warn("Error completing existing emitter for task: {}", taskId, e);
-            }
-            removeEmitter(taskId);
-        }
+        return createEmitter(taskId, null);
+    }
 
-        // 创建新的发射器
+    /**
+     * 创建新的SSE连接，并补发客户端错过的事件
+     * <p>
+     * 同一任务可以同时存在多个连接，新连接不会影响已有连接
+     * </p>
+     *
+     * @param taskId 任务ID
+     * @param lastEventId 客户端最后收到的事件ID（可选）
+     * @return SseEmitter实例
+     */
+    @Override
+    public SseEmitter createEmitter(String taskId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(DEFAULT_TIMEOUT);
+        Subscriber subscriber = new Subscriber(null, emitter);
+        registerCallbacks(subscriber);
+        emitterSubscribers.put(emitter, subscriber);
+
+        enqueue(subscriber, CONNECT_FRAME);
+        // 启动心跳任务
+        startHeartbeat(subscriber);
+        activeSubscribers.incrementAndGet();
+        int replayed = attach(subscriber, taskId, parseEventId(lastEventId));
+
+        log.info("Created SSE connection for task: {}, replayed events: {}, active connections: {}",
+                taskId, replayed, activeSubscribers.get());
+
+        return emitter;
+    }
+
+    /**
+     * 创建用户事件流，接收用户所有已订阅任务的事件
+     * <p>
+     * 连接建立时订阅给定的任务，之后可以通过subscribeTask/unsubscribeTask增减订阅。
+     * 同一任务的事件保持顺序，不同任务之间的补发事件按任务依次发送
+     * </p>
+     *
+     * @param userId 用户ID
+     * @param taskIds 初始订阅的任务ID
+     * @param lastEventId 客户端最后收到的事件ID（可选）
+     * @return SseEmitter实例
+     */
+    @Override
+    public SseEmitter createUserEmitter(Long userId, Collection<String> taskIds, String lastEventId) {
         SseEmitter emitter = new SseEmitter(DEFAULT_TIMEOUT);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        registerCallbacks(subscriber);
+        emitterSubscribers.put(emitter, subscriber);
+
+        enqueue(subscriber, CONNECT_FRAME);
+        // 启动心跳任务
+        startHeartbeat(subscriber);
+        activeSubscribers.incrementAndGet();
+        // 先登记用户事件流，之后发布的订阅指令都能送达
+        userStreams.compute(userId, (key, streams) -> {
+            Set<Subscriber> result = streams != null ? streams : ConcurrentHashMap.newKeySet();
+            result.add(subscriber);
+            return result;
+        });
+
+        Long lastId = parseEventId(lastEventId);
+        int replayed = 0;
+        for (String taskId : taskIds) {
+            replayed += attach(subscriber, taskId, lastId);
+        }
+
+        log.info("Created user SSE connection for user: {}, tasks: {}, replayed events: {}, active connections: {}",
+                userId, taskIds.size(), replayed, activeSubscribers.get());
+
+        return emitter;
+    }
+
+    /**
+     * 为用户事件流订阅任务
+     *
+     * @param userId 用户ID
+     * @param taskId 任务ID
+     */
+    @Override
+    public void subscribeTask(Long userId, String taskId) {
+        eventBus.publish(USER_TOPIC_PREFIX + userId, SUBSCRIBE_COMMAND, taskId);
+    }
+
+    /**
+     * 为用户事件流退订任务
+     *
+     * @param userId 用户ID
+     * @param taskId 任务ID
+     */
+    @Override
+    public void unsubscribeTask(Long userId, String taskId) {
+        eventBus.publish(USER_TOPIC_PREFIX + userId, UNSUBSCRIBE_COMMAND, taskId);
+    }
+
+    /**
+     * 设置连接关闭、超时和出错时的回调
+     *
+     * @param subscriber 订阅者
+     */
+    private void registerCallbacks(Subscriber subscriber) {
+        SseEmitter emitter = subscriber.emitter;
 
         // 设置连接建立时的回调
         emitter.onCompletion(() -> {
-            log.info("SSE connection completed for task: {}", taskId);
-            removeEmitter(taskId);
+            log.info("SSE connection completed for {}", subscriber);
+            removeSubscriber(subscriber, false);
         });
 
         // 设置连接超时的回调
         emitter.onTimeout(() -> {
-            log.info("SSE connection timeout for task: {}", taskId);
-            removeEmitter(taskId);
+            log.info("SSE connection timeout for {}", subscriber);
+            removeSubscriber(subscriber, false);
         });
 
         // 设置连接错误的回调
         emitter.onError(ex -> {
-            log.error("SSE connection error for task: {}, error: {}", taskId, ex.getMessage(), ex);
-            removeEmitter(taskId);
+            log.error("SSE connection error for {}, error: {}", subscriber, ex.getMessage(), ex);
+            removeSubscriber(subscriber, false);
         });
+    }
 
-        // 存储连接
-        emitters.put(taskId, emitter);
-        log.info("Created SSE connection for task: {}, active connections: {}", taskId, emitters.size());
+    /**
+     * 将订阅者加入任务的事件通道，并补发该任务在lastId之后的缓存事件
+     *
+     * @param subscriber 订阅者
+     * @param taskId 任务ID
+     * @param lastId 客户端最后收到的事件ID（可选）
+     * @return 补发的事件数
+     */
+    private int attach(Subscriber subscriber, String taskId, Long lastId) {
+        int replayed = 0;
+        boolean overflow = false;
+        while (true) {
+            TaskChannel channel = channels.computeIfAbsent(taskId, key -> new TaskChannel());
+            // 加锁保证补发的事件与并发发布的新事件之间保持顺序
+            synchronized (channel) {
+                if (channel.closed) {
+                    // 通道刚被清理，重新获取
+                    continue;
+                }
+                if (!subscriber.taskIds.add(taskId)) {
+                    // 已经订阅
+                    return 0;
+                }
+                if (lastId != null) {
+                    for (BufferedEvent event : channel.buffer) {
+                        if (event.getId() > lastId) {
+                            overflow |= !enqueue(subscriber, event.frameFor(subscriber));
+                            replayed++;
+                        }
+                    }
+                }
+                channel.subscribers.add(subscriber);
+                channel.lastActiveTime = System.currentTimeMillis();
+                if (subscriber.closed) {
+                    // 订阅者在加入过程中已被移除
+                    channel.subscribers.remove(subscriber);
+                }
+                break;
+            }
+        }
+        if (overflow) {
+            removeSubscriber(subscriber, false);
+        }
+        return replayed;
+    }
 
-        // 发送初始连接成功事件
-        try {
-            emitter.send(SseEmitter.event()
-                    .id(String.valueOf(eventIdGenerator.incrementAndGet()))
-                    .name("connect")
-                    .data("Connected successfully"));
-
-            // 启动心跳任务
-            startHeartbeat(taskId);
-            log.info("Initial connect event sent for task: {}", taskId);
-        } catch (IOException e) {
-            log.error("Failed to send initial event for task: {}, error: {}", taskId, e.getMessage(), e);
-            removeEmitter(taskId);
-            return null;
+    /**
+     * 将订阅者移出任务的事件通道，不关闭连接
+     *
+     * @param subscriber 订阅者
+     * @param taskId 任务ID
+     */
+    private void detach(Subscriber subscriber, String taskId) {
+        subscriber.taskIds.remove(taskId);
+        TaskChannel channel = channels.get(taskId);
+        if (channel != null && channel.subscribers.remove(subscriber)) {
+            channel.lastActiveTime = System.currentTimeMillis();
         }
+    }
 
-        return emitter;
+    /**
+     * 判断能否仅凭缓存的事件为客户端补齐断线期间错过的事件
+     *
+     * @param taskId 任务ID
+     * @param lastEventId 客户端最后收到的事件ID
+     * @return 如果缓存覆盖了该ID之后的全部事件，则返回true
+     */
+    @Override
+    public boolean canReplay(String taskId, String lastEventId) {
+        Long lastId = parseEventId(lastEventId);
+        TaskChannel channel = channels.get(taskId);
+        if (lastId == null || channel == null) {
+            return false;
+        }
+        synchronized (channel) {
+            // 客户端的ID必须不早于通道的补发下限，且不晚于本节点已送达的最大ID
+            return lastId >= channel.replayFloor && lastId <= lastDeliveredId.get();
+        }
     }
 
     /**
-     * 获取指定任务的SSE连接
+     * 获取指定任务的所有SSE连接
      *
      * @param taskId 任务ID
-     * @return SseEmitter实例，如果不存在则返回null
+     * @return SseEmitter列表，如果不存在则返回空列表
      */
     @Override
-    public SseEmitter getEmitter(String taskId) {
-        return emitters.get(taskId);
+    public List<SseEmitter> getEmitters(String taskId) {
+        TaskChannel channel = channels.get(taskId);
+        List<SseEmitter> result = new ArrayList<>();
+        if (channel != null) {
+            for (Subscriber subscriber : channel.subscribers) {
+                result.add(subscriber.emitter);
+            }
+        }
+        return result;
     }
 
     /**
-     * 移除指定任务的SSE连接
+     * 移除指定任务的所有SSE连接
+     * <p>
+     * 已在发送队列中的事件会先写出，再关闭连接。用户事件流只退订该任务，连接保持
+     * </p>
      *
      * @param taskId 任务ID
      */
     @Override
     public void removeEmitter(String taskId) {
-        SseEmitter emitter = emitters.remove(taskId);
-        if (emitter != null) {
-            try {
-                emitter.complete();
-            } catch (Exception e) {
-                log.warn("Error completing emitter for task: {}", taskId, e);
+        TaskChannel channel = channels.get(taskId);
+        if (channel == null) {
+            return;
+        }
+        for (Subscriber subscriber : channel.subscribers) {
+            if (subscriber.userId != null) {
+                detach(subscriber, taskId);
+            } else {
+                removeSubscriber(subscriber, true);
             }
         }
+    }
 
+    /**
+     * 移除单个订阅者
+     * <p>
+     * 连接由写线程关闭，调用方不会等待客户端I/O
+     * </p>
+     *
+     * @param subscriber 订阅者
+     * @param flush 是否先写出发送队列中剩余的事件
+     */
+    private void removeSubscriber(Subscriber subscriber, boolean flush) {
         // 停止心跳任务
-        stopHeartbeat(taskId);
+        stopHeartbeat(subscriber);
+
+        boolean schedule;
+        synchronized (subscriber) {
+            if (subscriber.closed) {
+                return;
+            }
+            subscriber.closed = true;
+            if (!flush) {
+                subscriber.queue.clear();
+            }
+            schedule = !subscriber.scheduled;
+            subscriber.scheduled = true;
+        }
+        activeSubscribers.decrementAndGet();
+        emitterSubscribers.remove(subscriber.emitter);
+
+        for (String taskId : subscriber.taskIds) {
+            detach(subscriber, taskId);
+        }
+        if (subscriber.userId != null) {
+            userStreams.computeIfPresent(subscriber.userId, (key, streams) -> {
+                streams.remove(subscriber);
+                return streams.isEmpty() ? null : streams;
+            });
+        }
+        if (schedule) {
+            sseWriterExecutor.execute(() -> drainQueue(subscriber));
+        }
     }
 
     /**
-     * 启动心跳任务
+     * 将事件帧放入订阅者的发送队列，由写线程异步写出
+     * <p>
+     * 队列已有积压时丢弃心跳（积压的事件本身就能保持连接），新的状态事件替换队列中同一任务旧的状态事件。
+     * 队列已满或写出停滞超过最长时间时不再入队，由调用方断开该连接。
+     * </p>
      *
-     * @param taskId 任务ID
+     * @param subscriber 订阅者
+     * @param frame 事件帧
+     * @return 是否入队成功，心跳被丢弃也视为成功；连接已关闭或积压超限时返回false
      */
-    private void startHeartbeat(String taskId) {
-        Runnable heartbeatTask = () -> {
-            while (emitters.containsKey(taskId)) {
-                try {
-                    // 发送心跳事件
-                    boolean sent = sendEvent(taskId, "heartbeat", "Heartbeat at " + System.currentTimeMillis());
-                    if (!sent) {
-                        log.warn("Failed to send heartbeat to task: {}, removing emitter", taskId);
-                        removeEmitter(taskId);
-                        break;
-                    }
-
-                    // 等待下一次心跳
-                    Thread.sleep(HEARTBEAT_INTERVAL);
-                } catch (InterruptedException e) {
-                    log.warn("Heartbeat task interrupted for task: {}", taskId);
-                    Thread.currentThread().interrupt();
-                    break;
-                } catch (Exception e) {
-                    log.error("Error in heartbeat task for task: {}", taskId, e);
-                    removeEmitter(taskId);
-                    break;
+    private boolean enqueue(Subscriber subscriber, SseFrame frame) {
+        boolean schedule;
+        synchronized (subscriber) {
+            if (subscriber.closed) {
+                return false;
+            }
+            Deque<SseFrame> queue = subscriber.queue;
+            long now = System.currentTimeMillis();
+            if (!queue.isEmpty()) {
+                if (now - subscriber.lastProgressTime > maxLagMillis) {
+                    laggingDisconnects.incrementAndGet();
+                    log.warn("SSE client for {} stalled for {} ms with {} queued events, disconnecting",
+                            subscriber, now - subscriber.lastProgressTime, queue.size());
+                    return false;
                 }
+                if (frame == SseFrame.HEARTBEAT) {
+                    droppedHeartbeats.incrementAndGet();
+                    return true;
+                }
+                if (STATUS_EVENT.equals(frame.getName())
+                        && queue.removeIf(queued -> STATUS_EVENT.equals(queued.getName())
+                        && Objects.equals(queued.getTopic(), frame.getTopic()))) {
+                    coalescedEvents.incrementAndGet();
+                }
+            }
+            if (queue.size() >= maxQueueSize) {
+                laggingDisconnects.incrementAndGet();
+                log.warn("SSE send queue full for {}, size: {}, disconnecting", subscriber, queue.size());
+                return false;
             }
-            heartbeatTasks.remove(taskId);
-        };
+            if (queue.isEmpty()) {
+                subscriber.lastProgressTime = now;
+            }
+            queue.addLast(frame);
+            schedule = !subscriber.scheduled;
+            subscriber.scheduled = true;
+        }
+        if (schedule) {
+            sseWriterExecutor.execute(() -> drainQueue(subscriber));
+        }
+        return true;
+    }
 
-        // 存储心跳任务
-        heartbeatTasks.put(taskId, heartbeatTask);
+    /**
+     * 在写线程中依次写出订阅者发送队列中的事件
+     * <p>
+     * 每个订阅者同一时间最多只有一个写任务，保证事件顺序。队列写空后，如果订阅者已被移除，则关闭连接。
+     * </p>
+     *
+     * @param subscriber 订阅者
+     */
+    private void drainQueue(Subscriber subscriber) {
+        while (true) {
+            SseFrame frame;
+            boolean complete = false;
+            synchronized (subscriber) {
+                frame = subscriber.queue.pollFirst();
+                if (frame == null) {
+                    subscriber.scheduled = false;
+                    complete = subscriber.closed && !subscriber.completed;
+                    subscriber.completed |= complete;
+                }
+            }
+            if (frame == null) {
+                if (complete) {
+                    try {
+                        subscriber.emitter.complete();
+                    } catch (Exception e) {
+                        log.warn("Error completing emitter for {}", subscriber, e);
+                    }
+                }
+                return;
+            }
 
-        // 启动心跳线程
-        Thread heartbeatThread = new Thread(heartbeatTask);
-        heartbeatThread.setDaemon(true);
-        heartbeatThread.setName("sse-heartbeat-" + taskId);
-        heartbeatThread.start();
+            try {
+                frame.writeTo(subscriber.emitter);
+                subscriber.lastProgressTime = System.currentTimeMillis();
+            } catch (Exception e) {
+                log.warn("Failed to send event: {} to client for {}, error: {}",
+                        frame.getName(), subscriber, e.getMessage());
+                removeSubscriber(subscriber, false);
+            }
+        }
+    }
 
-        log.debug("Started heartbeat for task: {}", taskId);
+    /**
+     * 启动心跳任务
+     * <p>
+     * 将订阅者加入心跳时间轮的某个槽位，不再为每个连接创建线程
+     * </p>
+     *
+     * @param subscriber 订阅者
+     */
+    private void startHeartbeat(Subscriber subscriber) {
+        int slot = Math.floorMod(nextHeartbeatSlot.getAndIncrement(), HEARTBEAT_WHEEL_SIZE);
+        subscriber.heartbeatSlot = slot;
+        heartbeatWheel.get(slot).add(subscriber);
+        log.debug("Started heartbeat for {}, slot: {}", subscriber, slot);
     }
 
     /**
      * 停止心跳任务
      *
-     * @param taskId 任务ID
+     * @param subscriber 订阅者
      */
-    private void stopHeartbeat(String taskId) {
-        heartbeatTasks.remove(taskId);
-        log.debug("Stopped heartbeat for task: {}", taskId);
+    private void stopHeartbeat(Subscriber subscriber) {
+        if (subscriber.heartbeatSlot >= 0) {
+            heartbeatWheel.get(subscriber.heartbeatSlot).remove(subscriber);
+            log.debug("Stopped heartbeat for {}", subscriber);
+        }
+    }
+
+    /**
+     * 推进心跳时间轮
+     * <p>
+     * 每次只处理一个槽位，按批次向槽位内的连接发送心跳，发送失败的连接会被移除
+     * </p>
+     */
+    private void tickHeartbeatWheel() {
+        try {
+            Set<Subscriber> slotSubscribers = heartbeatWheel.get(currentHeartbeatSlot);
+            currentHeartbeatSlot = (currentHeartbeatSlot + 1) % HEARTBEAT_WHEEL_SIZE;
+            if (slotSubscribers.isEmpty()) {
+                return;
+            }
+
+            List<Subscriber> batch = new ArrayList<>(Math.min(slotSubscribers.size(), HEARTBEAT_BATCH_SIZE));
+            for (Subscriber subscriber : slotSubscribers) {
+                batch.add(subscriber);
+                if (batch.size() >= HEARTBEAT_BATCH_SIZE) {
+                    sendHeartbeatBatch(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                sendHeartbeatBatch(batch);
+            }
+        } catch (Exception e) {
+            // 捕获所有异常，避免调度器因异常停止后续心跳
+            log.error("Error in SSE heartbeat tick", e);
+        }
+    }
+
+    /**
+     * 向一批连接发送心跳
+     * <p>
+     * 心跳不带事件ID，也不进入补发缓存，所有连接共享同一个预编码的心跳帧。
+     * 心跳只入队不等待写出，同时用于发现写出停滞的连接
+     * </p>
+     *
+     * @param subscribers 订阅者列表
+     */
+    private void sendHeartbeatBatch(List<Subscriber> subscribers) {
+        for (Subscriber subscriber : subscribers) {
+            if (!enqueue(subscriber, SseFrame.HEARTBEAT)) {
+                log.warn("Failed to queue heartbeat for {}, removing emitter", subscriber);
+                removeSubscriber(subscriber, false);
+            }
+        }
+    }
+
+    /**
+     * 清理长时间没有订阅者的事件通道
+     */
+    private void sweepIdleChannels() {
+        try {
+            long expireBefore = System.currentTimeMillis() - CHANNEL_RETENTION;
+            for (Map.Entry<String, TaskChannel> entry : channels.entrySet()) {
+                TaskChannel channel = entry.getValue();
+                synchronized (channel) {
+                    if (channel.subscribers.isEmpty() && channel.lastActiveTime < expireBefore) {
+                        channel.closed = true;
+                        channels.remove(entry.getKey(), channel);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error sweeping idle SSE channels", e);
+        }
     }
 
     /**
@@ -211,21 +742,12 @@ public class EventStreamServiceImpl implements EventStreamService {
      */
     @Override
     public boolean sendStatusEvent(String taskId, String status, String error) {
-        log.info("Preparing to send status event for task: {}, status: {}, error: {}", taskId, status, error);
-
-        Map<String, Object> data = new ConcurrentHashMap<>();
-        data.put("taskId", taskId);
-        data.put("status", status);
-        if (error != null && !error.isEmpty()) {
-            data.put("error", error);
-        }
+        TaskStatusEvent data = new TaskStatusEvent(taskId, status,
+                error != null && !error.isEmpty() ? error : null);
 
         boolean result = sendEvent(taskId, "status", data);
-        if (result) {
-            log.info("Successfully sent status event for task: {}, status: {}", taskId, status);
-        } else {
-            log.warn("Failed to send status event for task: {}, status: {}", taskId, status);
-        }
+        log.debug("Sent status event for task: {}, status: {}, error: {}, delivered: {}",
+                taskId, status, error, result);
 
         return result;
     }
@@ -240,94 +762,417 @@ public class EventStreamServiceImpl implements EventStreamService {
      */
     @Override
     public boolean sendResultEvent(String taskId, String name, String url) {
-        log.info("Preparing to send result event for task: {}, file: {}, url: {}", taskId, name, url);
-
-        Map<String, Object> data = new ConcurrentHashMap<>();
-        data.put("taskId", taskId);
-        data.put("name", name);
-        data.put("url", url);
+        TaskResultEvent data = new TaskResultEvent(taskId, name, url);
 
         boolean result = sendEvent(taskId, "result", data);
-        if (result) {
-            log.info("Successfully sent result event for task: {}, file: {}", taskId, name);
-        } else {
-            log.warn("Failed to send result event for task: {}, file: {}", taskId, name);
-        }
+        log.debug("Sent result event for task: {}, file: {}, url: {}, delivered: {}",
+                taskId, name, url, result);
 
         return result;
     }
 
     /**
      * 发送自定义事件
+     * <p>
+     * 事件只序列化一次，发布到事件总线后由持有订阅者的节点推送
+     * </p>
      *
      * @param taskId    任务ID
      * @param eventName 事件名称
      * @param data      事件数据
-     * @return 是否发送成功
+     * @return 进程内总线表示是否至少推送给了一个订阅者；跨节点总线表示是否成功发布
      */
     @Override
     public boolean sendEvent(String taskId, String eventName, Object data) {
-        SseEmitter emitter = getEmitter(taskId);
-        if (emitter == null) {
-            log.warn("No active SSE connection found for task: {}, event: {}", taskId, eventName);
+        String jsonData;
+        try {
+            jsonData = objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize event data for task: {}, event: {}, error: {}",
+                    taskId, eventName, e.getMessage(), e);
             return false;
         }
+        return eventBus.publish(taskId, eventName, jsonData);
+    }
 
+    /**
+     * 只向指定连接发送快照事件
+     * <p>
+     * 快照直接放入该连接的发送队列，不发布到事件总线，也不写入任务的补发缓存。
+     * 快照不带事件ID，客户端的Last-Event-ID仍指向最后一条总线事件；也没有主题，不会替换队列中的实时状态事件
+     * </p>
+     *
+     * @param emitter   由本服务创建的SSE连接
+     * @param eventName 事件名称
+     * @param data      事件数据
+     * @return 是否放入了该连接的发送队列
+     */
+    @Override
+    public boolean sendSnapshot(SseEmitter emitter, String eventName, Object data) {
+        Subscriber subscriber = emitterSubscribers.get(emitter);
+        if (subscriber == null) {
+            return false;
+        }
+        String jsonData;
         try {
-            String jsonData = objectMapper.writeValueAsString(data);
-            long eventId = eventIdGenerator.incrementAndGet();
-            log.debug("Sending event: {}, id: {}, to task: {}", eventName, eventId, taskId);
-
-            emitter.send(SseEmitter.event()
-                    .id(String.valueOf(eventId))
-                    .name(eventName)
-                    .data(jsonData));
-
-            log.debug("Event sent successfully: {}, id: {}, to task: {}", eventName, eventId, taskId);
-            return true;
+            jsonData = objectMapper.writeValueAsString(data);
         } catch (JsonProcessingException e) {
-            log.error("Failed to serialize event data for task: {}, event: {}, error: {}",
-                    taskId, eventName, e.getMessage(), e);
+            log.error("Failed to serialize snapshot event: {} for {}, error: {}",
+                    eventName, subscriber, e.getMessage(), e);
             return false;
-        } catch (IOException e) {
-            log.error("Failed to send event to client for task: {}, event: {}, error: {}",
-                    taskId, eventName, e.getMessage(), e);
-            removeEmitter(taskId);
+        }
+        if (!enqueue(subscriber, SseFrame.encode(null, eventName, jsonData))) {
+            removeSubscriber(subscriber, false);
             return false;
-        } catch (Exception e) {
-            log.error("Unexpected error sending event to client for task: {}, event: {}, error: {}",
-                    taskId, eventName, e.getMessage(), e);
-            removeEmitter(taskId);
+        }
+        return true;
+    }
+
+    /**
+     * 处理事件总线送达的事件
+     * <p>
+     * 先编码为SSE帧，写入任务的补发缓存后放入本节点该任务所有订阅者的发送队列。
+     * 即使当前没有订阅者，事件也会被缓存，供稍后重连的客户端补发。
+     * </p>
+     *
+     * @param message 事件消息
+     * @return 是否至少放入了一个订阅者的发送队列
+     */
+    private boolean deliverMessage(EventBusMessage message) {
+        String taskId = message.getTaskId();
+        String eventName = message.getEventName();
+        if (taskId.startsWith(USER_TOPIC_PREFIX)) {
+            return handleUserCommand(message);
+        }
+        // 在锁外编码，所有任务事件流共享同一份帧字节
+        SseFrame frame = SseFrame.encode(taskId, message.getId(), eventName, message.getData());
+        BufferedEvent event = new BufferedEvent(taskId, message.getData(), frame);
+        List<Subscriber> failed = null;
+        int delivered = 0;
+        while (true) {
+            TaskChannel channel = channels.computeIfAbsent(taskId, key -> new TaskChannel());
+            synchronized (channel) {
+                if (channel.closed) {
+                    // 通道刚被清理，重新获取
+                    continue;
+                }
+                channel.append(event);
+                lastDeliveredId.accumulateAndGet(frame.getId(), Math::max);
+                log.debug("Sending event: {}, id: {}, to task: {}, subscribers: {}, frame size: {}",
+                        eventName, frame.getId(), taskId, channel.subscribers.size(), frame.size());
+
+                for (Subscriber subscriber : channel.subscribers) {
+                    if (enqueue(subscriber, event.frameFor(subscriber))) {
+                        delivered++;
+                    } else {
+                        if (failed == null) {
+                            failed = new ArrayList<>();
+                        }
+                        failed.add(subscriber);
+                    }
+                }
+                break;
+            }
+        }
+
+        if (failed != null) {
+            for (Subscriber subscriber : failed) {
+                removeSubscriber(subscriber, false);
+            }
+        }
+        if (delivered == 0) {
+            log.debug("No active SSE connection on this node for task: {}, event: {}", taskId, eventName);
+        }
+        return delivered > 0;
+    }
+
+    /**
+     * 处理用户事件流的订阅/退订指令
+     * <p>
+     * 指令只对本节点该用户的事件流生效，不进入补发缓存
+     * </p>
+     *
+     * @param message 指令消息，数据为任务ID
+     * @return 本节点是否有该用户的事件流
+     */
+    private boolean handleUserCommand(EventBusMessage message) {
+        lastDeliveredId.accumulateAndGet(message.getId(), Math::max);
+        Long userId = Long.valueOf(message.getTaskId().substring(USER_TOPIC_PREFIX.length()));
+        Set<Subscriber> streams = userStreams.get(userId);
+        if (streams == null) {
             return false;
         }
+        String taskId = message.getData();
+        for (Subscriber subscriber : streams) {
+            if (SUBSCRIBE_COMMAND.equals(message.getEventName())) {
+                attach(subscriber, taskId, null);
+            } else if (UNSUBSCRIBE_COMMAND.equals(message.getEventName())) {
+                detach(subscriber, taskId);
+            }
+        }
+        log.debug("Applied {} of task: {} to {} stream(s) of user: {}",
+                message.getEventName(), taskId, streams.size(), userId);
+        return true;
     }
 
     /**
-     * 完成指定任务的SSE连接
+     * 完成指定的单个SSE连接
      *
-     * @param taskId 任务ID
+     * @param emitter 由本服务创建的SSE连接
      */
     @Override
-    public void completeEmitter(String taskId) {
-        SseEmitter emitter = getEmitter(taskId);
-        if (emitter != null) {
-            try {
-                emitter.complete();
-            } catch (Exception e) {
-                log.warn("Error completing emitter for task: {}", taskId, e);
-            } finally {
-                removeEmitter(taskId);
-            }
+    public void completeEmitter(SseEmitter emitter) {
+        Subscriber subscriber = emitterSubscribers.get(emitter);
+        if (subscriber != null) {
+            removeSubscriber(subscriber, true);
         }
     }
 
     /**
-     * 获取所有活跃的SSE连接
+     * 延迟完成指定的单个SSE连接
      *
-     * @return 任务ID到SseEmitter的映射
+     * @param emitter 由本服务创建的SSE连接
+     * @param delayMillis 延迟时间（毫秒）
      */
     @Override
-    public Map<String, SseEmitter> getActiveEmitters() {
-        return emitters;
+    public void completeEmitterLater(SseEmitter emitter, long delayMillis) {
+        heartbeatScheduler.schedule(() -> {
+            completeEmitter(emitter);
+            log.debug("Completed SSE connection after {} ms", delayMillis);
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取当前活跃的SSE连接数
+     *
+     * @return 活跃连接数
+     */
+    @Override
+    public int getActiveConnectionCount() {
+        return activeSubscribers.get();
+    }
+
+    /**
+     * 获取SSE连接和发送队列的运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    @Override
+    public Map<String, Object> getMetrics() {
+        int queuedEvents = 0;
+        int maxQueued = 0;
+        // 用户事件流可能同时在多个通道中，只统计一次
+        Set<Subscriber> counted = new HashSet<>();
+        for (TaskChannel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                if (!counted.add(subscriber)) {
+                    continue;
+                }
+                int size;
+                synchronized (subscriber) {
+                    size = subscriber.queue.size();
+                }
+                queuedEvents += size;
+                maxQueued = Math.max(maxQueued, size);
+            }
+        }
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("activeConnections", activeSubscribers.get());
+        metrics.put("channels", channels.size());
+        metrics.put("userStreams", userStreams.values().stream().mapToInt(Set::size).sum());
+        metrics.put("queuedEvents", queuedEvents);
+        metrics.put("maxQueuedEvents", maxQueued);
+        metrics.put("droppedHeartbeats", droppedHeartbeats.get());
+        metrics.put("coalescedEvents", coalescedEvents.get());
+        metrics.put("laggingDisconnects", laggingDisconnects.get());
+        return metrics;
+    }
+
+    /**
+     * 解析客户端携带的事件ID
+     *
+     * @param lastEventId 事件ID字符串
+     * @return 事件ID，无法解析时返回null
+     */
+    private Long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid Last-Event-ID: {}", lastEventId);
+            return null;
+        }
+    }
+
+    /**
+     * 任务事件通道
+     * <p>
+     * 保存任务的订阅者和最近事件的环形缓存。通道自身作为锁，保证缓存写入和推送的顺序一致
+     * </p>
+     */
+    private class TaskChannel {
+
+        /**
+         * 订阅者集合
+         */
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+        /**
+         * 最近事件的环形缓存
+         */
+        private final Deque<BufferedEvent> buffer = new ArrayDeque<>(EVENT_BUFFER_SIZE);
+
+        /**
+         * 可补发的最小Last-Event-ID：通道创建前或已被淘汰的事件无法补发
+         */
+        private long replayFloor;
+
+        /**
+         * 最近一次活跃时间
+         */
+        private volatile long lastActiveTime = System.currentTimeMillis();
+
+        /**
+         * 是否已被清理，已清理的通道不再接受订阅和事件
+         */
+        private boolean closed;
+
+        private TaskChannel() {
+            this.replayFloor = lastDeliveredId.get();
+        }
+
+        /**
+         * 追加事件，超出容量时淘汰最旧的事件并提高补发下限
+         *
+         * @param event 事件
+         */
+        private void append(BufferedEvent event) {
+            if (buffer.size() >= EVENT_BUFFER_SIZE) {
+                BufferedEvent evicted = buffer.pollFirst();
+                replayFloor = evicted.getId();
+            }
+            buffer.addLast(event);
+            lastActiveTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 订阅者，对应一个SSE连接：任务事件流只订阅一个任务，用户事件流可以订阅多个任务
+     */
+    private static class Subscriber {
+
+        /**
+         * 用户事件流所属的用户ID，任务事件流为null
+         */
+        private final Long userId;
+
+        /**
+         * 已订阅的任务ID
+         */
+        private final Set<String> taskIds = ConcurrentHashMap.newKeySet();
+
+        /**
+         * SSE发射器
+         */
+        private final SseEmitter emitter;
+
+        /**
+         * 所在的心跳槽位
+         */
+        private volatile int heartbeatSlot = -1;
+
+        /**
+         * 发送队列，由订阅者自身加锁保护
+         */
+        private final Deque<SseFrame> queue = new ArrayDeque<>();
+
+        /**
+         * 是否已提交写任务
+         */
+        private boolean scheduled;
+
+        /**
+         * 是否已被移除，移除后不再接受新事件
+         */
+        private volatile boolean closed;
+
+        /**
+         * 连接是否已关闭
+         */
+        private boolean completed;
+
+        /**
+         * 最近一次写出进展的时间，用于判断写出是否停滞
+         */
+        private volatile long lastProgressTime = System.currentTimeMillis();
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        @Override
+        public String toString() {
+            return userId != null ? "user: " + userId : "task: " + String.join(",", taskIds);
+        }
+    }
+
+    /**
+     * 缓存的事件
+     * <p>
+     * 用户事件流需要在数据中带上任务ID，对应的事件帧在首次需要时编码，之后同样复用。
+     * 只在所属通道的锁内访问
+     * </p>
+     */
+    private static class BufferedEvent {
+
+        /**
+         * 任务ID
+         */
+        private final String taskId;
+
+        /**
+         * 已序列化的JSON数据
+         */
+        private final String data;
+
+        /**
+         * 任务事件流使用的事件帧
+         */
+        private final SseFrame frame;
+
+        /**
+         * 用户事件流使用的事件帧，数据格式为 {"taskId": "...", "data": 原事件数据}
+         */
+        private SseFrame taggedFrame;
+
+        private BufferedEvent(String taskId, String data, SseFrame frame) {
+            this.taskId = taskId;
+            this.data = data;
+            this.frame = frame;
+        }
+
+        private long getId() {
+            return frame.getId();
+        }
+
+        /**
+         * 获取发给指定订阅者的事件帧
+         *
+         * @param subscriber 订阅者
+         * @return 事件帧
+         */
+        private SseFrame frameFor(Subscriber subscriber) {
+            if (subscriber.userId == null) {
+                return frame;
+            }
+            if (taggedFrame == null) {
+                String tagged = "{\"taskId\":\"" + taskId + "\",\"data\":" + data + "}";
+                taggedFrame = SseFrame.encode(taskId, frame.getId(), frame.getName(), tagged);
+            }
+            return taggedFrame;
+        }
     }
 }
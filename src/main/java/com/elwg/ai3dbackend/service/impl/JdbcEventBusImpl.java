@@ -0,0 +1,290 @@
+package com.elwg.ai3dbackend.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.elwg.ai3dbackend.mapper.EventBusMessageMapper;
+import com.elwg.ai3dbackend.model.entity.EventBusMessage;
+import com.elwg.ai3dbackend.service.EventBus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于MySQL轮询的事件总线实现类
+ * <p>
+ * 多节点部署时使用。发布的事件写入event_bus_message表，每个节点按自增ID顺序轮询新消息，
+ * 并交给本节点的监听器推送给本地订阅者。所有事件（包括本节点发布的）都经由轮询送达，
+ * 保证各节点看到的事件顺序一致。
+ * </p>
+ * <p>
+ * 自增ID在并发事务下可能乱序提交，轮询遇到ID空洞时会等待一段时间再跳过，
+ * 避免漏掉稍后提交的消息。
+ * </p>
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "reconstruction.event-bus.type", havingValue = "jdbc")
+public class JdbcEventBusImpl implements EventBus {
+
+    /**
+     * 过期消息清理间隔：1分钟
+     */
+    private static final long CLEANUP_INTERVAL = 60 * 1000L;
+
+    @Resource
+    private EventBusMessageMapper eventBusMessageMapper;
+
+    @Value("${reconstruction.event-bus.node-id:}")
+    private String nodeId;
+
+    @Value("${reconstruction.event-bus.jdbc.poll-interval:200}")
+    private long pollInterval;
+
+    @Value("${reconstruction.event-bus.jdbc.batch-size:500}")
+    private int batchSize;
+
+    @Value("${reconstruction.event-bus.jdbc.gap-timeout:2000}")
+    private long gapTimeout;
+
+    @Value("${reconstruction.event-bus.jdbc.retention:600}")
+    private long retentionSeconds;
+
+    /**
+     * 本节点的事件监听器
+     */
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 已发布的事件数
+     */
+    private final AtomicLong publishedCount = new AtomicLong(0);
+
+    /**
+     * 已送达本节点的事件数
+     */
+    private final AtomicLong deliveredCount = new AtomicLong(0);
+
+    /**
+     * 因等待超时而跳过的ID数
+     */
+    private final AtomicLong skippedIdCount = new AtomicLong(0);
+
+    /**
+     * 最近一条消息从写入到送达本节点的延迟（毫秒）
+     */
+    private volatile long lastDeliveryLag = 0;
+
+    /**
+     * 本节点已处理的最大消息ID，只由轮询线程修改
+     */
+    private volatile long lastSeenId = 0;
+
+    /**
+     * 启动时的事件ID起点
+     */
+    private long startEventId = 0;
+
+    /**
+     * 首次发现ID空洞的时间，0表示当前没有空洞
+     */
+    private long gapDetectedAt = 0;
+
+    /**
+     * 上次清理过期消息的时间
+     */
+    private long lastCleanupTime = 0;
+
+    /**
+     * 轮询调度器
+     */
+    private ScheduledExecutorService pollScheduler;
+
+    /**
+     * 初始化节点ID和轮询起点，并启动轮询
+     */
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isEmpty()) {
+            // 形如 pid@hostname
+            nodeId = ManagementFactory.getRuntimeMXBean().getName();
+        }
+
+        // 从当前最大ID开始轮询，不重放启动前的历史消息
+        EventBusMessage latest = eventBusMessageMapper.selectOne(new LambdaQueryWrapper<EventBusMessage>()
+                .select(EventBusMessage::getId)
+                .orderByDesc(EventBusMessage::getId)
+                .last("LIMIT 1"));
+        lastSeenId = latest != null ? latest.getId() : 0;
+        startEventId = lastSeenId;
+
+        pollScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-bus-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pollScheduler.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+        log.info("Started JDBC event bus, node: {}, start id: {}, poll interval: {} ms", nodeId, lastSeenId, pollInterval);
+    }
+
+    /**
+     * 停止轮询
+     */
+    @PreDestroy
+    public void destroy() {
+        if (pollScheduler != null) {
+            pollScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 发布事件
+     *
+     * @param taskId 任务ID
+     * @param eventName 事件名称
+     * @param data 已序列化的事件数据（JSON）
+     * @return 事件是否成功写入总线
+     */
+    @Override
+    public boolean publish(String taskId, String eventName, String data) {
+        EventBusMessage message = new EventBusMessage();
+        message.setTaskId(taskId);
+        message.setEventName(eventName);
+        message.setData(data);
+        message.setNodeId(nodeId);
+        message.setCreateTime(new Date());
+        try {
+            boolean saved = eventBusMessageMapper.insert(message) > 0;
+            if (saved) {
+                publishedCount.incrementAndGet();
+            }
+            return saved;
+        } catch (Exception e) {
+            log.error("Failed to publish event to bus for task: {}, event: {}", taskId, eventName, e);
+            return false;
+        }
+    }
+
+    /**
+     * 注册本节点的事件监听器
+     *
+     * @param listener 事件监听器
+     */
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 获取本节点启动时的事件ID起点
+     *
+     * @return 事件ID起点
+     */
+    @Override
+    public long getStartEventId() {
+        return startEventId;
+    }
+
+    /**
+     * 轮询新消息并按ID顺序送达本节点的监听器
+     */
+    private void poll() {
+        try {
+            List<EventBusMessage> messages = eventBusMessageMapper.selectList(new LambdaQueryWrapper<EventBusMessage>()
+                    .gt(EventBusMessage::getId, lastSeenId)
+                    .orderByAsc(EventBusMessage::getId)
+                    .last("LIMIT " + batchSize));
+
+            long now = System.currentTimeMillis();
+            for (EventBusMessage message : messages) {
+                long expectedId = lastSeenId + 1;
+                if (message.getId() != expectedId) {
+                    // 出现ID空洞：可能是尚未提交的事务，也可能是回滚留下的永久空洞
+                    if (gapDetectedAt == 0) {
+                        gapDetectedAt = now;
+                    }
+                    if (now - gapDetectedAt < gapTimeout) {
+                        break;
+                    }
+                    skippedIdCount.addAndGet(message.getId() - expectedId);
+                    log.debug("Skipping event bus ids {} to {} after waiting {} ms",
+                            expectedId, message.getId() - 1, now - gapDetectedAt);
+                }
+                gapDetectedAt = 0;
+                deliver(message);
+                lastSeenId = message.getId();
+                lastDeliveryLag = now - message.getCreateTime().getTime();
+            }
+
+            if (now - lastCleanupTime > CLEANUP_INTERVAL) {
+                lastCleanupTime = now;
+                cleanupExpiredMessages(now);
+            }
+        } catch (Exception e) {
+            // 捕获所有异常，避免调度器因异常停止后续轮询
+            log.error("Error polling event bus", e);
+        }
+    }
+
+    /**
+     * 将消息交给本节点的监听器
+     *
+     * @param message 事件消息
+     */
+    private void deliver(EventBusMessage message) {
+        deliveredCount.incrementAndGet();
+        for (Listener listener : listeners) {
+            try {
+                listener.onMessage(message);
+            } catch (Exception e) {
+                log.error("Event bus listener failed for task: {}, event: {}",
+                        message.getTaskId(), message.getEventName(), e);
+            }
+        }
+    }
+
+    /**
+     * 删除超过保留时间的消息，各节点执行同一条幂等的删除语句
+     *
+     * @param now 当前时间
+     */
+    private void cleanupExpiredMessages(long now) {
+        Date expireBefore = new Date(now - retentionSeconds * 1000L);
+        int deleted = eventBusMessageMapper.delete(new LambdaQueryWrapper<EventBusMessage>()
+                .lt(EventBusMessage::getCreateTime, expireBefore));
+        if (deleted > 0) {
+            log.info("Deleted {} expired event bus messages", deleted);
+        }
+    }
+
+    /**
+     * 获取总线运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("type", "jdbc");
+        metrics.put("nodeId", nodeId);
+        metrics.put("published", publishedCount.get());
+        metrics.put("delivered", deliveredCount.get());
+        metrics.put("skippedIds", skippedIdCount.get());
+        metrics.put("lastEventId", lastSeenId);
+        metrics.put("lastDeliveryLagMs", lastDeliveryLag);
+        return metrics;
+    }
+}
@@ -0,0 +1,122 @@
+package com.elwg.ai3dbackend.service.impl;
+
+import com.elwg.ai3dbackend.model.entity.EventBusMessage;
+import com.elwg.ai3dbackend.service.EventBus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内事件总线实现类
+ * <p>
+ * 单节点部署时使用，发布的事件同步交给本节点的监听器，不经过任何外部存储。
+ * 事件ID的分配和送达在同一把锁内完成，监听器按ID递增的顺序收到事件，
+ * 与MySQL总线一致，客户端按Last-Event-ID补发时不会漏掉并发发布中ID较小、但较晚送达的事件
+ * </p>
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "reconstruction.event-bus.type", havingValue = "local", matchIfMissing = true)
+public class LocalEventBusImpl implements EventBus {
+
+    /**
+     * 本节点的事件监听器
+     */
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 事件ID生成器
+     * <p>
+     * 以启动时间为起点，保证服务重启后事件ID仍然单调递增，
+     * 避免客户端携带的旧Last-Event-ID与新事件ID冲突
+     * </p>
+     */
+    private final AtomicLong eventIdGenerator = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * 启动时的事件ID起点
+     */
+    private final long startEventId = eventIdGenerator.get();
+
+    /**
+     * 保证事件按ID顺序送达的锁，监听器只把事件放入发送队列，持有时间很短
+     */
+    private final Object publishLock = new Object();
+
+    /**
+     * 已发布的事件数
+     */
+    private final AtomicLong publishedCount = new AtomicLong(0);
+
+    /**
+     * 发布事件
+     *
+     * @param taskId 任务ID
+     * @param eventName 事件名称
+     * @param data 已序列化的事件数据（JSON）
+     * @return 是否至少推送给了一个订阅者
+     */
+    @Override
+    public boolean publish(String taskId, String eventName, String data) {
+        EventBusMessage message = new EventBusMessage();
+        message.setTaskId(taskId);
+        message.setEventName(eventName);
+        message.setData(data);
+        message.setCreateTime(new Date());
+        publishedCount.incrementAndGet();
+
+        boolean delivered = false;
+        synchronized (publishLock) {
+            message.setId(eventIdGenerator.incrementAndGet());
+            for (Listener listener : listeners) {
+                try {
+                    delivered |= listener.onMessage(message);
+                } catch (Exception e) {
+                    log.error("Event bus listener failed for task: {}, event: {}", taskId, eventName, e);
+                }
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * 注册本节点的事件监听器
+     *
+     * @param listener 事件监听器
+     */
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 获取本节点启动时的事件ID起点
+     *
+     * @return 事件ID起点
+     */
+    @Override
+    public long getStartEventId() {
+        return startEventId;
+    }
+
+    /**
+     * 获取总线运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("type", "local");
+        metrics.put("published", publishedCount.get());
+        metrics.put("lastEventId", eventIdGenerator.get());
+        return metrics;
+    }
+}
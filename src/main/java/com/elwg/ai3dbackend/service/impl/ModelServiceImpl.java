@@ -1,13 +1,18 @@
 package com.elwg.ai3dbackend.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.elwg.ai3dbackend.mapper.ModelMapper;
 import com.elwg.ai3dbackend.model.entity.Model;
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
 import com.elwg.ai3dbackend.service.ModelService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
+
 /**
  * 3D模型服务实现类
  */
@@ -40,4 +45,37 @@ public class ModelServiceImpl extends ServiceImpl<ModelMapper, Model> implements
         queryWrapper.eq(Model::getSourceImageId, sourceImageId);
         return getOne(queryWrapper);
     }
+
+    /**
+     * 写入任务对应模型的部分字段
+     *
+     * @param task 重建任务
+     * @param changes 要写入的字段，其余字段为null
+     */
+    @Override
+    public void upsertTaskModel(ReconstructionTask task, Model changes) {
+        // 以下字段只在创建模型时使用
+        changes.setId(IdWorker.getId());
+        changes.setName("3D Model - " + task.getId());
+        changes.setSourceImageId(task.getSourceImageId());
+        changes.setTaskId(task.getId().toString());
+        changes.setUserId(task.getUserId());
+        baseMapper.upsertByTaskId(changes);
+    }
+
+    /**
+     * 更新任务对应模型的状态
+     *
+     * @param taskId 任务ID
+     * @param status 模型状态
+     * @return 模型存在并更新成功时返回true
+     */
+    @Override
+    public boolean updateStatusByTaskId(Long taskId, String status) {
+        LambdaUpdateWrapper<Model> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.set(Model::getStatus, status)
+                .set(Model::getUpdateTime, new Date())
+                .eq(Model::getTaskId, taskId.toString());
+        return update(updateWrapper);
+    }
 }
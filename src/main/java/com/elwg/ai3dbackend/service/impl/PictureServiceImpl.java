@@ -1,6 +1,7 @@
 package com.elwg.ai3dbackend.service.impl;
 
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.elwg.ai3dbackend.mapper.PictureMapper;
@@ -172,4 +173,30 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
         
         return cleanedCount;
     }
+
+    /**
+     * 获取图片内容的SHA-256
+     *
+     * @param picture 图片
+     * @return 内容哈希（十六进制），图片内容无法读取时返回null
+     */
+    @Override
+    public String getContentHash(Picture picture) {
+        if (StrUtil.isNotBlank(picture.getContentHash())) {
+            return picture.getContentHash();
+        }
+        try {
+            byte[] data = fileStorageService.getFileData(fileStorageService.extractPathFromUrl(picture.getUrl()));
+            String contentHash = DigestUtil.sha256Hex(data);
+            // 补算早期上传图片的哈希，下次直接使用
+            lambdaUpdate().set(Picture::getContentHash, contentHash)
+                    .eq(Picture::getId, picture.getId())
+                    .update();
+            picture.setContentHash(contentHash);
+            return contentHash;
+        } catch (Exception e) {
+            log.warn("Failed to compute content hash for picture: {}", picture.getId(), e);
+            return null;
+        }
+    }
 }
@@ -0,0 +1,181 @@
+package com.elwg.ai3dbackend.service.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.elwg.ai3dbackend.constant.TaskStatus;
+import com.elwg.ai3dbackend.exception.ErrorCode;
+import com.elwg.ai3dbackend.exception.ThrowUtils;
+import com.elwg.ai3dbackend.model.entity.Picture;
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
+import com.elwg.ai3dbackend.service.EventStreamService;
+import com.elwg.ai3dbackend.service.PictureService;
+import com.elwg.ai3dbackend.service.ReconstructionBatchService;
+import com.elwg.ai3dbackend.service.ReconstructionResultCacheService;
+import com.elwg.ai3dbackend.service.ReconstructionTaskService;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 3D重建批量任务服务实现类
+ * <p>
+ * 批次ID使用雪花ID，与任务ID不会重复，直接作为事件流的键推送批次进度。
+ * 任务创建后与单独提交的任务一样进入队列，由派发线程按并发上限派发。
+ * 与单独提交一样先查询结果缓存，内容相同的图片已有结果时直接创建已完成的任务，只批量插入未命中的任务
+ * </p>
+ */
+@Slf4j
+@Service
+public class ReconstructionBatchServiceImpl implements ReconstructionBatchService {
+
+    /**
+     * 批次进度事件名称
+     */
+    private static final String PROGRESS_EVENT = "progress";
+
+    /**
+     * 单个批次允许的最大图片数
+     */
+    @Value("${reconstruction.batch.max-size:500}")
+    private int maxSize;
+
+    @Resource
+    private ReconstructionTaskService reconstructionTaskService;
+
+    @Resource
+    private PictureService pictureService;
+
+    @Resource
+    private EventStreamService eventStreamService;
+
+    @Resource
+    private ReconstructionResultCacheService reconstructionResultCacheService;
+
+    @Resource(name = "reconstructionTaskExecutor")
+    private Executor reconstructionTaskExecutor;
+
+    /**
+     * 批量创建重建任务
+     *
+     * @param userId 用户ID
+     * @param priority 调度优先级
+     * @param imageIds 图片ID列表，重复的ID只创建一个任务
+     * @param callbackUrl 回调URL
+     * @return 创建的任务（包括复用已有结果、已经完成的任务），顺序与图片ID一致
+     */
+    @Override
+    public List<ReconstructionTask> createBatch(Long userId, int priority, List<Long> imageIds, String callbackUrl) {
+        ThrowUtils.throwIf(imageIds == null || imageIds.isEmpty(), ErrorCode.PARAMS_ERROR, "图片ID列表不能为空");
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(imageIds));
+        ThrowUtils.throwIf(ids.size() > maxSize, ErrorCode.PARAMS_ERROR, "单个批次最多" + maxSize + "张图片");
+        ThrowUtils.throwIf(ids.stream().anyMatch(id -> id == null || id <= 0), ErrorCode.PARAMS_ERROR, "图片ID不合法");
+
+        // 一次查询所有图片
+        Map<Long, Picture> pictures = pictureService.listByIds(ids).stream()
+                .collect(Collectors.toMap(Picture::getId, Function.identity()));
+        List<Long> missing = ids.stream().filter(id -> !pictures.containsKey(id)).collect(Collectors.toList());
+        ThrowUtils.throwIf(!missing.isEmpty(), ErrorCode.NOT_FOUND_ERROR, "图片不存在：" + missing);
+
+        // 并行读取内容哈希，早期上传、尚未记录哈希的图片需要从存储下载
+        Map<Long, CompletableFuture<String>> hashFutures = new HashMap<>();
+        for (Picture picture : pictures.values()) {
+            hashFutures.put(picture.getId(), CompletableFuture.supplyAsync(
+                    () -> pictureService.getContentHash(picture), reconstructionTaskExecutor));
+        }
+        CompletableFuture.allOf(hashFutures.values().toArray(new CompletableFuture[0])).join();
+
+        Long batchId = IdWorker.getId();
+        List<ReconstructionTask> tasks = new ArrayList<>(ids.size());
+        List<ReconstructionTask> pendingTasks = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            // 内容相同的图片已有重建结果时直接复用，不进入队列
+            String contentHash = hashFutures.get(id).join();
+            ReconstructionTask cachedTask = reconstructionResultCacheService.completeFromCache(
+                    userId, pictures.get(id), contentHash, batchId);
+            if (cachedTask != null) {
+                tasks.add(cachedTask);
+                continue;
+            }
+            ReconstructionTask task = new ReconstructionTask();
+            task.setStatus(TaskStatus.PENDING);
+            task.setSourceImageId(id);
+            task.setUserId(userId);
+            task.setCallbackUrl(callbackUrl);
+            task.setContentHash(contentHash);
+            task.setBatchId(batchId);
+            task.setPriority(priority);
+            tasks.add(task);
+            pendingTasks.add(task);
+        }
+        if (!pendingTasks.isEmpty()) {
+            reconstructionTaskService.createTasks(pendingTasks);
+        }
+        log.info("Created reconstruction batch: {}, tasks: {}, reused cached results: {}",
+                batchId, tasks.size(), tasks.size() - pendingTasks.size());
+
+        // 用户事件流订阅批次进度，单个任务的事件仍可按任务ID订阅
+        String key = batchId.toString();
+        eventStreamService.subscribeTask(userId, key);
+        eventStreamService.sendEvent(key, PROGRESS_EVENT, getProgress(batchId));
+        return tasks;
+    }
+
+    /**
+     * 获取批次进度
+     *
+     * @param batchId 批次ID
+     * @return 批次进度，批次不存在时返回null
+     */
+    @Override
+    public Map<String, Object> getProgress(Long batchId) {
+        Map<String, Long> counts = reconstructionTaskService.countBatchTasksByStatus(batchId);
+        long total = counts.values().stream().mapToLong(Long::longValue).sum();
+        if (total == 0) {
+            return null;
+        }
+        long completed = counts.getOrDefault(TaskStatus.COMPLETED, 0L);
+        long failed = counts.getOrDefault(TaskStatus.FAILED, 0L);
+        long cancelled = counts.getOrDefault(TaskStatus.CANCELLED, 0L);
+        Map<String, Object> progress = new HashMap<>();
+        progress.put("batchId", batchId.toString());
+        progress.put("total", total);
+        progress.put("pending", counts.getOrDefault(TaskStatus.PENDING, 0L));
+        progress.put("processing", counts.getOrDefault(TaskStatus.PROCESSING, 0L));
+        progress.put("completed", completed);
+        progress.put("failed", failed);
+        progress.put("cancelled", cancelled);
+        progress.put("finished", completed + failed + cancelled == total);
+        return progress;
+    }
+
+    /**
+     * 任务结束时推送所在批次的最新进度
+     *
+     * @param task 已结束的任务
+     */
+    @Override
+    public void onTaskFinished(ReconstructionTask task) {
+        if (task == null || task.getBatchId() == null) {
+            return;
+        }
+        try {
+            Map<String, Object> progress = getProgress(task.getBatchId());
+            if (progress != null) {
+                eventStreamService.sendEvent(task.getBatchId().toString(), PROGRESS_EVENT, progress);
+            }
+        } catch (Exception e) {
+            // 进度推送失败不影响任务状态处理
+            log.warn("Failed to publish progress of batch: {}", task.getBatchId(), e);
+        }
+    }
+}
@@ -0,0 +1,562 @@
+package com.elwg.ai3dbackend.service.impl;
+
+import com.elwg.ai3dbackend.constant.TaskStage;
+import com.elwg.ai3dbackend.constant.TaskStatus;
+import com.elwg.ai3dbackend.manager.ReconstructionCircuitBreaker;
+import com.elwg.ai3dbackend.manager.ReconstructionConcurrencyLimiter;
+import com.elwg.ai3dbackend.manager.ReconstructionFairScheduler;
+import com.elwg.ai3dbackend.manager.ReconstructionStageRecorder;
+import com.elwg.ai3dbackend.manager.ReconstructionStatusCache;
+import com.elwg.ai3dbackend.manager.ReconstructionWorkerManager;
+import com.elwg.ai3dbackend.model.entity.Picture;
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
+import com.elwg.ai3dbackend.service.EventStreamService;
+import com.elwg.ai3dbackend.service.ModelService;
+import com.elwg.ai3dbackend.service.PictureService;
+import com.elwg.ai3dbackend.service.ReconstructionBatchService;
+import com.elwg.ai3dbackend.service.ReconstructionDispatchService;
+import com.elwg.ai3dbackend.service.ReconstructionHttpService;
+import com.elwg.ai3dbackend.service.ReconstructionTaskService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 3D重建任务派发服务实现类
+ * <p>
+ * 单个派发线程定期（或被唤醒时）检查处理中的任务数，在并发上限内认领由{@link ReconstructionFairScheduler}按用户轮转选出的PENDING任务，
+ * 并发上限由{@link ReconstructionConcurrencyLimiter}根据任务耗时动态调整，
+ * 认领通过带状态条件的原子更新完成，多个节点同时运行时同一任务只会被派发一次。
+ * 认领后的任务在reconstructionTaskExecutor中按节点的派发方式发送图片或图片下载URL，HTTP请求线程不再参与派发。
+ * </p>
+ * <p>
+ * 每个任务在认领前先从节点池中按最少在途任务选定目标节点，节点URL与认领在同一条更新中写入任务，
+ * 用于结束回调时释放该节点的在途名额
+ * </p>
+ * <p>
+ * 并发数按数据库中PROCESSING状态的任务统计，覆盖所有节点；多个节点同时派发时可能短暂超出上限一两个任务
+ * </p>
+ * <p>
+ * 同一线程定期回收超时没有回调的任务，按重试次数指数退避后重新排队，重试次数用尽后标记为失败
+ * </p>
+ * <p>
+ * 用户取消的任务立即让出并发名额；已派发的任务会通知节点中止，认领后尚未发出的任务不再发送
+ * </p>
+ * <p>
+ * {@link ReconstructionCircuitBreaker}打开期间不再认领任务；因熔断放弃发送的任务放回队列，不计入重试次数
+ * </p>
+ */
+@Slf4j
+@Service
+public class ReconstructionDispatchServiceImpl implements ReconstructionDispatchService {
+
+    /**
+     * 轮询间隔（毫秒）
+     */
+    @Value("${reconstruction.dispatch.poll-interval:2000}")
+    private long pollInterval;
+
+    /**
+     * 是否启用超时任务回收
+     */
+    @Value("${reconstruction.reaper.enabled:true}")
+    private boolean reaperEnabled;
+
+    /**
+     * 超时任务检查间隔（毫秒）
+     */
+    @Value("${reconstruction.reaper.interval:60000}")
+    private long reaperInterval;
+
+    /**
+     * 处理中任务多久没有任何回调视为丢失（毫秒）
+     */
+    @Value("${reconstruction.reaper.sla:1800000}")
+    private long reaperSla;
+
+    /**
+     * 单个任务超时后最多重新派发的次数
+     */
+    @Value("${reconstruction.reaper.max-retries:2}")
+    private int maxRetries;
+
+    /**
+     * 重新派发的初始退避时间（毫秒），每次重试翻倍
+     */
+    @Value("${reconstruction.reaper.backoff-base:30000}")
+    private long backoffBase;
+
+    /**
+     * 重新派发的最大退避时间（毫秒）
+     */
+    @Value("${reconstruction.reaper.backoff-max:600000}")
+    private long backoffMax;
+
+    /**
+     * 单次检查处理的最大任务数
+     */
+    @Value("${reconstruction.reaper.batch-size:100}")
+    private int reaperBatchSize;
+
+    @Resource
+    private ReconstructionTaskService reconstructionTaskService;
+
+    @Resource
+    private ReconstructionHttpService reconstructionHttpService;
+
+    @Resource
+    private EventStreamService eventStreamService;
+
+    @Resource
+    private PictureService pictureService;
+
+    @Resource
+    private ReconstructionWorkerManager reconstructionWorkerManager;
+
+    @Resource
+    private ReconstructionConcurrencyLimiter reconstructionConcurrencyLimiter;
+
+    @Resource
+    private ReconstructionFairScheduler reconstructionFairScheduler;
+
+    @Resource
+    private ReconstructionBatchService reconstructionBatchService;
+
+    @Resource
+    private ModelService modelService;
+
+    @Resource
+    private ReconstructionStageRecorder reconstructionStageRecorder;
+
+    @Resource
+    private ReconstructionCircuitBreaker reconstructionCircuitBreaker;
+
+    @Resource
+    private ReconstructionStatusCache reconstructionStatusCache;
+
+    @Resource(name = "reconstructionTaskExecutor")
+    private Executor reconstructionTaskExecutor;
+
+    /**
+     * 派发线程
+     */
+    private ScheduledExecutorService dispatcher;
+
+    /**
+     * 是否已有待执行的唤醒，避免重复提交
+     */
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean(false);
+
+    /**
+     * 已派发的任务数
+     */
+    private final AtomicLong dispatchedCount = new AtomicLong(0);
+
+    /**
+     * 派发失败的任务数
+     */
+    private final AtomicLong failedCount = new AtomicLong(0);
+
+    /**
+     * 超时后重新派发的任务数
+     */
+    private final AtomicLong requeuedCount = new AtomicLong(0);
+
+    /**
+     * 超时且重试次数用尽而失败的任务数
+     */
+    private final AtomicLong timedOutCount = new AtomicLong(0);
+
+    /**
+     * 被用户取消的任务数
+     */
+    private final AtomicLong cancelledCount = new AtomicLong(0);
+
+    /**
+     * 因熔断器打开而放回队列的任务数
+     */
+    private final AtomicLong breakerRequeuedCount = new AtomicLong(0);
+
+    /**
+     * 最近一次统计的处理中任务数
+     */
+    private volatile long lastInFlight;
+
+    /**
+     * 启动派发线程，服务重启前未派发的任务会在首次轮询时继续派发
+     */
+    @PostConstruct
+    public void init() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reconstruction-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::dispatchPendingTasks, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+        if (reaperEnabled) {
+            // 与派发在同一线程执行，回收和认领不会交错
+            dispatcher.scheduleWithFixedDelay(this::reapStuckTasks, reaperInterval, reaperInterval, TimeUnit.MILLISECONDS);
+        }
+        log.info("Started reconstruction dispatcher, poll interval: {} ms, reaper sla: {} ms",
+                pollInterval, reaperEnabled ? reaperSla : -1);
+    }
+
+    /**
+     * 停止派发线程
+     */
+    @PreDestroy
+    public void destroy() {
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+        }
+    }
+
+    /**
+     * 唤醒派发线程，立即检查是否有可派发的任务
+     */
+    @Override
+    public void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            dispatcher.execute(() -> {
+                wakeUpPending.set(false);
+                dispatchPendingTasks();
+            });
+        }
+    }
+
+    /**
+     * 获取派发运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("limit", reconstructionConcurrencyLimiter.getLimit());
+        metrics.put("inFlight", lastInFlight);
+        metrics.put("dispatched", dispatchedCount.get());
+        metrics.put("failed", failedCount.get());
+        metrics.put("requeued", requeuedCount.get());
+        metrics.put("timedOut", timedOutCount.get());
+        metrics.put("cancelled", cancelledCount.get());
+        metrics.put("breakerRequeued", breakerRequeuedCount.get());
+        metrics.put("transfer", reconstructionHttpService.getMetrics());
+        return metrics;
+    }
+
+    /**
+     * 取消等待中或处理中的任务
+     *
+     * @param taskId 任务ID
+     * @return 是否取消成功，任务已结束时返回false
+     */
+    @Override
+    public boolean cancelTask(Long taskId) {
+        // 返回取消前的任务，状态用于判断是否已经派发到节点
+        ReconstructionTask task = reconstructionTaskService.cancelTask(taskId);
+        if (task == null) {
+            return false;
+        }
+        cancelledCount.incrementAndGet();
+        String taskIdStr = taskId.toString();
+        if (TaskStatus.PROCESSING.equals(task.getStatus())) {
+            // 节点名额立即归还，节点是否真正中止不影响后端的调度
+            reconstructionWorkerManager.release(task.getWorkerUrl(), -1);
+            reconstructionHttpService.cancelReconstruction(
+                    reconstructionWorkerManager.getWorker(task.getWorkerUrl()), taskIdStr);
+        }
+        task.setStatus(TaskStatus.CANCELLED);
+        reconstructionStatusCache.invalidate(taskId);
+        modelService.updateStatusByTaskId(taskId, TaskStatus.CANCELLED.toLowerCase());
+        eventStreamService.sendStatusEvent(taskIdStr, TaskStatus.CANCELLED, "任务已取消");
+        reconstructionBatchService.onTaskFinished(task);
+        // 让出的并发名额立即用于派发等待中的任务
+        wakeUp();
+        return true;
+    }
+
+    /**
+     * 在并发上限内认领并派发等待中的任务
+     */
+    private void dispatchPendingTasks() {
+        try {
+            long inFlight = reconstructionTaskService.countProcessingTasks();
+            lastInFlight = inFlight;
+            int slots = (int) (reconstructionConcurrencyLimiter.getLimit() - inFlight);
+            if (slots <= 0) {
+                reconstructionConcurrencyLimiter.recordInFlight(inFlight);
+                return;
+            }
+
+            // 按用户公平调度选出本轮要派发的任务
+            List<ReconstructionTask> pendingTasks = reconstructionFairScheduler.selectTasks(slots);
+            for (ReconstructionTask task : pendingTasks) {
+                // 重建服务整体不可用，任务留在队列中等待熔断器半开
+                if (!reconstructionCircuitBreaker.tryAcquire()) {
+                    log.warn("Reconstruction circuit breaker is open, {} task(s) left pending", pendingTasks.size());
+                    break;
+                }
+                ReconstructionWorkerManager.Worker worker = reconstructionWorkerManager.acquire();
+                if (worker == null) {
+                    // 所有节点都被摘除，任务留在队列中等待节点恢复
+                    log.warn("No available reconstruction worker, {} task(s) left pending", pendingTasks.size());
+                    break;
+                }
+                // 其他节点可能已经认领了该任务
+                if (!reconstructionTaskService.claimTask(task.getId(), worker.getUrl())) {
+                    reconstructionWorkerManager.cancel(worker);
+                    continue;
+                }
+                lastInFlight++;
+                dispatchedCount.incrementAndGet();
+                reconstructionStatusCache.invalidate(task.getId());
+                reconstructionTaskExecutor.execute(() -> dispatchTask(task, worker));
+            }
+            reconstructionConcurrencyLimiter.recordInFlight(lastInFlight);
+        } catch (Exception e) {
+            // 捕获所有异常，避免调度器因异常停止后续派发
+            log.error("Error dispatching pending reconstruction tasks", e);
+        }
+    }
+
+    /**
+     * 回收超时没有任何回调的处理中任务
+     * <p>
+     * 重建服务在接收任务后崩溃、或后端在认领后未能发出请求时，任务会一直停留在PROCESSING并占用并发名额。
+     * 最后更新时间超过期限的任务按指数退避放回队列，重试次数用尽后标记为失败
+     * </p>
+     */
+    private void reapStuckTasks() {
+        try {
+            Date cutoff = new Date(System.currentTimeMillis() - reaperSla);
+            List<ReconstructionTask> stuckTasks = reconstructionTaskService.listStuckTasks(cutoff, reaperBatchSize);
+            boolean reaped = false;
+            for (ReconstructionTask task : stuckTasks) {
+                String taskId = task.getId().toString();
+                int retryCount = task.getRetryCount() != null ? task.getRetryCount() : 0;
+                if (retryCount < maxRetries) {
+                    long backoff = Math.min(backoffBase << Math.min(retryCount, 20), backoffMax);
+                    Date nextAttemptTime = new Date(System.currentTimeMillis() + backoff);
+                    // 其他节点可能已经回收了该任务，或期间收到了回调
+                    if (!reconstructionTaskService.requeueStuckTask(task.getId(), cutoff, nextAttemptTime)) {
+                        continue;
+                    }
+                    requeuedCount.incrementAndGet();
+                    log.warn("Task {} got no callback within {} ms from worker: {}, retry {}/{} in {} ms",
+                            taskId, reaperSla, task.getWorkerUrl(), retryCount + 1, maxRetries, backoff);
+                    eventStreamService.sendStatusEvent(taskId, TaskStatus.PENDING,
+                            "任务超时，第" + (retryCount + 1) + "次重新排队");
+                } else {
+                    String error = "任务超时，已重试" + retryCount + "次";
+                    if (!reconstructionTaskService.failStuckTask(task.getId(), cutoff, error)) {
+                        continue;
+                    }
+                    timedOutCount.incrementAndGet();
+                    log.warn("Task {} timed out after {} retries, marked as failed", taskId, retryCount);
+                    modelService.updateStatusByTaskId(task.getId(), TaskStatus.FAILED.toLowerCase());
+                    eventStreamService.sendStatusEvent(taskId, TaskStatus.FAILED, error);
+                    reconstructionBatchService.onTaskFinished(task);
+                }
+                // 节点可能已经丢失任务，释放名额并计入节点失败
+                reconstructionWorkerManager.reportLost(task.getWorkerUrl());
+                reconstructionStatusCache.invalidate(task.getId());
+                reaped = true;
+            }
+            if (reaped) {
+                dispatchPendingTasks();
+            }
+        } catch (Exception e) {
+            // 捕获所有异常，避免调度器因异常停止后续检查
+            log.error("Error reaping stuck reconstruction tasks", e);
+        }
+    }
+
+    /**
+     * 把任务发送到选定的重建服务节点
+     *
+     * @param task 已认领的任务
+     * @param worker 目标节点
+     */
+    private void dispatchTask(ReconstructionTask task, ReconstructionWorkerManager.Worker worker) {
+        String taskId = task.getId().toString();
+        try {
+            // 认领后到发送前任务可能已被取消，取消时已归还节点名额
+            if (isCancelled(task.getId())) {
+                log.info("Task {} was cancelled before being sent to worker: {}", taskId, worker.getName());
+                return;
+            }
+            log.info("Dispatching task: {} to worker: {}", taskId, worker.getName());
+            reconstructionStageRecorder.record(task, TaskStage.DISPATCHED);
+            // 发送SSE状态更新
+            eventStreamService.sendStatusEvent(taskId, TaskStatus.PROCESSING, null);
+
+            // 按节点的派发方式发送图片或图片下载URL到Python服务
+            long startTime = System.currentTimeMillis();
+            CompletableFuture<String> future;
+            try {
+                if (task.getCallbackUrl() == null || task.getCallbackUrl().isEmpty()) {
+                    throw new IOException("Callback URL is empty");
+                }
+                future = reconstructionHttpService.dispatchImage(
+                        worker, resolveImagePath(task), taskId, buildAttemptCallbackUrl(task));
+            } catch (Exception e) {
+                // 任务本身的问题或请求没有发出，与节点无关，只归还名额
+                reconstructionWorkerManager.cancel(worker);
+                throw e;
+            }
+            future.whenComplete((status, ex) -> {
+                        if (unwrap(ex) instanceof ReconstructionCircuitBreaker.CircuitOpenException) {
+                            // 熔断时放弃的请求不代表该节点故障，只归还名额
+                            reconstructionWorkerManager.cancel(worker);
+                            return;
+                        }
+                        reconstructionWorkerManager.recordSubmit(worker, ex == null, System.currentTimeMillis() - startTime);
+                        if (ex != null) {
+                            // 重建服务拒绝或无法接收任务，视为过载信号
+                            reconstructionConcurrencyLimiter.onDrop(startTime);
+                        }
+                    })
+                    .thenAccept(status -> {
+                        log.info("Image sent to Python service for task: {}, status: {}", taskId, status);
+                        reconstructionStageRecorder.record(task, TaskStage.ACCEPTED);
+                        // 发送期间任务被取消时节点可能还不知道该任务，发送完成后再通知一次
+                        if (isCancelled(task.getId())) {
+                            reconstructionHttpService.cancelReconstruction(worker, taskId);
+                        }
+                    })
+                    .exceptionally(ex -> {
+                        if (unwrap(ex) instanceof ReconstructionCircuitBreaker.CircuitOpenException) {
+                            requeueTask(task);
+                            return null;
+                        }
+                        log.error("Failed to send image to Python service for task: {}", taskId, ex);
+                        failTask(task, worker, ex.getMessage());
+                        return null;
+                    });
+        } catch (Exception e) {
+            log.error("Failed to dispatch task: {}", taskId, e);
+            failTask(task, worker, e.getMessage());
+        }
+    }
+
+    /**
+     * 生成本次派发使用的回调URL
+     * <p>
+     * 重试次数写入回调URL的路径，节点的回调会原样带回，回调控制器据此丢弃被回收或重新派发前的旧节点回调
+     * </p>
+     *
+     * @param task 已认领的任务
+     * @return 回调URL
+     */
+    private String buildAttemptCallbackUrl(ReconstructionTask task) {
+        int retryCount = task.getRetryCount() != null ? task.getRetryCount() : 0;
+        String callbackUrl = task.getCallbackUrl().replaceAll("/+$", "");
+        return callbackUrl + "/attempt/" + retryCount;
+    }
+
+    /**
+     * 获取任务源图片在存储中的路径
+     *
+     * @param task 任务
+     * @return 图片路径
+     * @throws IOException 如果图片不存在
+     */
+    private String resolveImagePath(ReconstructionTask task) throws IOException {
+        Picture picture = pictureService.getById(task.getSourceImageId());
+        if (picture == null || picture.getUrl() == null || picture.getUrl().isEmpty()) {
+            throw new IOException("Source image not found: " + task.getSourceImageId());
+        }
+        String imageUrl = picture.getUrl();
+        // 如果是完整URL，提取路径部分
+        String imagePath = imageUrl;
+        if (imageUrl.startsWith("http")) {
+            // 假设路径是URL的最后部分，例如 "images/xxx/image.jpg"
+            imagePath = imageUrl.substring(imageUrl.indexOf("/images/"));
+        }
+        return imagePath;
+    }
+
+    /**
+     * 把因熔断器打开而没有发出的任务放回队列，熔断器半开后再派发
+     *
+     * @param task 已认领的任务
+     */
+    private void requeueTask(ReconstructionTask task) {
+        long openUntil = reconstructionCircuitBreaker.getOpenUntil();
+        Date nextAttemptTime = new Date(Math.max(openUntil, System.currentTimeMillis()));
+        // 期间被取消的任务保持取消状态
+        if (!reconstructionTaskService.requeueTask(task.getId(), nextAttemptTime)) {
+            return;
+        }
+        breakerRequeuedCount.incrementAndGet();
+        reconstructionStatusCache.invalidate(task.getId());
+        log.warn("Task {} requeued because the reconstruction circuit breaker is open", task.getId());
+        eventStreamService.sendStatusEvent(task.getId().toString(), TaskStatus.PENDING, "重建服务暂不可用，任务重新排队");
+    }
+
+    /**
+     * 获取CompletableFuture异常的原始原因
+     *
+     * @param ex 异常
+     * @return 原始异常
+     */
+    private Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    /**
+     * 任务是否已被取消
+     *
+     * @param taskId 任务ID
+     * @return 是否已取消
+     */
+    private boolean isCancelled(Long taskId) {
+        ReconstructionTask current = reconstructionTaskService.getTaskById(taskId);
+        return current != null && TaskStatus.CANCELLED.equals(current.getStatus());
+    }
+
+    /**
+     * 将本次派发的任务标记为失败并释放并发名额
+     * <p>
+     * 提交重试可能超过回收期限，期间任务可能已被取消，或已被回收并重新派发到其他节点。
+     * 只有任务仍属于本次派发时才更新，否则不修改状态、不推送事件
+     * </p>
+     *
+     * @param task 已认领的任务
+     * @param worker 本次派发的节点
+     * @param error 错误信息
+     */
+    private void failTask(ReconstructionTask task, ReconstructionWorkerManager.Worker worker, String error) {
+        int retryCount = task.getRetryCount() != null ? task.getRetryCount() : 0;
+        if (!reconstructionTaskService.updateAttemptStatus(task.getId(), worker.getUrl(), retryCount,
+                TaskStatus.FAILED, error)) {
+            log.info("Task {} no longer belongs to the dispatch to worker: {}, retry: {}, not marking as failed",
+                    task.getId(), worker.getName(), retryCount);
+            return;
+        }
+        failedCount.incrementAndGet();
+        task.setStatus(TaskStatus.FAILED);
+        reconstructionStatusCache.invalidate(task.getId());
+        // 发送SSE状态更新
+        eventStreamService.sendStatusEvent(task.getId().toString(), TaskStatus.FAILED, error);
+        reconstructionBatchService.onTaskFinished(task);
+        wakeUp();
+    }
+}
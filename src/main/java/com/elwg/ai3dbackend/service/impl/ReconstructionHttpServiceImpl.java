@@ -1,29 +1,61 @@
 package com.elwg.ai3dbackend.service.impl;
 
+import com.elwg.ai3dbackend.config.ReconstructionWorkerProperties;
+import com.elwg.ai3dbackend.constant.DispatchMode;
+import com.elwg.ai3dbackend.manager.ReconstructionCircuitBreaker;
+import com.elwg.ai3dbackend.manager.ReconstructionWorkerManager;
+import com.elwg.ai3dbackend.service.FileStorageService;
 import com.elwg.ai3dbackend.service.ReconstructionHttpService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 3D重建HTTP通信服务实现类
  * <p>
- * 使用OkHttp客户端实现与Python重建服务的HTTP通信
+ * 使用OkHttp客户端实现与Python重建服务的HTTP通信。
+ * 每个节点可以配置派发方式：bytes方式由后端从COS下载图片再上传给节点；
+ * url方式只发送预签名下载URL，图片不经过后端的堆内存和网络出口
+ * </p>
+ * <p>
+ * 连接失败、超时和429/502/503/504响应按指数退避加随机抖动重试，重试在独立的调度线程中重新发起，
+ * 不阻塞OkHttp回调线程；请求带有以任务ID为值的Idempotency-Key，节点据此识别重复提交。
+ * 每次失败计入{@link ReconstructionCircuitBreaker}，熔断器打开后剩余的重试立即失败
  * </p>
  */
 @Slf4j
 @Service
 public class ReconstructionHttpServiceImpl implements ReconstructionHttpService {
 
-    @Value("${reconstruction.http.server.url:http://10.0.0.2:8001/generate3d}")
-    private String serverUrl;
+    /**
+     * 节点不支持image_url参数时可能返回的状态码
+     */
+    private static final Set<Integer> URL_REJECTED_CODES = Set.of(400, 404, 415, 422);
+
+    /**
+     * 可以重试的状态码，其他非2xx状态码表示请求本身有问题，重试不会成功
+     */
+    private static final Set<Integer> RETRYABLE_CODES = Set.of(429, 502, 503, 504);
 
     @Value("${reconstruction.http.connection.timeout:30}")
     private int connectionTimeout;
@@ -34,12 +66,92 @@ public class ReconstructionHttpServiceImpl implements ReconstructionHttpService
     @Value("${reconstruction.http.write.timeout:30}")
     private int writeTimeout;
 
-    @Value("${reconstruction.http.health.url:http://10.0.0.2:8001/health}")
-    private String healthUrl;
+    /**
+     * 提交任务的最大尝试次数（包含首次请求）
+     */
+    @Value("${reconstruction.http.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+
+    /**
+     * 重试的初始退避时间（毫秒），每次重试翻倍
+     */
+    @Value("${reconstruction.http.retry.backoff-base:500}")
+    private long retryBackoffBase;
+
+    /**
+     * 重试的最大退避时间（毫秒）
+     */
+    @Value("${reconstruction.http.retry.backoff-max:5000}")
+    private long retryBackoffMax;
+
+    @Resource
+    private ReconstructionWorkerManager reconstructionWorkerManager;
+
+    @Resource
+    private ReconstructionWorkerProperties workerProperties;
+
+    @Resource
+    private FileStorageService fileStorageService;
+
+    @Resource
+    private ReconstructionCircuitBreaker reconstructionCircuitBreaker;
+
+    @Resource(name = "reconstructionTaskExecutor")
+    private Executor reconstructionTaskExecutor;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
     private OkHttpClient client;
 
+    /**
+     * 重试调度线程，退避期间不占用OkHttp回调线程
+     */
+    private ScheduledExecutorService retryScheduler;
+
+    /**
+     * 拒绝过url方式的节点URL，这些节点之后改用bytes方式
+     */
+    private final Set<String> urlRejectedWorkers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 以url方式派发的任务数
+     */
+    private final AtomicLong urlDispatchCount = new AtomicLong(0);
+
+    /**
+     * 以bytes方式派发的任务数
+     */
+    private final AtomicLong bytesDispatchCount = new AtomicLong(0);
+
+    /**
+     * url方式失败后退回bytes方式的次数
+     */
+    private final AtomicLong urlFallbackCount = new AtomicLong(0);
+
+    /**
+     * bytes方式上传的图片总字节数
+     */
+    private final AtomicLong bytesUploaded = new AtomicLong(0);
+
+    /**
+     * 节点确认取消的任务数
+     */
+    private final AtomicLong cancelledCount = new AtomicLong(0);
+
+    /**
+     * 重试的请求数
+     */
+    private final AtomicLong retryCount = new AtomicLong(0);
+
+    /**
+     * 重试次数用尽仍失败的任务数
+     */
+    private final AtomicLong retryExhaustedCount = new AtomicLong(0);
+
+    /**
+     * 熔断器打开而放弃重试的任务数
+     */
+    private final AtomicLong breakerAbortCount = new AtomicLong(0);
+
     /**
      * 初始化OkHttp客户端
      */
@@ -50,13 +162,93 @@ public class ReconstructionHttpServiceImpl implements ReconstructionHttpService
                 .readTimeout(readTimeout, TimeUnit.SECONDS)
                 .writeTimeout(writeTimeout, TimeUnit.SECONDS)
                 .build();
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reconstruction-http-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        log.info("Initialized HTTP reconstruction service, max attempts: {}", retryMaxAttempts);
+    }
+
+    /**
+     * 停止重试调度线程
+     */
+    @PreDestroy
+    public void destroy() {
+        if (retryScheduler != null) {
+            retryScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 按节点的派发方式把任务发送到重建服务节点
+     *
+     * @param worker 目标节点
+     * @param imagePath 源图片在存储中的路径
+     * @param taskId 任务ID
+     * @param callbackUrl 回调URL，Python服务处理完成后将调用此URL
+     * @return 包含请求状态的CompletableFuture
+     * @throws IOException 如果参数无效或读取图片失败，此时请求没有发出
+     */
+    @Override
+    public CompletableFuture<String> dispatchImage(ReconstructionWorkerManager.Worker worker, String imagePath,
+                                                   String taskId, String callbackUrl) throws IOException {
+        if (!DispatchMode.URL.equals(worker.getDispatchMode()) || urlRejectedWorkers.contains(worker.getUrl())) {
+            return sendImageBytes(worker.getUrl(), imagePath, taskId, callbackUrl);
+        }
+
+        String imageUrl;
+        try {
+            imageUrl = fileStorageService.getPresignedUrl(imagePath, workerProperties.getPresignExpire());
+        } catch (IOException e) {
+            log.warn("Failed to presign image for task: {}, falling back to bytes", taskId, e);
+            urlFallbackCount.incrementAndGet();
+            return sendImageBytes(worker.getUrl(), imagePath, taskId, callbackUrl);
+        }
+        urlDispatchCount.incrementAndGet();
+        CompletableFuture<String> urlFuture = sendImageUrlForReconstruction(worker.getUrl(), imageUrl, taskId, callbackUrl);
 
-        log.info("Initialized HTTP reconstruction service with server URL: {}", serverUrl);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        urlFuture.whenComplete((status, ex) -> {
+            if (ex == null) {
+                result.complete(status);
+                return;
+            }
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (!(cause instanceof RequestRejectedException)
+                    || !URL_REJECTED_CODES.contains(((RequestRejectedException) cause).getCode())) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            // 节点不接受image_url参数，之后对该节点改用bytes方式
+            if (urlRejectedWorkers.add(worker.getUrl())) {
+                log.warn("Worker {} rejected url dispatch with code {}, switching it to bytes",
+                        worker.getName(), ((RequestRejectedException) cause).getCode());
+            }
+            urlFallbackCount.incrementAndGet();
+            // 读取图片会阻塞，不能在OkHttp回调线程中执行
+            reconstructionTaskExecutor.execute(() -> {
+                try {
+                    sendImageBytes(worker.getUrl(), imagePath, taskId, callbackUrl).whenComplete((fallbackStatus, fallbackEx) -> {
+                        if (fallbackEx != null) {
+                            result.completeExceptionally(fallbackEx);
+                        } else {
+                            result.complete(fallbackStatus);
+                        }
+                    });
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        });
+        return result;
     }
 
     /**
      * 发送图片数据到Python服务进行3D重建
      *
+     * @param workerUrl 重建服务节点URL
      * @param imageData 图片二进制数据
      * @param taskId 任务ID
      * @param callbackUrl 回调URL，Python服务处理完成后将调用此URL
@@ -64,8 +256,9 @@ public class ReconstructionHttpServiceImpl implements ReconstructionHttpService
      * @throws IOException 如果通信过程中发生错误
      */
     @Override
-    public CompletableFuture<String> sendImageForReconstruction(byte[] imageData, String taskId, String callbackUrl) throws IOException {
-        log.info("Sending image data for task: {}, size: {} bytes, callback URL: {}", taskId, imageData.length, callbackUrl);
+    public CompletableFuture<String> sendImageForReconstruction(String workerUrl, byte[] imageData, String taskId, String callbackUrl) throws IOException {
+        log.info("Sending image data for task: {} to worker: {}, size: {} bytes, callback URL: {}",
+                taskId, workerUrl, imageData.length, callbackUrl);
 
         // 检查参数
         if (imageData == null || imageData.length == 0) {
@@ -87,28 +280,168 @@ public class ReconstructionHttpServiceImpl implements ReconstructionHttpService
                         RequestBody.create(MediaType.parse("image/jpeg"), imageData))
                 .build();
 
-        // 创建请求
+        return post(workerUrl, requestBody, taskId);
+    }
+
+    /**
+     * 发送图片下载URL到Python服务进行3D重建，由Python服务自行下载图片
+     *
+     * @param workerUrl 重建服务节点URL
+     * @param imageUrl 图片下载URL
+     * @param taskId 任务ID
+     * @param callbackUrl 回调URL，Python服务处理完成后将调用此URL
+     * @return 包含请求状态的CompletableFuture
+     * @throws IOException 如果参数无效
+     */
+    @Override
+    public CompletableFuture<String> sendImageUrlForReconstruction(String workerUrl, String imageUrl, String taskId, String callbackUrl) throws IOException {
+        log.info("Sending image URL for task: {} to worker: {}, callback URL: {}", taskId, workerUrl, callbackUrl);
+
+        // 检查参数
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            throw new IOException("Image URL is empty");
+        }
+        if (taskId == null || taskId.isEmpty()) {
+            throw new IOException("Task ID is empty");
+        }
+        if (callbackUrl == null || callbackUrl.isEmpty()) {
+            throw new IOException("Callback URL is empty");
+        }
+
+        // 创建请求体，image_url代替image文件
+        RequestBody requestBody = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("task_id", taskId)
+                .addFormDataPart("callback_url", callbackUrl)
+                .addFormDataPart("image_url", imageUrl)
+                .build();
+
+        return post(workerUrl, requestBody, taskId);
+    }
+
+    /**
+     * 通知节点取消任务
+     *
+     * @param worker 任务所在的节点
+     * @param taskId 任务ID
+     * @return 节点是否确认取消
+     */
+    @Override
+    public CompletableFuture<Boolean> cancelReconstruction(ReconstructionWorkerManager.Worker worker, String taskId) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        if (worker == null || worker.getCancelUrl() == null) {
+            future.complete(false);
+            return future;
+        }
+        RequestBody requestBody = new FormBody.Builder()
+                .add("task_id", taskId)
+                .build();
         Request request = new Request.Builder()
-                .url(serverUrl)
+                .url(worker.getCancelUrl())
+                .post(requestBody)
+                .build();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                log.warn("Failed to cancel task: {} on worker: {}, error: {}", taskId, worker.getName(), e.getMessage());
+                future.complete(false);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    if (response.isSuccessful()) {
+                        cancelledCount.incrementAndGet();
+                        log.info("Worker: {} cancelled task: {}", worker.getName(), taskId);
+                        future.complete(true);
+                    } else {
+                        // 404表示节点不支持取消或任务已结束
+                        log.info("Worker: {} did not cancel task: {}, code: {}", worker.getName(), taskId, response.code());
+                        future.complete(false);
+                    }
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 获取图片传输运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("urlDispatches", urlDispatchCount.get());
+        metrics.put("bytesDispatches", bytesDispatchCount.get());
+        metrics.put("urlFallbacks", urlFallbackCount.get());
+        metrics.put("bytesUploaded", bytesUploaded.get());
+        metrics.put("urlRejectedWorkers", urlRejectedWorkers.size());
+        metrics.put("workerCancels", cancelledCount.get());
+        metrics.put("retries", retryCount.get());
+        metrics.put("retriesExhausted", retryExhaustedCount.get());
+        metrics.put("breakerAborts", breakerAbortCount.get());
+        return metrics;
+    }
+
+    /**
+     * 读取图片并以文件上传的方式发送到节点
+     *
+     * @param workerUrl 重建服务节点URL
+     * @param imagePath 源图片在存储中的路径
+     * @param taskId 任务ID
+     * @param callbackUrl 回调URL
+     * @return 包含请求状态的CompletableFuture
+     * @throws IOException 如果读取图片失败或参数无效
+     */
+    private CompletableFuture<String> sendImageBytes(String workerUrl, String imagePath, String taskId, String callbackUrl)
+            throws IOException {
+        byte[] imageData = fileStorageService.getFileData(imagePath);
+        bytesDispatchCount.incrementAndGet();
+        bytesUploaded.addAndGet(imageData.length);
+        return sendImageForReconstruction(workerUrl, imageData, taskId, callbackUrl);
+    }
+
+    /**
+     * 异步发送任务请求并解析节点的响应
+     *
+     * @param workerUrl 重建服务节点URL
+     * @param requestBody 请求体
+     * @param taskId 任务ID
+     * @return 包含请求状态的CompletableFuture
+     */
+    private CompletableFuture<String> post(String workerUrl, RequestBody requestBody, String taskId) {
+        // 创建请求，重试时使用同一个幂等键
+        Request request = new Request.Builder()
+                .url(workerUrl)
+                .header("Idempotency-Key", taskId)
                 .post(requestBody)
                 .build();
 
         // 创建CompletableFuture
         CompletableFuture<String> future = new CompletableFuture<>();
+        send(request, taskId, 1, future);
+        return future;
+    }
 
+    /**
+     * 发送一次请求，可重试的失败交给{@link #retryOrFail}处理
+     *
+     * @param request 请求
+     * @param taskId 任务ID
+     * @param attempt 当前是第几次尝试
+     * @param future 任务请求的结果
+     */
+    private void send(Request request, String taskId, int attempt, CompletableFuture<String> future) {
         // 异步发送请求
         client.newCall(request).enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
-                log.error("Failed to send image data for task: {}, error: {}", taskId, e.getMessage(), e);
-                // 添加重试逻辑
-                if (call.request().url().toString().equals(serverUrl)) {
-                    log.warn("Connection to Python service failed, checking service health...");
-                    if (!checkServiceHealth()) {
-                        log.error("Python service is not healthy, please check the service status");
-                    }
-                }
-                future.completeExceptionally(e);
+                // 节点健康状态由后台探测维护，这里不再同步检查，避免阻塞OkHttp回调线程
+                log.warn("Failed to send task: {} to worker: {}, attempt: {}, error: {}",
+                        taskId, request.url(), attempt, e.getMessage());
+                retryOrFail(request, taskId, attempt, future, e);
             }
 
             @Override
@@ -116,11 +449,19 @@ public class ReconstructionHttpServiceImpl implements ReconstructionHttpService
                 try (ResponseBody responseBody = response.body()) {
                     if (!response.isSuccessful()) {
                         String errorMessage = responseBody != null ? responseBody.string() : "Unknown error";
-                        log.error("Server returned error for task: {}, code: {}, message: {}",
-                                taskId, response.code(), errorMessage);
-                        future.completeExceptionally(new IOException("Server returned error: " + response.code() + " " + errorMessage));
+                        log.error("Server returned error for task: {}, code: {}, attempt: {}, message: {}",
+                                taskId, response.code(), attempt, errorMessage);
+                        RequestRejectedException rejected = new RequestRejectedException(response.code(), errorMessage);
+                        if (RETRYABLE_CODES.contains(response.code())) {
+                            retryOrFail(request, taskId, attempt, future, rejected);
+                        } else {
+                            // 节点能够正常响应，不计入熔断
+                            reconstructionCircuitBreaker.onSuccess();
+                            future.completeExceptionally(rejected);
+                        }
                         return;
                     }
+                    reconstructionCircuitBreaker.onSuccess();
 
                     if (responseBody == null) {
                         log.error("Server returned empty response for task: {}", taskId);
@@ -157,33 +498,74 @@ public class ReconstructionHttpServiceImpl implements ReconstructionHttpService
                 }
             }
         });
+    }
 
-        return future;
+    /**
+     * 记录一次失败，按退避时间安排重试，次数用尽或熔断器打开时结束请求
+     * <p>
+     * 退避时间在0到min(初始退避时间*2^(n-1), 最大退避时间)之间随机选取，避免大量任务同时重试
+     * </p>
+     *
+     * @param request 请求
+     * @param taskId 任务ID
+     * @param attempt 失败的是第几次尝试
+     * @param future 任务请求的结果
+     * @param e 失败原因
+     */
+    private void retryOrFail(Request request, String taskId, int attempt, CompletableFuture<String> future, IOException e) {
+        reconstructionCircuitBreaker.onFailure();
+        if (attempt >= retryMaxAttempts) {
+            if (retryMaxAttempts > 1) {
+                retryExhaustedCount.incrementAndGet();
+            }
+            log.error("Failed to send task: {} to worker: {} after {} attempt(s)", taskId, request.url(), attempt, e);
+            future.completeExceptionally(e);
+            return;
+        }
+        if (reconstructionCircuitBreaker.isOpen()) {
+            breakerAbortCount.incrementAndGet();
+            log.warn("Circuit breaker is open, giving up task: {} after {} attempt(s)", taskId, attempt);
+            future.completeExceptionally(new ReconstructionCircuitBreaker.CircuitOpenException(
+                    "Reconstruction service circuit breaker is open: " + e.getMessage()));
+            return;
+        }
+        long maxBackoff = Math.min(retryBackoffBase << Math.min(attempt - 1, 20), retryBackoffMax);
+        long backoff = ThreadLocalRandom.current().nextLong(maxBackoff + 1);
+        retryCount.incrementAndGet();
+        log.info("Retrying task: {} to worker: {} in {} ms, attempt {}/{}",
+                taskId, request.url(), backoff, attempt + 1, retryMaxAttempts);
+        try {
+            retryScheduler.schedule(() -> send(request, taskId, attempt + 1, future), backoff, TimeUnit.MILLISECONDS);
+        } catch (Exception scheduleError) {
+            // 服务关闭时调度线程已停止
+            future.completeExceptionally(e);
+        }
     }
 
     /**
      * 检查Python服务健康状态
      *
-     * @return 如果服务正常运行，则返回true
+     * @return 如果至少有一个节点可用，则返回true
      */
     @Override
     public boolean checkServiceHealth() {
-        log.info("Checking Python service health at: {}", healthUrl);
-        try {
-            Request request = new Request.Builder()
-                    .url(healthUrl)
-                    .get()
-                    .build();
-
-            try (Response response = client.newCall(request).execute()) {
-                boolean isHealthy = response.isSuccessful();
-                log.info("Python service health check result: {}, status code: {}",
-                        isHealthy ? "healthy" : "unhealthy", response.code());
-                return isHealthy;
-            }
-        } catch (Exception e) {
-            log.error("Failed to check service health: {}", e.getMessage(), e);
-            return false;
+        return reconstructionWorkerManager.hasAvailableWorker();
+    }
+
+    /**
+     * 节点返回了非2xx状态码
+     */
+    private static class RequestRejectedException extends IOException {
+
+        /**
+         * HTTP状态码
+         */
+        @Getter
+        private final int code;
+
+        private RequestRejectedException(int code, String message) {
+            super("Server returned error: " + code + " " + message);
+            this.code = code;
         }
     }
 }
@@ -0,0 +1,194 @@
+package com.elwg.ai3dbackend.service.impl;
+
+import com.elwg.ai3dbackend.constant.TaskStatus;
+import com.elwg.ai3dbackend.model.entity.Model;
+import com.elwg.ai3dbackend.model.entity.Picture;
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
+import com.elwg.ai3dbackend.service.EventStreamService;
+import com.elwg.ai3dbackend.service.ModelService;
+import com.elwg.ai3dbackend.service.ReconstructionResultCacheService;
+import com.elwg.ai3dbackend.service.ReconstructionTaskService;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 3D重建结果缓存服务实现类
+ * <p>
+ * 以reconstruction_task.contentHash查找最近一个成功完成的同内容任务，复用其模型文件。
+ * 模型文件按任务ID存放且删除模型时不会删除文件，新模型记录直接引用原有URL，不复制文件
+ * </p>
+ */
+@Slf4j
+@Service
+public class ReconstructionResultCacheServiceImpl implements ReconstructionResultCacheService {
+
+    /**
+     * 是否启用结果缓存
+     */
+    @Value("${reconstruction.cache.enabled:true}")
+    private boolean enabled;
+
+    @Resource
+    private ReconstructionTaskService reconstructionTaskService;
+
+    @Resource
+    private ModelService modelService;
+
+    @Resource
+    private EventStreamService eventStreamService;
+
+    /**
+     * 命中次数
+     */
+    private final AtomicLong hitCount = new AtomicLong(0);
+
+    /**
+     * 未命中次数
+     */
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    /**
+     * 跳过缓存的次数
+     */
+    private final AtomicLong bypassCount = new AtomicLong(0);
+
+    /**
+     * 尝试用内容相同图片的已有结果完成新任务
+     *
+     * @param userId 用户ID
+     * @param picture 源图片
+     * @param contentHash 源图片内容哈希
+     * @return 已完成的任务，未命中时返回null
+     */
+    @Override
+    @Transactional
+    public ReconstructionTask completeFromCache(Long userId, Picture picture, String contentHash) {
+        return completeFromCache(userId, picture, contentHash, null);
+    }
+
+    /**
+     * 尝试用内容相同图片的已有结果完成批次中的新任务
+     *
+     * @param userId 用户ID
+     * @param picture 源图片
+     * @param contentHash 源图片内容哈希
+     * @param batchId 批次ID，单独提交的任务为null
+     * @return 已完成的任务，未命中时返回null
+     */
+    @Override
+    @Transactional
+    public ReconstructionTask completeFromCache(Long userId, Picture picture, String contentHash, Long batchId) {
+        if (!enabled || contentHash == null) {
+            return null;
+        }
+        ReconstructionTask sourceTask = reconstructionTaskService.getLatestCompletedTaskByHash(contentHash);
+        Model sourceModel = sourceTask != null ? modelService.getById(sourceTask.getResultModelId()) : null;
+        if (!isReusable(sourceModel)) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        // 创建已完成的任务
+        ReconstructionTask task = reconstructionTaskService.createCompletedTask(userId, picture.getId(), contentHash, batchId);
+        // 结果文件清单同样引用已有文件
+        if (sourceTask.getArtifacts() != null) {
+            reconstructionTaskService.initArtifacts(task.getId(), sourceTask.getArtifacts());
+            task.setArtifacts(sourceTask.getArtifacts());
+        }
+
+        // 新模型记录引用已有的模型文件
+        Model changes = new Model();
+        changes.setObjFileUrl(sourceModel.getObjFileUrl());
+        changes.setMtlFileUrl(sourceModel.getMtlFileUrl());
+        changes.setTextureImageUrl(sourceModel.getTextureImageUrl());
+        changes.setPixelImagesUrl(sourceModel.getPixelImagesUrl());
+        changes.setXyzImagesUrl(sourceModel.getXyzImagesUrl());
+        changes.setModelSize(sourceModel.getModelSize());
+        changes.setModelFormat(sourceModel.getModelFormat());
+        changes.setStatus(TaskStatus.COMPLETED.toLowerCase());
+        modelService.upsertTaskModel(task, changes);
+        reconstructionTaskService.linkResultModel(task.getId());
+
+        hitCount.incrementAndGet();
+        log.info("Reconstruction result cache hit: task {} reuses results of task {}", task.getId(), sourceTask.getId());
+
+        // 事务提交后再订阅和推送，避免客户端收到事件后查询不到任务
+        String taskId = task.getId().toString();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eventStreamService.subscribeTask(userId, taskId);
+                publishResults(taskId, changes);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * 记录一次跳过缓存的任务创建
+     */
+    @Override
+    public void recordBypass() {
+        bypassCount.incrementAndGet();
+    }
+
+    /**
+     * 获取缓存运行指标
+     *
+     * @return 指标名称到指标值的映射
+     */
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("hits", hitCount.get());
+        metrics.put("misses", missCount.get());
+        metrics.put("bypassed", bypassCount.get());
+        return metrics;
+    }
+
+    /**
+     * 已有模型是否可以复用：已完成且模型文件已上传
+     *
+     * @param model 模型
+     * @return 可以复用时返回true
+     */
+    private boolean isReusable(Model model) {
+        return model != null
+                && TaskStatus.COMPLETED.equalsIgnoreCase(model.getStatus())
+                && model.getObjFileUrl() != null
+                && !"pending".equals(model.getObjFileUrl());
+    }
+
+    /**
+     * 推送复用的结果文件和完成状态
+     *
+     * @param taskId 任务ID
+     * @param model 模型文件URL
+     */
+    private void publishResults(String taskId, Model model) {
+        if (model.getPixelImagesUrl() != null) {
+            eventStreamService.sendResultEvent(taskId, "pixel_images.png", model.getPixelImagesUrl());
+        }
+        if (model.getXyzImagesUrl() != null) {
+            eventStreamService.sendResultEvent(taskId, "xyz_images.png", model.getXyzImagesUrl());
+        }
+        eventStreamService.sendResultEvent(taskId, "model.obj", model.getObjFileUrl());
+        if (model.getMtlFileUrl() != null) {
+            eventStreamService.sendResultEvent(taskId, "model.mtl", model.getMtlFileUrl());
+        }
+        if (model.getTextureImageUrl() != null) {
+            eventStreamService.sendResultEvent(taskId, "texture.png", model.getTextureImageUrl());
+        }
+        eventStreamService.sendStatusEvent(taskId, TaskStatus.COMPLETED, null);
+    }
+}
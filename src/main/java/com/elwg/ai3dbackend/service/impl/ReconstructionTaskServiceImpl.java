@@ -1,17 +1,24 @@
 package com.elwg.ai3dbackend.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.elwg.ai3dbackend.constant.TaskStatus;
 import com.elwg.ai3dbackend.mapper.ReconstructionTaskMapper;
+import com.elwg.ai3dbackend.model.dto.reconstruction.UserQueueStat;
 import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
 import com.elwg.ai3dbackend.service.ReconstructionTaskService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 3D重建任务服务实现类
@@ -26,16 +33,23 @@ public class ReconstructionTaskServiceImpl extends ServiceImpl<ReconstructionTas
      * @param userId 用户ID
      * @param sourceImageId 源图片ID
      * @param originalImageUrl 原始图片URL
+     * @param callbackUrl 回调URL
+     * @param contentHash 源图片内容哈希（可选）
+     * @param priority 调度优先级
      * @return 创建的任务
      */
     @Override
     @Transactional
-    public ReconstructionTask createTask(Long userId, Long sourceImageId, String originalImageUrl) {
+    public ReconstructionTask createTask(Long userId, Long sourceImageId, String originalImageUrl, String callbackUrl,
+                                         String contentHash, int priority) {
         // 创建任务实体
         ReconstructionTask task = new ReconstructionTask();
         task.setStatus(TaskStatus.PENDING);
         task.setSourceImageId(sourceImageId);
         task.setUserId(userId);
+        task.setCallbackUrl(callbackUrl);
+        task.setContentHash(contentHash);
+        task.setPriority(priority);
         task.setCreateTime(new Date());
         task.setUpdateTime(new Date());
         // 保存到数据库
@@ -45,6 +59,50 @@ public class ReconstructionTaskServiceImpl extends ServiceImpl<ReconstructionTas
         return task;
     }
 
+    /**
+     * 批量创建重建任务
+     *
+     * @param tasks 任务列表，插入后回填任务ID
+     */
+    @Override
+    @Transactional
+    public void createTasks(List<ReconstructionTask> tasks) {
+        Date now = new Date();
+        for (ReconstructionTask task : tasks) {
+            task.setCreateTime(now);
+            task.setUpdateTime(now);
+        }
+        // 批量执行插入，连接参数开启rewriteBatchedStatements后由驱动合并为多行INSERT
+        saveBatch(tasks);
+        log.info("Created {} reconstruction tasks in batch", tasks.size());
+    }
+
+    /**
+     * 创建直接复用已有结果、已经完成的任务
+     *
+     * @param userId 用户ID
+     * @param sourceImageId 源图片ID
+     * @param contentHash 源图片内容哈希
+     * @param batchId 所属批次ID，单独提交的任务为null
+     * @return 创建的任务
+     */
+    @Override
+    public ReconstructionTask createCompletedTask(Long userId, Long sourceImageId, String contentHash, Long batchId) {
+        Date now = new Date();
+        ReconstructionTask task = new ReconstructionTask();
+        task.setStatus(TaskStatus.COMPLETED);
+        task.setSourceImageId(sourceImageId);
+        task.setUserId(userId);
+        task.setContentHash(contentHash);
+        task.setBatchId(batchId);
+        task.setProcessingTime(0);
+        task.setCreateTime(now);
+        task.setUpdateTime(now);
+        save(task);
+        log.info("Created reconstruction task from cached result: {}", task.getId());
+        return task;
+    }
+
     /**
      * 根据任务ID查询任务
      *
@@ -94,6 +152,36 @@ public class ReconstructionTaskServiceImpl extends ServiceImpl<ReconstructionTas
         return task;
     }
 
+    /**
+     * 按重建服务节点的状态回调更新处理中任务的状态
+     *
+     * @param id 任务ID
+     * @param workerUrl 回调所属派发的节点URL
+     * @param retryCount 回调所属派发的重试次数
+     * @param status 新状态
+     * @param errorMessage 错误信息（可选）
+     * @return 是否更新成功
+     */
+    @Override
+    public boolean updateAttemptStatus(Long id, String workerUrl, int retryCount, String status, String errorMessage) {
+        LambdaUpdateWrapper<ReconstructionTask> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.set(ReconstructionTask::getStatus, status)
+                .set(errorMessage != null && !errorMessage.isEmpty(), ReconstructionTask::getErrorMessage, errorMessage)
+                .set(ReconstructionTask::getUpdateTime, new Date())
+                .setSql(TaskStatus.COMPLETED.equals(status) || TaskStatus.FAILED.equals(status),
+                        "processingTime = TIMESTAMPDIFF(SECOND, createTime, NOW())")
+                .eq(ReconstructionTask::getId, id)
+                .eq(ReconstructionTask::getStatus, TaskStatus.PROCESSING)
+                .eq(workerUrl != null, ReconstructionTask::getWorkerUrl, workerUrl)
+                .isNull(workerUrl == null, ReconstructionTask::getWorkerUrl)
+                .eq(ReconstructionTask::getRetryCount, retryCount);
+        boolean updated = update(updateWrapper);
+        if (updated) {
+            log.info("Updated task status: {} -> {}, worker: {}, retry: {}", id, status, workerUrl, retryCount);
+        }
+        return updated;
+    }
+
     /**
      * 更新任务结果模型ID
      *
@@ -120,6 +208,17 @@ public class ReconstructionTaskServiceImpl extends ServiceImpl<ReconstructionTas
         return task;
     }
 
+    /**
+     * 把任务关联到按任务ID创建的模型
+     *
+     * @param id 任务ID
+     * @return 本次写入了结果模型ID时返回true
+     */
+    @Override
+    public boolean linkResultModel(Long id) {
+        return baseMapper.linkResultModel(id) > 0;
+    }
+
     /**
      * 更新任务处理时间
      *
@@ -171,6 +270,391 @@ public class ReconstructionTaskServiceImpl extends ServiceImpl<ReconstructionTas
         return page(page, queryWrapper);
     }
 
+    /**
+     * 查询用户未结束（等待中或处理中）的任务
+     *
+     * @param userId 用户ID
+     * @return 任务列表
+     */
+    @Override
+    public List<ReconstructionTask> listUserActiveTasks(Long userId) {
+        LambdaQueryWrapper<ReconstructionTask> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ReconstructionTask::getUserId, userId)
+                .in(ReconstructionTask::getStatus, TaskStatus.PENDING, TaskStatus.PROCESSING)
+                .orderByAsc(ReconstructionTask::getCreateTime);
+        return list(queryWrapper);
+    }
+
+    /**
+     * 按创建时间顺序查询等待派发且已过退避期的任务
+     *
+     * @param limit 最大数量
+     * @return 任务列表
+     */
+    @Override
+    public List<ReconstructionTask> listPendingTasks(int limit) {
+        Date now = new Date();
+        LambdaQueryWrapper<ReconstructionTask> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ReconstructionTask::getStatus, TaskStatus.PENDING)
+                .and(wrapper -> wrapper.isNull(ReconstructionTask::getNextAttemptTime)
+                        .or().le(ReconstructionTask::getNextAttemptTime, now))
+                .orderByAsc(ReconstructionTask::getCreateTime)
+                .last("LIMIT " + limit);
+        return list(queryWrapper);
+    }
+
+    /**
+     * 按创建时间顺序查询用户等待派发且已过退避期的任务
+     *
+     * @param userId 用户ID
+     * @param limit 最大数量
+     * @return 任务列表
+     */
+    @Override
+    public List<ReconstructionTask> listPendingTasks(Long userId, int limit) {
+        Date now = new Date();
+        LambdaQueryWrapper<ReconstructionTask> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ReconstructionTask::getStatus, TaskStatus.PENDING)
+                .eq(ReconstructionTask::getUserId, userId)
+                .and(wrapper -> wrapper.isNull(ReconstructionTask::getNextAttemptTime)
+                        .or().le(ReconstructionTask::getNextAttemptTime, now))
+                .orderByAsc(ReconstructionTask::getCreateTime)
+                .orderByAsc(ReconstructionTask::getId)
+                .last("LIMIT " + limit);
+        return list(queryWrapper);
+    }
+
+    /**
+     * 按用户统计等待派发且已过退避期的任务
+     *
+     * @return 各用户的等待任务数和最高优先级
+     */
+    @Override
+    public List<UserQueueStat> listPendingUserStats() {
+        Date now = new Date();
+        QueryWrapper<ReconstructionTask> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("userId", "MAX(priority) AS priority", "COUNT(*) AS total")
+                .eq("status", TaskStatus.PENDING)
+                .and(wrapper -> wrapper.isNull("nextAttemptTime").or().le("nextAttemptTime", now))
+                .groupBy("userId");
+        List<UserQueueStat> result = new ArrayList<>();
+        for (Map<String, Object> row : listMaps(queryWrapper)) {
+            UserQueueStat stat = new UserQueueStat();
+            stat.setUserId(((Number) row.get("userId")).longValue());
+            stat.setPriority(((Number) row.get("priority")).intValue());
+            stat.setPendingCount(((Number) row.get("total")).longValue());
+            result.add(stat);
+        }
+        return result;
+    }
+
+    /**
+     * 按用户统计处理中的任务数
+     *
+     * @return 用户ID到处理中任务数的映射
+     */
+    @Override
+    public Map<Long, Long> countProcessingTasksByUser() {
+        QueryWrapper<ReconstructionTask> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("userId", "COUNT(*) AS total")
+                .eq("status", TaskStatus.PROCESSING)
+                .groupBy("userId");
+        Map<Long, Long> result = new HashMap<>();
+        for (Map<String, Object> row : listMaps(queryWrapper)) {
+            result.put(((Number) row.get("userId")).longValue(), ((Number) row.get("total")).longValue());
+        }
+        return result;
+    }
+
+    /**
+     * 统计排在指定任务之前的等待中任务数
+     * <p>
+     * 任务ID是递增的雪花ID，ID更小的任务创建得更早
+     * </p>
+     *
+     * @param task 等待中的任务
+     * @param sameUser 是否只统计同一用户的任务
+     * @return 任务数
+     */
+    @Override
+    public long countPendingTasksAhead(ReconstructionTask task, boolean sameUser) {
+        LambdaQueryWrapper<ReconstructionTask> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ReconstructionTask::getStatus, TaskStatus.PENDING)
+                .eq(sameUser, ReconstructionTask::getUserId, task.getUserId())
+                .lt(ReconstructionTask::getId, task.getId());
+        return count(queryWrapper);
+    }
+
+    /**
+     * 查询超过期限没有任何回调的处理中任务
+     *
+     * @param cutoff 最后更新时间早于该时间的任务视为超时
+     * @param limit 最大数量
+     * @return 任务列表
+     */
+    @Override
+    public List<ReconstructionTask> listStuckTasks(Date cutoff, int limit) {
+        LambdaQueryWrapper<ReconstructionTask> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ReconstructionTask::getStatus, TaskStatus.PROCESSING)
+                .lt(ReconstructionTask::getUpdateTime, cutoff)
+                .orderByAsc(ReconstructionTask::getUpdateTime)
+                .last("LIMIT " + limit);
+        return list(queryWrapper);
+    }
+
+    /**
+     * 把超时的处理中任务放回队列，重试次数加一
+     *
+     * @param id 任务ID
+     * @param cutoff 超时判定时间
+     * @param nextAttemptTime 最早可以再次派发的时间
+     * @return 是否回收成功
+     */
+    @Override
+    public boolean requeueStuckTask(Long id, Date cutoff, Date nextAttemptTime) {
+        LambdaUpdateWrapper<ReconstructionTask> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.set(ReconstructionTask::getStatus, TaskStatus.PENDING)
+                .set(ReconstructionTask::getNextAttemptTime, nextAttemptTime)
+                .set(ReconstructionTask::getDispatchTime, null)
+                .set(ReconstructionTask::getWorkerUrl, null)
+                .set(ReconstructionTask::getUpdateTime, new Date())
+                .setSql("retryCount = retryCount + 1")
+                .eq(ReconstructionTask::getId, id)
+                .eq(ReconstructionTask::getStatus, TaskStatus.PROCESSING)
+                .lt(ReconstructionTask::getUpdateTime, cutoff);
+        boolean requeued = update(updateWrapper);
+        if (requeued) {
+            log.info("Requeued stuck task: {}, next attempt at: {}", id, nextAttemptTime);
+        }
+        return requeued;
+    }
+
+    /**
+     * 把尚未被节点接收的处理中任务放回队列，不增加重试次数
+     *
+     * @param id 任务ID
+     * @param nextAttemptTime 最早可以再次派发的时间
+     * @return 是否放回成功
+     */
+    @Override
+    public boolean requeueTask(Long id, Date nextAttemptTime) {
+        LambdaUpdateWrapper<ReconstructionTask> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.set(ReconstructionTask::getStatus, TaskStatus.PENDING)
+                .set(ReconstructionTask::getNextAttemptTime, nextAttemptTime)
+                .set(ReconstructionTask::getDispatchTime, null)
+                .set(ReconstructionTask::getWorkerUrl, null)
+                .set(ReconstructionTask::getUpdateTime, new Date())
+                .eq(ReconstructionTask::getId, id)
+                .eq(ReconstructionTask::getStatus, TaskStatus.PROCESSING);
+        boolean requeued = update(updateWrapper);
+        if (requeued) {
+            log.info("Requeued task: {}, next attempt at: {}", id, nextAttemptTime);
+        }
+        return requeued;
+    }
+
+    /**
+     * 把超时且重试次数用尽的处理中任务标记为失败
+     *
+     * @param id 任务ID
+     * @param cutoff 超时判定时间
+     * @param errorMessage 错误信息
+     * @return 是否更新成功
+     */
+    @Override
+    public boolean failStuckTask(Long id, Date cutoff, String errorMessage) {
+        LambdaUpdateWrapper<ReconstructionTask> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.set(ReconstructionTask::getStatus, TaskStatus.FAILED)
+                .set(ReconstructionTask::getErrorMessage, errorMessage)
+                .set(ReconstructionTask::getUpdateTime, new Date())
+                .setSql("processingTime = TIMESTAMPDIFF(SECOND, createTime, NOW())")
+                .eq(ReconstructionTask::getId, id)
+                .eq(ReconstructionTask::getStatus, TaskStatus.PROCESSING)
+                .lt(ReconstructionTask::getUpdateTime, cutoff);
+        boolean failed = update(updateWrapper);
+        if (failed) {
+            log.warn("Failed stuck task: {}, error: {}", id, errorMessage);
+        }
+        return failed;
+    }
+
+    /**
+     * 统计正在处理中的任务数
+     *
+     * @return 处理中的任务数
+     */
+    @Override
+    public long countProcessingTasks() {
+        LambdaQueryWrapper<ReconstructionTask> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ReconstructionTask::getStatus, TaskStatus.PROCESSING);
+        return count(queryWrapper);
+    }
+
+    /**
+     * 查询源图片内容相同、最近一个成功完成且有结果模型的任务
+     *
+     * @param contentHash 源图片内容哈希
+     * @return 任务，不存在时返回null
+     */
+    @Override
+    public ReconstructionTask getLatestCompletedTaskByHash(String contentHash) {
+        LambdaQueryWrapper<ReconstructionTask> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ReconstructionTask::getContentHash, contentHash)
+                .eq(ReconstructionTask::getStatus, TaskStatus.COMPLETED)
+                .isNotNull(ReconstructionTask::getResultModelId)
+                .orderByDesc(ReconstructionTask::getId)
+                .last("LIMIT 1");
+        return getOne(queryWrapper);
+    }
+
+    /**
+     * 按状态统计批次中的任务数
+     *
+     * @param batchId 批次ID
+     * @return 任务状态到任务数的映射
+     */
+    @Override
+    public Map<String, Long> countBatchTasksByStatus(Long batchId) {
+        QueryWrapper<ReconstructionTask> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("status", "COUNT(*) AS total")
+                .eq("batchId", batchId)
+                .groupBy("status");
+        Map<String, Long> result = new HashMap<>();
+        for (Map<String, Object> row : listMaps(queryWrapper)) {
+            result.put((String) row.get("status"), ((Number) row.get("total")).longValue());
+        }
+        return result;
+    }
+
+    /**
+     * 按派发到的重建服务节点统计处理中的任务数
+     *
+     * @return 节点URL到处理中任务数的映射
+     */
+    @Override
+    public Map<String, Long> countProcessingTasksByWorker() {
+        QueryWrapper<ReconstructionTask> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("workerUrl", "COUNT(*) AS total")
+                .eq("status", TaskStatus.PROCESSING)
+                .isNotNull("workerUrl")
+                .groupBy("workerUrl");
+        Map<String, Long> result = new HashMap<>();
+        for (Map<String, Object> row : listMaps(queryWrapper)) {
+            result.put((String) row.get("workerUrl"), ((Number) row.get("total")).longValue());
+        }
+        return result;
+    }
+
+    /**
+     * 认领等待派发的任务
+     *
+     * @param id 任务ID
+     * @param workerUrl 派发到的重建服务节点URL
+     * @return 是否认领成功
+     */
+    @Override
+    public boolean claimTask(Long id, String workerUrl) {
+        Date now = new Date();
+        LambdaUpdateWrapper<ReconstructionTask> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.set(ReconstructionTask::getStatus, TaskStatus.PROCESSING)
+                .set(ReconstructionTask::getDispatchTime, now)
+                .set(ReconstructionTask::getWorkerUrl, workerUrl)
+                .set(ReconstructionTask::getUpdateTime, now)
+                .eq(ReconstructionTask::getId, id)
+                .eq(ReconstructionTask::getStatus, TaskStatus.PENDING);
+        boolean claimed = update(updateWrapper);
+        if (claimed) {
+            log.info("Claimed task for dispatch: {}, worker: {}", id, workerUrl);
+        }
+        return claimed;
+    }
+
+    /**
+     * 在任务时间线中记录阶段
+     *
+     * @param id 任务ID
+     * @param stage 阶段名
+     * @param offsetMillis 相对创建时间的毫秒数
+     */
+    @Override
+    public void recordStage(Long id, String stage, long offsetMillis) {
+        // 阶段名只来自TaskStage常量，可以直接拼接到JSON路径中
+        LambdaUpdateWrapper<ReconstructionTask> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.setSql("timeline = JSON_SET(COALESCE(timeline, '{}'), '$." + stage + "', {0})", offsetMillis)
+                .eq(ReconstructionTask::getId, id);
+        update(updateWrapper);
+    }
+
+    /**
+     * 在任务的结果文件清单中记录一个文件，同名文件覆盖
+     *
+     * @param id 任务ID
+     * @param name 文件名
+     * @param size 文件大小（字节）
+     * @param checksum 文件内容SHA-256
+     * @param url 文件URL
+     */
+    @Override
+    public void recordArtifact(Long id, String name, Long size, String checksum, String url) {
+        // 文件名来自重建服务，作为参数传入JSON路径，去掉引号和反斜杠
+        String path = "$.\"" + name.replace("\"", "").replace("\\", "") + "\"";
+        LambdaUpdateWrapper<ReconstructionTask> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.setSql("artifacts = JSON_SET(COALESCE(artifacts, '{}'), {0}, "
+                                + "JSON_OBJECT('size', {1}, 'checksum', {2}, 'url', {3}))",
+                        path, size, checksum, url)
+                .eq(ReconstructionTask::getId, id);
+        update(updateWrapper);
+    }
+
+    /**
+     * 在任务没有结果文件清单时写入整个清单
+     *
+     * @param id 任务ID
+     * @param artifacts 清单JSON
+     * @return 是否写入
+     */
+    @Override
+    public boolean initArtifacts(Long id, String artifacts) {
+        LambdaUpdateWrapper<ReconstructionTask> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.set(ReconstructionTask::getArtifacts, artifacts)
+                .eq(ReconstructionTask::getId, id)
+                .isNull(ReconstructionTask::getArtifacts);
+        return update(updateWrapper);
+    }
+
+    /**
+     * 取消等待中或处理中的任务
+     *
+     * @param id 任务ID
+     * @return 取消前的任务，任务不存在或已结束时返回null
+     */
+    @Override
+    public ReconstructionTask cancelTask(Long id) {
+        ReconstructionTask task = getById(id);
+        if (task == null) {
+            log.warn("Task not found: {}", id);
+            return null;
+        }
+        String status = task.getStatus();
+        if (!TaskStatus.PENDING.equals(status) && !TaskStatus.PROCESSING.equals(status)) {
+            return null;
+        }
+        // 只在状态未变化时更新，期间被认领或已结束的任务不会被错误覆盖
+        LambdaUpdateWrapper<ReconstructionTask> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.set(ReconstructionTask::getStatus, TaskStatus.CANCELLED)
+                .set(ReconstructionTask::getErrorMessage, "任务已取消")
+                .set(ReconstructionTask::getUpdateTime, new Date())
+                .setSql("processingTime = TIMESTAMPDIFF(SECOND, createTime, NOW())")
+                .eq(ReconstructionTask::getId, id)
+                .eq(ReconstructionTask::getStatus, status);
+        if (!update(updateWrapper)) {
+            log.info("Task {} changed state while cancelling, status was: {}", id, status);
+            return null;
+        }
+        log.info("Cancelled task: {}, previous status: {}, worker: {}", id, status, task.getWorkerUrl());
+        return task;
+    }
+
     /**
      * 删除任务
      *
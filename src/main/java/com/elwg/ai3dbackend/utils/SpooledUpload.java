@@ -0,0 +1,168 @@
+package com.elwg.ai3dbackend.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 暂存的上传数据
+ * <p>
+ * 从请求体流式读取上传数据，同时计算SHA-256校验和。数据不超过阈值时保存在内存中，
+ * 超过阈值后转写到本地临时文件，读取过程只使用固定大小的缓冲区，
+ * 大文件和并发上传不会造成堆内存压力。使用完毕后需要调用{@link #close()}删除临时文件
+ * </p>
+ */
+@Slf4j
+public final class SpooledUpload implements InputStreamSource, Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 内存中的数据，写入临时文件时为null
+     */
+    private final byte[] data;
+
+    /**
+     * 临时文件，数据在内存中时为null
+     */
+    private final Path file;
+
+    /**
+     * 数据大小（字节）
+     */
+    private final long size;
+
+    /**
+     * SHA-256校验和（十六进制小写）
+     */
+    private final String sha256;
+
+    private SpooledUpload(byte[] data, Path file, long size, String sha256) {
+        this.data = data;
+        this.file = file;
+        this.size = size;
+        this.sha256 = sha256;
+    }
+
+    /**
+     * 读取并暂存上传数据
+     *
+     * @param inputStream 上传数据流，读取完毕后不会关闭
+     * @param threshold   内存中保存的最大字节数，超过后转写到临时文件
+     * @param spoolDir    临时文件目录
+     * @param maxSize     允许的最大字节数，超过时抛出异常
+     * @return 暂存的上传数据
+     * @throws IOException 如果读取或写入临时文件失败，或数据超过最大大小
+     */
+    public static SpooledUpload spool(InputStream inputStream, int threshold, Path spoolDir, long maxSize)
+            throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+        DigestInputStream in = new DigestInputStream(inputStream, digest);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteArrayOutputStream memory = new ByteArrayOutputStream(Math.min(threshold, BUFFER_SIZE));
+        Path file = null;
+        OutputStream out = memory;
+        long size = 0;
+        try {
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                size += count;
+                if (size > maxSize) {
+                    throw new IOException("Upload exceeds max size: " + maxSize + " bytes");
+                }
+                if (file == null && size > threshold) {
+                    // 超过阈值，把已读取的数据转写到临时文件
+                    Files.createDirectories(spoolDir);
+                    file = Files.createTempFile(spoolDir, "upload-", ".tmp");
+                    out = Files.newOutputStream(file);
+                    memory.writeTo(out);
+                    memory = null;
+                }
+                out.write(buffer, 0, count);
+            }
+            out.close();
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+            throw e;
+        }
+
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        if (file != null) {
+            log.info("Spooled upload to temp file: {}, size: {} bytes", file, size);
+            return new SpooledUpload(null, file, size, sha256);
+        }
+        return new SpooledUpload(memory.toByteArray(), null, size, sha256);
+    }
+
+    /**
+     * 打开数据流，可多次调用
+     *
+     * @return 数据流
+     * @throws IOException 如果打开临时文件失败
+     */
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return file != null ? Files.newInputStream(file) : new ByteArrayInputStream(data);
+    }
+
+    /**
+     * 获取临时文件路径
+     *
+     * @return 临时文件路径，数据保存在内存中时返回null
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    /**
+     * 校验数据的SHA-256校验和
+     *
+     * @param expected 期望的校验和（十六进制，不区分大小写）
+     * @return 一致时返回true
+     */
+    public boolean matchesSha256(String expected) {
+        return expected != null && sha256.equalsIgnoreCase(expected.trim());
+    }
+
+    /**
+     * 删除临时文件
+     */
+    @Override
+    public void close() {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete spooled upload: {}", file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.elwg.ai3dbackend.utils;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * 预编码的SSE事件帧
+ * <p>
+ * 事件在创建时一次性编码为完整的SSE帧字节（id、event、data及结尾空行），
+ * 之后推送给任意多个连接、重复补发都直接写出同一份字节，不再逐连接构建事件、转换字符串。
+ * 编码过程使用线程内复用的缓冲区，每帧只分配一次最终的字节数组。
+ * </p>
+ * <p>
+ * 帧是不可变的，不实现SseEmitter.SseEventBuilder，通过{@link #writeTo(ResponseBodyEmitter)}把字节直接交给连接写出
+ * </p>
+ */
+public final class SseFrame {
+
+    /**
+     * 编码缓冲区初始大小
+     */
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    /**
+     * 编码缓冲区保留的最大大小，超过后下次编码重新分配，避免个别大事件长期占用内存
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] ID_PREFIX = "id:".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] EVENT_PREFIX = "event:".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] DATA_PREFIX = "data:".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 线程内复用的编码缓冲区
+     */
+    private static final ThreadLocal<FrameBuffer> BUFFER = ThreadLocal.withInitial(FrameBuffer::new);
+
+    /**
+     * 心跳帧：内容固定，所有连接共享
+     */
+    public static final SseFrame HEARTBEAT = encode(null, null, "heartbeat", "ping");
+
+    /**
+     * 事件所属的主题（例如任务ID），不参与编码，用于区分不同主题的同名事件
+     */
+    private final String topic;
+
+    /**
+     * 事件ID，没有ID时为null
+     */
+    private final Long id;
+
+    /**
+     * 事件名称
+     */
+    private final String name;
+
+    /**
+     * 编码后的完整帧
+     */
+    private final byte[] bytes;
+
+    /**
+     * 交给SseEmitter写出的数据，创建后不再变化，可被所有连接共享
+     */
+    private final Set<ResponseBodyEmitter.DataWithMediaType> dataToSend;
+
+    private SseFrame(String topic, Long id, String name, byte[] bytes) {
+        this.topic = topic;
+        this.id = id;
+        this.name = name;
+        this.bytes = bytes;
+        this.dataToSend = toDataToSend(bytes);
+    }
+
+    /**
+     * 编码SSE事件帧
+     *
+     * @param id   事件ID（可选）
+     * @param name 事件名称
+     * @param data 事件数据，多行数据会拆分为多个data字段
+     * @return 预编码的事件帧
+     */
+    public static SseFrame encode(Long id, String name, String data) {
+        return encode(null, id, name, data);
+    }
+
+    /**
+     * 编码属于指定主题的SSE事件帧
+     *
+     * @param topic 事件所属的主题（可选）
+     * @param id    事件ID（可选）
+     * @param name  事件名称
+     * @param data  事件数据，多行数据会拆分为多个data字段
+     * @return 预编码的事件帧
+     */
+    public static SseFrame encode(String topic, Long id, String name, String data) {
+        FrameBuffer buffer = BUFFER.get();
+        buffer.reset();
+        if (id != null) {
+            buffer.write(ID_PREFIX);
+            buffer.writeAscii(Long.toString(id));
+            buffer.write('\n');
+        }
+        buffer.write(EVENT_PREFIX);
+        buffer.writeUtf8(name, false);
+        buffer.write('\n');
+        buffer.write(DATA_PREFIX);
+        buffer.writeUtf8(data == null ? "" : data, true);
+        buffer.write('\n');
+        buffer.write('\n');
+        SseFrame frame = new SseFrame(topic, id, name, buffer.toByteArray());
+        buffer.trim();
+        return frame;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取编码后的帧大小
+     *
+     * @return 字节数
+     */
+    public int size() {
+        return bytes.length;
+    }
+
+    /**
+     * 把帧写出到连接
+     * <p>
+     * 所有连接共享同一份字节，写出时不复制
+     * </p>
+     *
+     * @param emitter SSE连接
+     * @throws IOException 如果写出失败或连接已关闭
+     */
+    public void writeTo(ResponseBodyEmitter emitter) throws IOException {
+        emitter.send(dataToSend);
+    }
+
+    /**
+     * 把编码后的帧包装为emitter写出的数据，字节数组按原样写出
+     *
+     * @param bytes 编码后的完整帧
+     * @return 只包含一项的不可变集合
+     */
+    private static Set<ResponseBodyEmitter.DataWithMediaType> toDataToSend(byte[] bytes) {
+        return Set.of(new ResponseBodyEmitter.DataWithMediaType(bytes, MediaType.TEXT_PLAIN));
+    }
+
+    /**
+     * 可复用的字节缓冲区，直接按UTF-8写入字符，不经过中间字符串或字节数组
+     */
+    private static final class FrameBuffer {
+
+        private byte[] buf = new byte[INITIAL_BUFFER_SIZE];
+
+        private int count;
+
+        private void reset() {
+            count = 0;
+        }
+
+        private void trim() {
+            if (buf.length > MAX_RETAINED_BUFFER_SIZE) {
+                buf = new byte[INITIAL_BUFFER_SIZE];
+            }
+        }
+
+        private void ensureCapacity(int extra) {
+            int required = count + extra;
+            if (required > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(required, buf.length << 1));
+            }
+        }
+
+        private void write(int b) {
+            ensureCapacity(1);
+            buf[count++] = (byte) b;
+        }
+
+        private void write(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buf, count, bytes.length);
+            count += bytes.length;
+        }
+
+        private void writeAscii(String value) {
+            int length = value.length();
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                buf[count++] = (byte) value.charAt(i);
+            }
+        }
+
+        /**
+         * 按UTF-8写入字符串
+         *
+         * @param value     字符串
+         * @param multiline 是否为data字段：为true时换行拆分为新的data行，否则换行替换为空格
+         */
+        private void writeUtf8(String value, boolean multiline) {
+            int length = value.length();
+            // 单个UTF-16字符最多编码为3个字节，代理对共4个字节
+            ensureCapacity(length * 3);
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c == '\r' || c == '\n') {
+                    if (c == '\r' && i + 1 < length && value.charAt(i + 1) == '\n') {
+                        i++;
+                    }
+                    if (multiline) {
+                        write('\n');
+                        write(DATA_PREFIX);
+                        ensureCapacity((length - i) * 3);
+                    } else {
+                        buf[count++] = ' ';
+                    }
+                } else if (c < 0x80) {
+                    buf[count++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[count++] = (byte) (0xC0 | (c >> 6));
+                    buf[count++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buf[count++] = (byte) (0xF0 | (codePoint >> 18));
+                    buf[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buf[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buf[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // 不成对的代理字符无法编码，与String.getBytes保持一致替换为'?'
+                    buf[count++] = '?';
+                } else {
+                    buf[count++] = (byte) (0xE0 | (c >> 12));
+                    buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[count++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buf, count);
+        }
+    }
+}
@@ -4,9 +4,11 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -14,7 +16,8 @@ import java.util.zip.ZipInputStream;
 /**
  * ZIP文件工具类
  * <p>
- * 提供ZIP文件的解压缩等功能
+ * 提供ZIP文件的解压缩等功能。大文件应使用{@link #unzip(InputStream, EntryHandler)}逐个条目流式处理，
+ * 避免整个压缩包和解压后的文件同时驻留在内存中
  * </p>
  */
 @Slf4j
@@ -90,6 +93,41 @@ public class ZipUtils {
         return extractedFiles;
     }
     
+    /**
+     * 流式解压ZIP文件
+     * <p>
+     * 逐个条目读取，每个条目的数据流直接交给处理器，不在内存中缓存条目内容。
+     * 处理器未读完的数据会被跳过；处理器关闭条目数据流不会关闭整个压缩包
+     * </p>
+     *
+     * @param inputStream ZIP文件输入流
+     * @param handler 条目处理器
+     * @return 文件名到实际文件大小（字节）的映射，按压缩包中的顺序排列
+     * @throws IOException 如果解压或处理过程中发生错误
+     */
+    public static Map<String, Long> unzip(InputStream inputStream, EntryHandler handler) throws IOException {
+        Map<String, Long> entrySizes = new LinkedHashMap<>();
+
+        try (ZipInputStream zis = new ZipInputStream(inputStream)) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    String fileName = entry.getName();
+                    EntryInputStream entryStream = new EntryInputStream(zis);
+                    handler.handle(fileName, entryStream, entry.getSize());
+                    // 跳过处理器未读取的部分，保证统计的大小是条目的实际大小
+                    entryStream.skip(Long.MAX_VALUE);
+
+                    entrySizes.put(fileName, entryStream.getBytesRead());
+                    log.info("Streamed file from ZIP: {}, size: {} bytes", fileName, entryStream.getBytesRead());
+                }
+                zis.closeEntry();
+            }
+        }
+
+        return entrySizes;
+    }
+
     /**
      * 获取文件扩展名
      *
@@ -108,4 +146,77 @@ public class ZipUtils {
         
         return "";
     }
+
+    /**
+     * ZIP条目处理器
+     */
+    @FunctionalInterface
+    public interface EntryHandler {
+
+        /**
+         * 处理一个ZIP条目
+         *
+         * @param fileName 条目名称
+         * @param inputStream 条目数据流，只在本次调用内有效
+         * @param size 压缩包中声明的条目大小，未知时为-1
+         * @throws IOException 如果处理过程中发生错误
+         */
+        void handle(String fileName, InputStream inputStream, long size) throws IOException;
+    }
+
+    /**
+     * 单个条目的数据流：统计读取的字节数，关闭时不关闭底层的压缩包
+     */
+    private static class EntryInputStream extends FilterInputStream {
+
+        private long bytesRead;
+
+        private EntryInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                bytesRead += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // ZipInputStream.skip单次最多跳过512字节，循环读取直到条目结束
+            byte[] buffer = new byte[8192];
+            long skipped = 0;
+            int count;
+            while (skipped < n && (count = read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) > 0) {
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+            // 不关闭底层ZIP流，由unzip统一关闭
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private long getBytesRead() {
+            return bytesRead;
+        }
+    }
 }
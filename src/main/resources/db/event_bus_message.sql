@@ -0,0 +1,18 @@
+-- 创建数据库（如果不存在）
+CREATE DATABASE IF NOT EXISTS ai_3d;
+
+-- 使用数据库
+USE ai_3d;
+
+-- SSE事件总线消息表（多节点部署时用于跨节点转发SSE事件）
+-- 自增ID同时作为全局单调递增的SSE事件ID，各节点按ID顺序轮询
+CREATE TABLE IF NOT EXISTS `event_bus_message`
+(
+    `id`         BIGINT AUTO_INCREMENT COMMENT 'id' PRIMARY KEY,
+    `taskId`     VARCHAR(64)                           NOT NULL COMMENT '任务ID或用户主题（user:用户ID）',
+    `eventName`  VARCHAR(64)                           NOT NULL COMMENT '事件名称',
+    `data`       TEXT                                  NOT NULL COMMENT '已序列化的事件数据（JSON）',
+    `nodeId`     VARCHAR(128)                          NOT NULL COMMENT '发布节点ID',
+    `createTime` DATETIME(3) DEFAULT CURRENT_TIMESTAMP(3) NOT NULL COMMENT '创建时间',
+    INDEX `idx_createTime` (`createTime`)              -- 用于清理过期消息
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = 'SSE事件总线消息' COLLATE = utf8mb4_unicode_ci;
@@ -32,7 +32,12 @@ CREATE TABLE IF NOT EXISTS `model`
     INDEX `idx_category` (`category`),         -- 提升基于分类的查询性能  
     INDEX `idx_tags` (`tags`),                 -- 提升基于标签的查询性能  
     INDEX `idx_sourceImageId` (`sourceImageId`), -- 提升基于源图片ID的查询性能  
-    INDEX `idx_taskId` (`taskId`),             -- 提升基于任务ID的查询性能  
+    UNIQUE INDEX `uk_taskId` (`taskId`),       -- 每个重建任务只对应一个模型，回调按任务ID写入模型  
     INDEX `idx_status` (`status`),             -- 提升基于状态的查询性能  
     INDEX `idx_userId` (`userId`)              -- 提升基于用户 ID 的查询性能  
 ) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '3D模型' COLLATE = utf8mb4_unicode_ci;
+
+-- 已有数据库升级：任务ID唯一索引（执行前需先清理同一任务的重复模型）
+-- ALTER TABLE `model`
+--     DROP INDEX `idx_taskId`,
+--     ADD UNIQUE INDEX `uk_taskId` (`taskId`);
@@ -18,6 +18,7 @@ CREATE TABLE IF NOT EXISTS `picture`
     `picHeight`    INT                                NULL COMMENT '图片高度',  
     `picScale`     DOUBLE                             NULL COMMENT '图片宽高比例',  
     `picFormat`    VARCHAR(32)                        NULL COMMENT '图片格式',  
+    `contentHash`  CHAR(64)                           NULL COMMENT '图片内容SHA-256',
     `userId`       BIGINT                             NOT NULL COMMENT '创建用户 id',  
     `createTime`   DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL COMMENT '创建时间',  
     `editTime`     DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL COMMENT '编辑时间',  
@@ -27,5 +28,11 @@ CREATE TABLE IF NOT EXISTS `picture`
     INDEX `idx_introduction` (`introduction`), -- 用于模糊搜索图片简介  
     INDEX `idx_category` (`category`),         -- 提升基于分类的查询性能  
     INDEX `idx_tags` (`tags`),                 -- 提升基于标签的查询性能  
-    INDEX `idx_userId` (`userId`)              -- 提升基于用户 ID 的查询性能  
+    INDEX `idx_userId` (`userId`),             -- 提升基于用户 ID 的查询性能  
+    INDEX `idx_contentHash` (`contentHash`)    -- 查找内容相同的图片
 ) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '图片' COLLATE = utf8mb4_unicode_ci;
+
+-- 已有数据库升级：图片内容哈希（已有图片在首次创建重建任务时补算）
+-- ALTER TABLE `picture`
+--     ADD COLUMN `contentHash` CHAR(64) NULL COMMENT '图片内容SHA-256' AFTER `picFormat`,
+--     ADD INDEX `idx_contentHash` (`contentHash`);
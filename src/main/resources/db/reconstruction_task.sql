@@ -5,12 +5,22 @@ USE ai_3d;
 
 CREATE TABLE IF NOT EXISTS `reconstruction_task` (  
   `id`                BIGINT AUTO_INCREMENT COMMENT 'id' PRIMARY KEY,  
-  `status`            VARCHAR(32)                        NOT NULL DEFAULT 'PENDING' COMMENT '任务状态（PENDING/PROCESSING/COMPLETED/FAILED）',
+  `status`            VARCHAR(32)                        NOT NULL DEFAULT 'PENDING' COMMENT '任务状态（PENDING/PROCESSING/COMPLETED/FAILED/CANCELLED）',
   `sourceImageId`     BIGINT                             NOT NULL COMMENT '源图片ID',  
   `resultModelId`     BIGINT                             NULL COMMENT '结果模型ID',  
   `errorMessage`      TEXT                               NULL COMMENT '错误信息',  
   `processingTime`    INT                                NULL COMMENT '处理时间（秒）',  
   `userId`            BIGINT                             NOT NULL COMMENT '创建用户ID',  
+  `callbackUrl`       VARCHAR(512)                       NULL COMMENT '回调URL',
+  `dispatchTime`      DATETIME                           NULL COMMENT '派发时间',
+  `workerUrl`         VARCHAR(512)                       NULL COMMENT '派发到的重建服务节点URL',
+  `contentHash`       CHAR(64)                           NULL COMMENT '源图片内容SHA-256',
+  `batchId`           BIGINT                             NULL COMMENT '批次ID',
+  `priority`          INT      DEFAULT 0                 NOT NULL COMMENT '调度优先级',
+  `retryCount`        INT      DEFAULT 0                 NOT NULL COMMENT '超时后重新派发的次数',
+  `nextAttemptTime`   DATETIME                           NULL COMMENT '最早可以再次派发的时间',
+  `timeline`          VARCHAR(512)                       NULL COMMENT '阶段时间线（JSON，阶段名到相对创建时间的毫秒数）',
+  `artifacts`         TEXT                               NULL COMMENT '结果文件清单（JSON，文件名到大小、SHA-256和URL）',
   `createTime`        DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL COMMENT '创建时间',  
   `updateTime`        DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',  
   `isDelete`          TINYINT  DEFAULT 0                 NOT NULL COMMENT '是否删除',
@@ -18,5 +28,49 @@ CREATE TABLE IF NOT EXISTS `reconstruction_task` (
   INDEX `idx_sourceImageId` (`sourceImageId`),  
   INDEX `idx_resultModelId` (`resultModelId`),  
   INDEX `idx_userId` (`userId`),  
-  INDEX `idx_createTime` (`createTime`)  
+  INDEX `idx_createTime` (`createTime`),
+  INDEX `idx_status_createTime` (`status`, `createTime`),
+  INDEX `idx_contentHash_status` (`contentHash`, `status`),
+  INDEX `idx_batchId` (`batchId`),
+  INDEX `idx_status_updateTime` (`status`, `updateTime`),
+  INDEX `idx_status_userId` (`status`, `userId`)
 ) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '3D重建任务' COLLATE = utf8mb4_unicode_ci;
+
+-- 已有数据库升级：任务队列字段
+-- ALTER TABLE `reconstruction_task`
+--     ADD COLUMN `callbackUrl`  VARCHAR(512) NULL COMMENT '回调URL' AFTER `userId`,
+--     ADD COLUMN `dispatchTime` DATETIME     NULL COMMENT '派发时间' AFTER `callbackUrl`,
+--     ADD INDEX `idx_status_createTime` (`status`, `createTime`);
+
+-- 已有数据库升级：重建服务节点池
+-- ALTER TABLE `reconstruction_task`
+--     ADD COLUMN `workerUrl` VARCHAR(512) NULL COMMENT '派发到的重建服务节点URL' AFTER `dispatchTime`;
+
+-- 已有数据库升级：按图片内容复用重建结果
+-- ALTER TABLE `reconstruction_task`
+--     ADD COLUMN `contentHash` CHAR(64) NULL COMMENT '源图片内容SHA-256' AFTER `workerUrl`,
+--     ADD INDEX `idx_contentHash_status` (`contentHash`, `status`);
+
+-- 已有数据库升级：批量提交
+-- ALTER TABLE `reconstruction_task`
+--     ADD COLUMN `batchId` BIGINT NULL COMMENT '批次ID' AFTER `contentHash`,
+--     ADD INDEX `idx_batchId` (`batchId`);
+
+-- 已有数据库升级：超时任务回收与重新派发
+-- ALTER TABLE `reconstruction_task`
+--     ADD COLUMN `retryCount`      INT      DEFAULT 0 NOT NULL COMMENT '超时后重新派发的次数' AFTER `batchId`,
+--     ADD COLUMN `nextAttemptTime` DATETIME NULL COMMENT '最早可以再次派发的时间' AFTER `retryCount`,
+--     ADD INDEX `idx_status_updateTime` (`status`, `updateTime`);
+
+-- 已有数据库升级：按用户公平调度
+-- ALTER TABLE `reconstruction_task`
+--     ADD COLUMN `priority` INT DEFAULT 0 NOT NULL COMMENT '调度优先级' AFTER `batchId`,
+--     ADD INDEX `idx_status_userId` (`status`, `userId`);
+
+-- 已有数据库升级：阶段耗时记录
+-- ALTER TABLE `reconstruction_task`
+--     ADD COLUMN `timeline` VARCHAR(512) NULL COMMENT '阶段时间线（JSON，阶段名到相对创建时间的毫秒数）' AFTER `nextAttemptTime`;
+
+-- 已有数据库升级：结果文件清单
+-- ALTER TABLE `reconstruction_task`
+--     ADD COLUMN `artifacts` TEXT NULL COMMENT '结果文件清单（JSON，文件名到大小、SHA-256和URL）' AFTER `timeline`;
@@ -0,0 +1,148 @@
+package com.elwg.ai3dbackend.controller;
+
+import com.elwg.ai3dbackend.manager.ReconstructionArtifactManifest;
+import com.elwg.ai3dbackend.model.entity.Model;
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
+import com.elwg.ai3dbackend.service.EventStreamService;
+import com.elwg.ai3dbackend.service.FileStorageService;
+import com.elwg.ai3dbackend.service.ModelService;
+import com.elwg.ai3dbackend.service.ReconstructionTaskService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 3D重建回调控制器测试类
+ */
+public class ReconstructionCallbackControllerTest {
+
+    private static final String TEXTURE_PATH = "reconstruction/1/texture.png";
+
+    @InjectMocks
+    private ReconstructionCallbackController callbackController;
+
+    @Mock
+    private ReconstructionTaskService reconstructionTaskService;
+
+    @Mock
+    private EventStreamService eventStreamService;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private ModelService modelService;
+
+    @Mock
+    private ReconstructionArtifactManifest reconstructionArtifactManifest;
+
+    @TempDir
+    Path spoolDir;
+
+    private ExecutorService uploadExecutor;
+
+    /**
+     * 存储路径到写入内容的映射
+     */
+    private final Map<String, String> storedFiles = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        uploadExecutor = Executors.newFixedThreadPool(4);
+        ReflectionTestUtils.setField(callbackController, "artifactUploadExecutor", uploadExecutor);
+        // 较小的阈值使部分条目写入临时文件
+        ReflectionTestUtils.setField(callbackController, "spoolThreshold", 16);
+        ReflectionTestUtils.setField(callbackController, "spoolDir", spoolDir.toString());
+        ReflectionTestUtils.setField(callbackController, "spoolMaxSize", 1024L * 1024);
+
+        doAnswer(invocation -> {
+            try (InputStream inputStream = invocation.getArgument(1)) {
+                String content = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+                assertNull(storedFiles.put(invocation.getArgument(0), content), "同一路径只上传一次");
+            }
+            return null;
+        }).when(fileStorageService).saveFile(anyString(), any(InputStream.class), anyLong(), anyString());
+        when(fileStorageService.getFileUrl(anyString())).thenAnswer(invocation -> "https://cos/" + invocation.getArgument(0));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        uploadExecutor.shutdownNow();
+    }
+
+    /**
+     * 测试压缩包中有两张纹理图片时只上传最后一张，存储、文件清单、result事件和模型记录一致
+     */
+    @Test
+    public void testOutputZipWithDuplicateTextures() throws IOException {
+        String obj = "v 0 0 0\nv 1 0 0\nv 0 1 0\nf 1 2 3\n";
+        String mtl = "newmtl material0\nmap_Kd texture.png\n";
+        String lastTexture = "second texture, the one to keep";
+        byte[] zip = zip(
+                "mesh/model.obj", obj,
+                "mesh/texture_0.png", "first texture",
+                "mesh/model.mtl", mtl,
+                "mesh/texture_1.jpg", lastTexture,
+                "pixel_images.png", "not a model file");
+        ReconstructionTask task = new ReconstructionTask();
+        task.setId(1L);
+
+        ReflectionTestUtils.invokeMethod(callbackController, "handleOutputZipCallback", task, new ByteArrayResource(zip));
+
+        assertEquals(3, storedFiles.size());
+        assertEquals(lastTexture, storedFiles.get(TEXTURE_PATH));
+        assertEquals(obj, storedFiles.get("reconstruction/1/model.obj"));
+        assertEquals(mtl, storedFiles.get("reconstruction/1/model.mtl"));
+
+        long textureSize = lastTexture.getBytes(StandardCharsets.UTF_8).length;
+        verify(reconstructionArtifactManifest).record(eq(1L), eq("texture.png"), eq(textureSize), anyString(),
+                eq("https://cos/" + TEXTURE_PATH));
+        verify(reconstructionArtifactManifest, times(3)).record(eq(1L), anyString(), anyLong(), anyString(), anyString());
+        verify(eventStreamService, times(1)).sendResultEvent("1", "texture.png", "https://cos/" + TEXTURE_PATH);
+
+        ArgumentCaptor<Model> changes = ArgumentCaptor.forClass(Model.class);
+        verify(modelService).upsertTaskModel(eq(task), changes.capture());
+        assertEquals("https://cos/" + TEXTURE_PATH, changes.getValue().getTextureImageUrl());
+        assertEquals("https://cos/reconstruction/1/model.obj", changes.getValue().getObjFileUrl());
+        assertEquals(obj.length() + mtl.length() + textureSize, changes.getValue().getModelSize());
+    }
+
+    private static byte[] zip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+}
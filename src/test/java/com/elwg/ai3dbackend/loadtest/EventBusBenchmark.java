@@ -0,0 +1,206 @@
+package com.elwg.ai3dbackend.loadtest;
+
+import com.elwg.ai3dbackend.service.EventBus;
+import com.elwg.ai3dbackend.service.impl.JdbcEventBusImpl;
+import com.elwg.ai3dbackend.service.impl.LocalEventBusImpl;
+import com.elwg.ai3dbackend.stub.InMemoryEventBusMessageMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.elwg.ai3dbackend.loadtest.ReconstructionLoadTest.MAX_TRACKABLE_MICROS;
+import static com.elwg.ai3dbackend.loadtest.ReconstructionLoadTest.percentiles;
+import static com.elwg.ai3dbackend.loadtest.ReconstructionLoadTest.round;
+import static com.elwg.ai3dbackend.loadtest.ReconstructionLoadTest.toMicros;
+
+/**
+ * 事件总线吞吐量基准测试
+ * <p>
+ * 多个线程并发发布事件，监听器统计送达数量和从发布到送达的延迟，输出发布吞吐量、送达吞吐量和延迟分位数。
+ * 进程内总线直接同步送达；MySQL总线的消息表使用内存实现，测量的是轮询、ID空洞检测和送达本身的开销，
+ * 不包含数据库的写入耗时，单节点送达吞吐量的上限约为 batch-size / poll-interval
+ * </p>
+ * <p>
+ * 参数使用 {@code --key=value} 格式，未指定的参数读取系统属性 {@code benchmark.key}，例如
+ * {@code --bus=all --events=200000 --publishers=4 --poll-interval=200 --batch-size=500}
+ * </p>
+ */
+@Slf4j
+public class EventBusBenchmark {
+
+    /**
+     * 等待全部事件送达的最长时间（毫秒）
+     */
+    private static final long DELIVERY_TIMEOUT = 10 * 60 * 1000L;
+
+    private final int events;
+
+    private final int publishers;
+
+    private final long pollInterval;
+
+    private final int batchSize;
+
+    public EventBusBenchmark(int events, int publishers, long pollInterval, int batchSize) {
+        this.events = events;
+        this.publishers = publishers;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 运行基准测试
+     *
+     * @param args 命令行参数：bus（local/jdbc/all）、events、publishers、poll-interval、batch-size、report
+     * @throws Exception 如果测试被中断或报告写入失败
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Invalid argument: " + arg + ", expected --key=value");
+            }
+            int index = arg.indexOf('=');
+            values.put(arg.substring(2, index), arg.substring(index + 1));
+        }
+        String bus = get(values, "bus", "all");
+        EventBusBenchmark benchmark = new EventBusBenchmark(
+                Integer.parseInt(get(values, "events", "200000")),
+                Integer.parseInt(get(values, "publishers", "4")),
+                Long.parseLong(get(values, "poll-interval", "200")),
+                Integer.parseInt(get(values, "batch-size", "500")));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        if ("local".equals(bus) || "all".equals(bus)) {
+            report.put("local", benchmark.runLocal());
+        }
+        if ("jdbc".equals(bus) || "all".equals(bus)) {
+            report.put("jdbc", benchmark.runJdbc());
+        }
+        String json = new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        System.out.println(json);
+        String reportPath = get(values, "report", null);
+        if (reportPath != null) {
+            Files.writeString(Path.of(reportPath), json);
+        }
+    }
+
+    /**
+     * 测试进程内总线
+     *
+     * @return 测试结果
+     * @throws InterruptedException 如果测试被中断
+     */
+    public Map<String, Object> runLocal() throws InterruptedException {
+        return run(new LocalEventBusImpl(), null);
+    }
+
+    /**
+     * 测试MySQL轮询总线，消息表使用内存实现
+     *
+     * @return 测试结果
+     * @throws InterruptedException 如果测试被中断
+     */
+    public Map<String, Object> runJdbc() throws InterruptedException {
+        InMemoryEventBusMessageMapper messageTable = new InMemoryEventBusMessageMapper();
+        JdbcEventBusImpl bus = new JdbcEventBusImpl();
+        ReflectionTestUtils.setField(bus, "eventBusMessageMapper", messageTable.proxy());
+        ReflectionTestUtils.setField(bus, "nodeId", "benchmark");
+        ReflectionTestUtils.setField(bus, "pollInterval", pollInterval);
+        ReflectionTestUtils.setField(bus, "batchSize", batchSize);
+        ReflectionTestUtils.setField(bus, "gapTimeout", 2000L);
+        ReflectionTestUtils.setField(bus, "retentionSeconds", 600L);
+        try {
+            Map<String, Object> result = run(bus, bus::init);
+            result.put("polls", messageTable.getSelectCount());
+            result.put("pollInterval", pollInterval);
+            result.put("batchSize", batchSize);
+            return result;
+        } finally {
+            bus.destroy();
+        }
+    }
+
+    /**
+     * 并发发布事件并等待全部送达
+     *
+     * @param bus 事件总线
+     * @param start 注册监听器后启动总线，进程内总线为null
+     * @return 测试结果
+     * @throws InterruptedException 如果测试被中断
+     */
+    private Map<String, Object> run(EventBus bus, Runnable start) throws InterruptedException {
+        Histogram publishLatency = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+        Histogram deliveryLatency = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+        AtomicLong deliveredCount = new AtomicLong(0);
+        AtomicLong failedCount = new AtomicLong(0);
+        CountDownLatch allDelivered = new CountDownLatch(events);
+        // 事件数据为发布时间，送达时计算延迟
+        bus.subscribe(message -> {
+            deliveryLatency.recordValue(toMicros(System.nanoTime() - Long.parseLong(message.getData())));
+            deliveredCount.incrementAndGet();
+            allDelivered.countDown();
+            return true;
+        });
+        if (start != null) {
+            start.run();
+        }
+
+        log.info("Publishing {} events from {} thread(s) to {}", events, publishers, bus.getClass().getSimpleName());
+        ExecutorService executor = Executors.newFixedThreadPool(publishers);
+        long startTime = System.nanoTime();
+        for (int p = 0; p < publishers; p++) {
+            int count = events / publishers + (p < events % publishers ? 1 : 0);
+            String taskId = Integer.toString(p);
+            executor.execute(() -> {
+                for (int i = 0; i < count; i++) {
+                    long publishTime = System.nanoTime();
+                    if (!bus.publish(taskId, "status", Long.toString(publishTime))) {
+                        failedCount.incrementAndGet();
+                        allDelivered.countDown();
+                    }
+                    publishLatency.recordValue(toMicros(System.nanoTime() - publishTime));
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        double publishSeconds = (System.nanoTime() - startTime) / 1e9;
+        boolean completed = allDelivered.await(DELIVERY_TIMEOUT, TimeUnit.MILLISECONDS);
+        double totalSeconds = (System.nanoTime() - startTime) / 1e9;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("events", events);
+        result.put("publishers", publishers);
+        result.put("completed", completed);
+        result.put("delivered", deliveredCount.get());
+        result.put("publishFailures", failedCount.get());
+        result.put("publishPerSecond", round(events / publishSeconds));
+        result.put("deliveredPerSecond", round(deliveredCount.get() / totalSeconds));
+        result.put("publishLatencyMs", percentiles(publishLatency));
+        result.put("deliveryLatencyMs", percentiles(deliveryLatency));
+        result.put("busMetrics", bus.getMetrics());
+        return result;
+    }
+
+    private static String get(Map<String, String> values, String key, String defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            value = System.getProperty("benchmark." + key);
+        }
+        return value != null ? value : defaultValue;
+    }
+}
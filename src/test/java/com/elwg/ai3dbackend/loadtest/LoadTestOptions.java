@@ -0,0 +1,140 @@
+package com.elwg.ai3dbackend.loadtest;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测配置
+ * <p>
+ * 命令行参数使用 {@code --key=value} 格式，未指定的参数读取系统属性 {@code loadtest.key}。
+ * 以 {@code --stub.} 开头的参数原样传给内嵌的模拟重建服务，例如 {@code --stub.gpu-slots=4}
+ * </p>
+ */
+@Data
+public class LoadTestOptions {
+
+    /**
+     * 后端地址（包含context-path）
+     */
+    private String baseUrl = "http://127.0.0.1:8123/api";
+
+    /**
+     * 登录账号，创建任务需要管理员权限
+     */
+    private String userAccount = "admin";
+
+    /**
+     * 登录密码
+     */
+    private String userPassword;
+
+    /**
+     * 用于创建任务的已上传图片ID，多个图片轮流使用
+     */
+    private List<Long> imageIds = new ArrayList<>();
+
+    /**
+     * 创建的任务总数
+     */
+    private int tasks = 100;
+
+    /**
+     * 同时进行中的任务数（从创建到收到结束事件）
+     */
+    private int concurrency = 10;
+
+    /**
+     * 单个任务从创建到结束的超时时间（毫秒）
+     */
+    private long taskTimeout = 300000;
+
+    /**
+     * 采样后端内存和线程数的间隔（毫秒）
+     */
+    private long sampleInterval = 1000;
+
+    /**
+     * 是否启动内嵌的模拟重建服务，启动后才能统计回调到SSE事件送达的延迟
+     */
+    private boolean startStub = true;
+
+    /**
+     * 传给模拟重建服务的参数
+     */
+    private List<String> stubArgs = new ArrayList<>();
+
+    /**
+     * 报告输出文件（JSON，可选）
+     */
+    private String report;
+
+    /**
+     * 解析命令行参数
+     *
+     * @param args 命令行参数
+     * @return 配置
+     * @throws IllegalArgumentException 如果参数格式不正确
+     */
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Invalid argument: " + arg + ", expected --key=value");
+            }
+            if (arg.startsWith("--stub.")) {
+                options.getStubArgs().add("--" + arg.substring("--stub.".length()));
+                continue;
+            }
+            int index = arg.indexOf('=');
+            values.put(arg.substring(2, index), arg.substring(index + 1));
+        }
+
+        String value;
+        if ((value = get(values, "base-url")) != null) {
+            options.setBaseUrl(value.replaceAll("/+$", ""));
+        }
+        if ((value = get(values, "user-account")) != null) {
+            options.setUserAccount(value);
+        }
+        if ((value = get(values, "user-password")) != null) {
+            options.setUserPassword(value);
+        }
+        if ((value = get(values, "image-ids")) != null) {
+            for (String id : value.split(",")) {
+                options.getImageIds().add(Long.parseLong(id.trim()));
+            }
+        }
+        if ((value = get(values, "tasks")) != null) {
+            options.setTasks(Integer.parseInt(value));
+        }
+        if ((value = get(values, "concurrency")) != null) {
+            options.setConcurrency(Integer.parseInt(value));
+        }
+        if ((value = get(values, "task-timeout")) != null) {
+            options.setTaskTimeout(Long.parseLong(value));
+        }
+        if ((value = get(values, "sample-interval")) != null) {
+            options.setSampleInterval(Long.parseLong(value));
+        }
+        if ((value = get(values, "start-stub")) != null) {
+            options.setStartStub(Boolean.parseBoolean(value));
+        }
+        if ((value = get(values, "report")) != null) {
+            options.setReport(value);
+        }
+        if (options.getUserPassword() == null || options.getImageIds().isEmpty()) {
+            throw new IllegalArgumentException("--user-password and --image-ids are required");
+        }
+        return options;
+    }
+
+    private static String get(Map<String, String> values, String key) {
+        String value = values.get(key);
+        return value != null ? value : System.getProperty("loadtest." + key);
+    }
+}
@@ -0,0 +1,470 @@
+package com.elwg.ai3dbackend.loadtest;
+
+import com.elwg.ai3dbackend.stub.StubReconstructionWorker;
+import com.elwg.ai3dbackend.stub.StubWorkerOptions;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.FormBody;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 3D重建全链路压测
+ * <p>
+ * 以固定并发调用 /reconstruction/create 创建任务，每个任务创建后立即打开 /reconstruction/events/{id} 事件流，
+ * 直到收到结束状态。重建服务使用内嵌的{@link StubReconstructionWorker}，
+ * 通过模拟服务发出回调的时间和事件流收到对应事件的时间计算事件送达延迟（回调处理、存储写入和SSE推送之和）。
+ * 压测期间定期采样后端的堆内存和线程数，结束后输出吞吐量、端到端耗时和事件延迟的分位数
+ * </p>
+ * <p>
+ * 后端需要单独启动并连接MySQL，reconstruction.http.server.url 指向模拟服务（启动时会打印地址），
+ * 例如 {@code --user-password=xxx --image-ids=1,2 --tasks=500 --concurrency=50 --stub.gpu-slots=8}
+ * </p>
+ */
+@Slf4j
+public class ReconstructionLoadTest {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    /**
+     * 直方图可记录的最大值（微秒）
+     */
+    static final long MAX_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final LoadTestOptions options;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final OkHttpClient client;
+
+    /**
+     * 模拟服务发出回调的时间，键为 任务ID|事件键
+     */
+    private final Map<String, Long> callbackTimes = new ConcurrentHashMap<>();
+
+    /**
+     * 创建任务接口的耗时（微秒）
+     */
+    private final Histogram createLatency = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+
+    /**
+     * 从创建任务到收到结束事件的耗时（微秒）
+     */
+    private final Histogram endToEndLatency = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+
+    /**
+     * 从模拟服务发出回调到收到对应事件的延迟（微秒）
+     */
+    private final Histogram eventLag = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+
+    /**
+     * 按事件键区分的事件延迟（微秒）
+     */
+    private final Map<String, Histogram> eventLagByKind = new ConcurrentHashMap<>();
+
+    private final AtomicLong completedCount = new AtomicLong(0);
+
+    private final AtomicLong failedCount = new AtomicLong(0);
+
+    private final AtomicLong timeoutCount = new AtomicLong(0);
+
+    private final AtomicLong errorCount = new AtomicLong(0);
+
+    private final AtomicLong eventCount = new AtomicLong(0);
+
+    private final AtomicLong maxHeapUsedMb = new AtomicLong(0);
+
+    private final AtomicLong maxLiveThreads = new AtomicLong(0);
+
+    private final AtomicLong maxSseConnections = new AtomicLong(0);
+
+    private final AtomicLong maxQueuedEvents = new AtomicLong(0);
+
+    public ReconstructionLoadTest(LoadTestOptions options) {
+        this.options = options;
+        this.client = new OkHttpClient.Builder()
+                .cookieJar(new SessionCookieJar())
+                .connectTimeout(10, TimeUnit.SECONDS)
+                // 事件流长时间没有数据，超时由每个任务的总超时控制
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * 运行压测
+     *
+     * @param args 命令行参数，见{@link LoadTestOptions#parse(String[])}
+     * @throws Exception 如果登录失败或压测被中断
+     */
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        Map<String, Object> report = new ReconstructionLoadTest(options).run();
+        String json = new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        System.out.println(json);
+        if (options.getReport() != null) {
+            Files.writeString(Path.of(options.getReport()), json);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 运行压测
+     *
+     * @return 压测报告
+     * @throws Exception 如果登录失败或压测被中断
+     */
+    public Map<String, Object> run() throws Exception {
+        StubReconstructionWorker stub = null;
+        if (options.isStartStub()) {
+            stub = StubReconstructionWorker.start(StubWorkerOptions.parse(options.getStubArgs().toArray(new String[0])));
+            stub.setCallbackListener((taskId, name, nanoTime) ->
+                    callbackTimes.put(taskId + "|" + callbackKey(name), nanoTime));
+            log.info("Stub worker started, backend must use reconstruction.http.server.url={}/generate3d",
+                    stub.getBaseUrl());
+        }
+
+        login();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleWithFixedDelay(this::sampleBackend, 0, options.getSampleInterval(), TimeUnit.MILLISECONDS);
+        ExecutorService workers = Executors.newFixedThreadPool(options.getConcurrency());
+
+        log.info("Starting load test: {} tasks, concurrency: {}", options.getTasks(), options.getConcurrency());
+        long startTime = System.nanoTime();
+        for (int i = 0; i < options.getTasks(); i++) {
+            long imageId = options.getImageIds().get(i % options.getImageIds().size());
+            workers.execute(() -> runTask(imageId));
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        sampler.shutdownNow();
+        sampleBackend();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("tasks", options.getTasks());
+        report.put("concurrency", options.getConcurrency());
+        report.put("durationSeconds", round(seconds));
+        report.put("completed", completedCount.get());
+        report.put("failed", failedCount.get());
+        report.put("timeouts", timeoutCount.get());
+        report.put("errors", errorCount.get());
+        report.put("tasksPerSecond", round(completedCount.get() / seconds));
+        report.put("events", eventCount.get());
+        report.put("createLatencyMs", percentiles(createLatency));
+        report.put("endToEndLatencyMs", percentiles(endToEndLatency));
+        report.put("eventLagMs", percentiles(eventLag));
+        Map<String, Object> lagByKind = new LinkedHashMap<>();
+        eventLagByKind.forEach((kind, histogram) -> lagByKind.put(kind, percentiles(histogram)));
+        report.put("eventLagByKindMs", lagByKind);
+        Map<String, Object> backend = new LinkedHashMap<>();
+        backend.put("maxHeapUsedMb", maxHeapUsedMb.get());
+        backend.put("maxLiveThreads", maxLiveThreads.get());
+        backend.put("maxSseConnections", maxSseConnections.get());
+        backend.put("maxQueuedEvents", maxQueuedEvents.get());
+        report.put("backend", backend);
+        JsonNode metrics = getData("/health/metrics");
+        if (metrics != null) {
+            report.put("backendStages", metrics.get("stages"));
+            report.put("backendDispatcher", metrics.get("dispatcher"));
+        }
+        if (stub != null) {
+            report.put("stub", stub.getStats());
+            stub.stop();
+        }
+        return report;
+    }
+
+    /**
+     * 创建一个任务并读取事件流直到任务结束
+     *
+     * @param imageId 图片ID
+     */
+    private void runTask(long imageId) {
+        long startTime = System.nanoTime();
+        String taskId;
+        try {
+            taskId = createTask(imageId);
+            createLatency.recordValue(toMicros(System.nanoTime() - startTime));
+        } catch (Exception e) {
+            errorCount.incrementAndGet();
+            log.warn("Failed to create task for image: {}", imageId, e);
+            return;
+        }
+
+        Request request = new Request.Builder()
+                .url(options.getBaseUrl() + "/reconstruction/events/" + taskId)
+                .header("Accept", "text/event-stream")
+                .get()
+                .build();
+        Call call = client.newCall(request);
+        call.timeout().timeout(options.getTaskTimeout(), TimeUnit.MILLISECONDS);
+        try (Response response = call.execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("Failed to open event stream: " + response.code());
+            }
+            String status = readUntilFinished(taskId, body.source());
+            endToEndLatency.recordValue(toMicros(System.nanoTime() - startTime));
+            if ("COMPLETED".equals(status)) {
+                completedCount.incrementAndGet();
+            } else {
+                failedCount.incrementAndGet();
+            }
+        } catch (InterruptedIOException e) {
+            timeoutCount.incrementAndGet();
+            log.warn("Task {} did not finish within {} ms", taskId, options.getTaskTimeout());
+        } catch (Exception e) {
+            errorCount.incrementAndGet();
+            log.warn("Event stream of task {} failed", taskId, e);
+        }
+    }
+
+    /**
+     * 读取事件流，记录每个事件相对模拟服务回调的延迟
+     *
+     * @param taskId 任务ID
+     * @param source 事件流
+     * @return 结束状态
+     * @throws IOException 如果事件流在任务结束前断开
+     */
+    private String readUntilFinished(String taskId, BufferedSource source) throws IOException {
+        String event = null;
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                if (data.length() > 0) {
+                    String status = onEvent(taskId, event != null ? event : "message", data.toString());
+                    if (status != null) {
+                        return status;
+                    }
+                }
+                event = null;
+                data.setLength(0);
+            } else if (line.startsWith("event:")) {
+                event = line.substring("event:".length()).trim();
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(line.substring("data:".length()).trim());
+            }
+        }
+        throw new IOException("Event stream closed before task finished");
+    }
+
+    /**
+     * 处理一个事件
+     *
+     * @return 任务结束时返回结束状态，否则返回null
+     */
+    private String onEvent(String taskId, String event, String data) throws IOException {
+        long now = System.nanoTime();
+        eventCount.incrementAndGet();
+        JsonNode node = objectMapper.readTree(data);
+        String key;
+        switch (event) {
+            case "status":
+                key = "status:" + node.path("status").asText();
+                break;
+            case "result":
+                key = "result:" + node.path("name").asText();
+                break;
+            case "file_received":
+                key = "file_received:" + node.path("fileType").asText();
+                break;
+            default:
+                key = event;
+        }
+        // 只统计回调之后第一次收到的事件，连接时补发的旧事件没有对应的回调时间
+        Long sentTime = callbackTimes.remove(taskId + "|" + key);
+        if (sentTime != null) {
+            long lag = toMicros(now - sentTime);
+            eventLag.recordValue(lag);
+            eventLagByKind.computeIfAbsent(key, k -> new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3)).recordValue(lag);
+        }
+
+        if ("status".equals(event)) {
+            String status = node.path("status").asText();
+            if ("COMPLETED".equals(status) || "FAILED".equals(status) || "CANCELLED".equals(status)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 模拟服务的回调对应的事件键
+     *
+     * @param name 回调的结果文件名或状态
+     * @return 事件键
+     */
+    private static String callbackKey(String name) {
+        switch (name) {
+            case "output3d.zip":
+                return "file_received:output_zip";
+            case "completed":
+            case "failed":
+                return "status:" + name.toUpperCase();
+            default:
+                return "result:" + name;
+        }
+    }
+
+    /**
+     * 登录，会话Cookie由CookieJar保存
+     *
+     * @throws IOException 如果登录失败
+     */
+    private void login() throws IOException {
+        Map<String, String> body = Map.of("userAccount", options.getUserAccount(),
+                "userPassword", options.getUserPassword());
+        Request request = new Request.Builder()
+                .url(options.getBaseUrl() + "/user/login")
+                .post(RequestBody.create(objectMapper.writeValueAsBytes(body), JSON))
+                .build();
+        readData(request);
+        log.info("Logged in as: {}", options.getUserAccount());
+    }
+
+    /**
+     * 创建任务，总是跳过结果缓存
+     *
+     * @param imageId 图片ID
+     * @return 任务ID
+     * @throws IOException 如果创建失败
+     */
+    private String createTask(long imageId) throws IOException {
+        RequestBody body = new FormBody.Builder()
+                .add("imageId", String.valueOf(imageId))
+                .add("bypassCache", "true")
+                .build();
+        Request request = new Request.Builder()
+                .url(options.getBaseUrl() + "/reconstruction/create")
+                .post(body)
+                .build();
+        return readData(request).asText();
+    }
+
+    /**
+     * 采样后端的堆内存、线程数和SSE连接数
+     */
+    private void sampleBackend() {
+        try {
+            JsonNode detail = getData("/health/detail");
+            if (detail != null) {
+                long total = parseMb(detail.path("jvmTotalMemory").asText());
+                long free = parseMb(detail.path("jvmFreeMemory").asText());
+                maxHeapUsedMb.accumulateAndGet(total - free, Math::max);
+            }
+            JsonNode metrics = getData("/health/metrics");
+            if (metrics != null) {
+                maxLiveThreads.accumulateAndGet(metrics.path("liveThreads").asLong(), Math::max);
+                JsonNode sse = metrics.path("sse");
+                maxSseConnections.accumulateAndGet(sse.path("activeConnections").asLong(), Math::max);
+                maxQueuedEvents.accumulateAndGet(sse.path("maxQueuedEvents").asLong(), Math::max);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to sample backend metrics: {}", e.getMessage());
+        }
+    }
+
+    private JsonNode getData(String path) throws IOException {
+        Request request = new Request.Builder().url(options.getBaseUrl() + path).get().build();
+        return readData(request);
+    }
+
+    /**
+     * 发送请求并读取统一响应中的data字段
+     *
+     * @throws IOException 如果请求失败或响应的code不为0
+     */
+    private JsonNode readData(Request request) throws IOException {
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            String text = body != null ? body.string() : "";
+            if (!response.isSuccessful()) {
+                throw new IOException(request.url().encodedPath() + " returned " + response.code() + ": " + text);
+            }
+            JsonNode node = objectMapper.readTree(text);
+            if (node.path("code").asInt() != 0) {
+                throw new IOException(request.url().encodedPath() + " failed: " + node.path("message").asText());
+            }
+            return node.get("data");
+        }
+    }
+
+    static Map<String, Object> percentiles(Histogram histogram) {
+        Histogram snapshot = histogram.copy();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", snapshot.getTotalCount());
+        if (snapshot.getTotalCount() > 0) {
+            stats.put("mean", round(snapshot.getMean() / 1000));
+            stats.put("p50", round(snapshot.getValueAtPercentile(50) / 1000.0));
+            stats.put("p99", round(snapshot.getValueAtPercentile(99) / 1000.0));
+            stats.put("p999", round(snapshot.getValueAtPercentile(99.9) / 1000.0));
+            stats.put("max", round(snapshot.getMaxValue() / 1000.0));
+        }
+        return stats;
+    }
+
+    static long toMicros(long nanos) {
+        return Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), MAX_TRACKABLE_MICROS);
+    }
+
+    static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static long parseMb(String value) {
+        return Long.parseLong(value.replace("MB", "").trim());
+    }
+
+    /**
+     * 在内存中保存登录会话Cookie
+     */
+    private static class SessionCookieJar implements CookieJar {
+
+        private final List<Cookie> cookies = new ArrayList<>();
+
+        @Override
+        public synchronized void saveFromResponse(HttpUrl url, List<Cookie> responseCookies) {
+            for (Cookie cookie : responseCookies) {
+                cookies.removeIf(existing -> existing.name().equals(cookie.name()));
+                cookies.add(cookie);
+            }
+        }
+
+        @Override
+        public synchronized List<Cookie> loadForRequest(HttpUrl url) {
+            return new ArrayList<>(cookies);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.elwg.ai3dbackend.loadtest;
+
+import com.elwg.ai3dbackend.utils.SseFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSE事件帧分配基准测试（JMH）
+ * <p>
+ * 对比两种把一个事件推送给多个订阅者的方式：逐订阅者用SseEmitter.event()构建事件
+ * （每个订阅者各自生成字符串和数据集合），与每个事件只编码一次{@link SseFrame}、所有订阅者共享同一份字节。
+ * 每次调用发布一个事件，结果中的gc.alloc.rate.norm即每个事件在发布线程上分配的字节数，不包含写出到网络的开销
+ * </p>
+ * <p>
+ * 直接运行main方法时使用GC分析器；也可以传入JMH的命令行参数，例如
+ * {@code -p subscribers=100 -p payloadSize=200 -prof gc -rf json -rff sse-frame.json}
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SseFrameBenchmark {
+
+    /**
+     * 同一任务的订阅者数
+     */
+    @Param({"1", "10", "100"})
+    private int subscribers;
+
+    /**
+     * 事件数据的字节数
+     */
+    @Param({"200"})
+    private int payloadSize;
+
+    private String payload;
+
+    /**
+     * 事件ID，每次调用递增
+     */
+    private long eventId;
+
+    @Setup
+    public void setUp() {
+        StringBuilder data = new StringBuilder("{\"taskId\":\"1\",\"status\":\"PROCESSING\",\"error\":\"");
+        while (data.length() < payloadSize - 2) {
+            data.append('x');
+        }
+        payload = data.append("\"}").toString();
+    }
+
+    /**
+     * 运行基准测试
+     *
+     * @param args JMH命令行参数，为空时运行全部参数组合并启用GC分析器
+     * @throws RunnerException 如果基准测试运行失败
+     * @throws IOException 如果命令行参数无效
+     */
+    public static void main(String[] args) throws RunnerException, IOException {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        new Runner(new OptionsBuilder()
+                .include(SseFrameBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * 逐订阅者构建事件
+     *
+     * @param blackhole 防止JIT消除未使用的结果
+     */
+    @Benchmark
+    public void perSubscriberBuilder(Blackhole blackhole) {
+        String id = Long.toString(++eventId);
+        for (int i = 0; i < subscribers; i++) {
+            Set<ResponseBodyEmitter.DataWithMediaType> data = SseEmitter.event()
+                    .id(id)
+                    .name("status")
+                    .data(payload)
+                    .build();
+            blackhole.consume(data);
+        }
+    }
+
+    /**
+     * 每个事件编码一次，所有订阅者共享
+     *
+     * @param blackhole 防止JIT消除未使用的结果
+     */
+    @Benchmark
+    public void preEncodedFrame(Blackhole blackhole) {
+        SseFrame frame = SseFrame.encode("1", ++eventId, "status", payload);
+        for (int i = 0; i < subscribers; i++) {
+            blackhole.consume(frame);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.elwg.ai3dbackend.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 重建服务熔断器测试类
+ */
+public class ReconstructionCircuitBreakerTest {
+
+    /**
+     * 打开持续时间（毫秒）
+     */
+    private static final long OPEN_DURATION = 100;
+
+    private ReconstructionCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    public void setUp() {
+        circuitBreaker = new ReconstructionCircuitBreaker();
+        ReflectionTestUtils.setField(circuitBreaker, "enabled", true);
+        ReflectionTestUtils.setField(circuitBreaker, "failureThreshold", 3);
+        ReflectionTestUtils.setField(circuitBreaker, "openDuration", OPEN_DURATION);
+    }
+
+    /**
+     * 测试连续失败达到阈值后打开，成功会重置连续失败次数
+     */
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertEquals("CLOSED", state());
+        assertTrue(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onFailure();
+        assertEquals("OPEN", state());
+        assertTrue(circuitBreaker.isOpen());
+        assertTrue(circuitBreaker.getOpenUntil() > System.currentTimeMillis());
+        assertFalse(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+        assertEquals(1L, circuitBreaker.getMetrics().get("opens"));
+        assertEquals(2L, circuitBreaker.getMetrics().get("rejected"));
+    }
+
+    /**
+     * 测试打开时间结束后进入半开状态，只放行一个试探任务，试探成功后关闭
+     */
+    @Test
+    public void testHalfOpenAllowsSingleTrial() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION + 50);
+        assertFalse(circuitBreaker.isOpen(), "打开时间结束后重试不再快速失败");
+
+        assertTrue(circuitBreaker.tryAcquire());
+        assertEquals("HALF_OPEN", state());
+        assertEquals(0L, circuitBreaker.getOpenUntil());
+        // 试探任务没有结果之前，其他任务都被拒绝
+        assertFalse(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onSuccess();
+        assertEquals("CLOSED", state());
+        assertEquals(0, circuitBreaker.getMetrics().get("consecutiveFailures"));
+        assertTrue(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    /**
+     * 测试试探任务失败后立即重新打开，不需要再次达到失败阈值
+     */
+    @Test
+    public void testTrialFailureReopens() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION + 50);
+        assertTrue(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onFailure();
+        assertEquals("OPEN", state());
+        assertTrue(circuitBreaker.isOpen());
+        assertFalse(circuitBreaker.tryAcquire());
+        assertEquals(2L, circuitBreaker.getMetrics().get("opens"));
+    }
+
+    /**
+     * 测试试探任务超过打开持续时间仍没有结果时再放行一个
+     */
+    @Test
+    public void testAbandonedTrialIsReplaced() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION + 50);
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+
+        Thread.sleep(OPEN_DURATION + 50);
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+        assertEquals("HALF_OPEN", state());
+    }
+
+    /**
+     * 测试关闭熔断器时总是允许派发
+     */
+    @Test
+    public void testDisabled() {
+        ReflectionTestUtils.setField(circuitBreaker, "enabled", false);
+        open();
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onFailure();
+        }
+    }
+
+    private String state() {
+        return (String) circuitBreaker.getMetrics().get("state");
+    }
+}
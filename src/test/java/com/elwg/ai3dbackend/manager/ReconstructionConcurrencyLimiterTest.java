@@ -0,0 +1,101 @@
+package com.elwg.ai3dbackend.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 3D重建任务自适应并发限制器测试类
+ */
+public class ReconstructionConcurrencyLimiterTest {
+
+    private ReconstructionConcurrencyLimiter concurrencyLimiter;
+
+    @BeforeEach
+    public void setUp() {
+        concurrencyLimiter = new ReconstructionConcurrencyLimiter();
+        ReflectionTestUtils.setField(concurrencyLimiter, "enabled", true);
+        ReflectionTestUtils.setField(concurrencyLimiter, "initialLimit", 8);
+        ReflectionTestUtils.setField(concurrencyLimiter, "minLimit", 1);
+        ReflectionTestUtils.setField(concurrencyLimiter, "maxLimit", 16);
+        ReflectionTestUtils.setField(concurrencyLimiter, "tolerance", 2.0);
+        ReflectionTestUtils.setField(concurrencyLimiter, "backoffRatio", 0.5);
+        concurrencyLimiter.init();
+    }
+
+    /**
+     * 测试下调后，下调前派发的任务的耗时和拒绝不再触发下调
+     */
+    @Test
+    public void testDecreaseIgnoresSamplesDispatchedBeforeLastDecrease() {
+        long dispatchTime = System.currentTimeMillis() - 1000;
+        concurrencyLimiter.onSample(100, dispatchTime);
+        assertEquals(8, concurrencyLimiter.getLimit());
+
+        // 同一轮拥塞中派发的多个任务陆续返回较长的耗时
+        concurrencyLimiter.onSample(500, dispatchTime);
+        assertEquals(4, concurrencyLimiter.getLimit());
+        concurrencyLimiter.onSample(500, dispatchTime);
+        concurrencyLimiter.onSample(600, dispatchTime + 10);
+        concurrencyLimiter.onDrop(dispatchTime);
+        assertEquals(4, concurrencyLimiter.getLimit());
+        assertEquals(1L, concurrencyLimiter.getMetrics().get("decreases"));
+        assertEquals(4L, concurrencyLimiter.getMetrics().get("samples"));
+
+        // 下调后派发的任务仍然变慢，说明拥塞没有缓解，继续下调
+        concurrencyLimiter.onSample(500, System.currentTimeMillis());
+        assertEquals(2, concurrencyLimiter.getLimit());
+        concurrencyLimiter.onDrop(System.currentTimeMillis());
+        assertEquals(1, concurrencyLimiter.getLimit());
+        assertEquals(3L, concurrencyLimiter.getMetrics().get("decreases"));
+    }
+
+    /**
+     * 测试下调不低于并发上限的下限，已在下限时不计入下调次数
+     */
+    @Test
+    public void testDecreaseStopsAtMinLimit() {
+        for (int i = 0; i < 6; i++) {
+            concurrencyLimiter.onDrop(System.currentTimeMillis());
+        }
+        assertEquals(1, concurrencyLimiter.getLimit());
+        assertEquals(4L, concurrencyLimiter.getMetrics().get("decreases"));
+    }
+
+    /**
+     * 测试耗时在容忍范围内且上限被用满时加一，未用满时不提高
+     */
+    @Test
+    public void testAdditiveIncrease() {
+        ReflectionTestUtils.setField(concurrencyLimiter, "initialLimit", 2);
+        concurrencyLimiter.init();
+        long dispatchTime = System.currentTimeMillis();
+
+        concurrencyLimiter.recordInFlight(1);
+        concurrencyLimiter.onSample(100, dispatchTime);
+        assertEquals(2, concurrencyLimiter.getLimit(), "上限没有成为瓶颈");
+
+        concurrencyLimiter.recordInFlight(2);
+        concurrencyLimiter.onSample(150, dispatchTime);
+        assertEquals(3, concurrencyLimiter.getLimit());
+        // 提高后重新观察在途任务数
+        concurrencyLimiter.onSample(150, dispatchTime);
+        assertEquals(3, concurrencyLimiter.getLimit());
+        assertEquals(1L, concurrencyLimiter.getMetrics().get("increases"));
+    }
+
+    /**
+     * 测试关闭自适应调整时只记录样本，并发上限固定
+     */
+    @Test
+    public void testDisabled() {
+        ReflectionTestUtils.setField(concurrencyLimiter, "enabled", false);
+        concurrencyLimiter.onSample(100, System.currentTimeMillis());
+        concurrencyLimiter.onSample(1000, System.currentTimeMillis());
+        concurrencyLimiter.onDrop(System.currentTimeMillis());
+        assertEquals(8, concurrencyLimiter.getLimit());
+        assertEquals(2L, concurrencyLimiter.getMetrics().get("samples"));
+    }
+}
@@ -0,0 +1,152 @@
+package com.elwg.ai3dbackend.manager;
+
+import com.elwg.ai3dbackend.config.ReconstructionSchedulerProperties;
+import com.elwg.ai3dbackend.model.dto.reconstruction.UserQueueStat;
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
+import com.elwg.ai3dbackend.model.enums.UserRoleEnum;
+import com.elwg.ai3dbackend.service.ReconstructionTaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 3D重建任务公平调度器测试类
+ */
+public class ReconstructionFairSchedulerTest {
+
+    /**
+     * 普通用户的优先级
+     */
+    private static final int USER_PRIORITY = 0;
+
+    /**
+     * 管理员的优先级
+     */
+    private static final int ADMIN_PRIORITY = 10;
+
+    @InjectMocks
+    private ReconstructionFairScheduler fairScheduler;
+
+    @Mock
+    private ReconstructionTaskService reconstructionTaskService;
+
+    private ReconstructionSchedulerProperties schedulerProperties;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // 默认配置：管理员权重4、并发上限4，普通用户权重1、并发上限2
+        schedulerProperties = new ReconstructionSchedulerProperties();
+        ReflectionTestUtils.setField(fairScheduler, "schedulerProperties", schedulerProperties);
+
+        // 用户的第i个等待任务ID为 userId*100+i
+        when(reconstructionTaskService.listPendingTasks(anyLong(), anyInt())).thenAnswer(invocation -> {
+            Long userId = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            List<ReconstructionTask> tasks = new ArrayList<>();
+            for (int i = 0; i < limit; i++) {
+                ReconstructionTask task = new ReconstructionTask();
+                task.setId(userId * 100 + i);
+                task.setUserId(userId);
+                tasks.add(task);
+            }
+            return tasks;
+        });
+        when(reconstructionTaskService.countProcessingTasksByUser()).thenAnswer(invocation -> new HashMap<>());
+    }
+
+    /**
+     * 测试每轮按类别权重派发，优先级高的类别排在每一轮的前面
+     */
+    @Test
+    public void testWeightedRoundRobin() {
+        // 管理员每轮派发3个任务，并发上限足够大，只受权重限制
+        schedulerProperties.getClasses().put(UserRoleEnum.ADMIN.getValue(),
+                new ReconstructionSchedulerProperties.PriorityClass(ADMIN_PRIORITY, 3, 10));
+        when(reconstructionTaskService.listPendingUserStats()).thenReturn(Arrays.asList(
+                stat(1L, USER_PRIORITY, 10), stat(2L, ADMIN_PRIORITY, 10)));
+
+        List<ReconstructionTask> tasks = fairScheduler.selectTasks(8);
+
+        assertEquals(Arrays.asList(2L, 2L, 2L, 1L, 2L, 2L, 2L, 1L), userIds(tasks));
+        // 同一用户的任务按其等待顺序派发
+        assertEquals(Arrays.asList(200L, 201L, 202L, 203L, 204L, 205L),
+                tasks.stream().filter(task -> task.getUserId() == 2L).map(ReconstructionTask::getId)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * 测试同一类别内轮转起点后移，上一轮最后被服务的用户排到最后
+     */
+    @Test
+    public void testRotatesStartAfterLastServedUser() {
+        when(reconstructionTaskService.listPendingUserStats()).thenReturn(Arrays.asList(
+                stat(3L, USER_PRIORITY, 5), stat(1L, USER_PRIORITY, 5), stat(2L, USER_PRIORITY, 5)));
+
+        assertEquals(Arrays.asList(1L, 2L), userIds(fairScheduler.selectTasks(2)));
+        assertEquals(Arrays.asList(3L, 1L), userIds(fairScheduler.selectTasks(2)));
+        assertEquals(Arrays.asList(2L, 3L, 1L), userIds(fairScheduler.selectTasks(3)));
+    }
+
+    /**
+     * 测试单个用户同时处理中的任务数不超过类别的并发上限，达到上限的用户不占用本轮名额
+     */
+    @Test
+    public void testPerUserConcurrencyCap() {
+        when(reconstructionTaskService.listPendingUserStats()).thenReturn(Arrays.asList(
+                stat(1L, USER_PRIORITY, 5), stat(2L, USER_PRIORITY, 5),
+                stat(3L, USER_PRIORITY, 5), stat(4L, ADMIN_PRIORITY, 10)));
+        Map<Long, Long> processing = new HashMap<>();
+        processing.put(1L, 1L);
+        processing.put(2L, 2L);
+        processing.put(4L, 3L);
+        when(reconstructionTaskService.countProcessingTasksByUser()).thenReturn(processing);
+
+        List<ReconstructionTask> tasks = fairScheduler.selectTasks(10);
+
+        // 管理员还能派发1个，用户1还能派发1个，用户2已达上限，用户3可以派发2个
+        assertEquals(Arrays.asList(4L, 1L, 3L, 3L), userIds(tasks));
+        verify(reconstructionTaskService, never()).listPendingTasks(eq(2L), anyInt());
+    }
+
+    /**
+     * 测试关闭公平调度时按创建顺序派发
+     */
+    @Test
+    public void testFairDisabled() {
+        schedulerProperties.setFair(false);
+        List<ReconstructionTask> pending = Arrays.asList(new ReconstructionTask(), new ReconstructionTask());
+        when(reconstructionTaskService.listPendingTasks(5)).thenReturn(pending);
+
+        assertSame(pending, fairScheduler.selectTasks(5));
+        verify(reconstructionTaskService, never()).listPendingUserStats();
+    }
+
+    private static List<Long> userIds(List<ReconstructionTask> tasks) {
+        return tasks.stream().map(ReconstructionTask::getUserId).collect(Collectors.toList());
+    }
+
+    private static UserQueueStat stat(Long userId, int priority, long pendingCount) {
+        UserQueueStat stat = new UserQueueStat();
+        stat.setUserId(userId);
+        stat.setPriority(priority);
+        stat.setPendingCount(pendingCount);
+        return stat;
+    }
+}
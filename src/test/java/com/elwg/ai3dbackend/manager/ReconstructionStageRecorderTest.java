@@ -0,0 +1,125 @@
+package com.elwg.ai3dbackend.manager;
+
+import com.elwg.ai3dbackend.constant.TaskStage;
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
+import com.elwg.ai3dbackend.service.ReconstructionTaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 3D重建任务阶段耗时记录器测试类
+ */
+public class ReconstructionStageRecorderTest {
+
+    @InjectMocks
+    private ReconstructionStageRecorder stageRecorder;
+
+    @Mock
+    private ReconstructionTaskService reconstructionTaskService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    /**
+     * 测试跳过的阶段不计入，返回之前最近一个已记录阶段的时间
+     */
+    @Test
+    public void testPreviousOffsetSkipsMissingStages() {
+        Map<String, Long> timeline = timeline(TaskStage.DISPATCHED, 100L, TaskStage.ACCEPTED, 250L);
+
+        // 没有单独发送像素图像和XYZ图像
+        assertEquals(250L, previousOffset(timeline, TaskStage.OUTPUT_ZIP));
+        assertEquals(250L, previousOffset(timeline, TaskStage.PIXEL_IMAGES));
+        assertEquals(100L, previousOffset(timeline, TaskStage.ACCEPTED));
+
+        timeline.put(TaskStage.PIXEL_IMAGES, 900L);
+        assertEquals(900L, previousOffset(timeline, TaskStage.STORED));
+    }
+
+    /**
+     * 测试只查找指定阶段之前的阶段，已记录的后续阶段不影响结果
+     */
+    @Test
+    public void testPreviousOffsetIgnoresLaterStages() {
+        Map<String, Long> timeline = timeline(TaskStage.DISPATCHED, 100L, TaskStage.STORED, 1000L);
+        assertEquals(100L, previousOffset(timeline, TaskStage.XYZ_IMAGES));
+    }
+
+    /**
+     * 测试之前没有已记录阶段时从创建时间算起，时间线中的created阶段不参与查找
+     */
+    @Test
+    public void testPreviousOffsetDefaultsToCreateTime() {
+        assertEquals(0L, previousOffset(new LinkedHashMap<>(), TaskStage.ACCEPTED));
+        assertEquals(0L, previousOffset(timeline(TaskStage.CREATED, 5L), TaskStage.DISPATCHED));
+        assertEquals(0L, previousOffset(timeline(TaskStage.ACCEPTED, 300L), TaskStage.DISPATCHED));
+    }
+
+    /**
+     * 测试跳过阶段时耗时计入下一个到达的阶段，并更新任务的时间线
+     */
+    @Test
+    public void testRecordAfterSkippedStages() {
+        ReconstructionTask task = new ReconstructionTask();
+        task.setId(1L);
+        task.setCreateTime(new Date(System.currentTimeMillis() - 1000));
+        task.setTimeline("{\"dispatched\":100,\"accepted\":200}");
+
+        stageRecorder.record(task, TaskStage.OUTPUT_ZIP);
+
+        Map<String, Long> timeline = stageRecorder.parseTimeline(task.getTimeline());
+        long offset = timeline.get(TaskStage.OUTPUT_ZIP);
+        assertTrue(offset >= 1000, "相对创建时间的毫秒数");
+        verify(reconstructionTaskService).recordStage(eq(1L), eq(TaskStage.OUTPUT_ZIP), eq(offset));
+
+        Map<String, Object> metrics = stageRecorder.getMetrics();
+        assertEquals(0L, stats(metrics, TaskStage.PIXEL_IMAGES).get("count"));
+        assertEquals(0L, stats(metrics, TaskStage.XYZ_IMAGES).get("count"));
+        Map<?, ?> outputZip = stats(metrics, TaskStage.OUTPUT_ZIP);
+        assertEquals(1L, outputZip.get("count"));
+        // 耗时从accepted阶段算起，直方图按3位有效数字记录
+        assertEquals(offset - 200, ((Number) outputZip.get("max")).doubleValue(), (offset - 200) * 0.001 + 1);
+
+        // 同一个任务对象上的下一个阶段按本次记录计算
+        stageRecorder.record(task, TaskStage.COMPLETED);
+        long completed = stageRecorder.parseTimeline(task.getTimeline()).get(TaskStage.COMPLETED);
+        assertEquals(completed - offset, ((Number) stats(stageRecorder.getMetrics(), TaskStage.COMPLETED).get("max")).doubleValue(),
+                (completed - offset) * 0.001 + 1);
+        assertEquals(1L, stats(stageRecorder.getMetrics(), "total").get("count"));
+        verify(reconstructionTaskService, times(2)).recordStage(eq(1L), anyString(), anyLong());
+    }
+
+    private long previousOffset(Map<String, Long> timeline, String stage) {
+        Long offset = ReflectionTestUtils.invokeMethod(stageRecorder, "previousOffset", timeline, stage);
+        assertNotNull(offset);
+        return offset;
+    }
+
+    private static Map<?, ?> stats(Map<String, Object> metrics, String stage) {
+        return (Map<?, ?>) metrics.get(stage);
+    }
+
+    private static Map<String, Long> timeline(Object... stageOffsets) {
+        Map<String, Long> timeline = new LinkedHashMap<>();
+        for (int i = 0; i < stageOffsets.length; i += 2) {
+            timeline.put((String) stageOffsets[i], (Long) stageOffsets[i + 1]);
+        }
+        return timeline;
+    }
+}
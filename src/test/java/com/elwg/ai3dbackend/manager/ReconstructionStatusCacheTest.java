@@ -0,0 +1,138 @@
+package com.elwg.ai3dbackend.manager;
+
+import com.elwg.ai3dbackend.constant.TaskStatus;
+import com.elwg.ai3dbackend.model.dto.reconstruction.ReconstructionTaskDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 3D重建任务状态缓存测试类
+ */
+public class ReconstructionStatusCacheTest {
+
+    private static final Long TASK_ID = 1L;
+
+    private ReconstructionStatusCache statusCache;
+
+    /**
+     * 数据库中任务的当前状态
+     */
+    private volatile String currentStatus = TaskStatus.PROCESSING;
+
+    private final AtomicInteger loadCount = new AtomicInteger(0);
+
+    @BeforeEach
+    public void setUp() {
+        statusCache = new ReconstructionStatusCache();
+        ReflectionTestUtils.setField(statusCache, "enabled", true);
+        ReflectionTestUtils.setField(statusCache, "ttl", 60000L);
+        ReflectionTestUtils.setField(statusCache, "finishedTtl", 60000L);
+        ReflectionTestUtils.setField(statusCache, "cacheSize", 100);
+        statusCache.init();
+    }
+
+    /**
+     * 测试缓存时间内重复查询只查询一次数据库，失效后重新查询
+     */
+    @Test
+    public void testCachesUntilInvalidated() {
+        ReconstructionStatusCache.Snapshot first = statusCache.get(TASK_ID, this::load);
+        ReconstructionStatusCache.Snapshot second = statusCache.get(TASK_ID, this::load);
+        assertSame(first, second);
+        assertEquals(1, loadCount.get());
+        assertNotNull(first.getEtag());
+
+        currentStatus = TaskStatus.COMPLETED;
+        statusCache.invalidate(TASK_ID);
+        ReconstructionStatusCache.Snapshot third = statusCache.get(TASK_ID, this::load);
+        assertEquals(TaskStatus.COMPLETED, third.getStatus().getStatus());
+        assertNotEquals(first.getEtag(), third.getEtag());
+        assertEquals(2, loadCount.get());
+    }
+
+    /**
+     * 测试查询期间发生失效时，查询结果返回给本次请求但不写入缓存，下一次请求重新查询
+     */
+    @Test
+    public void testLoadOverlappingInvalidateIsNotCached() {
+        // 查询已读取旧状态，返回前回调更新了任务并使缓存失效
+        ReconstructionStatusCache.Snapshot stale = statusCache.get(TASK_ID, taskId -> {
+            ReconstructionTaskDTO dto = load(taskId);
+            currentStatus = TaskStatus.COMPLETED;
+            statusCache.invalidate(taskId);
+            return dto;
+        });
+        assertEquals(TaskStatus.PROCESSING, stale.getStatus().getStatus());
+
+        ReconstructionStatusCache.Snapshot fresh = statusCache.get(TASK_ID, this::load);
+        assertEquals(TaskStatus.COMPLETED, fresh.getStatus().getStatus());
+        assertEquals(2, loadCount.get());
+
+        // 失效后开始的查询版本一致，正常写入缓存
+        assertSame(fresh, statusCache.get(TASK_ID, this::load));
+        assertEquals(2, loadCount.get());
+    }
+
+    /**
+     * 测试失效早于缓存项的查询开始时，不影响该查询写入缓存
+     */
+    @Test
+    public void testInvalidateBeforeLoadStartsIsCached() {
+        statusCache.invalidate(TASK_ID);
+        statusCache.invalidate(TASK_ID);
+        ReconstructionStatusCache.Snapshot snapshot = statusCache.get(TASK_ID, this::load);
+        assertEquals(2L, snapshot.getVersion());
+        assertSame(snapshot, statusCache.get(TASK_ID, this::load));
+        assertEquals(1, loadCount.get());
+    }
+
+    /**
+     * 测试同一任务的并发查询合并为一次数据库查询
+     */
+    @Test
+    public void testConcurrentLoadsAreCoalesced() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<Long, ReconstructionTaskDTO> slowLoader = taskId -> {
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return load(taskId);
+        };
+
+        CompletableFuture<ReconstructionStatusCache.Snapshot> first =
+                CompletableFuture.supplyAsync(() -> statusCache.get(TASK_ID, slowLoader));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ReconstructionStatusCache.Snapshot> second =
+                CompletableFuture.supplyAsync(() -> statusCache.get(TASK_ID, slowLoader));
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((Long) statusCache.getMetrics().get("coalesced") == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loadCount.get());
+        assertEquals(1L, statusCache.getMetrics().get("coalesced"));
+    }
+
+    private ReconstructionTaskDTO load(Long taskId) {
+        loadCount.incrementAndGet();
+        ReconstructionTaskDTO dto = new ReconstructionTaskDTO();
+        dto.setId(taskId);
+        dto.setStatus(currentStatus);
+        return dto;
+    }
+}
@@ -0,0 +1,208 @@
+package com.elwg.ai3dbackend.manager;
+
+import com.elwg.ai3dbackend.config.ReconstructionWorkerProperties;
+import com.elwg.ai3dbackend.service.ReconstructionTaskService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 重建服务节点管理器测试类
+ */
+public class ReconstructionWorkerManagerTest {
+
+    private static final String URL_A = "http://worker-a:8001/generate3d";
+
+    private static final String URL_B = "http://worker-b:8001/generate3d";
+
+    private static final String URL_C = "http://worker-c:8001/generate3d";
+
+    @InjectMocks
+    private ReconstructionWorkerManager workerManager;
+
+    @Mock
+    private ReconstructionTaskService reconstructionTaskService;
+
+    private ReconstructionWorkerProperties workerProperties;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(reconstructionTaskService.countProcessingTasksByWorker()).thenReturn(new HashMap<>());
+
+        // 不配置健康检查URL，探测只校准在途任务数；探测间隔足够长，测试期间只有启动时的一轮
+        workerProperties = new ReconstructionWorkerProperties();
+        workerProperties.setProbeInterval(3600000);
+        workerProperties.setFailureThreshold(2);
+        workerProperties.setProbation(200);
+        workerProperties.getNodes().add(node("a", URL_A));
+        workerProperties.getNodes().add(node("b", URL_B));
+        workerProperties.getNodes().add(node("c", URL_C));
+        ReflectionTestUtils.setField(workerManager, "workerProperties", workerProperties);
+
+        workerManager.init();
+        // 等待启动时的第一轮探测完成，之后的计数不会被后台线程改变
+        verify(reconstructionTaskService, timeout(5000).times(2)).countProcessingTasksByWorker();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        workerManager.destroy();
+    }
+
+    /**
+     * 测试按最少在途任务选择节点，在途任务数相同时轮流选择
+     */
+    @Test
+    public void testAcquireLeastOutstanding() {
+        ReconstructionWorkerManager.Worker first = workerManager.acquire();
+        ReconstructionWorkerManager.Worker second = workerManager.acquire();
+        ReconstructionWorkerManager.Worker third = workerManager.acquire();
+        assertEquals(URL_A, first.getUrl());
+        assertEquals(URL_B, second.getUrl());
+        assertEquals(URL_C, third.getUrl());
+
+        // b结束一个任务后在途最少，下一个任务分配给b
+        workerManager.release(URL_B, 1000);
+        assertEquals(URL_B, workerManager.acquire().getUrl());
+
+        // 在途任务数相同时从上次选中节点的下一个开始轮流选择
+        assertEquals(URL_C, workerManager.acquire().getUrl());
+        assertEquals(URL_A, workerManager.acquire().getUrl());
+        assertEquals(2, inFlight("a"));
+        assertEquals(1, inFlight("b"));
+        assertEquals(2, inFlight("c"));
+    }
+
+    /**
+     * 测试连续失败后摘除节点，观察期结束且探测成功后恢复
+     */
+    @Test
+    public void testEjectionAndProbation() throws InterruptedException {
+        ReconstructionWorkerManager.Worker workerA = workerManager.getWorker(URL_A);
+        workerManager.recordSubmit(workerA, false, 10);
+        assertTrue(isAvailable("a"), "未达到失败阈值时不摘除");
+        workerManager.recordSubmit(workerA, false, 10);
+        assertFalse(isAvailable("a"), "连续失败达到阈值后摘除");
+        assertEquals(0, inFlight("a"), "提交失败的任务不占用在途名额");
+
+        // 观察期内不再分配到a
+        for (int i = 0; i < 4; i++) {
+            assertNotEquals(URL_A, workerManager.acquire().getUrl());
+        }
+        assertTrue(workerManager.hasAvailableWorker());
+
+        // 观察期内探测成功也不恢复
+        ReflectionTestUtils.invokeMethod(workerManager, "onProbeResult", workerA, true, "status code 200");
+        assertFalse(isAvailable("a"));
+
+        Thread.sleep(workerProperties.getProbation() + 50);
+        // 观察期结束但最近一次探测失败，仍不可用
+        ReflectionTestUtils.invokeMethod(workerManager, "onProbeResult", workerA, false, "connection refused");
+        assertFalse(isAvailable("a"));
+
+        Thread.sleep(workerProperties.getProbation() + 50);
+        ReflectionTestUtils.invokeMethod(workerManager, "onProbeResult", workerA, true, "status code 200");
+        assertTrue(isAvailable("a"));
+        assertEquals(0L, ((Number) metrics("a").get("ejectedUntil")).longValue());
+        assertEquals(0, ((Number) metrics("a").get("consecutiveFailures")).intValue());
+        assertEquals(URL_A, workerManager.acquire().getUrl(), "恢复后的节点在途任务最少");
+    }
+
+    /**
+     * 测试所有节点都被摘除时没有可用节点
+     */
+    @Test
+    public void testNoAvailableWorker() {
+        for (String url : new String[]{URL_A, URL_B, URL_C}) {
+            workerManager.reportLost(url);
+            workerManager.reportLost(url);
+        }
+        assertFalse(workerManager.hasAvailableWorker());
+        assertNull(workerManager.acquire());
+        assertEquals(2L, ((Number) metrics("b").get("lostTasks")).longValue());
+    }
+
+    /**
+     * 测试任务结束和归还名额
+     */
+    @Test
+    public void testRelease() {
+        ReconstructionWorkerManager.Worker worker = workerManager.acquire();
+        workerManager.acquire();
+        assertEquals(1, inFlight("a"));
+
+        workerManager.release(worker.getUrl(), 2000);
+        assertEquals(0, inFlight("a"));
+        assertEquals(2000L, ((Number) metrics("a").get("jobLatencyMs")).longValue());
+
+        // 重复释放不会变为负数，未知节点和空URL被忽略
+        workerManager.release(worker.getUrl(), -1);
+        workerManager.release("http://unknown:8001/generate3d", 1000);
+        workerManager.release(null, 1000);
+        assertEquals(0, inFlight("a"));
+        assertEquals(1, inFlight("b"));
+
+        // 未使用的名额直接归还，不记录耗时
+        workerManager.cancel(workerManager.getWorker(URL_B));
+        assertEquals(0, inFlight("b"));
+        assertEquals(0L, ((Number) metrics("b").get("jobLatencyMs")).longValue());
+    }
+
+    /**
+     * 测试按数据库校准在途任务数，其他后端节点派发和结束的任务在校准后生效
+     */
+    @Test
+    public void testSyncInFlightFromDatabase() {
+        workerManager.acquire();
+        assertEquals(1, inFlight("a"));
+
+        // 其他后端节点向b派发了3个任务，本节点派发到a的任务已在其他节点收到回调
+        Map<String, Long> processing = new HashMap<>();
+        processing.put(URL_B, 3L);
+        processing.put("http://removed:8001/generate3d", 5L);
+        when(reconstructionTaskService.countProcessingTasksByWorker()).thenReturn(processing);
+        ReflectionTestUtils.invokeMethod(workerManager, "syncInFlight");
+
+        assertEquals(0, inFlight("a"));
+        assertEquals(3, inFlight("b"));
+        assertEquals(0, inFlight("c"));
+        assertEquals(URL_C, workerManager.acquire().getUrl());
+        assertEquals(URL_A, workerManager.acquire().getUrl());
+
+        // 查询失败时保留当前计数
+        when(reconstructionTaskService.countProcessingTasksByWorker()).thenThrow(new RuntimeException("db down"));
+        ReflectionTestUtils.invokeMethod(workerManager, "syncInFlight");
+        assertEquals(3, inFlight("b"));
+    }
+
+    private static ReconstructionWorkerProperties.Node node(String name, String url) {
+        ReconstructionWorkerProperties.Node node = new ReconstructionWorkerProperties.Node();
+        node.setName(name);
+        node.setUrl(url);
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> metrics(String name) {
+        return (Map<String, Object>) workerManager.getMetrics().get(name);
+    }
+
+    private int inFlight(String name) {
+        return ((Number) metrics(name).get("inFlight")).intValue();
+    }
+
+    private boolean isAvailable(String name) {
+        return (Boolean) metrics(name).get("available");
+    }
+}
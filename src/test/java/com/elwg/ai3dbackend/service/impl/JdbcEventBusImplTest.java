@@ -0,0 +1,167 @@
+package com.elwg.ai3dbackend.service.impl;
+
+import com.elwg.ai3dbackend.model.entity.EventBusMessage;
+import com.elwg.ai3dbackend.stub.InMemoryEventBusMessageMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 基于MySQL轮询的事件总线测试类
+ * <p>
+ * 消息表使用内存实现，轮询由测试线程直接调用，不依赖调度器
+ * </p>
+ */
+public class JdbcEventBusImplTest {
+
+    private JdbcEventBusImpl eventBus;
+
+    private InMemoryEventBusMessageMapper messageTable;
+
+    private final List<EventBusMessage> delivered = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        messageTable = new InMemoryEventBusMessageMapper();
+        eventBus = new JdbcEventBusImpl();
+        ReflectionTestUtils.setField(eventBus, "eventBusMessageMapper", messageTable.proxy());
+        ReflectionTestUtils.setField(eventBus, "nodeId", "test-node");
+        // 调度器的首次轮询在一小时后，测试期间不会与手动轮询并发
+        ReflectionTestUtils.setField(eventBus, "pollInterval", 3600000L);
+        ReflectionTestUtils.setField(eventBus, "batchSize", 2);
+        ReflectionTestUtils.setField(eventBus, "gapTimeout", 60000L);
+        ReflectionTestUtils.setField(eventBus, "retentionSeconds", 600L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        eventBus.destroy();
+    }
+
+    /**
+     * 测试按ID顺序分批送达，游标随送达推进，启动前的消息不重放
+     */
+    @Test
+    public void testPollAdvancesCursorInBatches() {
+        messageTable.proxy().insert(message("before-start"));
+        start();
+        assertEquals(1L, eventBus.getStartEventId());
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(eventBus.publish("1", "status", "\"event-" + i + "\""));
+        }
+
+        poll();
+        assertEquals(List.of(2L, 3L), deliveredIds());
+        assertEquals(3L, eventBus.getMetrics().get("lastEventId"));
+        poll();
+        poll();
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L), deliveredIds());
+        poll();
+        assertEquals(5, delivered.size(), "没有新消息时不重复送达");
+        assertEquals(6L, eventBus.getMetrics().get("lastEventId"));
+        assertEquals("test-node", delivered.get(0).getNodeId());
+    }
+
+    /**
+     * 测试ID空洞在等待期内被晚提交的消息补上时，按顺序送达且不跳过任何ID
+     */
+    @Test
+    public void testWaitsForLateCommit() {
+        start();
+        eventBus.publish("1", "status", "\"a\"");
+        long pendingId = messageTable.reserveId();
+        eventBus.publish("1", "status", "\"c\"");
+
+        poll();
+        assertEquals(List.of(1L), deliveredIds(), "遇到空洞时停在空洞之前");
+        poll();
+        assertEquals(List.of(1L), deliveredIds(), "等待期内不跳过空洞");
+        assertEquals(1L, eventBus.getMetrics().get("lastEventId"));
+
+        EventBusMessage late = message("\"b\"");
+        late.setId(pendingId);
+        messageTable.commit(late);
+        poll();
+        assertEquals(List.of(1L, 2L, 3L), deliveredIds());
+        assertEquals(0L, eventBus.getMetrics().get("skippedIds"));
+    }
+
+    /**
+     * 测试等待超时后跳过永久空洞，之后的新空洞重新计时
+     */
+    @Test
+    public void testSkipsPermanentGapAfterTimeout() throws InterruptedException {
+        ReflectionTestUtils.setField(eventBus, "gapTimeout", 100L);
+        ReflectionTestUtils.setField(eventBus, "batchSize", 10);
+        start();
+        eventBus.publish("1", "status", "\"a\"");
+        messageTable.reserveId();
+        messageTable.reserveId();
+        eventBus.publish("1", "status", "\"d\"");
+
+        poll();
+        assertEquals(List.of(1L), deliveredIds());
+
+        Thread.sleep(150);
+        poll();
+        assertEquals(List.of(1L, 4L), deliveredIds());
+        assertEquals(2L, eventBus.getMetrics().get("skippedIds"));
+        assertEquals(4L, eventBus.getMetrics().get("lastEventId"));
+
+        // 新的空洞不沿用上一个空洞的等待时间
+        messageTable.reserveId();
+        eventBus.publish("1", "status", "\"f\"");
+        poll();
+        assertEquals(List.of(1L, 4L), deliveredIds());
+        assertEquals(4L, eventBus.getMetrics().get("lastEventId"));
+    }
+
+    /**
+     * 测试监听器抛出异常时不影响游标推进和后续消息
+     */
+    @Test
+    public void testListenerFailureDoesNotStallCursor() {
+        eventBus.subscribe(message -> {
+            throw new IllegalStateException("listener failed");
+        });
+        start();
+        eventBus.publish("1", "status", "\"a\"");
+        eventBus.publish("1", "status", "\"b\"");
+
+        poll();
+        assertEquals(List.of(1L, 2L), deliveredIds());
+        assertEquals(2L, eventBus.getMetrics().get("delivered"));
+    }
+
+    private void start() {
+        eventBus.subscribe(message -> delivered.add(message));
+        eventBus.init();
+    }
+
+    private void poll() {
+        ReflectionTestUtils.invokeMethod(eventBus, "poll");
+    }
+
+    private List<Long> deliveredIds() {
+        return delivered.stream().map(EventBusMessage::getId).collect(Collectors.toList());
+    }
+
+    private static EventBusMessage message(String data) {
+        EventBusMessage message = new EventBusMessage();
+        message.setTaskId("1");
+        message.setEventName("status");
+        message.setData(data);
+        message.setNodeId("test-node");
+        message.setCreateTime(new Date());
+        return message;
+    }
+}
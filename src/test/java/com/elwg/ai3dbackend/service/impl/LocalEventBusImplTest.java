@@ -0,0 +1,80 @@
+package com.elwg.ai3dbackend.service.impl;
+
+import com.elwg.ai3dbackend.model.entity.EventBusMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 进程内事件总线测试类
+ */
+public class LocalEventBusImplTest {
+
+    /**
+     * 测试多个线程并发发布同一任务的事件时，监听器按ID递增的顺序收到全部事件
+     */
+    @Test
+    public void testConcurrentPublishDeliversInIdOrder() throws InterruptedException {
+        LocalEventBusImpl eventBus = new LocalEventBusImpl();
+        List<Long> deliveredIds = new ArrayList<>();
+        eventBus.subscribe(message -> {
+            synchronized (deliveredIds) {
+                deliveredIds.add(message.getId());
+            }
+            return true;
+        });
+
+        int publishers = 8;
+        int eventsPerPublisher = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(publishers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < publishers; p++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < eventsPerPublisher; i++) {
+                    eventBus.publish("1", "status", "\"event\"");
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(publishers * eventsPerPublisher, deliveredIds.size());
+        long previous = eventBus.getStartEventId();
+        for (Long id : deliveredIds) {
+            assertTrue(id > previous, "事件" + id + "在事件" + previous + "之后送达");
+            previous = id;
+        }
+        assertEquals(previous, eventBus.getMetrics().get("lastEventId"));
+    }
+
+    /**
+     * 测试监听器抛出异常时不影响其他监听器
+     */
+    @Test
+    public void testListenerFailureDoesNotAffectOthers() {
+        LocalEventBusImpl eventBus = new LocalEventBusImpl();
+        List<EventBusMessage> delivered = new ArrayList<>();
+        eventBus.subscribe(message -> {
+            throw new IllegalStateException("listener failed");
+        });
+        eventBus.subscribe(delivered::add);
+
+        assertTrue(eventBus.publish("1", "status", "\"a\""));
+        assertEquals(1, delivered.size());
+        assertEquals(eventBus.getStartEventId() + 1, delivered.get(0).getId());
+    }
+}
@@ -0,0 +1,189 @@
+package com.elwg.ai3dbackend.service.impl;
+
+import com.elwg.ai3dbackend.constant.TaskStatus;
+import com.elwg.ai3dbackend.model.entity.Picture;
+import com.elwg.ai3dbackend.model.entity.ReconstructionTask;
+import com.elwg.ai3dbackend.service.EventStreamService;
+import com.elwg.ai3dbackend.service.PictureService;
+import com.elwg.ai3dbackend.service.ReconstructionResultCacheService;
+import com.elwg.ai3dbackend.service.ReconstructionTaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 3D重建批量任务服务测试类
+ */
+public class ReconstructionBatchServiceImplTest {
+
+    private static final Long USER_ID = 1L;
+
+    @InjectMocks
+    private ReconstructionBatchServiceImpl reconstructionBatchService;
+
+    @Mock
+    private ReconstructionTaskService reconstructionTaskService;
+
+    @Mock
+    private PictureService pictureService;
+
+    @Mock
+    private EventStreamService eventStreamService;
+
+    @Mock
+    private ReconstructionResultCacheService reconstructionResultCacheService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(reconstructionBatchService, "maxSize", 500);
+        // 在调用线程中直接计算内容哈希
+        ReflectionTestUtils.setField(reconstructionBatchService, "reconstructionTaskExecutor", (Executor) Runnable::run);
+
+        when(pictureService.listByIds(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(ReconstructionBatchServiceImplTest::picture).collect(Collectors.toList());
+        });
+        when(pictureService.getContentHash(any(Picture.class)))
+                .thenAnswer(invocation -> "hash-" + invocation.<Picture>getArgument(0).getId());
+    }
+
+    /**
+     * 测试批次进度按状态统计，取消和失败的任务计入已结束
+     */
+    @Test
+    public void testGetProgress() {
+        Map<String, Long> counts = new HashMap<>();
+        counts.put(TaskStatus.PENDING, 1L);
+        counts.put(TaskStatus.PROCESSING, 2L);
+        counts.put(TaskStatus.COMPLETED, 3L);
+        counts.put(TaskStatus.FAILED, 1L);
+        counts.put(TaskStatus.CANCELLED, 2L);
+        when(reconstructionTaskService.countBatchTasksByStatus(10L)).thenReturn(counts);
+
+        Map<String, Object> progress = reconstructionBatchService.getProgress(10L);
+        assertEquals("10", progress.get("batchId"));
+        assertEquals(9L, progress.get("total"));
+        assertEquals(1L, progress.get("pending"));
+        assertEquals(2L, progress.get("processing"));
+        assertEquals(3L, progress.get("completed"));
+        assertEquals(1L, progress.get("failed"));
+        assertEquals(2L, progress.get("cancelled"));
+        assertEquals(false, progress.get("finished"));
+    }
+
+    /**
+     * 测试所有任务完成、失败或取消后批次结束
+     */
+    @Test
+    public void testGetProgressFinished() {
+        Map<String, Long> counts = new HashMap<>();
+        counts.put(TaskStatus.COMPLETED, 2L);
+        counts.put(TaskStatus.FAILED, 1L);
+        counts.put(TaskStatus.CANCELLED, 1L);
+        when(reconstructionTaskService.countBatchTasksByStatus(10L)).thenReturn(counts);
+
+        Map<String, Object> progress = reconstructionBatchService.getProgress(10L);
+        assertEquals(4L, progress.get("total"));
+        assertEquals(0L, progress.get("pending"));
+        assertEquals(0L, progress.get("processing"));
+        assertEquals(true, progress.get("finished"));
+
+        // 只有取消的任务也算结束
+        when(reconstructionTaskService.countBatchTasksByStatus(11L)).thenReturn(Map.of(TaskStatus.CANCELLED, 3L));
+        assertEquals(true, reconstructionBatchService.getProgress(11L).get("finished"));
+    }
+
+    /**
+     * 测试不存在的批次没有进度
+     */
+    @Test
+    public void testGetProgressNotFound() {
+        when(reconstructionTaskService.countBatchTasksByStatus(anyLong())).thenReturn(new HashMap<>());
+        assertNull(reconstructionBatchService.getProgress(10L));
+    }
+
+    /**
+     * 测试批量创建时先查询结果缓存，只插入未命中的任务
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCreateBatchInsertsOnlyCacheMisses() {
+        ReconstructionTask cachedTask = new ReconstructionTask();
+        cachedTask.setId(200L);
+        cachedTask.setStatus(TaskStatus.COMPLETED);
+        cachedTask.setSourceImageId(2L);
+        when(reconstructionResultCacheService.completeFromCache(eq(USER_ID), any(Picture.class), eq("hash-2"), anyLong()))
+                .thenReturn(cachedTask);
+
+        // 重复的图片ID只创建一个任务
+        List<ReconstructionTask> tasks = reconstructionBatchService.createBatch(USER_ID, 1,
+                Arrays.asList(1L, 2L, 3L, 2L), "http://backend/api/reconstruction/callback");
+
+        assertEquals(Arrays.asList(1L, 2L, 3L),
+                tasks.stream().map(ReconstructionTask::getSourceImageId).collect(Collectors.toList()));
+        assertSame(cachedTask, tasks.get(1));
+
+        ArgumentCaptor<List<ReconstructionTask>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(reconstructionTaskService).createTasks(inserted.capture());
+        assertEquals(2, inserted.getValue().size());
+        Long batchId = tasks.get(0).getBatchId();
+        for (ReconstructionTask task : inserted.getValue()) {
+            assertEquals(TaskStatus.PENDING, task.getStatus());
+            assertEquals(batchId, task.getBatchId());
+            assertEquals("hash-" + task.getSourceImageId(), task.getContentHash());
+        }
+        // 缓存命中的任务属于同一批次
+        verify(reconstructionResultCacheService).completeFromCache(eq(USER_ID), any(Picture.class), eq("hash-2"), eq(batchId));
+        verify(reconstructionResultCacheService, times(3)).completeFromCache(anyLong(), any(Picture.class), anyString(), anyLong());
+        verify(eventStreamService).subscribeTask(USER_ID, batchId.toString());
+    }
+
+    /**
+     * 测试所有图片都命中缓存时不执行批量插入
+     */
+    @Test
+    public void testCreateBatchAllCached() {
+        when(reconstructionResultCacheService.completeFromCache(anyLong(), any(Picture.class), anyString(), anyLong()))
+                .thenAnswer(invocation -> {
+                    ReconstructionTask task = new ReconstructionTask();
+                    task.setStatus(TaskStatus.COMPLETED);
+                    task.setSourceImageId(invocation.<Picture>getArgument(1).getId());
+                    task.setBatchId(invocation.getArgument(3));
+                    return task;
+                });
+        when(reconstructionTaskService.countBatchTasksByStatus(anyLong())).thenReturn(Map.of(TaskStatus.COMPLETED, 2L));
+
+        List<ReconstructionTask> tasks = reconstructionBatchService.createBatch(USER_ID, 1, Arrays.asList(1L, 2L), null);
+
+        assertEquals(2, tasks.size());
+        verify(reconstructionTaskService, never()).createTasks(anyList());
+        verify(eventStreamService).sendEvent(eq(tasks.get(0).getBatchId().toString()), eq("progress"),
+                argThat(progress -> Boolean.TRUE.equals(((Map<?, ?>) progress).get("finished"))));
+    }
+
+    private static Picture picture(Long id) {
+        Picture picture = new Picture();
+        picture.setId(id);
+        return picture;
+    }
+}
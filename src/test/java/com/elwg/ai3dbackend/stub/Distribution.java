@@ -0,0 +1,130 @@
+package com.elwg.ai3dbackend.stub;
+
+import java.util.Random;
+
+/**
+ * 取值分布，用于生成模拟重建服务的耗时（毫秒）和结果文件大小（字节）
+ * <p>
+ * 支持的格式：
+ * <ul>
+ *     <li>{@code 500} 或 {@code fixed:500}：固定值</li>
+ *     <li>{@code uniform:200-800}：均匀分布</li>
+ *     <li>{@code normal:500,100}：正态分布（均值，标准差），小于0的取值按0处理</li>
+ *     <li>{@code lognormal:500,0.5}：对数正态分布（中位数，对数标准差），适合长尾的推理耗时</li>
+ *     <li>{@code exp:500}：指数分布（均值）</li>
+ * </ul>
+ * 数值可以带k/m/g后缀（按1024换算），便于配置文件大小
+ * </p>
+ */
+public final class Distribution {
+
+    private final String spec;
+
+    private final String type;
+
+    private final double a;
+
+    private final double b;
+
+    private Distribution(String spec, String type, double a, double b) {
+        this.spec = spec;
+        this.type = type;
+        this.a = a;
+        this.b = b;
+    }
+
+    /**
+     * 解析分布
+     *
+     * @param spec 分布描述
+     * @return 分布
+     * @throws IllegalArgumentException 如果格式不正确
+     */
+    public static Distribution parse(String spec) {
+        String value = spec.trim().toLowerCase();
+        int colon = value.indexOf(':');
+        if (colon < 0) {
+            return new Distribution(spec, "fixed", parseNumber(value), 0);
+        }
+        String type = value.substring(0, colon);
+        String args = value.substring(colon + 1);
+        switch (type) {
+            case "fixed":
+            case "exp":
+                return new Distribution(spec, type, parseNumber(args), 0);
+            case "uniform": {
+                String[] range = args.split("-");
+                requireArgs(spec, range.length == 2);
+                double min = parseNumber(range[0]);
+                double max = parseNumber(range[1]);
+                requireArgs(spec, min <= max);
+                return new Distribution(spec, type, min, max);
+            }
+            case "normal":
+            case "lognormal": {
+                String[] params = args.split(",");
+                requireArgs(spec, params.length == 2);
+                // 对数标准差是无量纲的，不按后缀换算
+                double second = "lognormal".equals(type) ? Double.parseDouble(params[1].trim()) : parseNumber(params[1]);
+                return new Distribution(spec, type, parseNumber(params[0]), second);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + spec);
+        }
+    }
+
+    /**
+     * 按分布取一个值
+     *
+     * @param random 随机数生成器
+     * @return 不小于0的取值
+     */
+    public long sample(Random random) {
+        double value;
+        switch (type) {
+            case "uniform":
+                value = a + (b - a) * random.nextDouble();
+                break;
+            case "normal":
+                value = a + b * random.nextGaussian();
+                break;
+            case "lognormal":
+                value = a * Math.exp(b * random.nextGaussian());
+                break;
+            case "exp":
+                value = -a * Math.log(1 - random.nextDouble());
+                break;
+            default:
+                value = a;
+        }
+        return Math.max(Math.round(value), 0);
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    private static double parseNumber(String text) {
+        String value = text.trim();
+        long unit = 1;
+        char suffix = value.isEmpty() ? ' ' : value.charAt(value.length() - 1);
+        if (suffix == 'k') {
+            unit = 1024;
+        } else if (suffix == 'm') {
+            unit = 1024 * 1024;
+        } else if (suffix == 'g') {
+            unit = 1024 * 1024 * 1024;
+        }
+        if (unit > 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+        return Double.parseDouble(value) * unit;
+    }
+
+    private static void requireArgs(String spec, boolean valid) {
+        if (!valid) {
+            throw new IllegalArgumentException("Invalid distribution: " + spec);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.elwg.ai3dbackend.stub;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.elwg.ai3dbackend.mapper.EventBusMessageMapper;
+import com.elwg.ai3dbackend.model.entity.EventBusMessage;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 内存中的事件总线消息表
+ * <p>
+ * 在没有MySQL的情况下测试和压测JdbcEventBusImpl，只实现总线用到的insert、selectOne、selectList和delete，
+ * 查询条件从Wrapper的参数中读取。insert按ID顺序提交；{@link #reserveId()}只占用ID不写入消息，
+ * 用于模拟尚未提交或已回滚的事务留下的ID空洞，之后可以用{@link #commit(EventBusMessage)}补上
+ * </p>
+ */
+public class InMemoryEventBusMessageMapper implements InvocationHandler {
+
+    private static final Pattern LIMIT_PATTERN = Pattern.compile("LIMIT\\s+(\\d+)");
+
+    static {
+        // Lambda条件需要实体的表信息才能解析列名
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), EventBusMessage.class);
+    }
+
+    /**
+     * 已提交的消息，按ID排序
+     */
+    private final ConcurrentSkipListMap<Long, EventBusMessage> messages = new ConcurrentSkipListMap<>();
+
+    /**
+     * 自增ID
+     */
+    private final AtomicLong idSequence = new AtomicLong(0);
+
+    /**
+     * 轮询查询次数
+     */
+    private final AtomicLong selectCount = new AtomicLong(0);
+
+    /**
+     * 创建Mapper代理
+     *
+     * @return 读写本对象的EventBusMessageMapper
+     */
+    public EventBusMessageMapper proxy() {
+        return (EventBusMessageMapper) Proxy.newProxyInstance(EventBusMessageMapper.class.getClassLoader(),
+                new Class<?>[]{EventBusMessageMapper.class}, this);
+    }
+
+    /**
+     * 占用一个ID但不写入消息
+     *
+     * @return 占用的ID
+     */
+    public long reserveId() {
+        return idSequence.incrementAndGet();
+    }
+
+    /**
+     * 写入一条已分配ID的消息，模拟晚提交的事务
+     *
+     * @param message 消息，ID不能为空
+     */
+    public void commit(EventBusMessage message) {
+        messages.put(message.getId(), message);
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    public long getSelectCount() {
+        return selectCount.get();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "insert":
+                return insert((EventBusMessage) args[0]);
+            case "selectOne":
+                return messages.isEmpty() ? null : messages.lastEntry().getValue();
+            case "selectList":
+                return selectAfter(findWrapper(args));
+            case "delete":
+                return deleteBefore(findWrapper(args));
+            case "toString":
+                return "InMemoryEventBusMessageMapper(" + messages.size() + " messages)";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    private synchronized int insert(EventBusMessage message) {
+        if (message.getId() == null) {
+            message.setId(reserveId());
+        }
+        commit(message);
+        return 1;
+    }
+
+    /**
+     * 对应 id > ? ORDER BY id LIMIT n
+     */
+    private List<EventBusMessage> selectAfter(AbstractWrapper<?, ?, ?> wrapper) {
+        selectCount.incrementAndGet();
+        long afterId = ((Number) firstParam(wrapper)).longValue();
+        Matcher matcher = LIMIT_PATTERN.matcher(wrapper.getSqlSegment());
+        int limit = matcher.find() ? Integer.parseInt(matcher.group(1)) : Integer.MAX_VALUE;
+        List<EventBusMessage> result = new ArrayList<>();
+        for (EventBusMessage message : messages.tailMap(afterId, false).values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(message);
+        }
+        return result;
+    }
+
+    /**
+     * 对应 createTime < ?
+     */
+    private int deleteBefore(AbstractWrapper<?, ?, ?> wrapper) {
+        Date expireBefore = (Date) firstParam(wrapper);
+        int deleted = 0;
+        for (EventBusMessage message : messages.values()) {
+            if (message.getCreateTime().before(expireBefore) && messages.remove(message.getId(), message)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private static AbstractWrapper<?, ?, ?> findWrapper(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof AbstractWrapper) {
+                return (AbstractWrapper<?, ?, ?>) arg;
+            }
+        }
+        throw new UnsupportedOperationException("Query without wrapper");
+    }
+
+    private static Object firstParam(AbstractWrapper<?, ?, ?> wrapper) {
+        return wrapper.getParamNameValuePairs().values().iterator().next();
+    }
+}
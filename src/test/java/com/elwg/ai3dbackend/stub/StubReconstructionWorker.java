@@ -0,0 +1,660 @@
+package com.elwg.ai3dbackend.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 模拟的Python 3D重建服务
+ * <p>
+ * 实现后端使用的重建服务协议：POST /generate3d（image文件或image_url）、GET /health、POST /cancel，
+ * 接收任务后按配置的耗时分阶段回调 {callback_url}/result/{task_id}（pixel_images.png、xyz_images.png、output3d.zip）
+ * 和 {callback_url}/status。回调内容是按配置大小生成的合成数据，不需要GPU，
+ * 用于在本机对派发、回调、存储和SSE推送的整条链路做可重复的吞吐测试
+ * </p>
+ * <p>
+ * 可以通过{@link #main(String[])}独立运行，也可以在测试代码中通过{@link #start(StubWorkerOptions)}嵌入启动。
+ * 后端的 reconstruction.http.server.url 或 reconstruction.workers.nodes 指向 {@link #getBaseUrl()} + /generate3d 即可
+ * </p>
+ */
+@Slf4j
+public class StubReconstructionWorker {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    private static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private final StubWorkerOptions options;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 用于按分布取值，所有取值在接收任务时按请求顺序完成，相同种子下结果可重复
+     */
+    private final Random random;
+
+    /**
+     * 等待处理和处理中的任务
+     */
+    private final Map<String, StubTask> tasks = new ConcurrentHashMap<>();
+
+    private final AtomicLong acceptedCount = new AtomicLong(0);
+
+    private final AtomicLong rejectedCount = new AtomicLong(0);
+
+    private final AtomicLong completedCount = new AtomicLong(0);
+
+    private final AtomicLong failedCount = new AtomicLong(0);
+
+    private final AtomicLong cancelledCount = new AtomicLong(0);
+
+    private final AtomicLong callbackErrorCount = new AtomicLong(0);
+
+    private final AtomicLong bytesSent = new AtomicLong(0);
+
+    private HttpServer server;
+
+    private ExecutorService requestExecutor;
+
+    /**
+     * 处理任务的线程池，线程数等于GPU数，其余任务在队列中等待
+     */
+    private ThreadPoolExecutor gpuExecutor;
+
+    private OkHttpClient client;
+
+    /**
+     * 回调监听器，可以为null
+     */
+    private volatile CallbackListener callbackListener;
+
+    private StubReconstructionWorker(StubWorkerOptions options) {
+        this.options = options;
+        this.random = new Random(options.getSeed());
+    }
+
+    /**
+     * 启动模拟服务
+     *
+     * @param options 配置
+     * @return 已启动的服务
+     * @throws IOException 如果端口无法监听
+     */
+    public static StubReconstructionWorker start(StubWorkerOptions options) throws IOException {
+        StubReconstructionWorker worker = new StubReconstructionWorker(options);
+        worker.startServer();
+        return worker;
+    }
+
+    /**
+     * 独立运行模拟服务
+     *
+     * @param args 命令行参数，见{@link StubWorkerOptions#parse(String[])}
+     * @throws IOException 如果端口无法监听
+     */
+    public static void main(String[] args) throws IOException {
+        StubReconstructionWorker worker = start(StubWorkerOptions.parse(args));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            log.info("Stub worker stats: {}", worker.getStats());
+            worker.stop();
+        }));
+    }
+
+    private void startServer() throws IOException {
+        client = new OkHttpClient.Builder()
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .writeTimeout(60, TimeUnit.SECONDS)
+                .build();
+        gpuExecutor = new ThreadPoolExecutor(options.getGpuSlots(), options.getGpuSlots(), 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "stub-gpu");
+            thread.setDaemon(true);
+            return thread;
+        });
+        requestExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server = HttpServer.create(new InetSocketAddress(options.getPort()), 128);
+        server.setExecutor(requestExecutor);
+        server.createContext("/generate3d", exchange -> handle(exchange, this::handleGenerate));
+        server.createContext("/health", exchange -> handle(exchange, this::handleHealth));
+        server.createContext("/cancel", exchange -> handle(exchange, this::handleCancel));
+        server.createContext("/stats", exchange -> handle(exchange, ex -> respond(ex, 200, getStats())));
+        server.start();
+        log.info("Stub reconstruction worker listening on {}, options: {}", getBaseUrl(), options);
+    }
+
+    /**
+     * 停止模拟服务，未完成的任务不再回调
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (gpuExecutor != null) {
+            gpuExecutor.shutdownNow();
+        }
+        if (requestExecutor != null) {
+            requestExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 设置回调监听器，在每个回调请求发出前调用，用于测量回调到SSE事件送达的延迟
+     *
+     * @param callbackListener 监听器
+     */
+    public void setCallbackListener(CallbackListener callbackListener) {
+        this.callbackListener = callbackListener;
+    }
+
+    /**
+     * 获取服务地址
+     *
+     * @return 例如 http://127.0.0.1:8001
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * 获取运行统计
+     *
+     * @return 统计名称到统计值的映射
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("accepted", acceptedCount.get());
+        stats.put("rejected", rejectedCount.get());
+        stats.put("completed", completedCount.get());
+        stats.put("failed", failedCount.get());
+        stats.put("cancelled", cancelledCount.get());
+        stats.put("callbackErrors", callbackErrorCount.get());
+        stats.put("bytesSent", bytesSent.get());
+        stats.put("queued", gpuExecutor.getQueue().size());
+        stats.put("running", gpuExecutor.getActiveCount());
+        return stats;
+    }
+
+    /**
+     * 提交任务
+     */
+    private void handleGenerate(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, Map.of("detail", "Method Not Allowed"));
+            return;
+        }
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        Map<String, byte[]> form = parseMultipart(contentType, exchange.getRequestBody().readAllBytes());
+        String taskId = text(form.get("task_id"));
+        String callbackUrl = text(form.get("callback_url"));
+        String imageUrl = text(form.get("image_url"));
+        byte[] image = form.get("image");
+        if (taskId == null || callbackUrl == null || (image == null && imageUrl == null)) {
+            respond(exchange, 422, Map.of("detail", "Missing image, task_id or callback_url"));
+            return;
+        }
+        if (options.getQueueCapacity() > 0 && gpuExecutor.getQueue().size() >= options.getQueueCapacity()) {
+            rejectedCount.incrementAndGet();
+            respond(exchange, 503, Map.of("detail", "Service Unavailable: queue full"));
+            return;
+        }
+
+        StubTask task = plan(taskId, callbackUrl.replaceAll("/+$", ""), imageUrl);
+        sleep(task.acceptLatency);
+        tasks.put(taskId, task);
+        acceptedCount.incrementAndGet();
+        gpuExecutor.execute(() -> process(task));
+        log.info("Accepted task: {}, image: {}", taskId, image != null ? image.length + " bytes" : imageUrl);
+        respond(exchange, 200, Map.of("status", "accepted", "task_id", taskId));
+    }
+
+    /**
+     * 健康检查
+     */
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, Map.of("status", "healthy", "models_loaded", true));
+    }
+
+    /**
+     * 取消任务：排队中的任务不再处理，处理中的任务中断并不再回调
+     */
+    private void handleCancel(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String taskId = null;
+        for (String pair : body.split("&")) {
+            String[] keyValue = pair.split("=", 2);
+            if (keyValue.length == 2 && "task_id".equals(keyValue[0])) {
+                taskId = URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8);
+            }
+        }
+        StubTask task = taskId != null ? tasks.remove(taskId) : null;
+        if (task == null) {
+            respond(exchange, 404, Map.of("detail", "Task not found"));
+            return;
+        }
+        task.cancelled = true;
+        Thread thread = task.thread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        cancelledCount.incrementAndGet();
+        log.info("Cancelled task: {}", taskId);
+        respond(exchange, 200, Map.of("status", "cancelled", "task_id", taskId));
+    }
+
+    /**
+     * 按配置的分布确定任务各阶段的耗时、结果大小和是否失败
+     */
+    private StubTask plan(String taskId, String callbackUrl, String imageUrl) {
+        StubTask task = new StubTask(taskId, callbackUrl, imageUrl);
+        synchronized (random) {
+            task.acceptLatency = options.getAcceptLatency().sample(random);
+            task.stageLatencies = new long[]{
+                    options.getStage1Latency().sample(random),
+                    options.getStage2Latency().sample(random),
+                    options.getStage3Latency().sample(random)};
+            task.pixelSize = options.getPixelSize().sample(random);
+            task.xyzSize = options.getXyzSize().sample(random);
+            task.objSize = options.getObjSize().sample(random);
+            task.textureSize = options.getTextureSize().sample(random);
+            task.failStage = random.nextDouble() < options.getFailureRate() ? 1 + random.nextInt(3) : 0;
+        }
+        return task;
+    }
+
+    /**
+     * 在GPU线程中处理任务
+     */
+    private void process(StubTask task) {
+        if (task.cancelled) {
+            return;
+        }
+        task.thread = Thread.currentThread();
+        try {
+            if (task.imageUrl != null) {
+                downloadImage(task.imageUrl);
+            }
+            for (int stage = 1; stage <= 3; stage++) {
+                Thread.sleep(task.stageLatencies[stage - 1]);
+                if (task.cancelled) {
+                    return;
+                }
+                if (stage == task.failStage) {
+                    failedCount.incrementAndGet();
+                    sendStatus(task, "failed", "Simulated failure at stage " + stage);
+                    return;
+                }
+                boolean delivered = switch (stage) {
+                    case 1 -> sendPart(task, "pixel_images.png", "image/png", png(task.pixelSize));
+                    case 2 -> sendPart(task, "xyz_images.png", "image/png", png(task.xyzSize));
+                    default -> sendPart(task, "output3d.zip", "application/zip", zip(task));
+                };
+                if (!delivered) {
+                    // 后端拒绝回调（例如任务已被取消），不再继续处理
+                    log.info("Callback rejected, stopped task: {}", task.taskId);
+                    return;
+                }
+            }
+            completedCount.incrementAndGet();
+            sendStatus(task, "completed", null);
+        } catch (InterruptedException e) {
+            log.info("Interrupted task: {}", task.taskId);
+        } catch (Exception e) {
+            if (task.cancelled) {
+                // 取消时中断了正在进行的回调
+                return;
+            }
+            log.warn("Failed to process task: {}", task.taskId, e);
+            failedCount.incrementAndGet();
+            sendStatus(task, "failed", e.getMessage());
+        } finally {
+            task.thread = null;
+            tasks.remove(task.taskId);
+            // 清除取消时可能设置的中断状态，线程会被复用
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * 下载url派发方式下的源图片
+     */
+    private void downloadImage(String imageUrl) throws IOException {
+        Request request = new Request.Builder().url(imageUrl).get().build();
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("Failed to download image: " + response.code());
+            }
+            response.body().bytes();
+        }
+    }
+
+    /**
+     * 回调一个结果文件
+     *
+     * @return 后端是否接受
+     */
+    private boolean sendPart(StubTask task, String name, String contentType, byte[] data) throws IOException {
+        Request request;
+        if (options.isStream() && name.endsWith(".zip")) {
+            HttpUrl url = HttpUrl.get(task.callbackUrl + "/result/" + task.taskId + "/stream").newBuilder()
+                    .addQueryParameter("name", name)
+                    .addQueryParameter("content_type", contentType)
+                    .build();
+            request = new Request.Builder()
+                    .url(url)
+                    .header("X-Content-SHA256", sha256(data))
+                    .post(RequestBody.create(data, OCTET_STREAM))
+                    .build();
+        } else {
+            RequestBody body = new MultipartBody.Builder()
+                    .setType(MultipartBody.FORM)
+                    .addFormDataPart("name", name)
+                    .addFormDataPart("content_type", contentType)
+                    .addFormDataPart("file", name, RequestBody.create(data, MediaType.get(contentType)))
+                    .build();
+            request = new Request.Builder()
+                    .url(task.callbackUrl + "/result/" + task.taskId)
+                    .post(body)
+                    .build();
+        }
+        notifyCallback(task.taskId, name);
+        boolean delivered = execute(request);
+        if (delivered) {
+            bytesSent.addAndGet(data.length);
+        }
+        return delivered;
+    }
+
+    /**
+     * 回调任务最终状态
+     */
+    private void sendStatus(StubTask task, String status, String error) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("taskId", task.taskId);
+        body.put("status", status);
+        if (error != null) {
+            body.put("error", error);
+        }
+        try {
+            Request request = new Request.Builder()
+                    .url(task.callbackUrl + "/status")
+                    .post(RequestBody.create(objectMapper.writeValueAsBytes(body), JSON))
+                    .build();
+            notifyCallback(task.taskId, status);
+            execute(request);
+        } catch (IOException e) {
+            log.warn("Failed to send status of task: {}", task.taskId, e);
+        }
+    }
+
+    /**
+     * 发送回调请求
+     *
+     * @return 响应为2xx且响应体中的code为0（或没有code）时返回true
+     */
+    private boolean execute(Request request) throws IOException {
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            String text = body != null ? body.string() : "";
+            boolean accepted = response.isSuccessful();
+            if (accepted && !text.isEmpty()) {
+                JsonNode code = objectMapper.readTree(text).get("code");
+                accepted = code == null || code.asInt() == 0;
+            }
+            if (!accepted) {
+                callbackErrorCount.incrementAndGet();
+                log.warn("Callback {} rejected, code: {}, body: {}", request.url(), response.code(), text);
+            }
+            return accepted;
+        } catch (IOException e) {
+            callbackErrorCount.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private void notifyCallback(String taskId, String name) {
+        CallbackListener listener = callbackListener;
+        if (listener != null) {
+            listener.onCallback(taskId, name, System.nanoTime());
+        }
+    }
+
+    /**
+     * 生成带PNG文件头的合成图片
+     */
+    private static byte[] png(long size) {
+        byte[] data = new byte[(int) Math.max(size, PNG_SIGNATURE.length)];
+        ThreadLocalRandom.current().nextBytes(data);
+        System.arraycopy(PNG_SIGNATURE, 0, data, 0, PNG_SIGNATURE.length);
+        return data;
+    }
+
+    /**
+     * 生成包含model.obj、model.mtl和texture.png的模型压缩包
+     */
+    private static byte[] zip(StubTask task) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(buffer)) {
+            out.putNextEntry(new ZipEntry("model.obj"));
+            out.write(obj(task.objSize));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("model.mtl"));
+            out.write("newmtl material0\nmap_Kd texture.png\n".getBytes(StandardCharsets.US_ASCII));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("texture.png"));
+            out.write(png(task.textureSize));
+            out.closeEntry();
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * 生成指定大小的合成OBJ文本，每行一个随机顶点
+     */
+    private static byte[] obj(long size) {
+        byte[] data = new byte[(int) size];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int column = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (column == 0) {
+                data[i] = 'v';
+            } else if (column == 31) {
+                data[i] = '\n';
+                column = -1;
+            } else if (column % 10 == 1) {
+                data[i] = ' ';
+            } else {
+                data[i] = (byte) ('0' + random.nextInt(10));
+            }
+            column++;
+        }
+        return data;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+    }
+
+    /**
+     * 解析multipart/form-data请求体
+     *
+     * @return 字段名到字段内容的映射
+     */
+    private static Map<String, byte[]> parseMultipart(String contentType, byte[] body) {
+        Map<String, byte[]> fields = new HashMap<>();
+        int index = contentType != null ? contentType.indexOf("boundary=") : -1;
+        if (index < 0) {
+            return fields;
+        }
+        String boundary = contentType.substring(index + "boundary=".length()).replace("\"", "");
+        // ISO-8859-1与字节一一对应，按字符串切分后可以无损还原为字节
+        String content = new String(body, StandardCharsets.ISO_8859_1);
+        for (String part : content.split("--" + Pattern.quote(boundary))) {
+            int headerEnd = part.indexOf("\r\n\r\n");
+            if (headerEnd < 0) {
+                continue;
+            }
+            String headers = part.substring(0, headerEnd);
+            int nameStart = headers.indexOf("name=\"");
+            if (nameStart < 0) {
+                continue;
+            }
+            nameStart += "name=\"".length();
+            String name = headers.substring(nameStart, headers.indexOf('"', nameStart));
+            String value = part.substring(headerEnd + 4);
+            if (value.endsWith("\r\n")) {
+                value = value.substring(0, value.length() - 2);
+            }
+            fields.put(name, value.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        return fields;
+    }
+
+    private static String text(byte[] value) {
+        return value != null && value.length > 0 ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 处理请求，统一处理异常
+     */
+    private void handle(HttpExchange exchange, ExchangeHandler handler) {
+        try {
+            handler.handle(exchange);
+        } catch (Exception e) {
+            log.warn("Failed to handle request: {}", exchange.getRequestURI(), e);
+            try {
+                respond(exchange, 500, Map.of("detail", String.valueOf(e.getMessage())));
+            } catch (IOException ex) {
+                log.warn("Failed to write response: {}", exchange.getRequestURI(), ex);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange, int code, Object body) throws IOException {
+        byte[] data = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, data.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(data);
+        }
+    }
+
+    /**
+     * 回调监听器
+     */
+    @FunctionalInterface
+    public interface CallbackListener {
+
+        /**
+         * 回调请求发出前调用
+         *
+         * @param taskId 任务ID
+         * @param name 结果文件名（如pixel_images.png），状态回调时为状态（completed/failed）
+         * @param nanoTime 发出时间（{@link System#nanoTime()}）
+         */
+        void onCallback(String taskId, String name, long nanoTime);
+    }
+
+    @FunctionalInterface
+    private interface ExchangeHandler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * 模拟服务中的任务
+     */
+    private static class StubTask {
+
+        private final String taskId;
+
+        private final String callbackUrl;
+
+        private final String imageUrl;
+
+        private long acceptLatency;
+
+        private long[] stageLatencies;
+
+        private long pixelSize;
+
+        private long xyzSize;
+
+        private long objSize;
+
+        private long textureSize;
+
+        /**
+         * 失败的阶段（1~3），0表示不失败
+         */
+        private int failStage;
+
+        private volatile boolean cancelled;
+
+        /**
+         * 处理该任务的线程，用于取消时中断
+         */
+        private volatile Thread thread;
+
+        private StubTask(String taskId, String callbackUrl, String imageUrl) {
+            this.taskId = taskId;
+            this.callbackUrl = callbackUrl;
+            this.imageUrl = imageUrl;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.elwg.ai3dbackend.stub;
+
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 模拟重建服务的配置
+ * <p>
+ * 命令行参数使用 {@code --key=value} 格式，未指定的参数读取系统属性 {@code stub.key}，
+ * 例如 {@code --stage1-latency=lognormal:3000,0.4} 或 {@code -Dstub.failure-rate=0.05}
+ * </p>
+ */
+@Data
+public class StubWorkerOptions {
+
+    /**
+     * 监听端口，0表示随机端口
+     */
+    private int port = 8001;
+
+    /**
+     * 同时处理的任务数，模拟GPU数量，其余任务在服务内部排队
+     */
+    private int gpuSlots = 1;
+
+    /**
+     * 内部排队的最大任务数，超过后返回503，0表示不限制
+     */
+    private int queueCapacity = 0;
+
+    /**
+     * 接收任务请求的耗时
+     */
+    private Distribution acceptLatency = Distribution.parse("fixed:0");
+
+    /**
+     * 第一阶段（生成像素图像）的耗时
+     */
+    private Distribution stage1Latency = Distribution.parse("uniform:2000-4000");
+
+    /**
+     * 第二阶段（生成XYZ图像）的耗时
+     */
+    private Distribution stage2Latency = Distribution.parse("uniform:2000-4000");
+
+    /**
+     * 第三阶段（生成模型）的耗时
+     */
+    private Distribution stage3Latency = Distribution.parse("uniform:4000-8000");
+
+    /**
+     * 任务失败的概率（0~1），失败的任务在随机阶段发送failed状态
+     */
+    private double failureRate = 0;
+
+    /**
+     * pixel_images.png的大小
+     */
+    private Distribution pixelSize = Distribution.parse("512k");
+
+    /**
+     * xyz_images.png的大小
+     */
+    private Distribution xyzSize = Distribution.parse("512k");
+
+    /**
+     * 压缩包中model.obj的大小
+     */
+    private Distribution objSize = Distribution.parse("uniform:1m-4m");
+
+    /**
+     * 压缩包中texture.png的大小
+     */
+    private Distribution textureSize = Distribution.parse("1m");
+
+    /**
+     * 是否使用流式回调接口发送output3d.zip
+     */
+    private boolean stream = false;
+
+    /**
+     * 随机数种子，相同种子和相同请求顺序下生成相同的耗时和文件大小
+     */
+    private long seed = 42;
+
+    /**
+     * 解析命令行参数
+     *
+     * @param args 命令行参数
+     * @return 配置
+     * @throws IllegalArgumentException 如果参数格式不正确
+     */
+    public static StubWorkerOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Invalid argument: " + arg + ", expected --key=value");
+            }
+            int index = arg.indexOf('=');
+            values.put(arg.substring(2, index), arg.substring(index + 1));
+        }
+
+        StubWorkerOptions options = new StubWorkerOptions();
+        String value;
+        if ((value = get(values, "port")) != null) {
+            options.setPort(Integer.parseInt(value));
+        }
+        if ((value = get(values, "gpu-slots")) != null) {
+            options.setGpuSlots(Integer.parseInt(value));
+        }
+        if ((value = get(values, "queue-capacity")) != null) {
+            options.setQueueCapacity(Integer.parseInt(value));
+        }
+        if ((value = get(values, "accept-latency")) != null) {
+            options.setAcceptLatency(Distribution.parse(value));
+        }
+        if ((value = get(values, "stage1-latency")) != null) {
+            options.setStage1Latency(Distribution.parse(value));
+        }
+        if ((value = get(values, "stage2-latency")) != null) {
+            options.setStage2Latency(Distribution.parse(value));
+        }
+        if ((value = get(values, "stage3-latency")) != null) {
+            options.setStage3Latency(Distribution.parse(value));
+        }
+        if ((value = get(values, "failure-rate")) != null) {
+            options.setFailureRate(Double.parseDouble(value));
+        }
+        if ((value = get(values, "pixel-size")) != null) {
+            options.setPixelSize(Distribution.parse(value));
+        }
+        if ((value = get(values, "xyz-size")) != null) {
+            options.setXyzSize(Distribution.parse(value));
+        }
+        if ((value = get(values, "obj-size")) != null) {
+            options.setObjSize(Distribution.parse(value));
+        }
+        if ((value = get(values, "texture-size")) != null) {
+            options.setTextureSize(Distribution.parse(value));
+        }
+        if ((value = get(values, "stream")) != null) {
+            options.setStream(Boolean.parseBoolean(value));
+        }
+        if ((value = get(values, "seed")) != null) {
+            options.setSeed(Long.parseLong(value));
+        }
+        return options;
+    }
+
+    private static String get(Map<String, String> values, String key) {
+        String value = values.get(key);
+        return value != null ? value : System.getProperty("stub." + key);
+    }
+}
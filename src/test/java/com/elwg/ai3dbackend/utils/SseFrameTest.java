@@ -0,0 +1,110 @@
+package com.elwg.ai3dbackend.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 预编码SSE事件帧测试类
+ */
+public class SseFrameTest {
+
+    /**
+     * 测试带ID的事件帧编码
+     */
+    @Test
+    public void testEncodeWithId() throws IOException {
+        SseFrame frame = SseFrame.encode("42", 7L, "status", "{\"status\":\"COMPLETED\"}");
+        assertEquals("id:7\nevent:status\ndata:{\"status\":\"COMPLETED\"}\n\n", write(frame));
+        assertEquals("42", frame.getTopic());
+        assertEquals(7L, frame.getId());
+        assertEquals("status", frame.getName());
+    }
+
+    /**
+     * 测试没有ID的事件帧不输出id字段，避免覆盖客户端的Last-Event-ID
+     */
+    @Test
+    public void testEncodeWithoutId() throws IOException {
+        assertEquals("event:heartbeat\ndata:ping\n\n", write(SseFrame.HEARTBEAT));
+        assertNull(SseFrame.HEARTBEAT.getId());
+    }
+
+    /**
+     * 测试多行数据拆分为多个data字段，事件名称中的换行替换为空格
+     */
+    @Test
+    public void testEncodeMultiline() throws IOException {
+        SseFrame frame = SseFrame.encode(null, "bad\nname", "line1\nline2\r\nline3");
+        assertEquals("event:bad name\ndata:line1\ndata:line2\ndata:line3\n\n", write(frame));
+    }
+
+    /**
+     * 测试非ASCII字符按UTF-8编码，帧大小为字节数
+     */
+    @Test
+    public void testEncodeUtf8() throws IOException {
+        String data = "任务已取消 🚀";
+        SseFrame frame = SseFrame.encode(1L, "status", data);
+        String expected = "id:1\nevent:status\ndata:" + data + "\n\n";
+        assertEquals(expected, write(frame));
+        assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, frame.size());
+    }
+
+    /**
+     * 测试大事件编码后缓冲区收缩，不影响后续编码
+     */
+    @Test
+    public void testEncodeLargeThenSmall() throws IOException {
+        String large = "x".repeat(200 * 1024);
+        assertEquals(200 * 1024 + "event:big\ndata:\n\n".length(), SseFrame.encode(null, "big", large).size());
+        assertEquals("event:small\ndata:ok\n\n", write(SseFrame.encode(null, "small", "ok")));
+    }
+
+    /**
+     * 测试同一帧写出到多个连接时共享同一份字节
+     */
+    @Test
+    public void testWriteToSharesBytes() throws IOException {
+        SseFrame frame = SseFrame.encode(3L, "result", "{}");
+        CapturingEmitter first = new CapturingEmitter();
+        CapturingEmitter second = new CapturingEmitter();
+        frame.writeTo(first);
+        frame.writeTo(second);
+        assertSame(first.sent.get(0), second.sent.get(0));
+    }
+
+    private static String write(SseFrame frame) throws IOException {
+        CapturingEmitter emitter = new CapturingEmitter();
+        frame.writeTo(emitter);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Set<ResponseBodyEmitter.DataWithMediaType> items : emitter.sent) {
+            for (ResponseBodyEmitter.DataWithMediaType item : items) {
+                out.write((byte[]) item.getData());
+            }
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 记录写出内容的SSE连接，不依赖HTTP请求
+     */
+    private static class CapturingEmitter extends SseEmitter {
+
+        private final List<Set<ResponseBodyEmitter.DataWithMediaType>> sent = new ArrayList<>();
+
+        @Override
+        public synchronized void send(Set<ResponseBodyEmitter.DataWithMediaType> items) {
+            sent.add(items);
+        }
+    }
+}